@@ -0,0 +1,141 @@
+package cs.washington.mobileaccessibility.color;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.StringTokenizer;
+import java.util.Vector;
+
+import android.util.Log;
+
+/*
+ * This class times the precomputed ColorTable against the old way of naming a
+ * color, which copies the frame into ImageProcessor's reds/greens/blues arrays
+ * and then runs DecisionTreeClassifier on every pixel.
+ *
+ * The frames come from a file in the format that ImageProcessor.savePictureData
+ * writes (peri.txt), so the same pictures that were collected to train the tree
+ * can be replayed.  That file only has the RGB values of the central region, so
+ * each picture is turned back into an NV21 preview frame of the right size,
+ * with the picture in the middle, which is what the camera would have given us.
+ *
+ * It also counts how often the two ways come up with the same color, and goes
+ * through every possible YUV value to count the ones the table names
+ * differently from the tree, since the table is slightly coarser than the
+ * original trees.
+ */
+public class ClassifierBenchmark {
+
+	// how many times to classify each frame, to get measurable times
+	private static final int PASSES = 10;
+
+	// Runs the benchmark on the given file, and returns a summary that's
+	// short enough to speak
+	public static String run(String path) throws IOException {
+		Vector<byte []> frames = new Vector<byte []>();
+		Vector<int []> sizes = new Vector<int []>();
+		readFrames(path, frames, sizes);
+		if(frames.isEmpty())
+			return "No pictures found in " + path;
+
+		ColorTable.build();
+		int [] oldColors = new int[frames.size()];
+		int [] newColors = new int[frames.size()];
+		long oldTime = 0;
+		long newTime = 0;
+		for(int adHoc = 0; adHoc < 2; adHoc++) {
+			long start = System.currentTimeMillis();
+			for(int pass = 0; pass < PASSES; pass++) {
+				for(int i = 0; i < frames.size(); i++) {
+					int [] size = sizes.elementAt(i);
+					ImageProcessor.loadRGB(frames.elementAt(i), size[0], size[1]);
+					oldColors[i] = DecisionTreeClassifier.classifyPicture(ImageProcessor.reds,
+							ImageProcessor.greens, ImageProcessor.blues,
+							size[1]/3 - size[1]/6, size[0]/3 - size[0]/6, adHoc == 1);
+				}
+			}
+			oldTime += System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			for(int pass = 0; pass < PASSES; pass++) {
+				for(int i = 0; i < frames.size(); i++) {
+					int [] size = sizes.elementAt(i);
+					newColors[i] = ColorTable.classifyFrame(frames.elementAt(i), size[0], size[1], adHoc == 1);
+				}
+			}
+			newTime += System.currentTimeMillis() - start;
+
+			int agree = 0;
+			for(int i = 0; i < frames.size(); i++)
+				if(oldColors[i] == newColors[i])
+					agree++;
+			Log.i("ClassifierBenchmark", (adHoc == 1 ? "ad hoc" : "learnt") + " tree: " + agree + " of "
+					+ frames.size() + " pictures named the same");
+		}
+		int count = 2*PASSES*frames.size();
+		String summary = count + " frames: " + oldTime + " milliseconds before, "
+				+ newTime + " milliseconds with the table. Of the 16.7 million colors, "
+				+ ColorTable.countMismatches(false) + " are named differently by the learnt table and "
+				+ ColorTable.countMismatches(true) + " by the ad hoc table";
+		Log.i("ClassifierBenchmark", summary);
+		return summary;
+	}
+
+	// Read every picture in a peri.txt style file into an NV21 frame
+	private static void readFrames(String path, Vector<byte []> frames, Vector<int []> sizes) throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(path));
+		try {
+			int [] yuv = new int[3];
+			String name; // the name of the color, which we don't need
+			while((name = in.readLine()) != null) {
+				if(name.trim().length() == 0)
+					continue;
+				StringTokenizer st = new StringTokenizer(in.readLine());
+				int regionWidth = Integer.parseInt(st.nextToken());
+				int regionHeight = Integer.parseInt(st.nextToken());
+				// the region is from width/6 to width/3 of the half-size chroma plane
+				int width = 6*regionWidth;
+				int height = 6*regionHeight;
+				byte [] data = new byte[width*height*3/2];
+				for(int i = 0; i < regionWidth; i++) {
+					for(int j = 0; j < regionHeight; j++) {
+						st = new StringTokenizer(in.readLine());
+						toYUV(Integer.parseInt(st.nextToken()), Integer.parseInt(st.nextToken()),
+								Integer.parseInt(st.nextToken()), yuv);
+						int x = width/6 + i;
+						int y = height/6 + j;
+						for(int row = 2*y; row < 2*y + 2; row++) {
+							data[row*width + 2*x] = (byte) yuv[0];
+							data[row*width + 2*x + 1] = (byte) yuv[0];
+						}
+						int chroma = height*width + 2*(y*(width/2) + x);
+						data[chroma] = (byte) yuv[2];
+						data[chroma + 1] = (byte) yuv[1];
+					}
+				}
+				frames.addElement(data);
+				sizes.addElement(new int[] {width, height});
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	// the usual JPEG conversion, which is roughly the inverse of ColorTable.toRGB
+	private static void toYUV(int r, int g, int b, int [] yuv) {
+		int y = (77*r + 150*g + 29*b) >> 8;
+		yuv[0] = clamp(y);
+		yuv[1] = clamp(128 + ((144*(b - y)) >> 8));
+		yuv[2] = clamp(128 + ((183*(r - y)) >> 8));
+	}
+
+	private static int clamp(int x) {
+		if(x > 255)
+			return 255;
+		if(x < 0)
+			return 0;
+		return x;
+	}
+
+}
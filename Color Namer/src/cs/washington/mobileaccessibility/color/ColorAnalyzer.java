@@ -8,8 +8,9 @@ import java.util.*;
  * learning based off of information gain.  It is similar to
  * something like CART, I suppose, except that sophisticated
  * algorithms usually have special rules to determine when to
- * stop the branching process, and I always go to a constant
- * depth.
+ * stop the branching process, and I just go to a constant
+ * depth, only stopping early where no split gains anything
+ * much (see min-gain below).
  * 
  * The main method reads in a file (default is "peri.txt"),
  * in a format generated by the ImageProcessor class of the
@@ -52,6 +53,15 @@ public class ColorAnalyzer {
 		 * @param elaborate true to get properly formatted java, false to get more condensed
 		 */
 		public void prettyPrint(String indent, boolean elaborate);
+		/**
+		 * Recursively writes the tree rooted at this node in the format that
+		 * DecisionTreeClassifier.loadLearntTree reads: one node per line, in
+		 * preorder, with a branch written as the parameter and the cutoff,
+		 * followed by its hi subtree and then its lo subtree, and a terminal
+		 * node written as just the name of its color.
+		 * @param out where to write it
+		 */
+		public void writeTree(PrintStream out);
 	}
 	
 	// A terminal node in the tree, which assigns everything just
@@ -83,6 +93,9 @@ public class ColorAnalyzer {
 				System.out.println(indent + color + "  (" + weight + ")");
 			
 		}
+		public void writeTree(PrintStream out) {
+			out.println(color);
+		}
 	}
 	
 	// A branching node which looks at a parameter and sends to one of
@@ -97,7 +110,7 @@ public class ColorAnalyzer {
 		// the destination tree if the parameter doesn't exceed cutoff
 		public DecisionNode lo;
 		public String classify(PixelData pd) {
-			if(pd.getParam(PixelData.paramNames[paramIndex]) > cutoff)
+			if(pd.getParam(paramIndex) > cutoff)
 				return hi.classify(pd);
 			else
 				return lo.classify(pd);
@@ -136,112 +149,207 @@ public class ColorAnalyzer {
 			}
 		}
 				
+		public void writeTree(PrintStream out) {
+			out.println(PixelData.paramNames[paramIndex] + " " + cutoff);
+			hi.writeTree(out);
+			lo.writeTree(out);
+		}
+				
 	}
 	
-	// this function, with its caveat for 0, appears enough to make this useful
-	private static double xlogx(double x) {
-		if(x == 0)
-			return 0;
-		return x*Math.log(x);
-	}
+	// The trainer.  Instead of copying the pixels into a list and sorting it
+	// by each parameter at every node, the parameters are stored a column
+	// apiece, the pixels are sorted by each parameter once, and each node works
+	// on a range of those sorted index arrays.  Splitting a node stably
+	// partitions its range of each array into the pixels that go low followed
+	// by the ones that go high, so both children's ranges are still sorted.
+	//
+	// The two children of a big node work on separate ranges, so they're built
+	// at the same time, the high one in a new thread.  (ColorAnalyzer lives in
+	// the Android source folder, whose Java library is too old for ForkJoinPool,
+	// so it just uses Threads; the depth bounds how many there can be.)
+	private static class TreeTrainer {
+		// nodes with fewer pixels than this aren't worth a thread
+		private static final int PARALLEL_THRESHOLD = 20000;
 	
-	// given a set of Pixels, make the decision tree, to the given depth!
-	// this works recursively
-	private static DecisionNode buildClassifier(Set<PixelData> set, int depth) {
-		if(depth < 1) {
-			// time to terminate.
+		// values[p][i] is the parameter PixelData.paramNames[p] of pixel i
+		private final int [][] values;
+		// the index into PixelData.colorNames of each pixel
+		private final int [] colors;
+		// sorted[p] holds the pixel indices, with each node's range sorted by parameter p
+		private final int [][] sorted;
+		// space to partition into; nodes being built at the same time
+		// use different parts of it
+		private final int [] scratch;
+		// which way each pixel went in the split being made
+		private final boolean [] goesHi;
+		// xlogx of every possible count
+		private final double [] xlogxTable;
+		// a split is only made if it lowers the entropy by at least this much per pixel
+		private final double minGain;
 			
-			// we need to figure out which of the colors in PixelData is
-			// most popular
-			int [] colorFrequencies = new int[PixelData.colorNames.length];
-			int bestFreq = 0;
-			int bestColor = 3; // gray
-			for(PixelData pd : set) {
-				int color = pd.colorIndex;
-				colorFrequencies[color]++;
-				int newFreq = colorFrequencies[color];
-				if(newFreq > bestFreq) {
-					bestFreq = newFreq;
-					bestColor = color;
-				}
+		public TreeTrainer(List<PixelData> pixels, double minGain) {
+			int n = pixels.size();
+			int params = PixelData.paramNames.length;
+			this.minGain = minGain;
+			values = new int[params][n];
+			colors = new int[n];
+			for(int i = 0; i < n; i++) {
+				PixelData pd = pixels.get(i);
+				colors[i] = pd.colorIndex;
+				for(int p = 0; p < params; p++)
+					values[p][i] = pd.getParam(p);
+			}
+			
+			// presort by packing the value and the index into a long
+			sorted = new int[params][n];
+			long [] keys = new long[n];
+			for(int p = 0; p < params; p++) {
+				for(int i = 0; i < n; i++)
+					keys[i] = ((long) values[p][i] << 32) | i;
+				Arrays.sort(keys);
+				for(int i = 0; i < n; i++)
+					sorted[p][i] = (int) keys[i];
 			}
-			return new TerminalNode(PixelData.colorNames[bestColor], set.size());
+			
+			scratch = new int[n];
+			goesHi = new boolean[n];
+			xlogxTable = new double[n + 1];
+			for(int i = 1; i <= n; i++)
+				xlogxTable[i] = i*Math.log(i);
 		}
-		else {
-			// now things are going to get really really complicated
+		
+		public DecisionNode build(int depth) throws InterruptedException {
+			return build(0, colors.length, depth);
+		}
+		
+		// build the tree for the pixels in sorted[p][from..to)
+		private DecisionNode build(final int from, final int to, final int depth) throws InterruptedException {
+			int numColors = PixelData.colorNames.length;
+			int size = to - from;
+			int [] frequencies = new int[numColors];
+			for(int pos = from; pos < to; pos++)
+				frequencies[colors[sorted[0][pos]]]++;
 			
-			// this is a crude upper bound; the 5 has to do with 2^5 > PixelData.colorNames.length
-			// bestEntropy is some shifted version of the information gain proper, whatever
-			// that is...
-			// just fiddle around with the equations, and this algorithm will fall out of them
-			double bestEntropy = 5*set.size();
+			// the entropy of not splitting at all, in the same shifted units as
+			// the old version used: the entropy times the number of pixels
+			double sumFrequencies = 0;
+			for(int j = 0; j < numColors; j++)
+				sumFrequencies += xlogxTable[frequencies[j]];
+			double parentEntropy = xlogxTable[size] - sumFrequencies;
+			
+			if(depth < 1 || size < 2 || parentEntropy <= 0)
+				return terminal(frequencies);
+			
+			double bestEntropy = parentEntropy - minGain*size;
+			int bestParam = -1;
 			int bestCutoff = 0;
-			int bestParam = 0;
-
-			int [] upperFrequencies = new int[PixelData.colorNames.length];
-			for(PixelData pd : set) {
-				int color = pd.colorIndex;
-				upperFrequencies[color]++;
-			}
-			int [] lowerFrequencies = new int[PixelData.colorNames.length];
-			int totalAbove = set.size();
-			int totalBelow = 0;
-			for(int i = 0; i < PixelData.paramNames.length; i++) {
-				// for each paramter, we're going to vary the cutoff continuously
-				// and see where entropy is maximized
-				//
-				// I wonder, is the function we're maximizing convex?  That would make
-				// this very sub-optimal...
-				final String paramName = PixelData.paramNames[i];
-				ArrayList<PixelData> sorted = new ArrayList<PixelData>();
-				sorted.addAll(set);
-				Collections.sort(sorted, new Comparator<PixelData>() {
-					public int compare(PixelData o1, PixelData o2) {
-						return o1.getParam(paramName) - o2.getParam(paramName);
-					}
-				});
-				for(PixelData pd : sorted) {
-					// move it into the below set
-					if(totalAbove == 0)
+			int [] upper = new int[numColors];
+			int [] lower = new int[numColors];
+			for(int p = 0; p < PixelData.paramNames.length; p++) {
+				System.arraycopy(frequencies, 0, upper, 0, numColors);
+				Arrays.fill(lower, 0);
+				double sumUpper = sumFrequencies;
+				double sumLower = 0;
+				int [] order = sorted[p];
+				int [] value = values[p];
+				for(int pos = from; pos < to - 1; pos++) {
+					// move it into the below set, keeping the sums of xlogx up to date
+					int color = colors[order[pos]];
+					sumUpper += xlogxTable[upper[color] - 1] - xlogxTable[upper[color]];
+					sumLower += xlogxTable[lower[color] + 1] - xlogxTable[lower[color]];
+					upper[color]--;
+					lower[color]++;
+					// the cutoff can only go between different values, since
+					// everything equal to it goes low
+					int v = value[order[pos]];
+					if(value[order[pos + 1]] == v)
 						continue;
-					totalBelow++;
-					totalAbove--;
-					int color = pd.colorIndex;
-					upperFrequencies[color]--;
-					lowerFrequencies[color]++;
-					double entropy = xlogx(totalBelow) + xlogx(totalAbove);
-					for(int j = 0; j < PixelData.colorNames.length; j++) {
-						entropy -= (xlogx(upperFrequencies[j]) + xlogx(lowerFrequencies[j]));
-					}
+					int below = pos - from + 1;
+					double entropy = xlogxTable[below] + xlogxTable[size - below] - sumUpper - sumLower;
 					if(entropy < bestEntropy) {
 						bestEntropy = entropy;
-						bestParam = i;
-						bestCutoff = pd.getParam(paramName);
+						bestParam = p;
+						bestCutoff = v;
 					}
 				}
-				
-				// prepare things for the next loop by resetting these variables
-				upperFrequencies = lowerFrequencies;
-				lowerFrequencies = new int[PixelData.colorNames.length];
-				totalAbove = totalBelow;
-				totalBelow = 0;
-				
-			}
-			String bestParamName = PixelData.paramNames[bestParam];
-			Set<PixelData> hi = new HashSet<PixelData>();
-			Set<PixelData> lo = new HashSet<PixelData>();
-			for(PixelData pd : set) {
-				if(pd.getParam(bestParamName) > bestCutoff)
-					hi.add(pd);
-				else
-					lo.add(pd);
 			}
+			if(bestParam < 0)
+				return terminal(frequencies);
 			
+			int [] value = values[bestParam];
+			int mid = from;
+			for(int pos = from; pos < to; pos++) {
+				int i = sorted[0][pos];
+				goesHi[i] = value[i] > bestCutoff;
+				if(!goesHi[i])
+					mid++;
+			}
+			for(int p = 0; p < PixelData.paramNames.length; p++)
+				partition(sorted[p], from, to, mid);
+
 			// here's the recursion
-			DecisionNode dHi = buildClassifier(hi, depth - 1);
-			DecisionNode dLo = buildClassifier(lo, depth - 1);
+			DecisionNode dHi, dLo;
+			if(size >= PARALLEL_THRESHOLD && depth > 1) {
+				final int hiFrom = mid;
+				final DecisionNode [] result = new DecisionNode[1];
+				final InterruptedException [] failure = new InterruptedException[1];
+				Thread hiThread = new Thread(new Runnable() {
+					public void run() {
+						try {
+							result[0] = build(hiFrom, to, depth - 1);
+						}
+						catch(InterruptedException ie) {
+							failure[0] = ie;
+						}
+					}
+				});
+				hiThread.start();
+				dLo = build(from, mid, depth - 1);
+				hiThread.join();
+				if(failure[0] != null)
+					throw failure[0];
+				dHi = result[0];
+			}
+			else {
+				dHi = build(mid, to, depth - 1);
+				dLo = build(from, mid, depth - 1);
+			}
+			
+			// a split whose two sides get the same color doesn't do anything
+			if(dHi instanceof TerminalNode && dLo instanceof TerminalNode
+					&& ((TerminalNode) dHi).color.equals(((TerminalNode) dLo).color))
+				return terminal(frequencies);
 			return new BranchNode(bestParam, bestCutoff, dHi, dLo);
+		}
 			
+		// stably move the pixels in order[from..to) that go low to the front,
+		// and the ones that go high after them, starting at mid
+		private void partition(int [] order, int from, int to, int mid) {
+			int lo = from;
+			int hi = mid;
+			for(int pos = from; pos < to; pos++) {
+				int i = order[pos];
+				if(goesHi[i])
+					scratch[hi++] = i;
+				else
+					scratch[lo++] = i;
+			}
+			System.arraycopy(scratch, from, order, from, to - from);
+		}
+		
+		// we need to figure out which of the colors in PixelData is
+		// most popular
+		private static TerminalNode terminal(int [] frequencies) {
+			int bestColor = 3; // gray, if there's nothing here at all
+			int bestFreq = 0;
+			for(int j = 0; j < frequencies.length; j++) {
+				if(frequencies[j] > bestFreq) {
+					bestFreq = frequencies[j];
+					bestColor = j;
+				}
+			}
+			return new TerminalNode(PixelData.colorNames[bestColor], bestFreq);
 		}
 	}
 	
@@ -297,6 +405,28 @@ public class ColorAnalyzer {
 				return uvMag;
 		}
 		
+		// the same, by the index into paramNames, which is what the trainer uses
+		public int getParam(int index) {
+			switch(index) {
+			case 0:
+				return r;
+			case 1:
+				return g;
+			case 2:
+				return b;
+			case 3:
+				return h;
+			case 4:
+				return (h + 180) % 360;
+			case 5:
+				return s;
+			case 6:
+				return v;
+			default:
+				return uvMag;
+			}
+		}
+		
 		
 		public PixelData(String name, int r, int g, int b) {
 			// first, convert name to a numerical form
@@ -351,7 +481,7 @@ public class ColorAnalyzer {
 	// A message to print out if the user goofs up the command line parameters
 	private static void printUsage() {
 		System.err.println("usage: \n");
-		System.err.println("\tjava ColorAnalyzer [filename.txt] [briefness] [depth]");
+		System.err.println("\tjava ColorAnalyzer [filename.txt] [briefness] [depth] [min-gain=x]");
 		System.err.println("\t\tbriefness is either");
 		System.err.println("\t\t * \"java\", or \"verbose\" for a " +
 				"tree that could be put into the DecisionTreeClassifier class");
@@ -360,21 +490,30 @@ public class ColorAnalyzer {
 				" number of pixels of each classification that ended up in each category");
 		System.err.println("\t\t * \"super-brief\" for a highly " +
 				"condensed format");
+		System.err.println("\t\t * \"tree\" for the format that " +
+				"DecisionTreeClassifier.loadLearntTree reads, e.g. " +
+				"from /sdcard/learnt_tree.txt");
 		System.err.println("\t\t(default is java)");
 		System.err.println();
 		System.err.println("\t\tdepth is the depth of the tree that the" +
 				" algorithm produces.  Default is 4");
 		System.err.println();
+		System.err.println("\t\tmin-gain is how much a split has to lower" +
+				" the entropy per pixel (in nats) to be made.  Default is " + DEFAULT_MIN_GAIN);
+		System.err.println();
 		System.err.println("\t\tfilename.txt is the name of a file " +
 				"with the color data.  It must end with .txt suffix.  " +
 				"The default is \"peri.txt\", which is what " +
 				"ImageProcessor will generate.");
 	}
 	
+	private static final double DEFAULT_MIN_GAIN = 0.001;
+	
 	public static void main(String[] args) {
 		// first, get the command line parameters
 		int briefness = 0;
 		int depth = 4;
+		double minGain = DEFAULT_MIN_GAIN;
 		String filename = "peri.txt";
 		for(String s : args) {
 			if(s.equals("java") || s.equals("verbose"))
@@ -383,11 +522,16 @@ public class ColorAnalyzer {
 				briefness = 1;
 			else if(s.equals("super-brief"))
 				briefness = 2;
+			else if(s.equals("tree"))
+				briefness = 3;
 			else if(s.endsWith(".txt"))
 				filename = s;
 			else {
 				try {
-					depth = Integer.parseInt(s);
+					if(s.startsWith("min-gain="))
+						minGain = Double.parseDouble(s.substring("min-gain=".length()));
+					else
+						depth = Integer.parseInt(s);
 				}
 				catch (NumberFormatException nfe) {
 					printUsage();
@@ -395,10 +539,13 @@ public class ColorAnalyzer {
 				}
 			}
 		}
+		// the tree format goes to standard out by itself, so that it can be
+		// redirected straight into a file
+		PrintStream messages = briefness == 3 ? System.err : System.out;
 		// now, read in the file...
 		try {
 			Scanner s = new Scanner(new File(filename));
-			Set<PixelData> pixels = new HashSet<PixelData>();
+			List<PixelData> pixels = new ArrayList<PixelData>();
 			while(s.hasNextLine()) {
 				String colorName = s.nextLine();
 				int width = s.nextInt();
@@ -413,13 +560,17 @@ public class ColorAnalyzer {
 				
 				s.nextLine(); // clear the final newline
 			}
-			System.out.println("Collected " + pixels.size() + " pixels!");
+			messages.println("Collected " + pixels.size() + " pixels!");
 			
 			// And then build the tree
-			DecisionNode dn = buildClassifier(pixels, depth);
+			long start = System.currentTimeMillis();
+			DecisionNode dn = new TreeTrainer(pixels, minGain).build(depth);
+			messages.println("Built the tree in " + (System.currentTimeMillis() - start) + " ms");
 			
 			// And finally, display it
-			if(briefness == 2)
+			if(briefness == 3)
+				dn.writeTree(System.out);
+			else if(briefness == 2)
 				System.out.println(dn.recursiveDescribe());
 			else
 				dn.prettyPrint("", briefness == 0);
@@ -428,5 +579,8 @@ public class ColorAnalyzer {
 		catch(IOException ioe) {
 			System.out.println("Error getting the file " + filename);
 		}
+		catch(InterruptedException ie) {
+			System.out.println("Interrupted while building the tree");
+		}
 	}
 }
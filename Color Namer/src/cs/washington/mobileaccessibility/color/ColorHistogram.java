@@ -0,0 +1,109 @@
+package cs.washington.mobileaccessibility.color;
+
+/*
+ * The EM and probability-sum classifiers only care about which of the 4096
+ * cells of converted_4096 each pixel falls in, not where the pixel is.  So
+ * instead of going over every pixel of the central region for each EM
+ * iteration, this counts the pixels in each cell once, and then runs the
+ * algorithms over the cells that have any pixels in them, weighted by the
+ * count.  A picture of one object only touches a few dozen cells, so the
+ * iterations no longer cost more as the preview gets bigger, and a preview
+ * frame can be counted straight from the NV21 bytes without loadRGB.
+ *
+ * Like ColorTable everything is static, and the methods that use the
+ * counts are synchronized, since there's only one set of them.
+ */
+public class ColorHistogram {
+
+	public static final int CELLS = ProbabilityModel.CELLS;
+	private static final int COLORS = ProbabilityModel.COLORS;
+
+	// how many pixels fell in each cell, numbered like ColorTable.probabilityCell
+	private static int [] counts = new int[CELLS];
+	// the cells with a nonzero count, the first usedCells of them
+	private static int [] used = new int[CELLS];
+	private static int usedCells = 0;
+
+	private static int [] rgb = new int[3];
+	private static double [] scores = new double[COLORS];
+	private static double [] newScores = new double[COLORS];
+
+	// Count the central region of an NV21 preview frame, the same region and
+	// the same conversion to RGB as ImageProcessor.loadRGB, and then return
+	// the index of the best color in ImageProcessor.names.  With no
+	// iterations this is the probability sum, otherwise that many EM
+	// iterations are run on top of it.
+	public static synchronized int classifyFrame(byte [] data, int width, int height, int [] probabilities, int iterations) {
+		clear();
+		for(int x = width/6; x < width/3; x++) {
+			for(int y = height/6; y < height/3; y++) {
+				int y1 = ((data[(2*y)*width + 2*x] & 0xff) + (data[(2*y + 1)*width + 2*x] & 0xff))/2;
+				int chroma = height*width + 2*(y*(width/2) + x);
+				ColorTable.toRGB(y1, data[chroma + 1] & 0xff, data[chroma] & 0xff, rgb);
+				add(rgb[0], rgb[1], rgb[2]);
+			}
+		}
+		return classify(probabilities, iterations);
+	}
+
+	// The same, for pixels that have already been copied out by loadRGB
+	public static synchronized int classifyPicture(int [][] red, int [][] green, int [][] blue, int width, int height,
+			int [] probabilities, int iterations) {
+		clear();
+		for(int i = 0; i < width; i++)
+			for(int j = 0; j < height; j++)
+				add(red[i][j], green[i][j], blue[i][j]);
+		return classify(probabilities, iterations);
+	}
+
+	// only the cells that were used last time need to be zeroed
+	private static void clear() {
+		for(int i = 0; i < usedCells; i++)
+			counts[used[i]] = 0;
+		usedCells = 0;
+	}
+
+	private static void add(int red, int green, int blue) {
+		int cell = (red >> 4 << 8) | (green >> 4 << 4) | (blue >> 4);
+		if(counts[cell]++ == 0)
+			used[usedCells++] = cell;
+	}
+
+	private static int classify(int [] probabilities, int iterations) {
+		for(int k = 0; k < COLORS; k++)
+			scores[k] = 0;
+		for(int i = 0; i < usedCells; i++) {
+			int cell = used[i];
+			int offset = cell*COLORS;
+			int n = counts[cell];
+			for(int k = 0; k < COLORS; k++)
+				scores[k] += (double) n*probabilities[offset + k];
+		}
+		for(int iter = 0; iter < iterations; iter++) {
+			for(int k = 0; k < COLORS; k++)
+				newScores[k] = 0;
+			for(int i = 0; i < usedCells; i++) {
+				int cell = used[i];
+				int offset = cell*COLORS;
+				double total = 0;
+				for(int k = 0; k < COLORS; k++)
+					total += scores[k]*probabilities[offset + k];
+				// every pixel in the cell gets the same share
+				double weight = counts[cell]/total;
+				for(int k = 0; k < COLORS; k++)
+					newScores[k] += scores[k]*probabilities[offset + k]*weight;
+			}
+			double total = 0;
+			for(int k = 0; k < COLORS; k++)
+				total += newScores[k];
+			for(int k = 0; k < COLORS; k++)
+				scores[k] = newScores[k]/total;
+		}
+		int bestK = 0;
+		for(int k = 1; k < COLORS; k++)
+			if(scores[k] > scores[bestK])
+				bestK = k;
+		return bestK;
+	}
+
+}
@@ -6,11 +6,19 @@ package cs.washington.mobileaccessibility.color;
 import android.speech.tts.TextToSpeech;
 import android.speech.tts.TextToSpeech.OnInitListener;
 
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
 import android.app.Activity;
-import android.app.ProgressDialog;
 import android.content.Context;
-import android.content.DialogInterface;
-import android.content.DialogInterface.OnCancelListener;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
 import android.hardware.Camera;
 import android.os.Bundle;
 import android.os.Vibrator;
@@ -35,8 +43,9 @@ import android.media.AudioManager;
  * The other two are two variants of an expectation-maximization algorithm in
  * a paper by Joost van de Weijer, Cordelia Schmid,
  * Jakob Verbeek, and Diane Larlus, maybe.  This algorithm uses a ton of data
- * stored in a file, which takes several seconds to load.  So the application
- * spins its wheels for a while when it first loads.
+ * stored in a file.  That used to take several seconds to load, but now it's
+ * converted ahead of time into a binary file (see ProbabilityModel) which
+ * loads in a few milliseconds.
  * 
  * All the algorithms except for my ad hoc one assign one of the eleven canonical
  * simple colors in English:
@@ -59,6 +68,10 @@ import android.media.AudioManager;
  * the central area to be saved into a file called peri.txt, which can be fed into the
  * ColorAnalyzer program to generate a decision tree using a lame machine-learning algorithm.
  * 
+ * Pressing L turns on the live mode (see LiveNamer), which names every preview frame
+ * with the first classifier that's turned on, and says the color whenever it changes,
+ * until L is pressed again or the screen is tapped.
+ * 
  * @author Will
  *
  */
@@ -71,6 +84,9 @@ public class ColorNamer extends Activity {
     // there are four different
     final static public String [] classifierNames = {"ad hoc","machine learning","ee em simplified", "ee em"};
     public boolean[] activeClassifiers = {false, true, true, true};
+    
+    // the live mode, while it's on
+    private LiveNamer liveNamer = null;
 
     @Override
 	protected void onCreate(Bundle savedInstanceState) {
@@ -84,41 +100,23 @@ public class ColorNamer extends Activity {
         vibe = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
         cameraFacade = new CameraFacade(view.getHolder());
 
-        // the color data for the EM algorithm is in a long
-        // file that takes a while to read in, so we need to use
-        // a ProgressDialog and multithreading
-        final ProgressDialog loadingDialog = new ProgressDialog(this) {
-        	@Override
-        	public boolean onTouchEvent(MotionEvent me) {
-        		tts.speak("Please wait", 0, null);
-        		return false;
-        	}
-        };
-        loadingDialog.setTitle("Loading color definitions");
-        loadingDialog.setMessage("Please wait");
-        loadingDialog.setCancelable(true);
-        loadingDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
-        loadingDialog.setMax(4096);
-        loadingDialog.setVolumeControlStream(AudioManager.STREAM_MUSIC);
-        loadingDialog.setOnCancelListener(new OnCancelListener() {
-        	public void onCancel(DialogInterface wtf) {
-        		finish();
-        	}
-        });
-        loadingDialog.show();
+        // the color data for the EM algorithm is in probabilities.bin, which
+        // loads quickly, but the decision tree tables take a moment to build, so
+        // both happen in a separate thread.  Whichever of it and the tts is
+        // ready last reads the instructions.
+        createdAt = System.currentTimeMillis();
         Log.i("ColorNamer","About to start the thread");
         Thread loadingThread = new Thread(new Runnable() {
         	public void run() {
-                Log.i("ColorNamer","About to open the file converted_4096.txt");
-                java.io.InputStream is = getResources().openRawResource(R.raw.converted_4096);
-                
-                boolean closing = !ImageProcessor.loadProbabilities(loadingDialog, is);
-                // (closing is now true iff we were interrupted, because onDestroy was called)
-                Log.i("ColorNamer",ImageProcessor.loaded?"Completed loading color model":"Stopped loading color model");
-        		loadingDialog.dismiss();
-        		// unless onDestroy was called, read the instructions!
-        		if(!closing)
-        	    	tts.speak("Point the camera and tap the screen to identify the color.", 0, null);
+        		long start = System.currentTimeMillis();
+                // the decision trees are quick to precompute, so do them first
+                loadLearntTree();
+                ColorTable.build();
+                long tablesBuilt = System.currentTimeMillis();
+                ImageProcessor.loadProbabilities(openModel());
+                Log.i("ColorNamer",(ImageProcessor.loaded?"Completed":"Failed") + " loading color model: the tables took "
+                		+ (tablesBuilt - start) + " ms, the probabilities took " + (System.currentTimeMillis() - tablesBuilt) + " ms");
+                readyToSpeak();
         	}
         });
         setContentView(view);
@@ -127,13 +125,92 @@ public class ColorNamer extends Activity {
         setVolumeControlStream(AudioManager.STREAM_MUSIC);
         tts = new TextToSpeech(this,new TextToSpeech.OnInitListener() {
         	public void onInit(int version) {
-        		tts.speak("Loading; Please Wait.", 0, null);
+        		readyToSpeak();
         	}
         });
         loadingThread.start();
         
     }
     
+    // when onCreate was called, and how many of the loading thread and the tts
+    // have finished starting up
+    private long createdAt;
+    private int readyCount = 0;
+    
+    // Called by the loading thread and the tts when they're done.  The second
+    // one reads the instructions, since by then the user can name colors
+    private synchronized void readyToSpeak() {
+    	readyCount++;
+    	if(readyCount == 2) {
+    		Log.i("ColorNamer","Ready " + (System.currentTimeMillis() - createdAt) + " ms after starting");
+    		tts.speak("Point the camera and tap the screen to identify the color.", 0, null);
+    	}
+    }
+    
+    // Map probabilities.bin straight out of the apk if it's stored there
+    // uncompressed, and otherwise read the whole thing in one go
+    private ByteBuffer openModel() {
+    	Resources res = getResources();
+    	try {
+    		AssetFileDescriptor afd = res.openRawResourceFd(R.raw.probabilities);
+    		try {
+    			FileInputStream in = afd.createInputStream();
+    			try {
+    				// the mapping stays valid after the descriptor is closed
+    				return in.getChannel().map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+    			}
+    			finally {
+    				in.close();
+    			}
+    		}
+    		finally {
+    			afd.close();
+    		}
+    	}
+    	catch(Resources.NotFoundException nfe) {
+    		// aapt compressed it, so there's no file descriptor to map
+    	}
+    	catch(IOException ioe) {
+    		Log.w("ColorNamer","Couldn't map probabilities.bin: " + ioe);
+    	}
+    	byte [] model = new byte[ProbabilityModel.FILE_SIZE];
+    	try {
+    		InputStream is = res.openRawResource(R.raw.probabilities);
+    		try {
+    			new DataInputStream(is).readFully(model);
+    		}
+    		finally {
+    			is.close();
+    		}
+    	}
+    	catch(IOException ioe) {
+    		Log.e("ColorNamer","Failure reading the file probabilities.bin: " + ioe);
+    	}
+    	return ByteBuffer.wrap(model);
+    }
+    
+    // A tree retrained with "java ColorAnalyzer peri.txt tree" can be tried out
+    // by putting it on the sd card as learnt_tree.txt, next to peri.txt, instead
+    // of pasting it into DecisionTreeClassifier and reinstalling
+    private void loadLearntTree() {
+    	File file = new File("/sdcard/learnt_tree.txt");
+    	if(!file.exists())
+    		return;
+    	try {
+    		FileReader reader = new FileReader(file);
+    		try {
+    			DecisionTreeClassifier.loadLearntTree(reader);
+    			Log.i("ColorNamer","Using the learnt tree in " + file);
+    		}
+    		finally {
+    			reader.close();
+    		}
+    	}
+    	catch(IOException ioe) {
+    		Log.e("ColorNamer","Failure reading " + file + ", so using the built in tree: " + ioe);
+    	}
+    }
+    
     @Override
     protected void onResume() {
     	super.onResume();
@@ -158,6 +235,7 @@ public class ColorNamer extends Activity {
          * 
          * http://developer.android.com/reference/android/app/ActivityGroup.html#onPause()
          */
+    	stopLive();
     	if(cameraFacade != null)
     		cameraFacade.onPause();
     	tts.stop(); // bad style to keep on talking after the application goes away
@@ -235,8 +313,35 @@ public class ColorNamer extends Activity {
     		}
     		return super.onKeyDown(keyCode, event);
     		
+    	case KeyEvent.KEYCODE_T:
+    		// time the color tables against the old classifiers, on the
+    		// pictures that were saved with shift + a color
+    		tts.speak("Timing the classifiers", 0, null);
+    		new Thread(new Runnable() {
+    			public void run() {
+    				try {
+    					tts.speak(ClassifierBenchmark.run("/sdcard/peri.txt"), 1, null);
+    				}
+    				catch(java.io.IOException ioe) {
+    					Log.e("ColorNamer", "Couldn't read the saved pictures: " + ioe);
+    					tts.speak("Couldn't read the saved pictures", 1, null);
+    				}
+    			}
+    		}).start();
+    		return true;
+    		
+    	case KeyEvent.KEYCODE_L:
+    		if(liveNamer != null) {
+    			stopLive();
+    			tts.speak("Live mode off", 0, null);
+    		}
+    		else
+    			startLive();
+    		return true;
+    		
     	case KeyEvent.KEYCODE_SPACE: // this is supposed to turn off the vibrator
     		vibe.vibrate(2); // vibrate for 2 milliseconds, and then stop
+    		stopLive();
     		cameraFacade.getPreview(null);
     		// return super.onKeyDown(keyCode, event);
     	default:
@@ -246,15 +351,23 @@ public class ColorNamer extends Activity {
 
     	
     	final boolean storeMode = event.isShiftPressed();
+    	// evaluating looks the frame up in the tree tables, which the loading
+    	// thread might still be building
+    	if(!storeMode && !ColorTable.built) {
+    		tts.speak("The color data isn't loaded yet", 0, null);
+    		return true;
+    	}
+    	stopLive();
     	cameraFacade.getPreview(new Camera.PreviewCallback() {
     		public void onPreviewFrame(byte[] data, Camera camera) {
     			Log.i("ColorNamer","Stopping the preview");
     			cameraFacade.getPreview(null);
-    			ImageProcessor.loadRGB(data, camera);
-    			if(storeMode)
+    			if(storeMode) {
+    				ImageProcessor.loadRGB(data, camera);
     				ImageProcessor.savePictureData(colorName);
+    			}
     			else {
-    				int matches = ImageProcessor.evaluatePicture(colorName);
+    				int matches = ImageProcessor.evaluateFrame(data, camera, colorName);
     				vibe.vibrate(new long[] {0, matches, 100 - matches, matches, 100 - matches}, 0);
     				Log.e("ColorNamer", "Just started vibration of " + matches + "/100");
     			}	
@@ -263,9 +376,42 @@ public class ColorNamer extends Activity {
     	return true;
     }
     
+    // Start naming every preview frame, with the first classifier that's on
+    private void startLive() {
+    	if(!ImageProcessor.loaded) {
+    		tts.speak("The color data isn't loaded yet", 0, null);
+    		return;
+    	}
+    	int classifier;
+    	for(classifier = 0; classifier < 4; classifier++)
+    		if(activeClassifiers[classifier])
+    			break;
+    	if(classifier == 4) {
+    		tts.speak("No color classifiers turned on!", 0, null);
+    		return;
+    	}
+    	tts.speak("Live mode on, using classifier " + classifierNames[classifier], 0, null);
+    	liveNamer = new LiveNamer(classifier, new LiveNamer.Listener() {
+    		public void colorChanged(String name) {
+    			// flush, so that we never fall behind the camera
+    			tts.speak(name, 0, null);
+    		}
+    	});
+    	liveNamer.start();
+    	cameraFacade.getPreview(liveNamer);
+    }
+    
+    // Turn the live mode off, if it's on
+    private void stopLive() {
+    	if(liveNamer == null)
+    		return;
+    	liveNamer.stop();
+    	liveNamer = null;
+    	cameraFacade.getPreview(null);
+    }
+    
     @Override
     protected void onDestroy() {
-    	ImageProcessor.stopLoading(); // kill the loadingThread, if necessary
     	tts.shutdown();
     	Log.v("ColorNamer","TTS told to shutdown");
     	super.onDestroy();
@@ -278,6 +424,7 @@ public class ColorNamer extends Activity {
     	
     	if(event.getAction() != MotionEvent.ACTION_DOWN)
     		return false;
+    	stopLive();
     	cameraFacade.getPreview(new Camera.PreviewCallback() {
 
     		public void onPreviewFrame(byte[] data, Camera camera) {
@@ -292,18 +439,16 @@ public class ColorNamer extends Activity {
     				return;
     			}
     			
-    			ImageProcessor.loadRGB(data, camera);
-    			
     			String any = "";
     			String name;
     			if(activeClassifiers[0]) {
-    				name = ImageProcessor.classifyPictureAdHoc();
+    				name = ImageProcessor.classifyFrameAdHoc(data, camera);
     				tts.speak(name, 1, null);
     				any = " or ";
     				firstColor = name;
     			}
     			if(activeClassifiers[1]) {
-    				name = ImageProcessor.classifyPictureLearntTree();
+    				name = ImageProcessor.classifyFrameLearntTree(data, camera);
     				if(!name.equals(firstColor))
     				{
     					tts.speak(any + name, 1, null);
@@ -312,7 +457,7 @@ public class ColorNamer extends Activity {
     				secondColor = name;
     			}
     			if(activeClassifiers[2]) {
-    				name = ImageProcessor.classifyPictureProbsum();
+    				name = ImageProcessor.classifyFrameProbsum(data, camera);
     				if(!name.equals(firstColor) && !name.equals(secondColor))
     				{
     					tts.speak(any + name, 1, null);
@@ -321,7 +466,7 @@ public class ColorNamer extends Activity {
     				thirdColor = name;
     			}
     			if(activeClassifiers[3]) {
-    				name = ImageProcessor.classifyPictureEM();
+    				name = ImageProcessor.classifyFrameEM(data, camera);
     				if(!name.equals(firstColor) && !name.equals(secondColor) && !name.equals(thirdColor))
     				{
     					tts.speak(any + name, 1, null);
@@ -0,0 +1,241 @@
+package cs.washington.mobileaccessibility.color;
+
+/*
+ * This class is a precompiled version of the two decision trees in
+ * DecisionTreeClassifier.  Instead of converting every pixel to RGB, then to
+ * HSV and UV, and then walking the tree, we run each tree once for every cell
+ * of a 32x32x32 grid over the YUV color space, and remember the answers.
+ * After that, classifying a pixel of a preview frame is one table lookup,
+ * straight out of the camera's buffer, without copying the frame into the
+ * reds/greens/blues arrays in ImageProcessor first.
+ *
+ * The grid is coarser than the camera's 256 levels, so a cell can straddle
+ * the edge between two colors.  We check the eight corners of each cell, and
+ * if they don't all agree, the pixels in that cell still go through the tree
+ * the slow way.  That keeps the answers the same as before for nearly every
+ * pixel, but not all of them, since a branch of the tree can cut through a
+ * cell without reaching any of its corners.  ClassifierBenchmark counts the
+ * YUV values where the table and the tree disagree (1428 of the 16.7 million
+ * for the learnt tree, 154 for the ad hoc one), and how often whole pictures
+ * agree.
+ *
+ * Each cell also remembers which cell of the 16x16x16 RGB grid of
+ * converted_4096.txt its middle falls in, so that the probability based
+ * classifiers can use the same lookup.
+ *
+ * Like the other classes here, everything is static.
+ */
+public class ColorTable {
+
+	// the number of bits of each of Y, U and V which index the tables
+	private static final int BITS = 5;
+	private static final int SHIFT = 8 - BITS;
+	private static final int SIZE = 1 << (3*BITS);
+
+	// number of coarse colors, as in DecisionTreeClassifier (color/10)
+	private static final int COARSE_COLORS = 11;
+
+	// An entry which means that the cell has more than one color, so each pixel
+	// in it has to go through the tree after all.
+	private static final int AMBIGUOUS = -2;
+
+	// for each cell: the learnt tree's color divided by ten, the ad hoc tree's
+	// color (or -1 if it has none), and the cell of converted_4096 that its
+	// middle falls in
+	private static byte [] learntColors = null;
+	private static byte [] adHocColors = null;
+	private static short [] probabilityCells = null;
+
+	// scratch space, so we don't reallocate it for each frame
+	private static int [] rgb = new int[3];
+	private static int [] fineGrainCounts = new int[110];
+	private static int [] coarseCounts = new int[COARSE_COLORS];
+
+	// This is true iff the tables have been built.  Volatile, since the UI
+	// thread checks it without the lock before using the tables
+	public static volatile boolean built = false;
+
+	// Build the tables.  This runs both trees on the eight corners of each of
+	// the 32768 cells, so call it from a background thread, like the one that
+	// loads the probabilities.
+	public static synchronized void build() {
+		if(built)
+			return;
+		byte [] learnt = new byte[SIZE];
+		byte [] adHoc = new byte[SIZE];
+		short [] cells = new short[SIZE];
+		int mask = (1 << BITS) - 1;
+		for(int index = 0; index < SIZE; index++) {
+			int y = (index >> (2*BITS)) << SHIFT;
+			int cb = ((index >> BITS) & mask) << SHIFT;
+			int cr = (index & mask) << SHIFT;
+			int learntColor = 0;
+			int adHocColor = 0;
+			for(int corner = 0; corner < 8; corner++) {
+				int top = (1 << SHIFT) - 1;
+				toRGB(y + ((corner & 4) == 0 ? 0 : top), cb + ((corner & 2) == 0 ? 0 : top),
+						cr + ((corner & 1) == 0 ? 0 : top), rgb);
+				int l = DecisionTreeClassifier.classifyPixel(rgb[0], rgb[1], rgb[2], false)/10;
+				int a = DecisionTreeClassifier.classifyPixel(rgb[0], rgb[1], rgb[2], true);
+				if(corner == 0) {
+					learntColor = l;
+					adHocColor = a;
+				}
+				// if the corners disagree, the cell straddles a branch of the tree
+				if(l != learntColor)
+					learntColor = AMBIGUOUS;
+				if(a != adHocColor)
+					adHocColor = AMBIGUOUS;
+			}
+			learnt[index] = (byte) learntColor;
+			adHoc[index] = (byte) adHocColor;
+			// the middle of the cell
+			toRGB(y + (1 << (SHIFT - 1)), cb + (1 << (SHIFT - 1)), cr + (1 << (SHIFT - 1)), rgb);
+			cells[index] = (short) (((rgb[0]/16) << 8) | ((rgb[1]/16) << 4) | (rgb[2]/16));
+		}
+		learntColors = learnt;
+		adHocColors = adHoc;
+		probabilityCells = cells;
+		built = true;
+	}
+
+	// The same conversion as ImageProcessor.loadRGB, which got it from
+	// http://blog.tomgibara.com/post/132956174/yuv420-to-rgb565-conversion-in-android
+	static void toRGB(int y, int cb, int cr, int [] rgb) {
+		cb -= 128;
+		cr -= 128;
+		rgb[0] = clamp(y + ((359*cr) >> 8));
+		rgb[1] = clamp(y - ((88*cb + 183*cr) >> 8));
+		rgb[2] = clamp(y + ((454*cb) >> 8));
+	}
+
+	private static int clamp(int x) {
+		if(x > 255)
+			return 255;
+		if(x < 0)
+			return 0;
+		return x;
+	}
+
+	// The index into the tables of a pixel in the central region of an NV21
+	// preview frame.  x and y are in the half-resolution coordinates of the
+	// chroma samples, and the luminance is averaged over two rows, exactly like
+	// ImageProcessor.loadRGB does it.
+	static int cellIndex(byte [] data, int width, int height, int x, int y) {
+		int y1 = data[(2*y)*width + 2*x] & 0xff;
+		int y2 = data[(2*y + 1)*width + 2*x] & 0xff;
+		y1 = (y1 + y2)/2;
+		int chroma = height*width + 2*(y*(width/2) + x);
+		int cr = data[chroma] & 0xff;
+		int cb = data[chroma + 1] & 0xff;
+		return ((y1 >> SHIFT) << (2*BITS)) | ((cb >> SHIFT) << BITS) | (cr >> SHIFT);
+	}
+
+	// The color of a pixel, from the table if its cell only has one color,
+	// and otherwise from the tree.  For the learnt tree, this is divided by ten.
+	private static int colorOf(byte [] colors, byte [] data, int width, int height, int x, int y, boolean adHoc) {
+		int color = colors[cellIndex(data, width, height, x, y)];
+		if(color != AMBIGUOUS)
+			return color;
+		int y1 = ((data[(2*y)*width + 2*x] & 0xff) + (data[(2*y + 1)*width + 2*x] & 0xff))/2;
+		int chroma = height*width + 2*(y*(width/2) + x);
+		toRGB(y1, data[chroma + 1] & 0xff, data[chroma] & 0xff, rgb);
+		color = DecisionTreeClassifier.classifyPixel(rgb[0], rgb[1], rgb[2], adHoc);
+		return adHoc ? color : color/10;
+	}
+
+	// Which cell of converted_4096 the given table index falls in, as
+	// red*256 + green*16 + blue, with each component between 0 and 15
+	static int probabilityCell(int index) {
+		return probabilityCells[index];
+	}
+
+	// Classify the central region of a preview frame, the same region that
+	// ImageProcessor.loadRGB would copy out.  This gives the same kind of answer
+	// as DecisionTreeClassifier.classifyPicture: the most popular coarse color,
+	// or with the ad hoc tree, its most popular variant if that covers more than
+	// a quarter of the region.  When two colors are equally popular, this picks
+	// the one that got there first, like classifyPicture does.
+	public static synchronized int classifyFrame(byte [] data, int width, int height, boolean adHoc) {
+		for(int i = 0; i < fineGrainCounts.length; i++)
+			fineGrainCounts[i] = 0;
+		for(int i = 0; i < COARSE_COLORS; i++)
+			coarseCounts[i] = 0;
+		byte [] colors = adHoc ? adHocColors : learntColors;
+		int pixels = 0;
+		int bestColor = 0;
+		int bestCount = 0;
+		for(int x = width/6; x < width/3; x++) {
+			for(int y = height/6; y < height/3; y++) {
+				int color = colorOf(colors, data, width, height, x, y, adHoc);
+				pixels++;
+				if(color < 0)
+					continue;
+				if(adHoc) {
+					fineGrainCounts[color]++;
+					color /= 10;
+				}
+				int count = ++coarseCounts[color];
+				if(count > bestCount) {
+					bestColor = color;
+					bestCount = count;
+				}
+			}
+		}
+		if(adHoc) {
+			int bestSubColor = bestColor*10;
+			for(int i = 1; i < 10; i++)
+				if(fineGrainCounts[bestColor*10 + i] > fineGrainCounts[bestSubColor])
+					bestSubColor = bestColor*10 + i;
+			if(fineGrainCounts[bestSubColor] > pixels/4)
+				return bestSubColor;
+		}
+		return bestColor*10;
+	}
+
+	// Returns the percentage of the central region of a preview frame which
+	// the learnt tree thinks has the given color, like ImageProcessor.evaluatePicture
+	public static synchronized int evaluateFrame(byte [] data, int width, int height, String colorName) {
+		int d;
+		for(d = 0; d < 110; d+=10)
+			if(DecisionTreeClassifier.getName(d).equals(colorName))
+				break;
+		d /= 10;
+		byte [] colors = learntColors;
+		int count = 0;
+		int pixels = 0;
+		for(int x = width/6; x < width/3; x++) {
+			for(int y = height/6; y < height/3; y++) {
+				if(colorOf(colors, data, width, height, x, y, false) == d)
+					count++;
+				pixels++;
+			}
+		}
+		if(pixels == 0)
+			return 0;
+		return count*100/pixels;
+	}
+
+	// How many of the 2^24 YUV values the table names differently from the
+	// tree itself, for ClassifierBenchmark.  Only the cells with one color can
+	// be wrong, since the pixels in the others go through the tree anyway.
+	static synchronized int countMismatches(boolean adHoc) {
+		byte [] colors = adHoc ? adHocColors : learntColors;
+		int mismatches = 0;
+		for(int y = 0; y < 256; y++) {
+			for(int cb = 0; cb < 256; cb++) {
+				for(int cr = 0; cr < 256; cr++) {
+					int color = colors[((y >> SHIFT) << (2*BITS)) | ((cb >> SHIFT) << BITS) | (cr >> SHIFT)];
+					if(color == AMBIGUOUS)
+						continue;
+					toRGB(y, cb, cr, rgb);
+					int treeColor = DecisionTreeClassifier.classifyPixel(rgb[0], rgb[1], rgb[2], adHoc);
+					if(color != (adHoc ? treeColor : treeColor/10))
+						mismatches++;
+				}
+			}
+		}
+		return mismatches;
+	}
+
+}
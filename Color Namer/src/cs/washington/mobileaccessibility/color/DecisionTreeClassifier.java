@@ -1,5 +1,10 @@
 package cs.washington.mobileaccessibility.color;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
 import android.util.Log;
 
 /*
@@ -115,6 +120,72 @@ public class DecisionTreeClassifier {
 		coarseCounts = new int[11];
 	}
 	
+	// A learnt tree read in by loadLearntTree, which is used instead of the one
+	// written out in classifyPixel.  The nodes are in preorder: node n is a leaf
+	// of the color learntCutoffs[n] if learntParams[n] is -1, and otherwise it
+	// goes to node n + 1 if parameter learntParams[n] (numbered like
+	// ColorAnalyzer's paramNames) is bigger than learntCutoffs[n], or to node
+	// learntLo[n] if it isn't.
+	private static int [] learntParams = null;
+	private static int [] learntCutoffs;
+	private static int [] learntLo;
+	
+	private static final String [] paramNames = {"red","green","blue","hue","cohue","sat","val","chrome"};
+	
+	// Read a tree written out by "java ColorAnalyzer peri.txt tree".  This has to
+	// happen before ColorTable.build, which precomputes the learnt tree.
+	public static void loadLearntTree(Reader reader) throws IOException {
+		BufferedReader in = new BufferedReader(reader);
+		ArrayList<String> lines = new ArrayList<String>();
+		String line;
+		while((line = in.readLine()) != null) {
+			line = line.trim();
+			if(line.length() > 0)
+				lines.add(line);
+		}
+		int [] params = new int[lines.size()];
+		int [] cutoffs = new int[lines.size()];
+		int [] lo = new int[lines.size()];
+		if(parseNode(lines, 0, params, cutoffs, lo) != lines.size())
+			throw new IOException("extra lines after the tree");
+		learntCutoffs = cutoffs;
+		learntLo = lo;
+		learntParams = params;
+	}
+	
+	// parse the subtree starting at line n, and return the line after it
+	private static int parseNode(ArrayList<String> lines, int n, int [] params, int [] cutoffs, int [] lo) throws IOException {
+		if(n >= lines.size())
+			throw new IOException("the tree is cut short");
+		String [] words = lines.get(n).split(" ");
+		if(words.length == 1) {
+			int d;
+			for(d = 0; d < 110; d+=10)
+				if(getName(d).equals(words[0]))
+					break;
+			if(d == 110)
+				throw new IOException("unknown color " + words[0]);
+			params[n] = -1;
+			cutoffs[n] = d;
+			return n + 1;
+		}
+		int p;
+		for(p = 0; p < paramNames.length; p++)
+			if(paramNames[p].equals(words[0]))
+				break;
+		if(p == paramNames.length || words.length != 2)
+			throw new IOException("bad line in the tree: " + lines.get(n));
+		params[n] = p;
+		try {
+			cutoffs[n] = Integer.parseInt(words[1]);
+		}
+		catch(NumberFormatException nfe) {
+			throw new IOException("bad cutoff in the tree: " + lines.get(n));
+		}
+		lo[n] = parseNode(lines, n + 1, params, cutoffs, lo);
+		return parseNode(lines, lo[n], params, cutoffs, lo);
+	}
+	
 	// taken from Wikipedia
 	private static void calculateHSV(int red, int green, int blue, int [] hsv) {
 
@@ -168,7 +239,8 @@ public class DecisionTreeClassifier {
 	// if adHoc is true, this uses the arbitrary algorithm I made by hand
 	// if not, it uses one that I got by applying a machine-learning algorithm
 	// (the one written in the ColorAnalyzer class)
-	private static int classifyPixel(int red, int green, int blue, boolean adHoc) {
+	// ColorTable calls this to precompute both trees
+	static int classifyPixel(int red, int green, int blue, boolean adHoc) {
 		int [] hsv = new int[3];
 		calculateHSV(red,green,blue,hsv);
 		int hue = hsv[0];
@@ -249,6 +321,17 @@ public class DecisionTreeClassifier {
 			return -1;
 		}
 
+		else if(learntParams != null) {
+			int [] values = {red, green, blue, hue, cohue, sat, val, chrome};
+			int n = 0;
+			while(learntParams[n] >= 0) {
+				if(values[learntParams[n]] > learntCutoffs[n])
+					n++;
+				else
+					n = learntLo[n];
+			}
+			return learntCutoffs[n];
+		}
 		else {
 			if(cohue > 210) {
 				if(chrome > 622) {
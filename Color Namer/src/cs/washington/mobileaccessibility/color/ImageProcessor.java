@@ -3,10 +3,9 @@ package cs.washington.mobileaccessibility.color;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 
-import android.app.ProgressDialog;
 import android.hardware.Camera;
 import android.hardware.Camera.Size;
 import android.util.Log;
@@ -33,13 +32,11 @@ public class ImageProcessor {
     // for length!!
     // TODO: correct that madness!
     
-    // the data in the file converted_4096.txt, which has to be loaded in
-    // via loadProbabilities
-	private static int [][][][] probabilities = new int[16][16][16][11];
-	
-	// a flag that indicates that the process of loading the previous array
-	// needs to stop because e.g. the program is ending
-	private static boolean interrupted = true;
+    // the data in res/raw/probabilities.bin (converted from converted_4096.txt
+    // by ProbabilityModel), which has to be loaded in via loadProbabilities.
+    // The probability of color k for the RGB cell c is probabilities[c*11 + k],
+    // where c is numbered like ColorTable.probabilityCell
+	private static int [] probabilities = null;
     
     // is this shared with some other classes??  Not really.
 	// Unfortunately, everyone has a separate way to order the colors
@@ -48,62 +45,23 @@ public class ImageProcessor {
     // This is true iff the probabilities array has been loaded
     public static boolean loaded = false;
     
-    // This gets called when the application is closed
-    public static void stopLoading() {
-    	interrupted = true;
-    }
-    
-    // this gets called when it's time to load the probabilities
-    // It is called in a separate thread, so we can take all the time in the world
-    // However, we need to keep tabs on the interrupted flag, to make sure that we aren't supposed
-    // to be stopping
+    // this gets called when it's time to load the probabilities, with the
+    // contents of probabilities.bin, which may be memory mapped.  Unlike the
+    // old text file this only takes a few milliseconds.
     //
-    // This returns true iff we were not interrupted
-    public static boolean loadProbabilities(ProgressDialog loadingDialog, InputStream is) {
-    	interrupted = false;
-    	int [] colors = new int[3];
-        boolean anyLoadingErrors = false;
-        try {
-        	for(int line = 0; line < 4096; line++) {
-        		if(line % 256 == 0) {
-        			Log.v("ColorNamer","At line " + line + "/4096");
-        			loadingDialog.setProgress(line);
-        		}
-        		for(int j = 0; j < 3; j++) {
-        			int d = is.read();
-        			colors[j] = d - 'A'; // should be between 0 and 15 inclusive
-        		}
-        		for(int j = 0; j < 11; j++) {
-        			is.read(); // space?
-        			int number = 0;
-        			for(int mii = 0; mii < 6; mii++) {
-        				number = 10*number + (is.read() - '0');
-        			}
-        			probabilities[colors[0]][colors[1]][colors[2]][j] = number;
-        		}
-        		is.read(); // cr
-        		is.read(); // lf
-        		
-        		if(interrupted) {
-        			is.close();
-        			loaded = false;
-        			return !interrupted;
-        		}
-        		
-        	}
-        	is.close();
-        }
-        catch(IOException ioe) {
-        	Log.e("ColorNamer","Failure reading the file converted_4096.txt: " + ioe);
-        	anyLoadingErrors = true;
-        }
-        
-        loaded = !anyLoadingErrors;
-        
-        return !interrupted;
+    // This returns true iff the model was loaded
+    public static boolean loadProbabilities(ByteBuffer model) {
+    	try {
+    		probabilities = ProbabilityModel.read(model);
+    		loaded = true;
+    	}
+    	catch(IOException ioe) {
+    		Log.e("ColorNamer","Failure reading the file probabilities.bin: " + ioe);
+    		loaded = false;
+    	}
+    	return loaded;
     }
     
-    
     // Whatever is stored in the reds/greens/blues arrays, classify it, according to the
     // ad hoc decision tree
     public static String classifyPictureAdHoc() {
@@ -118,80 +76,69 @@ public class ImageProcessor {
 		return DecisionTreeClassifier.getName(color);
     }
     
+    // Classify a preview frame straight from the camera's buffer, according to the
+    // ad hoc decision tree.  This uses the precomputed ColorTable, so there's no
+    // need to call loadRGB first.
+    public static String classifyFrameAdHoc(byte [] data, Camera camera) {
+    	Size dims = camera.getParameters().getPreviewSize();
+    	int color = ColorTable.classifyFrame(data, dims.width, dims.height, true);
+    	return DecisionTreeClassifier.getName(color);
+    }
+    
+    // Classify a preview frame straight from the camera's buffer, according to the
+    // machine learning decision tree, using the precomputed ColorTable
+    public static String classifyFrameLearntTree(byte [] data, Camera camera) {
+    	Size dims = camera.getParameters().getPreviewSize();
+    	int color = ColorTable.classifyFrame(data, dims.width, dims.height, false);
+    	return DecisionTreeClassifier.getName(color);
+    }
+    
+    // Classify a preview frame of a known size with one of the classifiers,
+    // numbered like ColorNamer.classifierNames.  This is what LiveNamer uses,
+    // so that it doesn't have to ask the camera for the size every frame.
+    public static String classifyFrame(int classifier, byte [] data, int width, int height) {
+    	switch(classifier) {
+    	case 0:
+    		return DecisionTreeClassifier.getName(ColorTable.classifyFrame(data, width, height, true));
+    	case 1:
+    		return DecisionTreeClassifier.getName(ColorTable.classifyFrame(data, width, height, false));
+    	case 2:
+    		return names[ColorHistogram.classifyFrame(data, width, height, probabilities, 0)];
+    	default:
+    		return names[ColorHistogram.classifyFrame(data, width, height, probabilities, 3)];
+    	}
+    }
+    
+    // Like evaluatePicture, but straight from the camera's buffer
+    public static int evaluateFrame(byte [] data, Camera camera, String colorName) {
+    	Size dims = camera.getParameters().getPreviewSize();
+    	return ColorTable.evaluateFrame(data, dims.width, dims.height, colorName);
+    }
+    
     // Whatever is stored in the reds/greens/blues arrays, classify it, according to the
-    // EM based algorithm
+    // EM based algorithm.  This used to go over every pixel for each of the four
+    // iterations; now ColorHistogram counts them into cells once.
     public static String classifyPictureEM() {
-    	// TODO this is highly redundant with the subsequent function... why??
-    	// can laziness be used here?
-		double [] scores = new double[11];
-		for(int i = 0; i < width/3-width/6; i++) {
-			for(int j = 0; j < height/3-height/6; j++) {
-				for(int k = 0; k < 11; k++) {
-					scores[k] += probabilities[reds[i][j]/16][greens[i][j]/16][blues[i][j]/16][k];
-				}
-			}
-		}
-		int bestK = 0;
-		double bestScore = scores[0];
-		for(int k = 1; k < 11; k++) {
-			if(scores[k] > bestScore) {
-				bestScore = scores[k];
-				bestK = k;
-			}
-		}
-		// I feel like we're about to run the algorithm for three more iterations, on
-		// top of the first one which we just completed
-    	for(int iter = 0; iter < 3; iter++) {
-			double [] newScores = new double[11];
-			for(int i = 0; i < width/3-width/6; i++) {
-				for(int j = 0; j < height/3-height/6; j++) {
-					double total = 0;
-					for(int k = 0; k < 11; k++) {
-						total += scores[k]*probabilities[reds[i][j]/16][greens[i][j]/16][blues[i][j]/16][k];
-					}
-					for(int k = 0; k < 11; k++) {
-						newScores[k] += scores[k]*probabilities[reds[i][j]/16][greens[i][j]/16][blues[i][j]/16][k]/total;
-					}
-				}
-			}
-			double total2 = 0;
-			for(int i = 0; i < 11; i++)
-				total2 += newScores[i];
-			for(int i = 0; i < 11; i++)
-				scores[i] = newScores[i]/total2;
-		}
-		bestK = 0;
-		bestScore = scores[0];
-		for(int k = 1; k < 11; k++) {
-			if(scores[k] > bestScore) {
-				bestScore = scores[k];
-				bestK = k;
-			}
-		}
-
-		return names[bestK];
+    	return names[ColorHistogram.classifyPicture(reds, greens, blues, width/3-width/6, height/3-height/6, probabilities, 3)];
     }
     
     // Whatever is stored in the reds/greens/blues arrays, classify it, according to the
     // EM based algorithm, but only running for one iteration
     public static String classifyPictureProbsum() {
-		double [] scores = new double[11];
-		for(int i = 0; i < width/3-width/6; i++) {
-			for(int j = 0; j < height/3-height/6; j++) {
-				for(int k = 0; k < 11; k++) {
-					scores[k] += probabilities[reds[i][j]/16][greens[i][j]/16][blues[i][j]/16][k];
-				}
-			}
-		}
-		int bestK = 0;
-		double bestScore = scores[0];
-		for(int k = 1; k < 11; k++) {
-			if(scores[k] > bestScore) {
-				bestScore = scores[k];
-				bestK = k;
-			}
-		}
-		return names[bestK];
+    	return names[ColorHistogram.classifyPicture(reds, greens, blues, width/3-width/6, height/3-height/6, probabilities, 0)];
+    }
+    
+    // Classify a preview frame straight from the camera's buffer, according to the
+    // EM based algorithm, without calling loadRGB first
+    public static String classifyFrameEM(byte [] data, Camera camera) {
+    	Size dims = camera.getParameters().getPreviewSize();
+    	return names[ColorHistogram.classifyFrame(data, dims.width, dims.height, probabilities, 3)];
+    }
+    
+    // The same, but only running for one iteration
+    public static String classifyFrameProbsum(byte [] data, Camera camera) {
+    	Size dims = camera.getParameters().getPreviewSize();
+    	return names[ColorHistogram.classifyFrame(data, dims.width, dims.height, probabilities, 0)];
     }
     
     
@@ -233,9 +180,14 @@ public class ImageProcessor {
     // There is a camera parameter so we can get the dimensions
     public static void loadRGB(byte [] data, Camera camera) {
     	Size dims = camera.getParameters().getPreviewSize();
-		Log.v("ColorNamer","height = " + dims.height + " and width = " + dims.width);
-		height = dims.height;
-		width = dims.width;
+    	loadRGB(data, dims.width, dims.height);
+    }
+    
+    // The same, for a frame whose dimensions we already know, e.g. in ClassifierBenchmark
+    static void loadRGB(byte [] data, int frameWidth, int frameHeight) {
+		Log.v("ColorNamer","height = " + frameHeight + " and width = " + frameWidth);
+		height = frameHeight;
+		width = frameWidth;
 
 		// now we check that all the arrays are proper lengths,
 		// and reallocate if necessary
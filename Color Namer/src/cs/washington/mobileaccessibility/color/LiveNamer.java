@@ -0,0 +1,188 @@
+package cs.washington.mobileaccessibility.color;
+
+import android.hardware.Camera;
+import android.hardware.Camera.Size;
+import android.util.Log;
+
+/*
+ * This is the live mode, where instead of naming the color once per tap,
+ * every preview frame gets named, and the name is only spoken when it changes.
+ *
+ * The camera hands us frames on the main thread, which mustn't be held up,
+ * so they go through a single slot to a worker thread that does the
+ * classifying.  If the worker is still busy with the last frame when a new
+ * one comes in, the new one is just dropped, so the worker is always on the
+ * most recent frame it could get and nothing ever piles up.  (Android 2.1
+ * doesn't have addCallbackBuffer yet, so the camera allocates each frame
+ * itself, and the slot just holds on to that instead of copying it.)
+ *
+ * A single frame can easily be wrong, e.g. while the camera is moving from
+ * one thing to another, so the names are smoothed over the last WINDOW
+ * frames, and a color is only spoken once it's the name of at least
+ * MAJORITY of them.
+ */
+public class LiveNamer implements Camera.PreviewCallback {
+
+	// Told about each new color, on the worker thread, with the LiveNamer
+	// locked, so it should be quick and must not call back into it
+	public interface Listener {
+		public void colorChanged(String name);
+	}
+
+	// how many of the latest frames the names are smoothed over
+	private static final int WINDOW = 8;
+	// how many of them have to agree before the color is spoken
+	private static final int MAJORITY = 5;
+	// how many frames between the timing summaries in the log
+	private static final int LOG_EVERY = 30;
+
+	private final Listener listener;
+	// which classifier to use, numbered like ColorNamer.classifierNames
+	private final int classifier;
+
+	// the size of the preview frames, read from the camera on the first one
+	private int width = 0, height = 0;
+
+	// all of these are guarded by this
+	private boolean running = false;
+	// the frame waiting for the worker, if any
+	private byte [] pending = null;
+	// true from when a frame is put in the slot until the worker is done with it
+	private boolean busy = false;
+	private int received = 0, dropped = 0;
+
+	// only the worker thread uses these
+	private final String [] recent = new String[WINDOW];
+	private int next = 0;
+	private String spoken = null;
+	private int classified = 0;
+	private long classifyTime = 0;
+	private long summaryStart;
+
+	public LiveNamer(int classifier, Listener listener) {
+		this.classifier = classifier;
+		this.listener = listener;
+	}
+
+	// Start the worker.  The caller then gives this to the camera as its
+	// preview callback.  A LiveNamer can only be started once; make a new one
+	// to go live again.
+	public synchronized void start() {
+		running = true;
+		summaryStart = System.currentTimeMillis();
+		new Thread(new Runnable() {
+			public void run() {
+				work();
+			}
+		}, "LiveNamer").start();
+		Log.i("LiveNamer","Started live mode with the " + ColorNamer.classifierNames[classifier] + " classifier");
+	}
+
+	// Stop the worker, once it's done with the frame it's on, if any.  The
+	// caller should take this away from the camera too.
+	public synchronized void stop() {
+		running = false;
+		pending = null;
+		notifyAll();
+		Log.i("LiveNamer","Stopped live mode");
+	}
+
+	// called by the camera, on the main thread, for every preview frame
+	public void onPreviewFrame(byte [] data, Camera camera) {
+		synchronized(this) {
+			if(!running)
+				return;
+			received++;
+			if(busy) {
+				dropped++;
+				return;
+			}
+			if(width*height*3/2 != data.length) {
+				// the first frame, or the preview size changed
+				Size dims = camera.getParameters().getPreviewSize();
+				width = dims.width;
+				height = dims.height;
+				Log.i("LiveNamer","The preview is " + width + "x" + height);
+			}
+			pending = data;
+			busy = true;
+			notifyAll();
+		}
+	}
+
+	private void work() {
+		while(true) {
+			byte [] frame;
+			int frameWidth, frameHeight;
+			synchronized(this) {
+				while(running && pending == null) {
+					try {
+						wait();
+					}
+					catch(InterruptedException ie) {
+						running = false;
+					}
+				}
+				if(!running)
+					return;
+				frame = pending;
+				pending = null;
+				frameWidth = width;
+				frameHeight = height;
+			}
+
+			long start = System.nanoTime();
+			String name = ImageProcessor.classifyFrame(classifier, frame, frameWidth, frameHeight);
+			long elapsed = System.nanoTime() - start;
+			Log.v("LiveNamer", name + " in " + elapsed/1000 + " microseconds");
+			String dominant = smooth(name);
+			logTiming(elapsed);
+
+			synchronized(this) {
+				// stop() may have been called while this frame was being
+				// classified, and nothing should be spoken after it returns,
+				// so the listener is called with the lock held
+				if(!running)
+					return;
+				if(dominant != null && !dominant.equals(spoken)) {
+					spoken = dominant;
+					listener.colorChanged(dominant);
+				}
+				busy = false;
+			}
+		}
+	}
+
+	// Add the name of the latest frame to the window, and return the name
+	// that at least MAJORITY of the window agrees on, or null if there isn't one
+	private String smooth(String name) {
+		recent[next] = name;
+		next = (next + 1) % WINDOW;
+		int count = 0;
+		for(int i = 0; i < WINDOW; i++)
+			if(name.equals(recent[i]))
+				count++;
+		// only the latest name can have just become the majority
+		return count >= MAJORITY ? name : null;
+	}
+
+	private void logTiming(long elapsed) {
+		classified++;
+		classifyTime += elapsed;
+		if(classified < LOG_EVERY)
+			return;
+		long now = System.currentTimeMillis();
+		int frames, skipped;
+		synchronized(this) {
+			frames = received;
+			skipped = dropped;
+			received = dropped = 0;
+		}
+		Log.i("LiveNamer", classified + " frames named in " + classifyTime/classified/1000 + " microseconds each, "
+				+ skipped + " of " + frames + " preview frames dropped, "
+				+ (classified*1000L/Math.max(1, now - summaryStart)) + " frames per second");
+		classified = 0;
+		classifyTime = 0;
+		summaryStart = now;
+	}
+}
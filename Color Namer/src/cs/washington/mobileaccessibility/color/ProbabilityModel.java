@@ -0,0 +1,153 @@
+package cs.washington.mobileaccessibility.color;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+ * This class is the file format of the color probabilities that the EM
+ * classifiers use.  They used to be loaded straight from converted_4096.txt,
+ * which has one line per cell of a 16x16x16 grid over RGB, with three letters
+ * for the cell and then eleven six digit numbers, one per color.  Parsing that
+ * a byte at a time took several seconds on the phone, so now the main method
+ * here converts it once, when building, into res/raw/probabilities.bin:
+ *
+ *   int     MAGIC
+ *   int     VERSION
+ *   int     number of cells (4096)
+ *   int     number of colors (11)
+ *   int[]   cells*colors probabilities, cell by cell
+ *
+ * all big-endian, the way DataOutputStream and ByteBuffer do it.  A cell is
+ * red*256 + green*16 + blue, each between 0 and 15, the same numbering as
+ * ColorTable.probabilityCell, and the colors are in the order of
+ * ImageProcessor.names.  Loading that is one bulk copy into an int array.
+ *
+ * Like ColorAnalyzer, the main method runs on a desktop machine:
+ *
+ *   ant model
+ *
+ * or by hand
+ *
+ *   java cs.washington.mobileaccessibility.color.ProbabilityModel model/converted_4096.txt res/raw/probabilities.bin
+ *
+ * It also times loading the text file the old way against the binary one.
+ * Nothing in here uses Android, so that it can run there.
+ */
+public class ProbabilityModel {
+
+	public static final int MAGIC = 0x434e504d; // "CNPM"
+	public static final int VERSION = 1;
+	public static final int CELLS = 16*16*16;
+	public static final int COLORS = 11;
+
+	private static final int HEADER_INTS = 4;
+	// the size of the whole file in bytes
+	public static final int FILE_SIZE = 4*(HEADER_INTS + CELLS*COLORS);
+
+	// Read a model in the binary format.  The buffer can be memory mapped.
+	public static int [] read(ByteBuffer buffer) throws IOException {
+		IntBuffer ints = buffer.asIntBuffer();
+		if(ints.remaining() < HEADER_INTS || ints.get() != MAGIC)
+			throw new IOException("not a color probability model");
+		int version = ints.get();
+		int cells = ints.get();
+		int colors = ints.get();
+		if(version != VERSION || cells != CELLS || colors != COLORS)
+			throw new IOException("unexpected model: version " + version + ", " + cells + " cells, " + colors + " colors");
+		if(ints.remaining() < CELLS*COLORS)
+			throw new IOException("the model is cut short");
+		int [] probabilities = new int[CELLS*COLORS];
+		ints.get(probabilities);
+		return probabilities;
+	}
+
+	// Write a model in the binary format
+	public static void write(int [] probabilities, OutputStream os) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(CELLS);
+		out.writeInt(COLORS);
+		for(int i = 0; i < CELLS*COLORS; i++)
+			out.writeInt(probabilities[i]);
+		out.flush();
+	}
+
+	// Parse converted_4096.txt, the same way ImageProcessor.loadProbabilities
+	// used to: a byte at a time, straight from the stream
+	public static int [] readText(InputStream is) throws IOException {
+		int [] probabilities = new int[CELLS*COLORS];
+		for(int line = 0; line < CELLS; line++) {
+			int cell = 0;
+			for(int j = 0; j < 3; j++) {
+				int d = is.read() - 'A'; // should be between 0 and 15 inclusive
+				if(d < 0 || d > 15)
+					throw new IOException("bad cell on line " + line);
+				cell = cell*16 + d;
+			}
+			for(int k = 0; k < COLORS; k++) {
+				is.read(); // space
+				int number = 0;
+				for(int digit = 0; digit < 6; digit++)
+					number = 10*number + (is.read() - '0');
+				probabilities[cell*COLORS + k] = number;
+			}
+			is.read(); // cr
+			is.read(); // lf
+		}
+		return probabilities;
+	}
+
+	public static void main(String [] args) throws IOException {
+		String textFile = args.length > 0 ? args[0] : "model/converted_4096.txt";
+		String binaryFile = args.length > 1 ? args[1] : "res/raw/probabilities.bin";
+
+		long start = System.nanoTime();
+		InputStream is = new FileInputStream(textFile);
+		int [] probabilities;
+		try {
+			probabilities = readText(is);
+		}
+		finally {
+			is.close();
+		}
+		long textTime = System.nanoTime() - start;
+
+		OutputStream os = new FileOutputStream(binaryFile);
+		try {
+			write(probabilities, os);
+		}
+		finally {
+			os.close();
+		}
+
+		// now load it back, the way the phone does, and check it
+		start = System.nanoTime();
+		FileInputStream in = new FileInputStream(binaryFile);
+		int [] loaded;
+		try {
+			FileChannel channel = in.getChannel();
+			loaded = read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		finally {
+			in.close();
+		}
+		long binaryTime = System.nanoTime() - start;
+		for(int i = 0; i < probabilities.length; i++)
+			if(loaded[i] != probabilities[i])
+				throw new IOException("the model didn't read back the same at " + i);
+
+		System.out.println("Wrote " + new File(binaryFile).length() + " bytes to " + binaryFile);
+		System.out.println("Loading the text file took " + textTime/1000000 + " ms, the binary file took "
+				+ binaryTime/1000 + " microseconds");
+	}
+}
@@ -0,0 +1,243 @@
+package cs.washington.mobileaccessibility.onebusaway;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+
+import android.util.Log;
+
+import firbi.base.com.Bus;
+import firbi.base.com.BusStop;
+import firbi.base.com.FirbiCom;
+
+/*
+ * This class keeps the arrivals for all the bookmarked stops up to date in the
+ * background, so that opening a bookmark doesn't have to wait on One Bus Away.
+ *
+ * A few worker threads take turns refreshing whichever stop is due next, so
+ * there are never more than WORKERS queries going at once, however many
+ * bookmarks there are.  How soon a stop is due again depends on how soon its
+ * next bus comes: if the bus is two minutes out we check every half minute,
+ * but if it's an hour away every few minutes is plenty.
+ *
+ * The arrivals for each stop are kept sorted by (predicted) time, along with
+ * an array of those times, so the buses that left a while ago can be cut off
+ * with a binary search instead of sorting again every time someone asks.
+ *
+ * Like SettingsManager, it's all static.  MainActivity starts and stops it
+ * along with itself, and BookmarkManager tells it which stops to watch.
+ */
+public class ArrivalsService {
+
+	private static final String LOG_TAG = "ArrivalsService";
+
+	// the most queries we'll have going at once
+	private static final int WORKERS = 3;
+	// bounds on how long we wait before refreshing a stop again
+	private static final long MIN_REFRESH = 30*1000L;
+	private static final long MAX_REFRESH = 5*60*1000L;
+	// how soon to try again after a query fails
+	private static final long RETRY = 60*1000L;
+	// buses that left longer ago than this are left out, which is about
+	// what One Bus Away itself does
+	private static final long PAST_WINDOW = 5*60*1000L;
+
+	// everything we know about one stop
+	private static class Entry {
+		BusStop stop;
+		// sorted by predicted time, the ones without a time at the end
+		Bus [] buses = null;
+		// times[i] is the predicted time of buses[i] in milliseconds,
+		// or Long.MAX_VALUE if it doesn't have one
+		long [] times = null;
+		// when buses was fetched, and how long after that it still counts as
+		// recent: until the refresh planned then, plus MIN_REFRESH of slack.
+		// Failed queries don't touch these, so old arrivals expire even while
+		// we can't get new ones
+		long fetchedAt = 0;
+		long maxAge = 0;
+		// when this stop should be queried again
+		long nextRefresh = 0;
+		// whether a worker is querying it right now
+		boolean busy = false;
+
+		Entry(BusStop stop) {
+			this.stop = stop;
+		}
+	}
+
+	// the watched stops, by id.  Everything here is guarded by ArrivalsService.class
+	private static HashMap<String, Entry> table = new HashMap<String, Entry>();
+	private static boolean running = false;
+	// bumped by every start() and stop(), so that workers from before a stop()
+	// know to quit even if start() got called again in the meantime
+	private static int generation = 0;
+
+	// Watch exactly these stops from now on
+	public static synchronized void setStops(BusStop [] stops) {
+		HashMap<String, Entry> newTable = new HashMap<String, Entry>();
+		for(BusStop stop : stops) {
+			Entry e = table.get(stop.getId());
+			if(e == null)
+				e = new Entry(stop); // due right away
+			newTable.put(stop.getId(), e);
+		}
+		table = newTable;
+		ArrivalsService.class.notifyAll();
+	}
+
+	// Start the worker threads, if they aren't going already
+	public static synchronized void start() {
+		if(running)
+			return;
+		running = true;
+		final int myGeneration = ++generation;
+		for(int i = 0; i < WORKERS; i++) {
+			Thread worker = new Thread(new Runnable() {
+				public void run() {
+					work(myGeneration);
+				}
+			});
+			worker.setDaemon(true);
+			worker.start();
+		}
+		Log.i(LOG_TAG, "Started " + WORKERS + " workers");
+	}
+
+	// Stop refreshing, for when we're paused.  Queries that are already
+	// going still finish and get stored.
+	public static synchronized void stop() {
+		running = false;
+		generation++;
+		ArrivalsService.class.notifyAll();
+	}
+
+	/*
+	 * Returns the upcoming arrivals at the given stop, sorted like
+	 * BusStop.getUpcomingArrivals() does, or null if the stop isn't being
+	 * watched or we haven't got recent enough arrivals for it.
+	 */
+	public static synchronized Bus [] getArrivals(BusStop stop) {
+		Entry e = table.get(stop.getId());
+		long now = System.currentTimeMillis();
+		if(e == null || e.buses == null || now - e.fetchedAt > e.maxAge)
+			return null;
+		int from = firstAtOrAfter(e.times, now - PAST_WINDOW);
+		Bus [] ret = new Bus[e.buses.length - from];
+		System.arraycopy(e.buses, from, ret, 0, ret.length);
+		return ret;
+	}
+
+	private static void work(int myGeneration) {
+		while(true) {
+			Entry e = nextDue(myGeneration);
+			if(e == null)
+				return;
+			Bus [] found = null;
+			try {
+				found = FirbiCom.getStopSchedule(e.stop);
+			}
+			catch(RuntimeException re) {
+				// one odd response shouldn't take the worker down with it
+				Log.e(LOG_TAG, "Query for stop " + e.stop.getId() + " failed: " + re);
+			}
+			store(e, found);
+		}
+	}
+
+	// Waits until some stop is due, and marks it busy.  Returns null
+	// once this generation of workers should quit.
+	private static synchronized Entry nextDue(int myGeneration) {
+		while(running && myGeneration == generation) {
+			Entry due = null;
+			for(Entry e : table.values()) {
+				if(!e.busy && (due == null || e.nextRefresh < due.nextRefresh))
+					due = e;
+			}
+			long now = System.currentTimeMillis();
+			if(due != null && due.nextRefresh <= now) {
+				due.busy = true;
+				return due;
+			}
+			try {
+				// with nothing to do, wait until setStops() or stop() wakes us
+				ArrivalsService.class.wait(due == null ? 0 : due.nextRefresh - now);
+			} catch(InterruptedException ie) {}
+		}
+		return null;
+	}
+
+	private static synchronized void store(Entry e, Bus [] found) {
+		e.busy = false;
+		long now = System.currentTimeMillis();
+		if(found == null) {
+			e.nextRefresh = now + RETRY;
+		}
+		else {
+			sort(e, found);
+			long delay = refreshDelay(e.times, now);
+			e.fetchedAt = now;
+			e.maxAge = delay + MIN_REFRESH;
+			e.nextRefresh = now + delay;
+		}
+		ArrivalsService.class.notifyAll();
+	}
+
+	// Sorts the buses by predicted time into e.buses and e.times, leaving out nulls.
+	// Each time is worked out once, instead of cloning two Calendars per comparison
+	private static void sort(Entry e, Bus [] found) {
+		ArrayList<Bus> buses = new ArrayList<Bus>(found.length);
+		for(Bus b : found) {
+			if(b != null)
+				buses.add(b);
+		}
+		final long [] keys = new long[buses.size()];
+		Integer [] order = new Integer[keys.length];
+		for(int i = 0; i < keys.length; i++) {
+			GregorianCalendar time = buses.get(i).getPredictedTime();
+			keys[i] = (time == null) ? Long.MAX_VALUE : time.getTimeInMillis();
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				long ka = keys[a.intValue()];
+				long kb = keys[b.intValue()];
+				return (ka < kb) ? -1 : ((ka > kb) ? 1 : 0);
+			}
+		});
+		Bus [] sorted = new Bus[keys.length];
+		long [] times = new long[keys.length];
+		for(int i = 0; i < keys.length; i++) {
+			sorted[i] = buses.get(order[i].intValue());
+			times[i] = keys[order[i].intValue()];
+		}
+		e.buses = sorted;
+		e.times = times;
+	}
+
+	// Half the time until the next bus, so that we hear about it being late or
+	// early while it still matters, but within MIN_REFRESH and MAX_REFRESH
+	private static long refreshDelay(long [] times, long now) {
+		int next = firstAtOrAfter(times, now);
+		if(next == times.length || times[next] == Long.MAX_VALUE)
+			return MAX_REFRESH;
+		long delay = (times[next] - now) / 2;
+		return Math.max(MIN_REFRESH, Math.min(MAX_REFRESH, delay));
+	}
+
+	// the index of the first time that is >= t, or times.length if there isn't one
+	private static int firstAtOrAfter(long [] times, long t) {
+		int low = 0;
+		int high = times.length;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(times[mid] < t)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+}
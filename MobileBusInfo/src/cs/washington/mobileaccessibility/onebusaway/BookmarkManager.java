@@ -57,6 +57,7 @@ public class BookmarkManager {
 			cos.outputText("Added bookmark for stop number " + stopNum +
 					", at " + address);
 		}
+		ArrivalsService.setStops(getBookmarks());
 	}
 	
 	
@@ -1,5 +1,7 @@
 package cs.washington.mobileaccessibility.onebusaway;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 //import java.util.HashSet;
 
@@ -35,6 +37,8 @@ import cs.washington.mobileaccessibility.onebusaway.util.Util;
 import cs.washington.mobileaccessibility.vbraille.BrailleView;
 import firbi.base.com.Bus;
 import firbi.base.com.BusStop;
+import firbi.base.com.ParserBenchmark;
+import firbi.base.com.ResponseCache;
 
 import android.os.Vibrator;
 
@@ -261,6 +265,9 @@ public class MainActivity extends Activity implements GestureListener, CoState {
         morseVibrator = new MorseVibrator(vibe);
         geoFacade = new GeoFacade(this);
 
+        // keep One Bus Away's answers around, so that bookmarked stops can be
+        // described without waiting on the network
+        ResponseCache.setDirectory(new File(getCacheDir(), "onebusaway"));
         final SharedPreferences prefs = getPreferences(MODE_PRIVATE);
         Log.w(LOG_TAG,"Just got the GeoFacade and the shared preferences");
         final Runnable rSlow = new Runnable() {
@@ -268,6 +275,7 @@ public class MainActivity extends Activity implements GestureListener, CoState {
         		Log.i(LOG_TAG, "Inside rSlow, starting to run.");
         		SettingsManager.loadSettings(prefs);
         		bookmarks = new BookmarkManager(prefs);
+        		ArrivalsService.setStops(bookmarks.getBookmarks());
         		Log.i(LOG_TAG, "Inside rSlow, just set bookmarks to non-null");
         		String mostRecentID = prefs.getString("last_stop","");
         		if(!mostRecentID.equals("")) {
@@ -333,6 +341,7 @@ public class MainActivity extends Activity implements GestureListener, CoState {
     	}
     	paused = false;
     	geoFacade.onResume();
+    	ArrivalsService.start();
     	/*
     	locManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, 6000, 10, this);
     	// lol won't that be called twice then?? onResume is always called after
@@ -354,6 +363,7 @@ public class MainActivity extends Activity implements GestureListener, CoState {
     	tts.stop();
     	vibe.cancel();
     	geoFacade.onPause();
+    	ArrivalsService.stop();
     	/*
     	locManager.removeUpdates(this);
     	*/
@@ -691,6 +701,30 @@ public class MainActivity extends Activity implements GestureListener, CoState {
 			currentState.longDescribe(this);
 			finishOutput();
 			return true;
+		case KeyEvent.KEYCODE_P:
+			// another trapdoor: time the xml parsers on One Bus Away responses
+			// that were saved to the sd card (see ParserBenchmark)
+			outputText("Timing the parsers");
+			finishOutput();
+			new Thread(new Runnable() {
+				public void run() {
+					String summary;
+					try {
+						summary = ParserBenchmark.run("/sdcard/onebusaway");
+					}
+					catch(IOException ioe) {
+						Log.e(LOG_TAG, "Couldn't run the parser benchmark: " + ioe);
+						summary = "Couldn't read the saved responses";
+					}
+					final String result = summary;
+					postRunnable(new Runnable() {
+						public void run() {
+							outputText(result);
+						}
+					});
+				}
+			}).start();
+			return true;
 		case KeyEvent.KEYCODE_0:
 		case KeyEvent.KEYCODE_1:
 		case KeyEvent.KEYCODE_2:
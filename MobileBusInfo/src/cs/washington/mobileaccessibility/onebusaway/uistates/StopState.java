@@ -6,6 +6,7 @@ import java.util.GregorianCalendar;
 
 import com.google.marvin.shell.TouchGestureControlOverlay.Gesture;
 
+import cs.washington.mobileaccessibility.onebusaway.ArrivalsService;
 import cs.washington.mobileaccessibility.onebusaway.BookmarkManager;
 // import cs.washington.mobileaccessibility.onebusaway.util.Util;
 
@@ -55,6 +56,12 @@ public class StopState implements State, EnterNumberState.RouteAcceptor {
 		// TODO check the sorting stage, since it seems that
 		// in some cases the array of Bus[] objects can have nulls
 		// in it.  Hard to replicate this error, though.
+		// a bookmarked stop has probably been looked up already
+		arrivals = ArrivalsService.getArrivals(theStop);
+		if(arrivals != null) {
+			none = (arrivals.length == 0);
+			return;
+		}
 		Log.i("MobileBusInfo","In constructor of StopState, about to start thread to ask for arrivals");
 		arrivals = null;
 		none = true;
@@ -88,6 +95,16 @@ public class StopState implements State, EnterNumberState.RouteAcceptor {
 		return first.equals(second);
 	}
 	
+	// the arrivals of routes that match the filter
+	private Bus [] onlyRoute(Bus [] all, BusRoute filter) {
+		ArrayList<Bus> matches = new ArrayList<Bus>();
+		for(int i = 0; i < all.length; i++) {
+			if(routeMatch(all[i].getRoute(),filter))
+				matches.add(all[i]);
+		}
+		return matches.toArray(new Bus[0]);
+	}
+	
 	/*
 	 * This is the constructor for the case where there IS a route filter
 	 */
@@ -96,20 +113,21 @@ public class StopState implements State, EnterNumberState.RouteAcceptor {
 		routeFilter = filter;
 		currentIndex = 0;
 		
+		Bus [] known = ArrivalsService.getArrivals(theStop);
+		if(known != null) {
+			arrivals = onlyRoute(known, filter);
+			none = (arrivals.length == 0);
+			return;
+		}
 		Log.i("MobileBusInfo","In constructor of StopState, about to start thread to ask for arrivals");
 		arrivals = null;
 		none = true;
 		Runnable r = new Runnable() {
 			public void run() {
 				Log.i("MobileBusInfo","In constructor of StopState (with route), about to ask for arrivals");
-				arrivals = theStop.getUpcomingArrivals();
+				Bus [] all = theStop.getUpcomingArrivals();
 				Log.i("MobileBusInfo","In constructor of StopState (with route), just got the arrivals");
-				ArrayList<Bus> matches = new ArrayList<Bus>();
-				for(int i = 0; i < arrivals.length; i++) {
-					if(routeMatch(arrivals[i].getRoute(),filter))
-						matches.add(arrivals[i]);
-				}
-				arrivals = matches.toArray(new Bus[0]);
+				arrivals = onlyRoute(all, filter);
 				none = (arrivals.length == 0);
 				Log.i("MobileBusInfo","Done getting arrivals!");
 				if(cosForFinderThread != null) {
@@ -54,10 +54,11 @@ public class BusRoute {
 	 */
 	public static BusRoute find(String id) {
 		BusRoute route;
-		if(CachedRoutes.containsKey(id)){
+		// responses can be parsed on several threads at once
+		synchronized(BusRoute.class){
 			route = CachedRoutes.get(id);
 		}
-		else{
+		if(route==null){
 			route = FirbiCom.getRoute(id);
 		}
 		return route;
@@ -73,7 +74,7 @@ public class BusRoute {
 	 * @return				the only BusRoute in existence with the passed in id, with the routeNumber as passed
 	 * 						in either by updating it or leaving it as it was
 	 */
-	public static BusRoute updateOrCreate(String id, String routeNumber) {
+	public static synchronized BusRoute updateOrCreate(String id, String routeNumber) {
 		if(id==null)
 			return null;
 		BusRoute route;
@@ -145,7 +145,21 @@ public class BusStop {
 	 * @return			all stops that fall within the circle created by center and radius
 	 */
 	public static BusStop[] find(GeoPoint center, int radius) {
-		return FirbiCom.getStops(center, radius);
+		return StopIndex.find(center, radius);
+	}
+	
+	/**
+	 * Finds the BusStops closest to the center point, closest first. Only the area within radius is fetched from One Bus Away, and only if it
+	 * hasn't been fetched before.
+	 * 
+	 * @param center	the location to find the closest stops to
+	 * @param count		the most stops to return
+	 * @param radius	the farthest a stop may be from center
+	 * @return			up to count stops within radius of center, closest first
+	 */
+	public static BusStop[] findNearest(GeoPoint center, int count, int radius) {
+		StopIndex.find(center, radius);
+		return StopIndex.nearest(center, count, radius);
 	}
 	
 	/**
@@ -178,10 +192,11 @@ public class BusStop {
 	 */
 	public static BusStop find(String id) {
 		BusStop stop;
-		if(CachedStops.containsKey(id)){
+		// responses can be parsed on several threads at once
+		synchronized(BusStop.class){
 			stop = CachedStops.get(id);
 		}
-		else{
+		if(stop==null){
 			stop = FirbiCom.getStop(id);
 		}
 		return stop;
@@ -198,7 +213,7 @@ public class BusStop {
 	 * @return			the only instance of BusStop with the passed id with the passed values 
 	 * 					updated to those that were passed in
 	 */
-	public static BusStop updateOrCreate(String id, String stopNumber, GeoPoint location, String address, Integer direction) {
+	public static synchronized BusStop updateOrCreate(String id, String stopNumber, GeoPoint location, String address, Integer direction) {
 		if(id==null)
 			return null;
 		BusStop stop;
@@ -210,12 +225,12 @@ public class BusStop {
 				stop.setAddress(address);
 			if(direction!=null)
 				stop.setDirection(direction.intValue());
-			return stop;
 		}
 		else{
 			stop = new BusStop(id, stopNumber, location, address, direction);
 			CachedStops.put(id, stop);
 		}
+		StopIndex.add(stop);
 		return stop;
 	}
 	
@@ -376,7 +391,7 @@ public class BusStop {
 	 * @return			all BusStops within the given radius with this BusStop's location at the center
 	 */
 	public BusStop[] getNearbyStops(int radius) {
-		return FirbiCom.getStops(mLocation, radius);
+		return StopIndex.find(mLocation, radius);
 	}
 	
 	/**
@@ -1,16 +1,14 @@
 package firbi.base.com;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Type;
-import java.net.URL;
-import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
-import java.util.zip.GZIPInputStream;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -22,6 +20,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.w3c.dom.Text;
 import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParserException;
 
 
 import android.util.Log;
@@ -324,25 +323,37 @@ public class FirbiCom {
 	
 	
 	/**
-	 * This method can be used to parse all current queries that One Bus Away supports. This method makes the query gets the xml and decides based on
-	 * the xml tags which methods to use to parse each piece of the xml. In the event of an error this method returns null.
+	 * This method can be used to parse all current queries that One Bus Away supports. This method makes the query gets the xml and parses it with
+	 * ResponseParser. In the event of an error this method returns null.
 	 * @param url_str	the url to query with and parse the data from
 	 * @return			an Object[] with the data parsed from the query specified as url_str
 	 */
 	protected static Object[] parseXMLFromURL(String url_str) {
+		Object[] ret = null;
+		try {
+			// stops and routes usually come straight from the disk, see ResponseCache
+			ret = ResponseParser.parse(new ByteArrayInputStream(ResponseCache.get(url_str)));
+		} catch (XmlPullParserException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		if(ret == null) {
+			// don't keep serving whatever made this fail
+			ResponseCache.remove(url_str);
+		}
+		return ret;
+	}
+	
+	/**
+	 * This method parses a One Bus Away response by building a DOM of it and deciding based on the xml tags which methods to use to parse each piece
+	 * of the xml. It is what parseXMLFromURL() used before ResponseParser, and is kept so that ParserBenchmark can compare the two. In the event of
+	 * an error this method returns null.
+	 * @param inStream	the response, not gzipped
+	 * @return			an Object[] with the data parsed from the response
+	 */
+	protected static Object[] parseXMLFromDocument(InputStream inStream) {
 		try {
-			URL url = new URL(url_str);
-			URLConnection conn = url.openConnection();
-			
-			// it's not clear that this helps at all:
-			//conn.setRequestProperty("Accept-Encoding", "gzip,deflate");
-			conn.connect();
-			
-			String encoding = conn.getContentEncoding();
-			InputStream inStream = conn.getInputStream();
-			if(encoding != null && encoding.equalsIgnoreCase("gzip")) {
-				inStream = new GZIPInputStream(inStream);
-			}
 			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 			DocumentBuilder builder = factory.newDocumentBuilder();
 			Document response = builder.parse(inStream);
@@ -445,7 +456,6 @@ public class FirbiCom {
 	protected static Map<String[], BusStop[]> parseStopsForRouteData(Element data) {
 		BusStop[] stops = null;
 		Object[] groups = null;
-		HashMap<String[], BusStop[]> ret = new HashMap<String[], BusStop[]>();
 		NodeList children = data.getChildNodes();
 		for(int i = 0; i < children.getLength();i++){
 			Node child = children.item(i);
@@ -500,6 +510,17 @@ public class FirbiCom {
 				}
 			}
 		}
+		return groupStops(groups);
+	}
+	
+	/**
+	 * This method turns the stop groups of a Stops for Route response into the map that getStopsServedByRoute() returns. The stops must already
+	 * have been parsed, so that BusStop.find() doesn't have to query One Bus Away for each one.
+	 * @param groups	the stopGroups of the direction stopGrouping, each one an Object[] of size 2 as returned by parseStopGroup()
+	 * @return			a map of String[] of destinations to BusStop[] of stops for those destinations
+	 */
+	protected static Map<String[], BusStop[]> groupStops(Object[] groups) {
+		HashMap<String[], BusStop[]> ret = new HashMap<String[], BusStop[]>();
 		if(groups!=null){
 			for(int i = 0; i < groups.length; i++){
 				Object group = groups[i];
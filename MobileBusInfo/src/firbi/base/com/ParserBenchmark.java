@@ -0,0 +1,297 @@
+package firbi.base.com;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import com.google.android.maps.GeoPoint;
+
+
+/**
+ * This class times ResponseParser against the DOM parser it replaced (FirbiCom.parseXMLFromDocument()). It replays One Bus Away responses that
+ * were recorded earlier, for example with
+ *   curl -o stops-for-route-1_30.xml "http://api.onebusaway.org/api/where/stops-for-route/1_30.xml?key=..."
+ * and put in one directory. The responses are served gzipped by a small http server on the phone itself, so the time includes reading and
+ * unzipping the stream the way a real query does, but not the network.
+ *
+ * It also checks that both parsers find the same things in each response, down to every field they fill in.
+ */
+public class ParserBenchmark {
+
+	/**
+	 * How many times to parse each response with each parser, to get measurable times
+	 */
+	private static final int PASSES = 10;
+
+	/**
+	 * This method runs the benchmark on the responses in the passed in directory.
+	 * @param path	the directory holding the recorded responses, every file ending in .xml is used
+	 * @return		a summary that is short enough to speak
+	 * @throws IOException	if the responses can't be read or the server can't be started
+	 */
+	public static String run(String path) throws IOException {
+		File[] files = new File(path).listFiles();
+		HashMap<String, byte[]> responses = new HashMap<String, byte[]>();
+		long totalBytes = 0;
+		if(files != null) {
+			for(File file : files) {
+				if(file.getName().endsWith(".xml")) {
+					byte[] body = readFully(new FileInputStream(file));
+					responses.put("/" + file.getName(), gzip(body));
+					totalBytes += body.length;
+				}
+			}
+		}
+		if(responses.isEmpty())
+			return "No recorded responses found in " + path;
+
+		StubServer server = new StubServer(responses);
+		server.start();
+		try {
+			String base = "http://127.0.0.1:" + server.socket.getLocalPort();
+			long domTime = 0;
+			long pullTime = 0;
+			int mismatches = 0;
+			// the first round warms up, only the second one counts
+			for(int round = 0; round < 2; round++) {
+				domTime = 0;
+				pullTime = 0;
+				mismatches = 0;
+				for(String name : responses.keySet()) {
+					Object[] dom = null;
+					Object[] pull = null;
+					String domFields;
+					String pullFields;
+					long start = System.currentTimeMillis();
+					for(int pass = 0; pass < PASSES; pass++) {
+						InputStream in = open(base + name);
+						try {
+							dom = FirbiCom.parseXMLFromDocument(in);
+						}
+						finally {
+							in.close();
+						}
+					}
+					domTime += System.currentTimeMillis() - start;
+					domFields = describe(dom);
+
+					start = System.currentTimeMillis();
+					for(int pass = 0; pass < PASSES; pass++) {
+						InputStream in = open(base + name);
+						try {
+							pull = ResponseParser.parse(in);
+						} catch (XmlPullParserException e) {
+							FirbiCom.print("ResponseParser failed on " + name + ": " + e);
+							pull = null;
+						}
+						finally {
+							in.close();
+						}
+					}
+					pullTime += System.currentTimeMillis() - start;
+					pullFields = describe(pull);
+
+					if(domFields == null ? pullFields != null : !domFields.equals(pullFields)) {
+						FirbiCom.print("the parsers disagree about " + name + ":\n" + domFields + "\nversus\n" + pullFields);
+						mismatches++;
+					}
+				}
+			}
+			String summary = "Parsed " + responses.size() + " responses, " + (totalBytes/1024) + " kilobytes, " + PASSES + " times. " +
+					"The DOM parser took " + domTime + " milliseconds, the pull parser took " + pullTime + ". ";
+			if(mismatches == 0)
+				summary += "They agreed on every response.";
+			else
+				summary += "They disagreed on " + mismatches + (mismatches == 1 ? " response." : " responses.");
+			FirbiCom.print(summary);
+			return summary;
+		}
+		finally {
+			server.close();
+		}
+	}
+
+	/**
+	 * Opens the url the way ResponseCache does, asking for gzip
+	 */
+	private static InputStream open(String url_str) throws IOException {
+		URLConnection conn = new URL(url_str).openConnection();
+		conn.setRequestProperty("Accept-Encoding", "gzip");
+		String encoding = conn.getContentEncoding();
+		InputStream in = conn.getInputStream();
+		if(encoding != null && encoding.equalsIgnoreCase("gzip"))
+			in = new GZIPInputStream(in);
+		return in;
+	}
+
+	/**
+	 * This method writes down everything the parsers fill in of a result, so that the results of the two parsers can be compared field by
+	 * field. BusStops and BusRoutes are cached by id and updated in place by whichever parser ran last, so this has to be done right after
+	 * each parse. (The cache does still hide a stop field that one parser leaves out altogether, since updateOrCreate() keeps the old value.)
+	 * @param result	what a parser returned
+	 * @return			the type of the result and one line per element, or null if the result is null
+	 */
+	private static String describe(Object[] result) {
+		if(result == null)
+			return null;
+		StringBuilder ret = new StringBuilder(result.getClass().getSimpleName());
+		for(Object item : result) {
+			ret.append('\n');
+			ret.append(describe(item));
+		}
+		return ret.toString();
+	}
+
+	private static String describe(Object item) {
+		if(item instanceof BusStop) {
+			BusStop stop = (BusStop) item;
+			GeoPoint location = stop.getLocation();
+			return "stop " + stop.getId() + " number " + stop.getStopNumber() + " at " +
+					(location == null ? "null" : location.getLatitudeE6() + "," + location.getLongitudeE6()) +
+					" address " + stop.getAddress() + " direction " + stop.getDirection();
+		}
+		if(item instanceof BusRoute) {
+			BusRoute route = (BusRoute) item;
+			return "route " + route.getId() + " number " + route.getRouteNumber();
+		}
+		if(item instanceof Bus) {
+			Bus bus = (Bus) item;
+			return "bus on " + (bus.getRoute() == null ? "null" : describe(bus.getRoute())) +
+					" at " + (bus.getStop() == null ? "null" : bus.getStop().getId()) +
+					" scheduled " + (bus.getScheduledTime() == null ? "null" : bus.getScheduledTime().getTimeInMillis()) +
+					" predicted " + (bus.getPredictedTime() == null ? "null" : bus.getPredictedTime().getTimeInMillis()) +
+					" to " + bus.getDestination();
+		}
+		if(item instanceof Map) {
+			// the stops for a route, keyed by destinations, in no particular order
+			ArrayList<String> groups = new ArrayList<String>();
+			for(Map.Entry<?, ?> group : ((Map<?, ?>) item).entrySet()) {
+				Object key = group.getKey();
+				Object value = group.getValue();
+				groups.add((key instanceof Object[] ? Arrays.toString((Object[]) key) : String.valueOf(key)) + " -> " +
+						(value instanceof Object[] ? describe((Object[]) value) : describe(value)));
+			}
+			Collections.sort(groups);
+			return groups.toString();
+		}
+		if(item instanceof Object[])
+			return describe((Object[]) item);
+		return String.valueOf(item);
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(body.length/4);
+		GZIPOutputStream gz = new GZIPOutputStream(out);
+		gz.write(body);
+		gz.close();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Just enough of an http server to answer GETs for the recorded responses, one connection at a time
+	 */
+	private static class StubServer extends Thread {
+		private final HashMap<String, byte[]> responses;
+		private final ServerSocket socket;
+
+		StubServer(HashMap<String, byte[]> responses) throws IOException {
+			this.responses = responses;
+			socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+			setDaemon(true);
+		}
+
+		void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// it's going away anyway
+			}
+		}
+
+		@Override
+		public void run() {
+			while(!socket.isClosed()) {
+				Socket client = null;
+				try {
+					client = socket.accept();
+					serve(client);
+				} catch (IOException e) {
+					if(!socket.isClosed())
+						FirbiCom.print("stub server: " + e);
+				}
+				finally {
+					if(client != null) {
+						try {
+							client.close();
+						} catch (IOException e) {
+							// nothing more to do
+						}
+					}
+				}
+			}
+		}
+
+		private void serve(Socket client) throws IOException {
+			BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), "US-ASCII"));
+			String request = in.readLine();
+			boolean acceptsGzip = false;
+			String header;
+			while((header = in.readLine()) != null && header.length() > 0) {
+				if(header.toLowerCase().startsWith("accept-encoding:") && header.toLowerCase().indexOf("gzip") >= 0)
+					acceptsGzip = true;
+			}
+			// "GET /name.xml?key=... HTTP/1.1"
+			String name = request == null ? "" : request.split(" ")[1];
+			if(name.indexOf('?') >= 0)
+				name = name.substring(0, name.indexOf('?'));
+			byte[] body = responses.get(name);
+			OutputStream out = client.getOutputStream();
+			if(body == null) {
+				out.write("HTTP/1.0 404 Not Found\r\nContent-Length: 0\r\n\r\n".getBytes("US-ASCII"));
+			}
+			else {
+				if(!acceptsGzip)
+					body = readFully(new GZIPInputStream(new ByteArrayInputStream(body)));
+				out.write(("HTTP/1.0 200 OK\r\nContent-Type: text/xml\r\nContent-Length: " + body.length + "\r\n" +
+						(acceptsGzip ? "Content-Encoding: gzip\r\n" : "") + "Connection: close\r\n\r\n").getBytes("US-ASCII"));
+				out.write(body);
+			}
+			out.flush();
+		}
+	}
+}
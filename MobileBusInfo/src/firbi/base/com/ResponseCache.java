@@ -0,0 +1,382 @@
+package firbi.base.com;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * This class is a disk cache for the responses One Bus Away sends to FirbiCom. Each response is kept in its own file, named by a hash of the url
+ * it came from, along with the time it was fetched and the ETag and Last-Modified headers it came with. How long a response stays fresh depends on
+ * what it describes: stops and routes hardly ever change so they are kept for days, while arrivals are only good for a few seconds. Once a response
+ * is stale it is revalidated with a conditional request, so an unchanged response costs a 304 instead of the whole body. The files are kept under a
+ * byte budget by throwing out the least recently used ones first.
+ *
+ * If the phone can't reach One Bus Away, stale stops and routes are still returned since they are almost certainly still right, but stale arrivals
+ * are not because reading out old arrival times would be worse than saying nothing.
+ *
+ * Until setDirectory() has been called nothing is cached and every request goes to the network.
+ */
+public class ResponseCache {
+
+	/**
+	 * How long arrivals and departures stay fresh, in milliseconds
+	 */
+	public static final long ARRIVALS_MAX_AGE = 30*1000L;
+	/**
+	 * How long stops, routes and the stops served by a route stay fresh, in milliseconds
+	 */
+	public static final long TOPOLOGY_MAX_AGE = 7*24*60*60*1000L;
+	/**
+	 * How long any other response stays fresh, in milliseconds
+	 */
+	public static final long DEFAULT_MAX_AGE = 60*60*1000L;
+	/**
+	 * The default number of bytes the cached responses may take up on disk
+	 */
+	public static final long DEFAULT_BYTE_BUDGET = 1024*1024L;
+
+	/**
+	 * Written at the start of every cache file, change it whenever the file format changes so old files get ignored
+	 */
+	private static final int FILE_VERSION = 1;
+	private static final int CONNECT_TIMEOUT = 15*1000;
+	private static final int READ_TIMEOUT = 30*1000;
+
+	private static File directory = null;
+	private static long byteBudget = DEFAULT_BYTE_BUDGET;
+	/**
+	 * The sizes of the files in the cache directory indexed by file name, ordered from least to most recently used. Built from the directory the
+	 * first time it is needed.
+	 */
+	private static LinkedHashMap<String, Long> index = null;
+	private static long totalBytes = 0;
+
+	/**
+	 * A response as it is stored on disk
+	 */
+	private static class Entry {
+		String url;
+		long fetched;
+		String etag;
+		String lastModified;
+		byte[] body;
+	}
+
+	/**
+	 * Sets the directory to keep cached responses in and the number of bytes they may take up. Files already in the directory from an earlier run
+	 * are used.
+	 * @param dir		the directory to cache responses in, it is created if it doesn't exist, or null to stop caching
+	 * @param budget	the number of bytes the cached responses may take up
+	 */
+	public static synchronized void setDirectory(File dir, long budget) {
+		if(dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			FirbiCom.print("could not create cache directory " + dir);
+			dir = null;
+		}
+		directory = dir;
+		byteBudget = budget;
+		index = null;
+		totalBytes = 0;
+	}
+
+	/**
+	 * Sets the directory to keep cached responses in with the default byte budget.
+	 * @param dir	the directory to cache responses in, or null to stop caching
+	 */
+	public static void setDirectory(File dir) {
+		setDirectory(dir, DEFAULT_BYTE_BUDGET);
+	}
+
+	/**
+	 * This method returns how long the response to the passed in url stays fresh, based on which One Bus Away method the url calls.
+	 * @param url_str	the url of the query
+	 * @return			the number of milliseconds the response may be used for without checking with One Bus Away
+	 */
+	public static long maxAge(String url_str) {
+		if(url_str.indexOf("/arrivals-and-departures-for-stop/") >= 0)
+			return ARRIVALS_MAX_AGE;
+		if(url_str.indexOf("/stop/") >= 0 || url_str.indexOf("/stops-for-location.") >= 0
+				|| url_str.indexOf("/route/") >= 0 || url_str.indexOf("/routes-for-location.") >= 0
+				|| url_str.indexOf("/stops-for-route/") >= 0)
+			return TOPOLOGY_MAX_AGE;
+		return DEFAULT_MAX_AGE;
+	}
+
+	/**
+	 * This method returns the body of the response to the passed in url, from the cache if it is fresh enough and from One Bus Away otherwise.
+	 * @param url_str	the url to query
+	 * @return			the body of the response, already un-gzipped
+	 * @throws IOException	if One Bus Away could not be reached and there is no cached response that may be used in its place
+	 */
+	public static byte[] get(String url_str) throws IOException {
+		String name = fileName(url_str);
+		Entry cached = name == null ? null : read(name, url_str);
+		long now = System.currentTimeMillis();
+		long maxAge = maxAge(url_str);
+		if(cached != null && now - cached.fetched >= 0 && now - cached.fetched < maxAge) {
+			return cached.body;
+		}
+
+		Entry fetched;
+		try {
+			fetched = fetch(url_str, cached);
+		} catch (IOException e) {
+			if(cached != null && maxAge > ARRIVALS_MAX_AGE) {
+				FirbiCom.print("using a stale response from the cache since the query failed: " + e);
+				return cached.body;
+			}
+			throw e;
+		}
+		if(name != null) {
+			write(name, fetched);
+		}
+		return fetched.body;
+	}
+
+	/**
+	 * This method throws away the cached response to the passed in url, for example because One Bus Away answered it with an error.
+	 * @param url_str	the url whose response should be forgotten
+	 */
+	public static void remove(String url_str) {
+		String name = fileName(url_str);
+		if(name == null)
+			return;
+		synchronized(ResponseCache.class) {
+			if(loadIndex()) {
+				forget(name);
+			}
+		}
+	}
+
+	/**
+	 * Queries One Bus Away. If there is a cached response the query is made conditional on it having changed, and if it hasn't the cached response
+	 * is returned with a new fetch time.
+	 */
+	private static Entry fetch(String url_str, Entry cached) throws IOException {
+		URLConnection conn = new URL(url_str).openConnection();
+		conn.setConnectTimeout(CONNECT_TIMEOUT);
+		conn.setReadTimeout(READ_TIMEOUT);
+		// the xml shrinks to a fraction of its size, which matters a lot more than the time to unzip it
+		conn.setRequestProperty("Accept-Encoding", "gzip");
+		if(cached != null) {
+			if(cached.etag.length() > 0)
+				conn.setRequestProperty("If-None-Match", cached.etag);
+			if(cached.lastModified.length() > 0)
+				conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+		}
+		conn.connect();
+
+		if(cached != null && conn instanceof HttpURLConnection
+				&& ((HttpURLConnection)conn).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			((HttpURLConnection)conn).disconnect();
+			cached.fetched = System.currentTimeMillis();
+			return cached;
+		}
+
+		Entry ret = new Entry();
+		ret.url = url_str;
+		ret.fetched = System.currentTimeMillis();
+		ret.etag = headerOrEmpty(conn, "ETag");
+		ret.lastModified = headerOrEmpty(conn, "Last-Modified");
+
+		String encoding = conn.getContentEncoding();
+		InputStream inStream = conn.getInputStream();
+		try {
+			if(encoding != null && encoding.equalsIgnoreCase("gzip")) {
+				inStream = new GZIPInputStream(inStream);
+			}
+			int length = conn.getContentLength();
+			ByteArrayOutputStream body = new ByteArrayOutputStream(length > 0 ? length : 8192);
+			byte[] buffer = new byte[8192];
+			int n;
+			while((n = inStream.read(buffer)) > 0) {
+				body.write(buffer, 0, n);
+			}
+			ret.body = body.toByteArray();
+		}
+		finally {
+			inStream.close();
+		}
+		return ret;
+	}
+
+	private static String headerOrEmpty(URLConnection conn, String header) {
+		String value = conn.getHeaderField(header);
+		return value == null ? "" : value;
+	}
+
+	/**
+	 * Reads the cache file with the passed in name, and marks it as the most recently used one.
+	 * @return	the cached response, or null if there is none or it can't be read
+	 */
+	private static synchronized Entry read(String name, String url_str) {
+		if(!loadIndex() || !index.containsKey(name))
+			return null;
+		File file = new File(directory, name);
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+			if(in.readInt() != FILE_VERSION) {
+				forget(name);
+				return null;
+			}
+			Entry ret = new Entry();
+			ret.url = in.readUTF();
+			if(!ret.url.equals(url_str)) {
+				// some other url with the same hash, leave it alone
+				return null;
+			}
+			ret.fetched = in.readLong();
+			ret.etag = in.readUTF();
+			ret.lastModified = in.readUTF();
+			ret.body = new byte[in.readInt()];
+			in.readFully(ret.body);
+			// the modification times stand in for the use order after a restart
+			index.get(name);
+			file.setLastModified(System.currentTimeMillis());
+			return ret;
+		} catch (IOException e) {
+			FirbiCom.print("could not read cache file " + name + ": " + e);
+			forget(name);
+			return null;
+		} finally {
+			closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Writes the passed in response to the cache file with the passed in name, and then throws out the least recently used files until the cache
+	 * fits into its byte budget again.
+	 */
+	private static synchronized void write(String name, Entry entry) {
+		if(!loadIndex())
+			return;
+		File file = new File(directory, name);
+		File tmp = new File(directory, name + ".tmp");
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new FileOutputStream(tmp));
+			out.writeInt(FILE_VERSION);
+			out.writeUTF(entry.url);
+			out.writeLong(entry.fetched);
+			out.writeUTF(entry.etag);
+			out.writeUTF(entry.lastModified);
+			out.writeInt(entry.body.length);
+			out.write(entry.body);
+			out.close();
+			out = null;
+			forget(name);
+			if(!tmp.renameTo(file)) {
+				throw new IOException("could not rename " + tmp);
+			}
+		} catch (IOException e) {
+			FirbiCom.print("could not write cache file " + name + ": " + e);
+			closeQuietly(out);
+			tmp.delete();
+			return;
+		}
+		long size = file.length();
+		index.put(name, Long.valueOf(size));
+		totalBytes += size;
+
+		Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+		while(totalBytes > byteBudget && it.hasNext()) {
+			Map.Entry<String, Long> lru = it.next();
+			if(lru.getKey().equals(name))
+				continue;
+			new File(directory, lru.getKey()).delete();
+			totalBytes -= lru.getValue().longValue();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Deletes the cache file with the passed in name, if there is one. Must be called while holding the lock.
+	 */
+	private static void forget(String name) {
+		Long size = index.remove(name);
+		if(size != null) {
+			totalBytes -= size.longValue();
+		}
+		new File(directory, name).delete();
+	}
+
+	/**
+	 * Builds the index from the files in the cache directory if it hasn't been built yet. Must be called while holding the lock.
+	 * @return	true if there is a cache directory, false if nothing should be cached
+	 */
+	private static boolean loadIndex() {
+		if(directory == null)
+			return false;
+		if(index != null)
+			return true;
+		index = new LinkedHashMap<String, Long>(64, 0.75f, true);
+		totalBytes = 0;
+		File[] files = directory.listFiles();
+		if(files == null)
+			return true;
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File a, File b) {
+				long diff = a.lastModified() - b.lastModified();
+				return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+			}
+		});
+		for(File file : files) {
+			if(file.getName().endsWith(".tmp")) {
+				// left behind by a write that didn't finish
+				file.delete();
+				continue;
+			}
+			index.put(file.getName(), Long.valueOf(file.length()));
+			totalBytes += file.length();
+		}
+		return true;
+	}
+
+	/**
+	 * @return	the name of the cache file for the passed in url, or null if the url can't be hashed
+	 */
+	private static String fileName(String url_str) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(url_str.getBytes("UTF-8"));
+			StringBuilder ret = new StringBuilder(digest.length*2);
+			for(byte b : digest) {
+				ret.append(Character.forDigit((b >> 4) & 0xf, 16));
+				ret.append(Character.forDigit(b & 0xf, 16));
+			}
+			return ret.toString();
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static void closeQuietly(Closeable c) {
+		if(c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				// nothing more to do
+			}
+		}
+	}
+}
@@ -0,0 +1,438 @@
+package firbi.base.com;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.Map;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import com.google.android.maps.GeoPoint;
+
+
+/**
+ * This class turns One Bus Away responses into BusStops, BusRoutes and Buses as the xml is read, without building a DOM first. It understands
+ * the same responses and gives back the same results as the DOM based parse methods in FirbiCom, but the stops for a big route are hundreds
+ * of KB of xml, mostly polylines, and building all of that into a Document just to throw most of it away made the garbage collector stall on
+ * slow phones. Here anything that isn't needed is skipped as it goes by.
+ *
+ * Every method that is handed the parser expects it to be sitting on the start tag of the element it parses. When it returns the parser may be
+ * anywhere inside that element, the caller's loop (see nextChild()) takes care of skipping whatever is left of it.
+ */
+public class ResponseParser {
+
+	private static final String STOPS_BEAN = "org.onebusaway.where.web.common.client.model.StopsBean";
+	private static final String ROUTES_BEAN = "org.onebusaway.where.web.common.client.model.RoutesBean";
+	private static final String ARRIVALS_BEAN = "org.onebusaway.where.web.common.client.model.StopWithArrivalsAndDeparturesBean";
+	private static final String STOPS_FOR_ROUTE_BEAN = "org.onebusaway.model.where.StopsForRouteBean";
+
+	/**
+	 * Made once and shared, a parser is cheap to get from it but the factory itself has to go looking for an implementation
+	 */
+	private static XmlPullParserFactory factory = null;
+
+	private static synchronized XmlPullParser newParser() throws XmlPullParserException {
+		if(factory == null) {
+			factory = XmlPullParserFactory.newInstance();
+		}
+		return factory.newPullParser();
+	}
+
+	/**
+	 * This method parses a whole One Bus Away response, deciding from the class of its data tag what it holds. It returns the same things
+	 * FirbiCom.parseXMLFromDocument() does for the same response.
+	 * @param in	the response, not gzipped
+	 * @return		an Object[] with the data parsed from the response, or null if the response holds no data this class understands
+	 * @throws XmlPullParserException	if the response isn't well formed xml
+	 * @throws IOException				if the response can't be read
+	 */
+	public static Object[] parse(InputStream in) throws XmlPullParserException, IOException {
+		XmlPullParser parser = newParser();
+		parser.setInput(in, null);
+		if(parser.nextTag() != XmlPullParser.START_TAG)
+			return null;
+		int depth = parser.getDepth();
+		while(nextChild(parser, depth)) {
+			if(!parser.getName().equals("data"))
+				continue;
+			String cls = parser.getAttributeValue(null, "class");
+			if("list".equals(cls)) {
+				return parseListData(parser);
+			}
+			else if(STOPS_BEAN.equals(cls)) {
+				return parseListChild(parser, "stops");
+			}
+			else if(ROUTES_BEAN.equals(cls)) {
+				return parseListChild(parser, "routes");
+			}
+			else if("stop".equals(cls)) {
+				BusStop[] stop = {parseStop(parser)};
+				return stop;
+			}
+			else if("route".equals(cls)) {
+				BusRoute[] route = {parseRoute(parser)};
+				return route;
+			}
+			else if(ARRIVALS_BEAN.equals(cls)) {
+				return parseArrivalData(parser);
+			}
+			else if(STOPS_FOR_ROUTE_BEAN.equals(cls)) {
+				Object[] tmp = new Object[1];
+				tmp[0] = parseStopsForRouteData(parser);
+				return tmp;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This method moves the parser to the start of the next child of the element at depth, skipping anything nested deeper.
+	 * @param parser	the parser, somewhere inside the element at depth
+	 * @param depth		the depth of the parent element
+	 * @return			true if the parser is on the start tag of the next child, false if the parent element has ended
+	 */
+	private static boolean nextChild(XmlPullParser parser, int depth) throws XmlPullParserException, IOException {
+		while(true) {
+			int event = parser.next();
+			if(event == XmlPullParser.START_TAG && parser.getDepth() == depth+1)
+				return true;
+			if((event == XmlPullParser.END_TAG && parser.getDepth() == depth) || event == XmlPullParser.END_DOCUMENT)
+				return false;
+		}
+	}
+
+	/**
+	 * This method reads all the text inside the element the parser is on, and leaves the parser on its end tag.
+	 * @return	the text, or null if the element is empty, which is when the DOM parser would have found no Text child
+	 */
+	private static String readText(XmlPullParser parser) throws XmlPullParserException, IOException {
+		int depth = parser.getDepth();
+		String ret = null;
+		StringBuilder more = null;
+		while(true) {
+			int event = parser.next();
+			if(event == XmlPullParser.TEXT) {
+				// entities can split the text up, so put it back together
+				if(ret == null) {
+					ret = parser.getText();
+				}
+				else {
+					if(more == null)
+						more = new StringBuilder(ret);
+					more.append(parser.getText());
+				}
+			}
+			else if((event == XmlPullParser.END_TAG && parser.getDepth() == depth) || event == XmlPullParser.END_DOCUMENT) {
+				break;
+			}
+		}
+		if(more != null)
+			ret = more.toString();
+		if(ret != null && ret.length() == 0)
+			ret = null;
+		return ret;
+	}
+
+	/**
+	 * This method finds the child with the passed in tag name and parses it as a list
+	 * @return	the list, or null if there is no such child
+	 */
+	private static Object[] parseListChild(XmlPullParser parser, String tag) throws XmlPullParserException, IOException {
+		int depth = parser.getDepth();
+		while(nextChild(parser, depth)) {
+			if(parser.getName().equals(tag))
+				return parseListData(parser);
+		}
+		return null;
+	}
+
+	/**
+	 * This method parses the children of a list into an array, in the same way as FirbiCom.parseListData(). The type of the array is decided by
+	 * the tag name of the last child.
+	 */
+	protected static Object[] parseListData(XmlPullParser parser) throws XmlPullParserException, IOException {
+		ArrayList<Object> items = new ArrayList<Object>();
+		String iden = "";
+		int depth = parser.getDepth();
+		while(nextChild(parser, depth)) {
+			iden = parser.getName();
+			Object item = null;
+			if(iden.equals("stop")){
+				item = parseStop(parser);
+			}
+			else if(iden.equals("route")){
+				item = parseRoute(parser);
+			}
+			else if(iden.equals("arrivalAndDeparture")){
+				item = parseArrival(parser);
+			}
+			else if(iden.equals("stopGroup")){
+				item = parseStopGroup(parser);
+			}
+			else if(iden.equals("names") || iden.equals("string")){
+				item = readText(parser);
+			}
+			if(item!=null){
+				items.add(item);
+			}
+		}
+		Object[] ret;
+		if(iden.equals("stop")){
+			ret = new BusStop[items.size()];
+		}
+		else if(iden.equals("route")){
+			ret = new BusRoute[items.size()];
+		}
+		else if(iden.equals("arrivalAndDeparture")){
+			ret = new Bus[items.size()];
+		}
+		else if(iden.equals("name") || iden.equals("string")){
+			ret = new String[items.size()];
+		}
+		else{
+			ret = new Object[items.size()];
+		}
+		return items.toArray(ret);
+	}
+
+	/**
+	 * This method parses the data of a Stops for Route response, see FirbiCom.parseStopsForRouteData(). The polylines, which are most of the
+	 * response, are skipped.
+	 */
+	protected static Map<String[], BusStop[]> parseStopsForRouteData(XmlPullParser parser) throws XmlPullParserException, IOException {
+		Object[] groups = null;
+		int depth = parser.getDepth();
+		while(nextChild(parser, depth)) {
+			String tag = parser.getName();
+			if(tag.equals("stops")){
+				// parsing them puts them in BusStop's cache, which is where the groupings find them
+				Object[] check = parseListData(parser);
+				if(!(check instanceof BusStop[])){
+					FirbiCom.print("error getting stops from a StopsForRouteData query");
+					return null;
+				}
+			}
+			else if(tag.equals("stopGroupings")){
+				int groupingsDepth = parser.getDepth();
+				while(nextChild(parser, groupingsDepth)) {
+					if(!parser.getName().equals("stopGrouping"))
+						continue;
+					boolean type = false;
+					Object[] stopGroups = null;
+					int groupingDepth = parser.getDepth();
+					while(nextChild(parser, groupingDepth)) {
+						String property = parser.getName();
+						if(property.equals("type")){
+							type = "direction".equals(readText(parser));
+						}
+						else if(property.equals("stopGroups")){
+							stopGroups = parseListData(parser);
+						}
+					}
+					if(type && stopGroups!=null){
+						groups = stopGroups;
+					}
+				}
+			}
+		}
+		return FirbiCom.groupStops(groups);
+	}
+
+	/**
+	 * This method parses the data of a Current arrivals and departures for a stop response, see FirbiCom.parseArrivalData().
+	 */
+	protected static Bus[] parseArrivalData(XmlPullParser parser) throws XmlPullParserException, IOException {
+		Bus[] arrivals = null;
+		int depth = parser.getDepth();
+		while(nextChild(parser, depth)) {
+			String tag = parser.getName();
+			if(tag.equals("stop")){
+				parseStop(parser);
+			}
+			else if(tag.equals("arrivalsAndDepartures")){
+				Object[] check = parseListData(parser);
+				if(check instanceof Bus[]){
+					arrivals = (Bus[])check;
+				}
+				else{
+					FirbiCom.print("getStopSchedule(BusStop stop): got invalid type from parseListData()");
+				}
+			}
+		}
+		return arrivals;
+	}
+
+	/**
+	 * This method parses a stopGroup, see FirbiCom.parseStopGroup().
+	 * @return	an Object[] of size 2 where array[0] is a array of destination names as Strings and array[1] is an array of BusStop ids as Strings
+	 */
+	protected static Object[] parseStopGroup(XmlPullParser parser) throws XmlPullParserException, IOException {
+		String[] names = null;
+		String[] stop_ids = null;
+		int depth = parser.getDepth();
+		while(nextChild(parser, depth)) {
+			String tag = parser.getName();
+			if(tag.equals("name")){
+				int nameDepth = parser.getDepth();
+				while(nextChild(parser, nameDepth)) {
+					String property = parser.getName();
+					if(property.equals("type")){
+						if(!"destination".equals(readText(parser))){
+							FirbiCom.print("returned null in parseStopGRoup because of incorrect grouping type");
+							return null;
+						}
+					}
+					else if(property.equals("names")){
+						Object[] tmp = parseListData(parser);
+						if(tmp instanceof String[]){
+							ArrayList<String> temp = new ArrayList<String>();
+							for(String name : (String[])tmp){
+								for(String split : name.split(", ")){
+									temp.add(split);
+								}
+							}
+							names = temp.toArray(new String[1]);
+						}
+						else{
+							FirbiCom.print("parseListData returned an incorrect type for names");
+						}
+					}
+				}
+			}
+			else if(tag.equals("stopIds")){
+				Object[] tmp = parseListData(parser);
+				if(tmp instanceof String[]){
+					stop_ids = ((String[])tmp);
+				}
+				else{
+					FirbiCom.print("parseListData returned an incorrect type for stop_ids");
+				}
+			}
+		}
+		if(names==null || stop_ids==null){
+			FirbiCom.print("recieved names as null or stop_ids as null");
+			return null;
+		}
+		Object[] ret = {names, stop_ids};
+		return ret;
+	}
+
+	/**
+	 * This method parses an arrivalAndDeparture into a Bus, see FirbiCom.parseArrival().
+	 */
+	protected static Bus parseArrival(XmlPullParser parser) throws XmlPullParserException, IOException {
+		GregorianCalendar scheduledTime = null;
+		GregorianCalendar predictedTime = null;
+		String destination = "";
+		String route_id = null;
+		String route_name = null;
+		String stop_id = null;
+		int depth = parser.getDepth();
+		while(nextChild(parser, depth)) {
+			String tag = parser.getName();
+			if(tag.equals("routeId")){
+				route_id = readText(parser);
+			}
+			else if(tag.equals("routeShortName")){
+				route_name = readText(parser);
+			}
+			else if(tag.equals("stopId")){
+				stop_id = readText(parser);
+			}
+			else if(tag.equals("predictedArrivalTime")){
+				predictedTime = readTime(parser, predictedTime);
+			}
+			else if(tag.equals("scheduledArrivalTime")){
+				scheduledTime = readTime(parser, scheduledTime);
+			}
+			else if(tag.equals("tripHeadsign")){
+				String text = readText(parser);
+				if(text!=null)
+					destination = text;
+			}
+		}
+		BusRoute route = null;
+		if(route_id!=null && route_name!=null)
+			route = BusRoute.updateOrCreate(route_id, route_name);
+		BusStop stop = stop_id==null ? null : BusStop.find(stop_id);
+		return new Bus(route, stop, scheduledTime, predictedTime, destination);
+	}
+
+	/**
+	 * Reads a time in milliseconds, where 0 means there is no time
+	 * @return	the time, or old if the element is empty or 0
+	 */
+	private static GregorianCalendar readTime(XmlPullParser parser, GregorianCalendar old) throws XmlPullParserException, IOException {
+		String text = readText(parser);
+		if(text==null)
+			return old;
+		long ms = Long.parseLong(text.trim());
+		if(ms==0)
+			return old;
+		GregorianCalendar ret = new GregorianCalendar();
+		ret.setTimeInMillis(ms);
+		return ret;
+	}
+
+	/**
+	 * This method parses stop data into a BusStop, see FirbiCom.parseStop().
+	 */
+	protected static BusStop parseStop(XmlPullParser parser) throws XmlPullParserException, IOException {
+		String id = null;
+		String stopNumber = null;
+		String address = null;
+		Integer direction = null;
+		String lat = null;
+		String lon = null;
+		int depth = parser.getDepth();
+		while(nextChild(parser, depth)) {
+			String tag = parser.getName();
+			if(tag.equals("id")){
+				id = readText(parser);
+			}
+			else if(tag.equals("code")){
+				stopNumber = readText(parser);
+			}
+			else if(tag.equals("lat")){
+				lat = readText(parser);
+			}
+			else if(tag.equals("lon")){
+				lon = readText(parser);
+			}
+			else if(tag.equals("name")){
+				address = readText(parser);
+			}
+			else if(tag.equals("direction")){
+				String text = readText(parser);
+				if(text!=null)
+					direction = BusStop.directionValue(text);
+			}
+		}
+		GeoPoint location = null;
+		if(lat!=null && lon!=null)
+			location = new GeoPoint((int)(Double.parseDouble(lat)*Math.pow(10, 6)), (int)(Double.parseDouble(lon)*Math.pow(10, 6)));
+		return BusStop.updateOrCreate(id, stopNumber, location, address, direction);
+	}
+
+	/**
+	 * This method parses route data into a BusRoute, see FirbiCom.parseRoute().
+	 */
+	protected static BusRoute parseRoute(XmlPullParser parser) throws XmlPullParserException, IOException {
+		String id = null;
+		String routeNumber = null;
+		int depth = parser.getDepth();
+		while(nextChild(parser, depth)) {
+			String tag = parser.getName();
+			if(tag.equals("id")){
+				id = readText(parser);
+			}
+			else if(tag.equals("shortName")){
+				routeNumber = readText(parser);
+			}
+		}
+		return BusRoute.updateOrCreate(id, routeNumber);
+	}
+}
@@ -0,0 +1,224 @@
+package firbi.base.com;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import com.google.android.maps.GeoPoint;
+
+
+/**
+ * This class is a spatial index over every BusStop seen so far, so that the stops near a location can be found without asking One Bus Away
+ * every time. The stops are put into square tiles of TILE_SIZE micro degrees (the E6 units GeoPoints and FirbiCom.doubleToGeoInt() use),
+ * kept in a hash map keyed by the tile's row and column.
+ *
+ * A tile being in the index doesn't mean all of its stops are, since stops also turn up one at a time in arrivals and stop queries. So the
+ * index also remembers which tiles have been completely covered by a stops for location query. A radius query whose tiles are all covered
+ * is answered right away; otherwise one query is made that covers all the tiles that are missing, and they are marked as covered. Walking
+ * around then only costs a query when you get near tiles that have never been fetched, instead of one per location update.
+ */
+public class StopIndex {
+
+	/**
+	 * The size of a tile in micro degrees, about 220 meters north to south and 150 meters east to west in Seattle
+	 */
+	public static final int TILE_SIZE = 2000;
+
+	/**
+	 * One Bus Away limits how many stops a query returns. If a query returns at least this many we can't be sure we got all of them, so
+	 * its tiles aren't marked as covered.
+	 */
+	private static final int MAX_COMPLETE_RESULTS = 100;
+
+	private static final double METERS_PER_MICRO_DEGREE = 6371000.0 * Math.PI / 180.0 / 1E6;
+
+	/**
+	 * The stops in each tile, indexed by tileKey()
+	 */
+	private static HashMap<Long, ArrayList<BusStop>> tiles = new HashMap<Long, ArrayList<BusStop>>();
+	/**
+	 * The tile each stop was put in, indexed by stop id, so that a stop that moves can be taken out of its old tile
+	 */
+	private static HashMap<String, Long> stopTiles = new HashMap<String, Long>();
+	/**
+	 * The tiles that every stop is known for
+	 */
+	private static HashSet<Long> covered = new HashSet<Long>();
+
+	/**
+	 * This method adds the passed in BusStop to the index, or moves it if its location has changed. BusStop.updateOrCreate() calls it for
+	 * every stop it sees.
+	 * @param stop	the stop to add, ignored if it has no location
+	 */
+	public static synchronized void add(BusStop stop) {
+		GeoPoint location = stop.getLocation();
+		if(location == null)
+			return;
+		Long key = Long.valueOf(tileKey(tileOf(location.getLatitudeE6()), tileOf(location.getLongitudeE6())));
+		Long old = stopTiles.put(stop.getId(), key);
+		if(old != null) {
+			if(old.equals(key))
+				return;
+			tiles.get(old).remove(stop);
+		}
+		ArrayList<BusStop> tile = tiles.get(key);
+		if(tile == null) {
+			tile = new ArrayList<BusStop>();
+			tiles.put(key, tile);
+		}
+		tile.add(stop);
+	}
+
+	/**
+	 * This method returns all BusStops within radius meters of center, from the index if it covers the whole circle and from One Bus Away
+	 * otherwise. If One Bus Away can't be reached, the stops already in the index are returned.
+	 * @param center	the center of the circle to return stops from
+	 * @param radius	the radius of the circle in meters
+	 * @return			all stops that fall within the circle, in no particular order
+	 */
+	public static BusStop[] find(GeoPoint center, int radius) {
+		int lat = center.getLatitudeE6();
+		int lon = center.getLongitudeE6();
+		int latSpan = (int)Math.ceil(radius / METERS_PER_MICRO_DEGREE);
+		int lonSpan = (int)Math.ceil(radius / (METERS_PER_MICRO_DEGREE * Math.cos(Math.toRadians(lat / 1E6))));
+		int minRow = tileOf(lat - latSpan);
+		int maxRow = tileOf(lat + latSpan);
+		int minCol = tileOf(lon - lonSpan);
+		int maxCol = tileOf(lon + lonSpan);
+
+		// the bounding box of the tiles that have never been fetched
+		int missingMinRow = Integer.MAX_VALUE;
+		int missingMaxRow = Integer.MIN_VALUE;
+		int missingMinCol = Integer.MAX_VALUE;
+		int missingMaxCol = Integer.MIN_VALUE;
+		synchronized(StopIndex.class) {
+			for(int row = minRow; row <= maxRow; row++) {
+				for(int col = minCol; col <= maxCol; col++) {
+					if(!covered.contains(Long.valueOf(tileKey(row, col)))) {
+						missingMinRow = Math.min(missingMinRow, row);
+						missingMaxRow = Math.max(missingMaxRow, row);
+						missingMinCol = Math.min(missingMinCol, col);
+						missingMaxCol = Math.max(missingMaxCol, col);
+					}
+				}
+			}
+		}
+
+		if(missingMinRow <= missingMaxRow) {
+			// one query around all the missing tiles, big enough to reach their far corners
+			int queryLat = (missingMinRow * TILE_SIZE + (missingMaxRow + 1) * TILE_SIZE) / 2;
+			int queryLon = (missingMinCol * TILE_SIZE + (missingMaxCol + 1) * TILE_SIZE) / 2;
+			int queryRadius = (int)Math.ceil(distance(queryLat, queryLon, missingMinRow * TILE_SIZE, missingMinCol * TILE_SIZE)) + 1;
+			BusStop[] fetched = FirbiCom.getStops(new GeoPoint(queryLat, queryLon), queryRadius);
+			if(fetched != null && fetched.length < MAX_COMPLETE_RESULTS) {
+				// the stops were added as they were parsed, all that's left is to remember these tiles are complete
+				synchronized(StopIndex.class) {
+					for(int row = missingMinRow; row <= missingMaxRow; row++) {
+						for(int col = missingMinCol; col <= missingMaxCol; col++) {
+							covered.add(Long.valueOf(tileKey(row, col)));
+						}
+					}
+				}
+			}
+			else if(fetched != null) {
+				FirbiCom.print("got " + fetched.length + " stops, which may not be all of them, so the tiles stay uncovered");
+			}
+			else {
+				FirbiCom.print("couldn't fetch the stops near " + queryLat + "," + queryLon + ", answering from the index");
+			}
+		}
+
+		ArrayList<BusStop> ret = new ArrayList<BusStop>();
+		synchronized(StopIndex.class) {
+			for(int row = minRow; row <= maxRow; row++) {
+				for(int col = minCol; col <= maxCol; col++) {
+					ArrayList<BusStop> tile = tiles.get(Long.valueOf(tileKey(row, col)));
+					if(tile == null)
+						continue;
+					for(BusStop stop : tile) {
+						GeoPoint location = stop.getLocation();
+						if(distance(lat, lon, location.getLatitudeE6(), location.getLongitudeE6()) <= radius)
+							ret.add(stop);
+					}
+				}
+			}
+		}
+		return ret.toArray(new BusStop[ret.size()]);
+	}
+
+	/**
+	 * This method returns the k stops in the index closest to center, without asking One Bus Away. Tiles are searched in rings around the
+	 * center until no closer stop can be left in an unsearched ring, or no more than maxRadius meters out.
+	 * @param center		the location to find the closest stops to
+	 * @param k				how many stops to return
+	 * @param maxRadius		the farthest a stop may be in meters
+	 * @return				up to k stops, closest first
+	 */
+	public static synchronized BusStop[] nearest(GeoPoint center, int k, int maxRadius) {
+		final int lat = center.getLatitudeE6();
+		final int lon = center.getLongitudeE6();
+		int centerRow = tileOf(lat);
+		int centerCol = tileOf(lon);
+		// the narrowest a tile gets in meters, so that a ring is at least this much farther out than the one before
+		double tileMeters = TILE_SIZE * METERS_PER_MICRO_DEGREE * Math.cos(Math.toRadians(Math.min(Math.abs(lat / 1E6), 89)));
+		Comparator<BusStop> byDistance = new Comparator<BusStop>() {
+			public int compare(BusStop a, BusStop b) {
+				return Double.compare(distance(lat, lon, a.getLocation()), distance(lat, lon, b.getLocation()));
+			}
+		};
+		ArrayList<BusStop> found = new ArrayList<BusStop>();
+		for(int ring = 0; (ring - 1) * tileMeters <= maxRadius; ring++) {
+			// any stop in this ring or farther is at least (ring - 1) tiles away
+			if(found.size() >= k && (ring - 1) * tileMeters > distance(lat, lon, found.get(k - 1).getLocation()))
+				break;
+			for(int row = centerRow - ring; row <= centerRow + ring; row++) {
+				for(int col = centerCol - ring; col <= centerCol + ring; col++) {
+					if(Math.max(Math.abs(row - centerRow), Math.abs(col - centerCol)) != ring)
+						continue;
+					ArrayList<BusStop> tile = tiles.get(Long.valueOf(tileKey(row, col)));
+					if(tile == null)
+						continue;
+					for(BusStop stop : tile) {
+						if(distance(lat, lon, stop.getLocation()) <= maxRadius)
+							found.add(stop);
+					}
+				}
+			}
+			Collections.sort(found, byDistance);
+		}
+		int n = Math.min(k, found.size());
+		return found.subList(0, n).toArray(new BusStop[n]);
+	}
+
+	/**
+	 * Forgets which tiles have been fetched, so that the next queries go to One Bus Away again. The stops stay in the index.
+	 */
+	public static synchronized void clearCoverage() {
+		covered.clear();
+	}
+
+	private static int tileOf(int e6) {
+		// rounds down for negative coordinates too
+		return (int)Math.floor(e6 / (double)TILE_SIZE);
+	}
+
+	private static long tileKey(int row, int col) {
+		return (((long)row) << 32) | (col & 0xffffffffL);
+	}
+
+	private static double distance(int lat, int lon, GeoPoint p) {
+		return distance(lat, lon, p.getLatitudeE6(), p.getLongitudeE6());
+	}
+
+	/**
+	 * The distance in meters between two points given in micro degrees. This is the flat earth approximation, which is plenty at the
+	 * distances between bus stops and much cheaper than Util.getDistance().
+	 */
+	private static double distance(int lat1, int lon1, int lat2, int lon2) {
+		double dLat = lat2 - lat1;
+		double dLon = (lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2E6));
+		return Math.sqrt(dLat * dLat + dLon * dLon) * METERS_PER_MICRO_DEGREE;
+	}
+}
@@ -93,6 +93,10 @@ public 	class 		RouteOrienter
 	private int mCurRouteStep = -1;
 	// Current Geostep, next geostem is CurStep + 1.
 	private int   mCurGeoStep = -1;
+	// Snaps location fixes onto the route.  Null until a route is found.
+	private RouteProgress mProgress;
+	// The location fix mProgress last saw.
+	private GeoPoint mLastFix;
 	
 	// Determines whether a route is being displayed at any given time.
 	private boolean mRouteExists;
@@ -135,8 +139,6 @@ public 	class 		RouteOrienter
 	
 	// Allowed vibrational direction to target location
 	private static final int ORIENTING_EPS = 5;
-	// Number of meters within waypoint geopoint to move onto next point.
-	private static final int DISTANCE_EPS = 25;
 	
 	// Hard coded directions 
 	private static final int NORTH = 0;
@@ -875,8 +877,12 @@ public 	class 		RouteOrienter
 				// Update the current route.
 				mRouteSteps = (RouteStep[]) msg.obj;
 				mRouteExists = true;
-				mCurRouteStep = findNearestRouteStep();
-				mCurGeoStep   = findNearestGeoStep();
+				mProgress = buildProgress(mRouteSteps);
+				mLastFix = null;
+				mCurRouteStep = 0;
+				mCurGeoStep   = 0;
+				// Start from wherever the user is on the new route.
+				computeHeading();
 
 				// Draw the path.
 				drawPath();
@@ -934,76 +940,99 @@ public 	class 		RouteOrienter
 		}
 	};
 	
-	private int findNearestRouteStep(){
-		return 0;
-	}
-	
-	private int findNearestGeoStep(){
-		return 0;
+	/**
+	 * Flattens the polylines of the given steps into the arrays which 
+	 * RouteProgress is built from.
+	 */
+	private RouteProgress buildProgress(RouteStep[] steps) {
+		int[][] lats = new int[steps.length][];
+		int[][] lons = new int[steps.length][];
+		for(int i = 0; i < steps.length; i++) {
+			List<GeoPoint> polyline = steps[i].getPolyline();
+			lats[i] = new int[polyline.size()];
+			lons[i] = new int[polyline.size()];
+			for(int j = 0; j < polyline.size(); j++) {
+				lats[i][j] = polyline.get(j).getLatitudeE6();
+				lons[i][j] = polyline.get(j).getLongitudeE6();
+			}
+		}
+		return new RouteProgress(lats, lons);
 	}
 	
-	private void advanceGeoStep(){
-		Log.d(TAG,"+++ advanceGeoStep +++");
+	private void advanceGeoStep(int geoStep){
+		if (D) Log.d(TAG,"+++ advanceGeoStep +++");
 		
 		//vibration feedback
 		PhoneWandActivity.buzz(PhoneWandActivity.GEO_TURN_VIBES);
 		
-		mCurGeoStep++;
+		mCurGeoStep = geoStep;
 		PhoneWandActivity.ttsSpeak(getString(R.string.tts_advance_geo), TextToSpeech.QUEUE_FLUSH);
-		
-		if(mRouteExists) {
-			// Let the user know the current step in the route.
-			PhoneWandActivity.ttsSpeak("Current step is "+mRouteSteps[mCurRouteStep].getDescription(), 
-					TextToSpeech.QUEUE_ADD);
-		}
-
-		if(mCurGeoStep==mRouteSteps[mCurRouteStep].getPolyline().size()-1)
-			advanceRouteStep();
 	}
 	
-	private void advanceRouteStep(){
-		Log.d(TAG,"+++ advanceRouteStep +++");
+	private void advanceRouteStep(int routeStep, int geoStep){
+		if (D) Log.d(TAG,"+++ advanceRouteStep +++");
 		
 		//vibration feedback
 		PhoneWandActivity.buzz(PhoneWandActivity.STEP_TURN_VIBES);
 		
-		mCurGeoStep=0;
-		mCurRouteStep++;
-		if(mCurGeoStep==mRouteSteps.length-1) 
-			onReachedDestination();
+		mCurRouteStep = routeStep;
+		mCurGeoStep = geoStep;
 		
 		PhoneWandActivity.ttsSpeak(getString(R.string.tts_advance_route), TextToSpeech.QUEUE_FLUSH);
+		// Let the user know the current step in the route.
+		PhoneWandActivity.ttsSpeak("Current step is "+mRouteSteps[mCurRouteStep].getDescription(), 
+				TextToSpeech.QUEUE_ADD);
 	}
 	
-	// Sets mNextHeanding by computing the compass heading to the next geoPoint.
+	// Moves the user along the route to the current location, then sets 
+	// mNextHeading by computing the compass heading to a point a little 
+	// further along the route.  Skipped GeoPoints and GPS jumps are handled 
+	// by RouteProgress snapping to the nearest part of the route.
 	private void computeHeading(){
-		if (mRouteSteps != null) {
-			GeoPoint p1 = PhoneWandActivity.mCurrentLocation;
-			GeoPoint p2 = mRouteSteps[mCurGeoStep].getPolyline().get(mCurGeoStep+1);
-			double lat1 = p1.getLatitudeE6()  / 1e6;
-			double lon1 = p1.getLongitudeE6() / 1e6;
-			double lat2 = p2.getLatitudeE6()  / 1e6;
-			double lon2 = p2.getLongitudeE6() / 1e6;
-			float[] results = new float[3];
-			
-			// This computes distance, initial heading, final heading 
-			Location.distanceBetween(lat1, lon1, lat2, lon2, results);
-			
-			// Check if we are near enough the next GeoStep to move over!
-			if(results[0] < DISTANCE_EPS){
-				advanceGeoStep();
-			}else{// compute compass direction
-				//mNextHeading.setValue(computeBearing(lat1,lon1,lat2,lon2));
-				// PhoneWandActivity.mCurrentLocation;
-				mNextHeading.setValue((int)results[2]);
-				
-				if(D){
-				Log.d(TAG,"computeHeading: mNextHeading   = " + mNextHeading.getValue());
-				Log.d(TAG,"computeHeading: distance       = " + results[0]);
-				Log.d(TAG,"computeHeading: bearing  init? = " + results[1]);
-				Log.d(TAG,"computeHeading: bearing final? = " + results[2]);
-				}
-			}
+		GeoPoint fix = PhoneWandActivity.mCurrentLocation;
+		if (mProgress == null || fix == null || fix == mLastFix)
+			return;
+		mLastFix = fix;
+		
+		int oldRouteStep = mCurRouteStep;
+		switch(mProgress.update(fix.getLatitudeE6(), fix.getLongitudeE6())) {
+		case RouteProgress.ARRIVED:
+			onReachedDestination();
+			return;
+		case RouteProgress.OFF_ROUTE:
+			// Get a new route from here, keeping the old one until it comes.
+			PhoneWandActivity.ttsSpeak(getString(R.string.tts_off_route), TextToSpeech.QUEUE_FLUSH);
+			if(!mGettingRoute)
+				new GetDirections().execute(fix, mDestination);
+			break;
+		case RouteProgress.STEP_CHANGED:
+			if(mProgress.getStep() != oldRouteStep)
+				advanceRouteStep(mProgress.getStep(), mProgress.getGeoStep());
+			else
+				mCurGeoStep = mProgress.getGeoStep();
+			break;
+		case RouteProgress.GEO_STEP_CHANGED:
+			advanceGeoStep(mProgress.getGeoStep());
+			break;
+		default:
+			break;
+		}
+		
+		double lat1 = fix.getLatitudeE6()  / 1e6;
+		double lon1 = fix.getLongitudeE6() / 1e6;
+		double lat2 = mProgress.getTargetLatitudeE6()  / 1e6;
+		double lon2 = mProgress.getTargetLongitudeE6() / 1e6;
+		float[] results = new float[3];
+		
+		// This computes distance, initial heading, final heading 
+		Location.distanceBetween(lat1, lon1, lat2, lon2, results);
+		mNextHeading.setValue((int)results[1]);
+		
+		if(D){
+		Log.d(TAG,"computeHeading: mNextHeading   = " + mNextHeading.getValue());
+		Log.d(TAG,"computeHeading: distance       = " + results[0]);
+		Log.d(TAG,"computeHeading: off route by   = " + mProgress.getDistanceFromRoute());
+		Log.d(TAG,"computeHeading: remaining      = " + mProgress.getDistanceRemaining());
 		}
 	}
 	
@@ -1083,6 +1112,9 @@ public 	class 		RouteOrienter
 			if(!mOnPause && !mHeading.inRange(heading, MIN_HEADING_CHANGE)) {
 				mHeading.setValue(heading);
 				
+				// Catch up with any new location fix.
+				computeHeading();
+				
 				// Redraw compass.
 				drawPath();
 				
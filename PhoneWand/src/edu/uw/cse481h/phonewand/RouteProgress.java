@@ -0,0 +1,375 @@
+/**
+ * @author Michael Q. Lam (mqtlam@cs.washington.edu)
+ * @author Levi Lindsey (levisl@cs.washington.edu)
+ * @author Chris Raastad (craastad@cs.washington.edu)
+ *
+ * Designed to meet the requirements of the Winter 2011 UW course,
+ * CSE 481H: Accessibility Capstone
+ *
+ * RouteProgress keeps track of how far along a route the user is.  The
+ * polylines of all the route steps are projected once into flat arrays of
+ * segments in meters, with a grid of cells over them, so that each location
+ * fix can be snapped to the nearest segment without looking at every one.
+ *
+ * Snapping prefers the stretch of route just ahead of the last position, so
+ * GPS jitter near a corner doesn't make the user jump between steps, but a
+ * closer segment elsewhere on the route wins after a couple of fixes, so
+ * skipped points and GPS jumps still move the user along.  It also decides
+ * when the user has wandered off the route or reached the end of it.
+ *
+ * It uses nothing from Android, so it can be run on recorded GPS traces
+ * outside of the phone.
+ */
+
+package edu.uw.cse481h.phonewand;
+
+public class RouteProgress {
+
+	// What update() returns.
+	public static final int ON_ROUTE =			0;
+	public static final int GEO_STEP_CHANGED =	1;
+	public static final int STEP_CHANGED =		2;
+	public static final int OFF_ROUTE =			3;
+	public static final int ARRIVED =			4;
+
+	// Meters per microdegree of latitude.
+	private static final double METERS_PER_E6 = 6371000.0 * Math.PI / 180.0 / 1E6;
+
+	// Side of a grid cell in meters.
+	private static final double CELL_SIZE = 50;
+	// Cells are made bigger for very long routes so the grid stays small.
+	private static final int MAX_CELLS = 100000;
+
+	// How far ahead of the last position (in meters) a fix is first looked
+	// for, and how far behind it.
+	private static final double LOOK_AHEAD = 150;
+	private static final double LOOK_BEHIND = 30;
+	// Moving backwards by less than this is taken to be GPS jitter.
+	private static final double BACKTRACK_SLACK = 10;
+	// A segment outside the window must be this much closer than the best
+	// one inside, for JUMP_FIXES fixes in a row, before we jump to it.
+	private static final double JUMP_MARGIN = 15;
+	private static final int JUMP_FIXES = 2;
+	// Farther than this from the route for OFF_ROUTE_FIXES fixes in a row
+	// means the user is off the route.
+	private static final double OFF_ROUTE_DISTANCE = 40;
+	private static final int OFF_ROUTE_FIXES = 3;
+	// Within this many meters of the end of the route means we're there.
+	private static final double ARRIVAL_DISTANCE = 25;
+	// How far ahead along the route the user is steered towards.
+	private static final double TARGET_AHEAD = 20;
+
+	// Origin of the projection, in microdegrees.
+	private final int mLat0, mLon0;
+	// Meters per microdegree of longitude at the origin.
+	private final double mMetersPerLonE6;
+
+	// Segment i runs from (mSegs[4i], mSegs[4i+1]) to (mSegs[4i+2],
+	// mSegs[4i+3]), in meters from the origin.
+	private final double[] mSegs;
+	private final int mSegCount;
+	// Distance along the route to the start of each segment, and its length.
+	private final double[] mSegStart;
+	private final double[] mSegLength;
+	// The route step each segment belongs to, and the index of its first
+	// point in that step's polyline.
+	private final int[] mSegStep;
+	private final int[] mSegGeoStep;
+	private final double mTotalLength;
+
+	// The grid: the segments crossing cell c are
+	// mCellSegs[mCellStart[c]] .. mCellSegs[mCellStart[c+1]-1].
+	private final double mGridX, mGridY, mCellSize;
+	private final int mCols, mRows;
+	private final int[] mCellStart;
+	private int[] mCellSegs;
+
+	// Where the user is: -1 until the first fix.
+	private int mSeg = -1;
+	private double mAlong = 0;
+	private double mDistanceFromRoute = 0;
+	private int mJumpCount = 0;
+	private int mOffRouteCount = 0;
+	private boolean mOffRoute = false;
+	private boolean mArrived = false;
+	private int mTargetLat, mTargetLon;
+
+	// Result of the last findNearest() and scanWindow() calls.
+	private int mBestSeg;
+	private double mBestDist, mBestT;
+
+	/**
+	 * Builds the segments and grid for a route.
+	 * @param stepLats The latitudes (in microdegrees) of each route step's
+	 * 		polyline.
+	 * @param stepLons The matching longitudes.
+	 */
+	public RouteProgress(int[][] stepLats, int[][] stepLons) {
+		// Flatten the polylines, dropping repeated points.  Steps share their
+		// end points, and the shared point starts the next step.
+		int points = 0;
+		for(int s = 0; s < stepLats.length; s++)
+			points += stepLats[s].length;
+		int[] lats = new int[points];
+		int[] lons = new int[points];
+		int[] steps = new int[points];
+		int[] geoSteps = new int[points];
+		int n = 0;
+		for(int s = 0; s < stepLats.length; s++) {
+			for(int g = 0; g < stepLats[s].length; g++) {
+				if(n > 0 && lats[n-1] == stepLats[s][g] && lons[n-1] == stepLons[s][g]) {
+					if(g == 0) {
+						steps[n-1] = s;
+						geoSteps[n-1] = 0;
+					}
+					continue;
+				}
+				lats[n] = stepLats[s][g];
+				lons[n] = stepLons[s][g];
+				steps[n] = s;
+				geoSteps[n] = g;
+				n++;
+			}
+		}
+		if(n == 0)
+			throw new IllegalArgumentException("The route has no points");
+
+		mLat0 = lats[0];
+		mLon0 = lons[0];
+		mMetersPerLonE6 = METERS_PER_E6 * Math.cos(Math.toRadians(mLat0 / 1E6));
+
+		// A route of one point is a segment of length zero.
+		mSegCount = Math.max(1, n - 1);
+		mSegs = new double[mSegCount * 4];
+		mSegStart = new double[mSegCount];
+		mSegLength = new double[mSegCount];
+		mSegStep = new int[mSegCount];
+		mSegGeoStep = new int[mSegCount];
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		double along = 0;
+		for(int i = 0; i < mSegCount; i++) {
+			int j = Math.min(i + 1, n - 1);
+			double ax = x(lons[i]), ay = y(lats[i]);
+			double bx = x(lons[j]), by = y(lats[j]);
+			mSegs[4*i] = ax;
+			mSegs[4*i+1] = ay;
+			mSegs[4*i+2] = bx;
+			mSegs[4*i+3] = by;
+			mSegStart[i] = along;
+			mSegLength[i] = Math.sqrt((bx-ax)*(bx-ax) + (by-ay)*(by-ay));
+			mSegStep[i] = steps[i];
+			mSegGeoStep[i] = geoSteps[i];
+			along += mSegLength[i];
+			minX = Math.min(minX, Math.min(ax, bx));
+			minY = Math.min(minY, Math.min(ay, by));
+			maxX = Math.max(maxX, Math.max(ax, bx));
+			maxY = Math.max(maxY, Math.max(ay, by));
+		}
+		mTotalLength = along;
+
+		// Size the grid.
+		double cell = CELL_SIZE;
+		while(((int)((maxX - minX) / cell) + 1) * ((int)((maxY - minY) / cell) + 1) > MAX_CELLS)
+			cell *= 2;
+		mCellSize = cell;
+		mGridX = minX;
+		mGridY = minY;
+		mCols = (int)((maxX - minX) / cell) + 1;
+		mRows = (int)((maxY - minY) / cell) + 1;
+
+		// Put each segment in every cell its bounding box touches, counting
+		// first so the cells can share one array.
+		mCellStart = new int[mCols * mRows + 1];
+		for(int pass = 0; pass < 2; pass++) {
+			int[] fill = (pass == 0) ? null : new int[mCols * mRows];
+			for(int i = 0; i < mSegCount; i++) {
+				int c0 = col(Math.min(mSegs[4*i], mSegs[4*i+2]));
+				int c1 = col(Math.max(mSegs[4*i], mSegs[4*i+2]));
+				int r0 = row(Math.min(mSegs[4*i+1], mSegs[4*i+3]));
+				int r1 = row(Math.max(mSegs[4*i+1], mSegs[4*i+3]));
+				for(int r = r0; r <= r1; r++) {
+					for(int c = c0; c <= c1; c++) {
+						int cellIndex = r * mCols + c;
+						if(pass == 0)
+							mCellStart[cellIndex + 1]++;
+						else
+							mCellSegs[mCellStart[cellIndex] + fill[cellIndex]++] = i;
+					}
+				}
+			}
+			if(pass == 0) {
+				for(int c = 0; c < mCols * mRows; c++)
+					mCellStart[c + 1] += mCellStart[c];
+				mCellSegs = new int[mCellStart[mCols * mRows]];
+			}
+		}
+
+		mTargetLat = lats[0];
+		mTargetLon = lons[0];
+	}
+
+	/**
+	 * Moves the user along the route to the given location fix.
+	 * @param lat The latitude of the fix, in microdegrees.
+	 * @param lon The longitude of the fix, in microdegrees.
+	 * @return ARRIVED, OFF_ROUTE (once, when the user first leaves the
+	 * 		route), STEP_CHANGED, GEO_STEP_CHANGED, or ON_ROUTE.
+	 */
+	public int update(int lat, int lon) {
+		double px = x(lon), py = y(lat);
+		int oldSeg = mSeg;
+
+		findNearest(px, py);
+		int seg = mBestSeg;
+		double dist = mBestDist, t = mBestT;
+
+		if(oldSeg >= 0) {
+			scanWindow(px, py);
+			if(mBestDist <= dist + JUMP_MARGIN) {
+				// The stretch just ahead is as good as anything: stay on it.
+				mJumpCount = 0;
+				seg = mBestSeg;
+				dist = mBestDist;
+				t = mBestT;
+			} else if(++mJumpCount < JUMP_FIXES) {
+				// Somewhere else is closer, but wait for another fix to agree.
+				seg = mBestSeg;
+				dist = mBestDist;
+				t = mBestT;
+			} else {
+				mJumpCount = 0;
+			}
+		}
+
+		double along = mSegStart[seg] + t * mSegLength[seg];
+		if(oldSeg < 0 || along >= mAlong || mAlong - along > BACKTRACK_SLACK) {
+			mSeg = seg;
+			mAlong = along;
+		}
+		mDistanceFromRoute = dist;
+		updateTarget();
+
+		if(dist > OFF_ROUTE_DISTANCE) {
+			if(++mOffRouteCount >= OFF_ROUTE_FIXES && !mOffRoute) {
+				mOffRoute = true;
+				return OFF_ROUTE;
+			}
+		} else {
+			mOffRouteCount = 0;
+			mOffRoute = false;
+			if(!mArrived && mTotalLength - mAlong < ARRIVAL_DISTANCE) {
+				mArrived = true;
+				return ARRIVED;
+			}
+		}
+
+		if(oldSeg < 0 || mSegStep[oldSeg] != mSegStep[mSeg])
+			return STEP_CHANGED;
+		if(mSegGeoStep[oldSeg] != mSegGeoStep[mSeg])
+			return GEO_STEP_CHANGED;
+		return ON_ROUTE;
+	}
+
+	/** Returns the route step the user is on. */
+	public int getStep() {return mSegStep[Math.max(mSeg, 0)];}
+
+	/** Returns the index in the current step's polyline of the point the
+	 * user last passed. */
+	public int getGeoStep() {return mSegGeoStep[Math.max(mSeg, 0)];}
+
+	/** Returns how far the last fix was from the route, in meters. */
+	public double getDistanceFromRoute() {return mDistanceFromRoute;}
+
+	/** Returns how far along the route is left to go, in meters. */
+	public double getDistanceRemaining() {return mTotalLength - mAlong;}
+
+	/** Returns whether the user is off the route. */
+	public boolean isOffRoute() {return mOffRoute;}
+
+	/** Returns the latitude (in microdegrees) of the point a little ahead
+	 * along the route that the user should head towards. */
+	public int getTargetLatitudeE6() {return mTargetLat;}
+
+	/** Returns the matching longitude. */
+	public int getTargetLongitudeE6() {return mTargetLon;}
+
+	/**
+	 * Finds the nearest segment on the whole route, searching the grid in
+	 * rings of cells around the point until no closer segment can be left.
+	 */
+	private void findNearest(double px, double py) {
+		mBestDist = Double.MAX_VALUE;
+		int pc = (int)Math.floor((px - mGridX) / mCellSize);
+		int pr = (int)Math.floor((py - mGridY) / mCellSize);
+		// The ring that reaches the far side of the grid.
+		int maxRing = Math.max(Math.max(pc, mCols - 1 - pc), Math.max(pr, mRows - 1 - pr));
+		for(int ring = 0; ring <= maxRing; ring++) {
+			// Anything in this ring or beyond is at least (ring - 1) cells away.
+			if((ring - 1) * mCellSize > mBestDist)
+				break;
+			for(int r = Math.max(pr - ring, 0); r <= Math.min(pr + ring, mRows - 1); r++) {
+				boolean edgeRow = (r == pr - ring || r == pr + ring);
+				for(int c = Math.max(pc - ring, 0); c <= Math.min(pc + ring, mCols - 1); c++) {
+					if(!edgeRow && c != pc - ring && c != pc + ring)
+						continue;
+					int cellIndex = r * mCols + c;
+					for(int k = mCellStart[cellIndex]; k < mCellStart[cellIndex + 1]; k++)
+						trySegment(mCellSegs[k], px, py);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the nearest segment in the window of route from LOOK_BEHIND
+	 * meters behind the user to LOOK_AHEAD meters ahead.
+	 */
+	private void scanWindow(double px, double py) {
+		mBestDist = Double.MAX_VALUE;
+		int first = mSeg;
+		while(first > 0 && mSegStart[first] > mAlong - LOOK_BEHIND)
+			first--;
+		for(int i = first; i < mSegCount && mSegStart[i] <= mAlong + LOOK_AHEAD; i++)
+			trySegment(i, px, py);
+	}
+
+	// Keeps segment i in mBestSeg if it's closer than the best so far.
+	private void trySegment(int i, double px, double py) {
+		double ax = mSegs[4*i], ay = mSegs[4*i+1];
+		double dx = mSegs[4*i+2] - ax, dy = mSegs[4*i+3] - ay;
+		double len2 = dx*dx + dy*dy;
+		double t = (len2 == 0) ? 0 : ((px - ax)*dx + (py - ay)*dy) / len2;
+		t = Math.max(0, Math.min(1, t));
+		double ex = ax + t*dx - px, ey = ay + t*dy - py;
+		double d = Math.sqrt(ex*ex + ey*ey);
+		// Ties go to the segment farther along, so a shared point counts as
+		// the start of the next segment.
+		if(d < mBestDist || (d == mBestDist && i > mBestSeg)) {
+			mBestSeg = i;
+			mBestDist = d;
+			mBestT = t;
+		}
+	}
+
+	// Sets the target to the point TARGET_AHEAD meters past the user.
+	private void updateTarget() {
+		double goal = Math.min(mAlong + TARGET_AHEAD, mTotalLength);
+		int i = mSeg;
+		while(i < mSegCount - 1 && mSegStart[i] + mSegLength[i] < goal)
+			i++;
+		double t = (mSegLength[i] == 0) ? 0 :
+				Math.max(0, Math.min(1, (goal - mSegStart[i]) / mSegLength[i]));
+		double tx = mSegs[4*i] + t * (mSegs[4*i+2] - mSegs[4*i]);
+		double ty = mSegs[4*i+1] + t * (mSegs[4*i+3] - mSegs[4*i+1]);
+		mTargetLon = mLon0 + (int)Math.round(tx / mMetersPerLonE6);
+		mTargetLat = mLat0 + (int)Math.round(ty / METERS_PER_E6);
+	}
+
+	// The projection, in meters east and north of the first point.
+	private double x(int lon) {return (lon - mLon0) * mMetersPerLonE6;}
+	private double y(int lat) {return (lat - mLat0) * METERS_PER_E6;}
+
+	private int col(double x) {return Math.min(mCols - 1, (int)((x - mGridX) / mCellSize));}
+	private int row(double y) {return Math.min(mRows - 1, (int)((y - mGridY) / mCellSize));}
+}
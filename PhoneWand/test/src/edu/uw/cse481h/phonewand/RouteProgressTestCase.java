@@ -0,0 +1,148 @@
+/**
+ * Replays GPS traces through RouteProgress, the way RouteOrienter feeds it
+ * location fixes, and checks what it makes of them.
+ *
+ * The traces in test/data/traces have one fix per line in the form
+ * RouteOrienter logs them ("updateCurrentLocation: lat=..., lon=..."), so a
+ * logcat capture from a walk can be dropped in next to them.
+ */
+
+package edu.uw.cse481h.phonewand;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+public final class RouteProgressTestCase extends TestCase {
+
+	// Where the route the traces walk starts, in microdegrees.
+	private static final int START_LAT = 47655000;
+	private static final int START_LON = -122310000;
+
+	private static final double METERS_PER_E6 = 6371000.0 * Math.PI / 180.0 / 1E6;
+
+	/**
+	 * The whole route, with a few meters of jitter: the user should turn the
+	 * corner once, never be taken off the route, and arrive at the end.
+	 */
+	public void testOnRoute() throws IOException {
+		RouteProgress progress = newRoute();
+		int[][] fixes = readTrace("on-route.log");
+		int stepChanges = 0;
+		int arrivedAt = -1;
+		int lastStep = 0;
+		for(int i = 0; i < fixes.length; i++) {
+			int result = progress.update(fixes[i][0], fixes[i][1]);
+			assertTrue("off the route at fix " + i, result != RouteProgress.OFF_ROUTE);
+			assertFalse("off the route at fix " + i, progress.isOffRoute());
+			assertTrue("went back a step at fix " + i, progress.getStep() >= lastStep);
+			lastStep = progress.getStep();
+			if(result == RouteProgress.STEP_CHANGED && i > 0)
+				stepChanges++;
+			if(result == RouteProgress.ARRIVED) {
+				assertEquals("arrived twice", -1, arrivedAt);
+				arrivedAt = i;
+			}
+		}
+		assertEquals(1, stepChanges);
+		assertEquals(1, lastStep);
+		assertTrue("never arrived", arrivedAt >= 0);
+		// 25 meters from the end, at a fix every 5 meters, give or take the jitter
+		assertTrue("arrived at fix " + arrivedAt, arrivedAt >= fixes.length - 8);
+		assertTrue(progress.getDistanceRemaining() < 25);
+	}
+
+	/**
+	 * Half way down the first step the user walks 100 m away from the route
+	 * and back: OFF_ROUTE comes once, on the third fix more than 40 m away,
+	 * and the user is back on the route at the same place afterwards.
+	 */
+	public void testOffRoute() throws IOException {
+		RouteProgress progress = newRoute();
+		int[][] fixes = readTrace("off-route.log");
+		int offRoute = 0;
+		int farFixes = 0;
+		boolean wasOff = false;
+		for(int i = 0; i < fixes.length; i++) {
+			int result = progress.update(fixes[i][0], fixes[i][1]);
+			assertTrue("arrived at fix " + i, result != RouteProgress.ARRIVED);
+			if(progress.getDistanceFromRoute() > 40) {
+				farFixes++;
+			} else {
+				farFixes = 0;
+				assertFalse("still off the route at fix " + i, progress.isOffRoute());
+			}
+			if(result == RouteProgress.OFF_ROUTE) {
+				offRoute++;
+				assertEquals("off the route at fix " + i, 3, farFixes);
+			}
+			assertEquals(farFixes >= 3, progress.isOffRoute());
+			wasOff |= progress.isOffRoute();
+		}
+		assertEquals(1, offRoute);
+		assertTrue(wasOff);
+		assertFalse(progress.isOffRoute());
+		// the trace stops 250 m along, still on the first step
+		assertEquals(0, progress.getStep());
+		assertEquals(250, progress.getDistanceRemaining(), 15);
+	}
+
+	/**
+	 * The route the traces walk: 300 m east with a point every 100 m, then
+	 * 200 m north.
+	 */
+	private static RouteProgress newRoute() {
+		int[][] lats = new int[2][];
+		int[][] lons = new int[2][];
+		lats[0] = new int[4];
+		lons[0] = new int[4];
+		for(int i = 0; i < 4; i++) {
+			lats[0][i] = lat(0);
+			lons[0][i] = lon(100 * i);
+		}
+		lats[1] = new int[3];
+		lons[1] = new int[3];
+		for(int i = 0; i < 3; i++) {
+			lats[1][i] = lat(100 * i);
+			lons[1][i] = lon(300);
+		}
+		return new RouteProgress(lats, lons);
+	}
+
+	private static int lat(double north) {
+		return START_LAT + (int) Math.round(north / METERS_PER_E6);
+	}
+
+	private static int lon(double east) {
+		return START_LON + (int) Math.round(east / (METERS_PER_E6 * Math.cos(Math.toRadians(START_LAT / 1E6))));
+	}
+
+	/** Reads the fixes out of a trace, as {lat, lon} pairs in microdegrees. */
+	private static int[][] readTrace(String name) throws IOException {
+		File traces = new File("test/data/traces");
+		if(!traces.exists())
+			traces = new File("PhoneWand/test/data/traces");
+		BufferedReader in = new BufferedReader(new FileReader(new File(traces, name)));
+		Vector<int[]> fixes = new Vector<int[]>();
+		try {
+			String line;
+			while((line = in.readLine()) != null) {
+				int latAt = line.indexOf("lat=");
+				int lonAt = line.indexOf(", lon=");
+				if(line.startsWith("#") || latAt < 0 || lonAt < latAt)
+					continue;
+				fixes.add(new int[] {
+						Integer.parseInt(line.substring(latAt + 4, lonAt).trim()),
+						Integer.parseInt(line.substring(lonAt + 6).trim())});
+			}
+		} finally {
+			in.close();
+		}
+		assertTrue(name + " has no fixes", fixes.size() > 0);
+		return fixes.toArray(new int[fixes.size()][]);
+	}
+}
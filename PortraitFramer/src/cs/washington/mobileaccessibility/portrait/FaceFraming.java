@@ -0,0 +1,250 @@
+package cs.washington.mobileaccessibility.portrait;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PointF;
+import android.media.FaceDetector;
+import android.media.FaceDetector.Face;
+
+//finds the faces in a picture and works out what to tell the user about the framing.
+//the face detector takes longer the more pixels it gets, so it looks at a small RGB_565 copy
+//(the only kind it takes) and the faces it finds are scaled back up to the picture.
+//the framing is worked out from the face positions alone, nothing gets drawn on the picture,
+//and drawOverlay draws the rectangles afterwards with a Canvas, only when they are wanted.
+public class FaceFraming
+{
+	//how wide the copy the detector looks at is. has to be even for the detector
+	static final int DETECT_WIDTH = 320;
+	static final int MAX_FACES = 10;
+	//how far the faces can be from the middle and still count as centered, as a part of the
+	//picture height. this used to be 100 pixels of the 384 high picture
+	static final float TOLERANCE = 100f/384f;
+
+	//making a detector allocates a lot, so keep it for the next picture of the same size
+	private static FaceDetector detector = null;
+	private static int detectorWidth, detectorHeight;
+	private static Face[] found = new Face[MAX_FACES];
+
+	//the faces, in the coordinates of the picture, with the eyes distance as the radius like before
+	Circle[] faces;
+	int width, height; //of the picture
+	//the box around all the faces, and the space around it
+	int topPointY, bottomPointY, leftPointX, rightPointX;
+	int spaceTop, spaceBottom, spaceLeft, spaceRight;
+	//what to say about the framing, or null if there is nothing to say
+	String advice = null;
+	//true if the advice is to take the photo
+	boolean takePhoto = false;
+	//true if the faces are spread around the middle, in which case the preview comes straight back
+	boolean restartPreview = false;
+	//how long the detector took, in ms
+	long detectTime;
+
+	//decode the jpeg from the camera at a quarter of the size, like onPictureTaken always has, but
+	//straight into RGB_565 so it doesn't need converting for the detector
+	static Bitmap decode(byte[] jpeg)
+	{
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inSampleSize = 4;
+		options.inPreferredConfig = Bitmap.Config.RGB_565;
+		return BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+	}
+
+	//find the faces in the picture and work out the framing
+	static FaceFraming find(Bitmap picture)
+	{
+		FaceFraming framing = new FaceFraming();
+		framing.width = picture.getWidth();
+		framing.height = picture.getHeight();
+
+		int w = Math.min(DETECT_WIDTH, framing.width & ~1);
+		int h = Math.max(1, Math.round(framing.height * w / (float)framing.width));
+		Bitmap small = picture;
+		if(w != framing.width || h != framing.height)
+			small = Bitmap.createScaledBitmap(picture, w, h, true);
+		if(small.getConfig() != Bitmap.Config.RGB_565)
+			small = small.copy(Bitmap.Config.RGB_565, false);
+
+		long start = System.currentTimeMillis();
+		int numFaces;
+		synchronized(FaceFraming.class)
+		{
+			if(detector == null || detectorWidth != w || detectorHeight != h)
+			{
+				detector = new FaceDetector(w, h, MAX_FACES);
+				detectorWidth = w;
+				detectorHeight = h;
+			}
+			numFaces = detector.findFaces(small, found);
+			//scale them back up to the picture
+			float scaleX = framing.width / (float)w;
+			float scaleY = framing.height / (float)h;
+			PointF point = new PointF();
+			framing.faces = new Circle[numFaces];
+			for(int k=0; k<numFaces; k++)
+			{
+				found[k].getMidPoint(point);
+				framing.faces[k] = new Circle(point.x * scaleX, point.y * scaleY, (int)(found[k].eyesDistance() * scaleX));
+			}
+		}
+		framing.detectTime = System.currentTimeMillis() - start;
+		if(small != picture)
+			small.recycle();
+
+		if(numFaces > 0)
+			framing.frame();
+		return framing;
+	}
+
+	//this is what findFraming used to work out, but without the bitmap
+	private void frame()
+	{
+		//go through all circles, find topmost point, leftmost, rightmost, bottommost
+		//topmost must be top of some circle (lowest y)
+		topPointY = 3000;
+		bottomPointY = -1000;
+		leftPointX = 3000;
+		rightPointX = -1000;
+		for(int i=0; i<faces.length; i++)
+		{
+			float x = faces[i].center.x;
+			float y = faces[i].center.y;
+			int r = faces[i].radius;
+			topPointY = Math.min(topPointY, (int)(y - r));
+			bottomPointY = Math.max(bottomPointY, (int)(y + r));
+			leftPointX = Math.min(leftPointX, (int)(x - r));
+			rightPointX = Math.max(rightPointX, (int)(x + r));
+		}
+
+		if(topPointY <= 0 || topPointY >= height-1)
+			topPointY = 1;
+		if(leftPointX <= 0 || leftPointX >= width-1)
+			leftPointX = 1;
+		if(bottomPointY > height-1 || bottomPointY <= 0)
+			bottomPointY = height-3;
+		if(rightPointX > width-1 || rightPointX <= 0)
+			rightPointX = width-3;
+
+		spaceTop = topPointY;
+		spaceBottom = height - bottomPointY;
+		spaceLeft = leftPointX;
+		spaceRight = width - rightPointX;
+
+		//have within some tolerance so not toooo picky
+		float tolerance = TOLERANCE * height;
+		float minTopDistance = 1000;
+		float minBottomDistance = 1000;
+		//first just simple right left up down
+		boolean allTopHalf = true, allBottomHalf = true, allRightHalf = true, allLeftHalf = true;
+		for(int j=0; j<faces.length; j++)
+		{
+			//for now just using centers, not radius
+			if(faces[j].center.y > height/2)
+			{
+				allTopHalf = false;
+				minBottomDistance = Math.min(minBottomDistance, faces[j].center.y - height/2);
+			}
+			else
+			{
+				allBottomHalf = false;
+				minTopDistance = Math.min(minTopDistance, height/2 - faces[j].center.y);
+			}
+			if(faces[j].center.x > width/2)
+				allLeftHalf = false;
+			else
+				allRightHalf = false;
+		}
+
+		if(allTopHalf)
+		{
+			if(minTopDistance > tolerance)
+			{
+				if(allRightHalf)
+					advice = "Move the camera up and right";
+				else if(allLeftHalf)
+					advice = "Move the camera up and left";
+				else
+					advice = "Move the camera up";
+			}
+			else if(allRightHalf)
+				advice = "Move the camera right";
+			else if(allLeftHalf)
+				advice = "Move the camera left";
+			else
+				takePhoto = true;
+		}
+		else if(allBottomHalf)
+		{
+			if(minBottomDistance > tolerance)
+			{
+				if(allRightHalf)
+					advice = "Move the camera down and right";
+				else if(allLeftHalf)
+					advice = "Move the camera down and left";
+				else
+					advice = "Move the camera down";
+			}
+			else if(allRightHalf)
+				advice = "Move the camera right";
+			else if(allLeftHalf)
+				advice = "Move the camera left";
+			else if(minBottomDistance < tolerance)
+				takePhoto = true;
+		}
+		else if(allLeftHalf)
+			advice = "Move the camera left";
+		else if(allRightHalf)
+			advice = "Move the camera right";
+		else
+		{
+			takePhoto = true;
+			restartPreview = true;
+		}
+		if(takePhoto)
+			advice = "Great! Take a photo";
+		//need to add SIZE (like go closer farther)
+	}
+
+	//how big face i is, the way it gets said out loud: the picture is this many faces wide
+	int facesAcross(int i)
+	{
+		return width / Math.max(1, faces[i].radius * 2);
+	}
+
+	//a copy of the picture with the framing drawn on it, all with one Canvas: a black line between
+	//the eyes of each face, a yellow box around each face and a red one around all of them
+	Bitmap drawOverlay(Bitmap picture)
+	{
+		Bitmap framed = picture.copy(Bitmap.Config.RGB_565, true);
+		if(faces.length == 0)
+			return framed;
+		Canvas canvas = new Canvas(framed);
+		Paint paint = new Paint();
+		paint.setStyle(Paint.Style.STROKE);
+
+		paint.setColor(Color.BLACK);
+		paint.setStrokeWidth(3);
+		for(int k=0; k<faces.length; k++)
+		{
+			float x = faces[k].center.x;
+			float y = faces[k].center.y;
+			canvas.drawLine(x - faces[k].radius/2f, y, x + faces[k].radius/2f, y, paint);
+		}
+
+		paint.setStrokeWidth(0);
+		paint.setColor(Color.RED);
+		canvas.drawRect(leftPointX, topPointY, rightPointX, bottomPointY, paint);
+		paint.setColor(Color.YELLOW);
+		for(int k=0; k<faces.length; k++)
+		{
+			float x = faces[k].center.x;
+			float y = faces[k].center.y;
+			int r = faces[k].radius;
+			canvas.drawRect(Math.max(0, x - r), Math.max(0, y - r), Math.min(width, x + r), Math.min(height, y + r), paint);
+		}
+		return framed;
+	}
+}
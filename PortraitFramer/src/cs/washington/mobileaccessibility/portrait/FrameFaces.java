@@ -73,6 +73,8 @@ public class FrameFaces extends Activity implements OnGestureListener, OnDoubleT
 	static Paint contrastPaint;
 	Bitmap faceContrast;
 	boolean readyToDrawCircles = false;
+	//when the last picture was asked for, to time how long the framing advice takes
+	long shutterTime = 0;
 	
 	private TextToSpeech myTTS = null;
    
@@ -176,6 +178,7 @@ public class FrameFaces extends Activity implements OnGestureListener, OnDoubleT
 			  else
 				  Log.v("blah", "preview was running");
 			  circleFacesArray = null;
+			  shutterTime = SystemClock.uptimeMillis();
 			  view.camera.stopPreview();
 			  view.camera.takePicture(null, mPictureCallback, mPictureCallback);
 			  view.camera.startPreview();
@@ -241,6 +244,18 @@ public class FrameFaces extends Activity implements OnGestureListener, OnDoubleT
 		{
 			case KeyEvent.KEYCODE_CAMERA:
 				myTTS.speak("hit camera button",0, null);
+				return super.onKeyDown(keyCode, event);
+			case KeyEvent.KEYCODE_T:
+				//time the framing on the pictures in FramingBenchmark.DIRECTORY, the old way and the new way
+				myTTS.speak("Timing the framing", 0, null);
+				new Thread(new Runnable()
+				{
+					public void run()
+					{
+						myTTS.speak(FramingBenchmark.run(FramingBenchmark.DIRECTORY), TextToSpeech.QUEUE_ADD, null);
+					}
+				}).start();
+				return true;
 			default:
 				return super.onKeyDown(keyCode, event);
 		}
@@ -301,279 +316,18 @@ public class FrameFaces extends Activity implements OnGestureListener, OnDoubleT
 		return false;
 	}
 	
-	//method to find the framing of the faces, individually and together
-	protected void findFraming(Circle[] circleArray, Bitmap bmap)
-	{
-		//go through all circles, find topmost point, leftmost, rightmost, bottommost
-		//topmost must be top of some circle (lowest y)
-		int topPointY=3000, bottomPointY=-1000, leftPointX=3000, rightPointX=-1000;
-		
-		//say out loud the size of the faces in relation to whole image
-		int diameter;
-		for(int i=0; i<circleArray.length; i++)
-		{
-			diameter=circleArray[i].radius * 2;
-			myTTS.speak("Face " + (i+1) + " is 1 " + (int)(bmap.getWidth()/diameter) + " of the width of screen", TextToSpeech.QUEUE_ADD, null);
-			Log.i("framepoints", "diameter over width: " + (int)(bmap.getWidth()/diameter));
-		}
-		
-		for(int i=0; i<circleArray.length; i++)
-		{
-			Log.i("framepoints", "On Circle: " + i);
-			int tempTopY = (int)(circleArray[i].center.y-circleArray[i].radius);
-			Log.i("framepoints", "Top Y: " + tempTopY);
-			if(tempTopY < topPointY)
-				topPointY = tempTopY;
-			int tempBottomY = (int)(circleArray[i].center.y+circleArray[i].radius);
-			Log.i("framepoints", "Bottom Y: " + tempBottomY);
-			if (tempBottomY > bottomPointY)
-				bottomPointY = tempBottomY;
-		}
-		for(int j=0; j<circleArray.length; j++)
-		{
-			Log.i("framepoints", "On Circle: " + j);
-			int tempRightX = (int)(circleArray[j].center.x+circleArray[j].radius);
-			Log.i("framepoints", "Right X: " + tempRightX);
-			Log.i("framepoints", "Center X: " + (int)circleArray[j].center.x);
-			Log.i("framepoints", "Radius: " + (int)circleArray[j].radius);
-			if(tempRightX > rightPointX)
-				rightPointX = tempRightX;
-			int tempLeftX = (int)(circleArray[j].center.x-circleArray[j].radius);
-			Log.i("framepoints", "Left X: " + tempLeftX);
-			Log.i("framepoints", "Center X: " + (int)circleArray[j].center.x);
-			Log.i("framepoints", "Radius: " + (int)circleArray[j].radius);
-			if (tempLeftX < leftPointX)
-				leftPointX = tempLeftX;
-		}
-
-		//print out 4 points you got
-		Log.i("framepoints", "topPointY: " + topPointY);
-		Log.i("framepoints", "bottomPointY: " + bottomPointY);
-		Log.i("framepoints", "leftPointX: " + leftPointX);
-		Log.i("framepoints", "rightPointX: " + rightPointX);
-		
-		if(topPointY <= 0 || topPointY >=bmap.getHeight()-1)
-			topPointY = 1;
-		if(leftPointX <=0 || leftPointX >= bmap.getWidth()-1)
-			leftPointX = 1;
-		if(bottomPointY > bmap.getHeight()-1 || bottomPointY <=0)
-			bottomPointY = bmap.getHeight()-3;
-		if(rightPointX > bmap.getWidth()-1 || rightPointX <=0)
-			rightPointX = bmap.getWidth()-3;
-		
-		Log.i("framepoints AFTER changes", "topPointY: " + topPointY);
-		Log.i("framepoints", "bottomPointY: " + bottomPointY);
-		Log.i("framepoints", "leftPointX: " + leftPointX);
-		Log.i("framepoints", "rightPointX: " + rightPointX);
-		
-		Log.i("framepoints", "width: " + bmap.getWidth());
-		Log.i("framepoints", "height: " + bmap.getHeight());
-		
-		//now draw framing on bitmap
-		for(int a=leftPointX; a < rightPointX; a++)
-		{
-			//draw top line
-			bmap.setPixel(a,topPointY, Color.RED);
-			//draw bottom line
-			bmap.setPixel(a,bottomPointY, Color.RED);
-		}
-		for(int b=topPointY; b < bottomPointY; b++)
-		{
-			bmap.setPixel(leftPointX, b, Color.RED);
-			bmap.setPixel(rightPointX, b, Color.RED);
-		}
-		
-		//draw individual faces framings
-		//check if they are within bounds of screen!
-		for(int k=0; k<circleArray.length; k++)
-		{
-			int leftPoint = (int) (circleArray[k].center.x - circleArray[k].radius);
-			int rightPoint = (int) (circleArray[k].center.x + circleArray[k].radius);
-			int topPoint = (int) (circleArray[k].center.y - circleArray[k].radius);
-			int bottomPoint = (int) (circleArray[k].center.y + circleArray[k].radius);
-			
-			if (leftPoint <= 0)
-				leftPoint = 0;
-			if (rightPoint >= bmap.getWidth())
-				rightPoint = bmap.getWidth();
-			if(topPoint <= 0)
-				topPoint = 0;
-			if(bottomPoint >= bmap.getHeight())
-				bottomPoint = bmap.getHeight();
-			
-			for(int v= leftPoint; v<rightPoint; v++)
-			{
-				//draw top line
-				bmap.setPixel(v,topPoint, Color.YELLOW);
-				//draw bottom line
-				bmap.setPixel(v,bottomPoint, Color.YELLOW);
-			}
-			for(int v= topPoint; v<bottomPoint; v++)
-			{
-				//draw top line
-				bmap.setPixel(leftPoint,v, Color.YELLOW);
-				//draw bottom line
-				bmap.setPixel(rightPoint,v, Color.YELLOW);
-			}
-		}
-		
-		int spaceTop, spaceBottom, spaceLeft, spaceRight = 0;
-		spaceTop = topPointY;
-		spaceBottom = bmap.getHeight() - bottomPointY;
-		spaceLeft = leftPointX;
-		spaceRight = bmap.getWidth() - rightPointX;
-		// have within some tolerance so not toooo picky
-		//also add in vibrations
-		int tolerance = 100;
-		float minTopDistance = 1000;
-		float minBottomDistance = 1000;
-		
-		//first, try speaking spacings. then make relative choices.
-		//Log.i("touch","circle array is not null: length is " + circleArray.length);
-		//these are margins on the bmap not screen
-		
-		Log.i("touch","Top Margin is " + spaceTop + ". Bottom Margin is " + spaceBottom + ". Left Margin is " + spaceLeft + ". Right Margin is " + spaceRight);
-		//first just simple right left up down
-		int j;
-		boolean allTopHalf = true, allBottomHalf = true, allRightHalf = true, allLeftHalf = true;
-		for(j=0; j<circleArray.length; j++)
-		{
-			//for now just using centers, not radius
-			
-			if(circleArray[j].center.y > bmap.getHeight()/2)
-			{
-				allTopHalf = false;
-				if ((circleArray[j].center.y - (bmap.getHeight()/2)) < minBottomDistance)
-					minBottomDistance = circleArray[j].center.y - (bmap.getHeight()/2); 
-			}
-			else
-			{
-				allBottomHalf = false;
-				if (((bmap.getHeight()/2)-circleArray[j].center.y) < minTopDistance)
-					minTopDistance = (bmap.getHeight()/2) - circleArray[j].center.y;
-			}
-			if(circleArray[j].center.x > bmap.getWidth()/2)
-			{
-				allLeftHalf = false;
-			}
-			else
-				allRightHalf = false;
-		}
-		
-		if(allTopHalf)
-		{
-			if(minTopDistance > tolerance)
-			{
-				if(allRightHalf)
-					myTTS.speak("Move the camera up and right",TextToSpeech.QUEUE_ADD,null);
-				else if(allLeftHalf)
-					myTTS.speak("Move the camera up and left",TextToSpeech.QUEUE_ADD,null);
-				else 
-					myTTS.speak("Move the camera up",TextToSpeech.QUEUE_ADD,null);
-			}
-			else if(minTopDistance <= tolerance)
-			{
-				if(allRightHalf)
-					myTTS.speak("Move the camera right",TextToSpeech.QUEUE_ADD,null);
-				else if(allLeftHalf)
-					myTTS.speak("Move the camera left",TextToSpeech.QUEUE_ADD,null);
-				else
-				{
-					myTTS.speak("Great! Take a photo",TextToSpeech.QUEUE_ADD,null);
-					takeFinalPhoto = true; //after this one is taken
-				}
-			}
-			
-		}
-		else if(allBottomHalf)
-		{
-			if(minBottomDistance > tolerance)
-			{
-				if(allRightHalf)
-					myTTS.speak("Move the camera down and right",TextToSpeech.QUEUE_ADD,null);
-				else if (allLeftHalf)
-					myTTS.speak("Move the camera down and left",TextToSpeech.QUEUE_ADD,null);
-				else 
-					myTTS.speak("Move the camera down",TextToSpeech.QUEUE_ADD,null);
-			}
-			else if(minBottomDistance <=tolerance)
-			{
-				if(allRightHalf)
-					myTTS.speak("Move the camera right",TextToSpeech.QUEUE_ADD,null);
-				else if (allLeftHalf)
-					myTTS.speak("Move the camera left",TextToSpeech.QUEUE_ADD,null);
-				else if(minBottomDistance < tolerance)
-				{
-					myTTS.speak("Great! Take a photo",TextToSpeech.QUEUE_ADD,null);
-					takeFinalPhoto = true; //after this one is taken
-				}
-			}
-		}
-		else if(allLeftHalf)
-		{
-			myTTS.speak("Move the camera left",TextToSpeech.QUEUE_ADD,null);
-		}
-		else if(allRightHalf)
-		{
-			myTTS.speak("Move the camera right",TextToSpeech.QUEUE_ADD,null);
-		}
-		else
-		{
-			myTTS.speak("Great! Take a photo",TextToSpeech.QUEUE_ADD,null);
-			takeFinalPhoto = true; //after this one is taken
-			//***added 9/9
-			view.camera.startPreview();
-			mPreviewRunning = true;
-			//view.setPreviewRunning(true);
-			//you may want to save the photo only here, eventually, though all are interesting for the research.
-		}
-		//need to add SIZE (like go closer farther)
-		
-		//now you want the preview in the display again
-		/*view.setBackgroundDrawable(null);
-		try {
-			camera.setPreviewDisplay(holder); // throws IOException
-			camera.setErrorCallback(new ErrorCallback() {
-			public void onError(int code, Camera c) {
-				if(code == Camera.CAMERA_ERROR_SERVER_DIED)
-					Log.e("cam","The camera server died");
-				else
-					Log.e("cam","Unknown camera error");
-			}
-		});
-		}
-		catch(IOException ioe) {
-		camera.release();
-		camera = null;
-		}
-	  
-	  camera.startPreview();
-	  mPreviewRunning = true;*/
-	}
-	
-	
-	
 	private Camera.PictureCallback mPictureCallback = new Camera.PictureCallback()
 	{
 		public void onPictureTaken(byte[] data, Camera camera) 
 		{
 			if(data != null)
 			{
-		
-				BitmapFactory.Options options = new BitmapFactory.Options();
-				options.inSampleSize = 4;
-	
-				image = BitmapFactory.decodeByteArray(data, 0, data.length, options);
-				int w = image.getWidth(); //512
-				int h = image.getHeight(); //384
-				Log.i("cam","width: " + w); 
-				Log.i("cam","height: " + h);
-				int[] pixels = new int[w*h]; //196,608
-				image.getPixels(pixels,0,w,0,0,w,h);
-		
 				//if taking final picture, you dont need to do all the face recognition
 				if(takeFinalPhoto)
 				{
+					BitmapFactory.Options options = new BitmapFactory.Options();
+					options.inSampleSize = 4;
+					image = BitmapFactory.decodeByteArray(data, 0, data.length, options);
 					String extStorageDirectory = Environment.getExternalStorageDirectory().toString();
 					String saveToPath = extStorageDirectory + "/DCIM/Camera/";
 					Log.i("filesystem", "savetopath: " + saveToPath);
@@ -601,44 +355,40 @@ public class FrameFaces extends Activity implements OnGestureListener, OnDoubleT
 				//***
 				else
 				{
-					FaceDetector androidFaces = new FaceDetector(w,h,10);
-					Face [] faces = new Face[10];
-					int numFaces = androidFaces.findFaces(image, faces);
-					PointF point = new PointF(0,0);
-					float confidence;
-					float eyesDistance;
-					//make new bitmap to show face locations
-			
-					Bitmap faceFramed = Bitmap.createBitmap(w, h, Bitmap.Config.RGB_565);
-					faceFramed.setPixels(pixels, 0, w, 0, 0, w, h);
-					//faceFramed.eraseColor(Color.YELLOW);
-					//Bitmap faceFramed = Bitmap.createBitmap(image, 0, 0, w, h);
-					//Bitmap faceFramed = BitmapFactory.decodeByteArray(data,0,data.length,options);
-		
-					for(int x=0; x<numFaces; x++)
+					//the picture comes straight out as RGB_565, and FaceFraming gives the detector
+					//a smaller copy of it and scales the faces back up
+					image = FaceFraming.decode(data);
+					int w = image.getWidth(); //512
+					int h = image.getHeight(); //384
+					FaceFraming framing = FaceFraming.find(image);
+					circleFacesArray = framing.faces;
+					int numFaces = circleFacesArray.length;
+
+					//the advice is what the user is waiting for, so say it before anything else
+					myTTS.speak("There are " + numFaces + " faces",  TextToSpeech.QUEUE_ADD, null);
+					if(numFaces > 0)
 					{
-						confidence = faces[x].confidence();
-						eyesDistance = faces[x].eyesDistance();
-						faces[x].getMidPoint(point); 
-						Log.i("cam2", "NumFaces: " + numFaces + " Confidence: " + confidence);
-						Log.i("cam2", "Eye Distance: " + eyesDistance);
-						Log.i("cam2", "MidPoint X Y: " + point.x + " " + point.y );
-						int newX = Math.round(point.x);
-						int newY = Math.round(point.y);
-						int j = 0;
-						int xMove = newX-(int)(eyesDistance/2);
-						while(j<eyesDistance)
+						//say out loud the size of the faces in relation to whole image
+						for(int i=0; i<numFaces; i++)
+							myTTS.speak("Face " + (i+1) + " is 1 " + framing.facesAcross(i) + " of the width of screen", TextToSpeech.QUEUE_ADD, null);
+						if(framing.advice != null)
+							myTTS.speak(framing.advice, TextToSpeech.QUEUE_ADD, null);
+						if(framing.takePhoto)
+							takeFinalPhoto = true; //after this one is taken
+						if(framing.restartPreview)
 						{
-							faceFramed.setPixel(xMove,newY, Color.BLACK);
-							faceFramed.setPixel(xMove, newY + 1, Color.BLACK);
-							faceFramed.setPixel(xMove, newY - 1, Color.BLACK);
-							j++;
-							xMove++;
+							//***added 9/9
+							view.camera.startPreview();
+							mPreviewRunning = true;
 						}
-						Log.i("cam2", "set black pixels");
-						
+						readyToDrawCircles = true;
+						Log.i("touch","Top Margin is " + framing.spaceTop + ". Bottom Margin is " + framing.spaceBottom + ". Left Margin is " + framing.spaceLeft + ". Right Margin is " + framing.spaceRight);
 					}
-		
+					Log.i("cam", "Framing advice " + (SystemClock.uptimeMillis() - shutterTime) + " ms after the shutter, the detector took " + framing.detectTime + " ms");
+
+					//make new bitmap to show face locations
+					Bitmap faceFramed = framing.drawOverlay(image);
+
 					//here do this for low vision- show screen of where faces are in black/white
 					//want all black except for white faces
 					faceContrast = Bitmap.createBitmap(w, h, Bitmap.Config.RGB_565);
@@ -648,25 +398,6 @@ public class FrameFaces extends Activity implements OnGestureListener, OnDoubleT
 					canvas = new Canvas(faceContrast);
 					contrastPaint = new Paint();
 			 
-					//have faces array, make into circles array
-					circleFacesArray = new Circle[numFaces];
-					for(int k=0; k<numFaces; k++)
-					{
-						//circle has center point and radius
-						Log.i("framepoints", "making circle k: " + k);
-						faces[k].getMidPoint(point);
-						Log.i("framepoints", "midpoint x: " + point.x + "midpoint y: " + point.y );
-						//confirmed we are getting the right midpoints
-						circleFacesArray[k] = new Circle(point.x, point.y,(int)faces[k].eyesDistance());
-					}
-		
-					//now find framing- want BACKGROUND IMAGE WITH FRAMING UP ON VIEW
-					myTTS.speak("There are " + numFaces + " faces",  TextToSpeech.QUEUE_ADD, null);
-					if(numFaces > 0)
-					{
-						findFraming(circleFacesArray, faceFramed);
-						readyToDrawCircles = true;				
-					}
 					//now i want to show this image on a screen- UNTIL WHEN? need a new gesture
 					//BitmapDrawable back = new BitmapDrawable(faceFramed);
 					//view.setBackgroundDrawable(back);
@@ -0,0 +1,178 @@
+package cs.washington.mobileaccessibility.portrait;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.PointF;
+import android.media.FaceDetector;
+import android.media.FaceDetector.Face;
+import android.util.Log;
+
+//times getting from the jpeg the camera hands back to the framing advice, the way onPictureTaken
+//used to do it and the way FaceFraming does it now, on every jpeg in a directory.
+//press T in the app to run it. copy some portraits straight off the camera into DIRECTORY first
+//(not the testJpg.jpg ones, those are already shrunk)
+public class FramingBenchmark
+{
+	static final String DIRECTORY = "/sdcard/PortraitFramer";
+	private static final String TAG = "FramingBenchmark";
+
+	//returns a summary to say out loud
+	static String run(String directory)
+	{
+		File[] files = new File(directory).listFiles();
+		if(files == null)
+			return "There is no folder " + directory;
+		long oldTime = 0, newTime = 0, oldOverlay = 0, newOverlay = 0;
+		int pictures = 0, sameFaces = 0;
+		for(int i=0; i<files.length; i++)
+		{
+			if(!files[i].getName().toLowerCase().endsWith(".jpg"))
+				continue;
+			byte[] jpeg;
+			try
+			{
+				jpeg = read(files[i]);
+			}
+			catch(IOException ioe)
+			{
+				Log.e(TAG, "couldn't read " + files[i] + ": " + ioe);
+				continue;
+			}
+
+			//the old way: decode, copy the pixels out, detect on the whole thing
+			long start = System.currentTimeMillis();
+			BitmapFactory.Options options = new BitmapFactory.Options();
+			options.inSampleSize = 4;
+			Bitmap image = BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+			if(image == null)
+				continue;
+			int w = image.getWidth();
+			int h = image.getHeight();
+			int[] pixels = new int[w*h];
+			image.getPixels(pixels,0,w,0,0,w,h);
+			Bitmap detectable = image.getConfig() == Bitmap.Config.RGB_565 ? image : image.copy(Bitmap.Config.RGB_565, false);
+			Face[] faces = new Face[FaceFraming.MAX_FACES];
+			int oldFaces = new FaceDetector(w & ~1, h, FaceFraming.MAX_FACES).findFaces(
+					(w & 1) == 0 ? detectable : Bitmap.createBitmap(detectable, 0, 0, w & ~1, h), faces);
+			long mid = System.currentTimeMillis();
+			//and then it drew the framing a pixel at a time
+			Bitmap faceFramed = Bitmap.createBitmap(w, h, Bitmap.Config.RGB_565);
+			faceFramed.setPixels(pixels, 0, w, 0, 0, w, h);
+			drawOldOverlay(faceFramed, faces, oldFaces);
+			long end = System.currentTimeMillis();
+			oldTime += mid - start;
+			oldOverlay += end - mid;
+			image.recycle();
+			faceFramed.recycle();
+
+			//the new way
+			start = System.currentTimeMillis();
+			image = FaceFraming.decode(jpeg);
+			FaceFraming framing = FaceFraming.find(image);
+			mid = System.currentTimeMillis();
+			framing.drawOverlay(image).recycle();
+			end = System.currentTimeMillis();
+			newTime += mid - start;
+			newOverlay += end - mid;
+			image.recycle();
+
+			pictures++;
+			if(framing.faces.length == oldFaces)
+				sameFaces++;
+			Log.i(TAG, files[i].getName() + ": " + oldFaces + " faces before, " + framing.faces.length + " now, "
+					+ framing.detectTime + " ms in the detector, advice: " + framing.advice);
+		}
+		if(pictures == 0)
+			return "There are no pictures in " + directory;
+		String summary = pictures + " pictures, " + oldTime/pictures + " milliseconds each to the advice before, "
+				+ newTime/pictures + " milliseconds now. Drawing the framing took " + oldOverlay/pictures
+				+ " milliseconds before, " + newOverlay/pictures + " now. The same number of faces in "
+				+ sameFaces + " of them";
+		Log.i(TAG, summary);
+		return summary;
+	}
+
+	private static byte[] read(File file) throws IOException
+	{
+		byte[] bytes = new byte[(int)file.length()];
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try
+		{
+			in.readFully(bytes);
+		}
+		finally
+		{
+			in.close();
+		}
+		return bytes;
+	}
+
+	//the setPixel drawing onPictureTaken and findFraming used to do, without the logging
+	//(kept inside the bitmap, which the old code didn't always manage)
+	private static void drawOldOverlay(Bitmap bmap, Face[] faces, int numFaces)
+	{
+		int w = bmap.getWidth();
+		int h = bmap.getHeight();
+		PointF point = new PointF();
+		int top = 3000, bottom = -1000, left = 3000, right = -1000;
+		for(int k=0; k<numFaces; k++)
+		{
+			faces[k].getMidPoint(point);
+			float eyesDistance = faces[k].eyesDistance();
+			int newY = Math.round(point.y);
+			int xMove = Math.round(point.x) - (int)(eyesDistance/2);
+			for(int j=0; j<eyesDistance; j++, xMove++)
+			{
+				if(xMove < 0 || xMove >= w || newY < 1 || newY >= h-1)
+					continue;
+				bmap.setPixel(xMove, newY, Color.BLACK);
+				bmap.setPixel(xMove, newY + 1, Color.BLACK);
+				bmap.setPixel(xMove, newY - 1, Color.BLACK);
+			}
+			int r = (int)eyesDistance;
+			top = Math.min(top, (int)(point.y - r));
+			bottom = Math.max(bottom, (int)(point.y + r));
+			left = Math.min(left, (int)(point.x - r));
+			right = Math.max(right, (int)(point.x + r));
+		}
+		if(numFaces == 0)
+			return;
+		top = Math.max(1, Math.min(top, h-3));
+		bottom = Math.max(1, Math.min(bottom, h-3));
+		left = Math.max(1, Math.min(left, w-3));
+		right = Math.max(1, Math.min(right, w-3));
+		for(int a=left; a<right; a++)
+		{
+			bmap.setPixel(a, top, Color.RED);
+			bmap.setPixel(a, bottom, Color.RED);
+		}
+		for(int b=top; b<bottom; b++)
+		{
+			bmap.setPixel(left, b, Color.RED);
+			bmap.setPixel(right, b, Color.RED);
+		}
+		for(int k=0; k<numFaces; k++)
+		{
+			faces[k].getMidPoint(point);
+			int r = (int)faces[k].eyesDistance();
+			int l = Math.max(0, (int)(point.x - r)), rt = Math.min(w-1, (int)(point.x + r));
+			int t = Math.max(0, (int)(point.y - r)), bt = Math.min(h-1, (int)(point.y + r));
+			for(int v=l; v<rt; v++)
+			{
+				bmap.setPixel(v, t, Color.YELLOW);
+				bmap.setPixel(v, bt, Color.YELLOW);
+			}
+			for(int v=t; v<bt; v++)
+			{
+				bmap.setPixel(l, v, Color.YELLOW);
+				bmap.setPixel(rt, v, Color.YELLOW);
+			}
+		}
+	}
+}
@@ -31,6 +31,8 @@ import android.view.SurfaceHolder;
 import android.view.WindowManager;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 /**
  * This object wraps the Camera service object and expects to be the only one talking to it. The
@@ -46,6 +48,14 @@ final class CameraManager {
   private static final int MAX_FRAME_WIDTH = 480;
   private static final int MAX_FRAME_HEIGHT = 360;
 
+  // Letting the camera write into our own preview buffers needs Camera methods which only became
+  // public in later SDKs, so look them up at runtime. When they're missing, the camera allocates
+  // each frame itself and FrameRing copies it.
+  private static final Method SET_PREVIEW_CALLBACK_WITH_BUFFER =
+      getCameraMethod("setPreviewCallbackWithBuffer", Camera.PreviewCallback.class);
+  private static final Method ADD_CALLBACK_BUFFER = getCameraMethod("addCallbackBuffer",
+      byte[].class);
+
   private static CameraManager cameraManager;
   private Camera camera;
   private final Context context;
@@ -60,6 +70,9 @@ final class CameraManager {
   private boolean previewing;
   private int previewFormat;
   private String previewFormatString;
+  private FrameRing frameRing;
+  private Handler framesHandler;
+  private int framesMessage;
 
   /**
    * Preview frames are delivered here, which we pass on to the registered handler. Make sure to
@@ -76,6 +89,37 @@ final class CameraManager {
     }
   };
 
+  /**
+   * While frames are being streamed, every preview frame arrives here and goes into the FrameRing.
+   * The decoder is only sent a message when it's idle; otherwise it picks up the newest frame
+   * itself when it finishes the current one.
+   */
+  private final Camera.PreviewCallback framesCallback = new Camera.PreviewCallback() {
+    public void onPreviewFrame(byte[] data, Camera camera) {
+      FrameRing ring = frameRing;
+      if (ring != null && ring.offer(data) && framesHandler != null) {
+        Message.obtain(framesHandler, framesMessage).sendToTarget();
+      }
+    }
+  };
+
+  /**
+   * Buffers are freed on the decode thread, but handed back to the camera on this one, which is
+   * the thread that opened it.
+   */
+  private final Handler bufferHandler = new Handler() {
+    @Override
+    public void handleMessage(Message message) {
+      addCallbackBuffer((byte[]) message.obj);
+    }
+  };
+
+  private final FrameRing.BufferRecycler bufferRecycler = new FrameRing.BufferRecycler() {
+    public void recycle(byte[] buffer) {
+      Message.obtain(bufferHandler, 0, buffer).sendToTarget();
+    }
+  };
+
   /**
    * Autofocus callbacks arrive here, and are dispatched to the Handler which requested them.
    */
@@ -162,6 +206,7 @@ final class CameraManager {
    */
   public void stopPreview() {
     if (camera != null && previewing) {
+      stopPreviewFrames();
       camera.stopPreview();
       previewHandler = null;
       autoFocusHandler = null;
@@ -185,6 +230,104 @@ final class CameraManager {
     }
   }
 
+  /**
+   * Like requestPreviewFrame(), but keeps delivering frames until stopPreviewFrames() is called.
+   * Frames go into the FrameRing returned by getFrameRing(), and the handler is sent the message
+   * (without any data) whenever it should take() one. If frames arrive faster than they can be
+   * decoded, the stale ones are dropped.
+   *
+   * @param handler The handler to send the message to.
+   * @param message The what field of the message to be sent.
+   */
+  public void requestPreviewFrames(Handler handler, int message) {
+    if (camera != null && previewing) {
+      framesHandler = handler;
+      framesMessage = message;
+      getFrameRing().start();
+      if (SET_PREVIEW_CALLBACK_WITH_BUFFER != null) {
+        invokeCameraMethod(SET_PREVIEW_CALLBACK_WITH_BUFFER, framesCallback);
+      } else {
+        camera.setPreviewCallback(framesCallback);
+      }
+    }
+  }
+
+  /**
+   * Stops the frames started by requestPreviewFrames().
+   */
+  public void stopPreviewFrames() {
+    if (framesHandler != null) {
+      if (camera != null) {
+        if (SET_PREVIEW_CALLBACK_WITH_BUFFER != null) {
+          // This also makes the camera forget the buffers we gave it
+          invokeCameraMethod(SET_PREVIEW_CALLBACK_WITH_BUFFER, null);
+        } else {
+          camera.setPreviewCallback(null);
+        }
+      }
+      framesHandler = null;
+      bufferHandler.removeMessages(0);
+      if (frameRing != null) {
+        frameRing.stop();
+      }
+    }
+  }
+
+  /**
+   * Returns the preview buffers for the current preview size and format, allocating them the
+   * first time and again only if the size changes.
+   *
+   * @return The ring of preview buffers shared with the decoder.
+   */
+  public synchronized FrameRing getFrameRing() {
+    int width = cameraResolution.x;
+    int height = cameraResolution.y;
+    int frameSize = getFrameSize(width, height);
+    if (frameRing == null || !frameRing.fits(frameSize, width, height)) {
+      frameRing = new FrameRing(frameSize, width, height,
+          ADD_CALLBACK_BUFFER == null ? null : bufferRecycler);
+    }
+    return frameRing;
+  }
+
+  private int getFrameSize(int width, int height) {
+    int bitsPerPixel;
+    try {
+      PixelFormat info = new PixelFormat();
+      PixelFormat.getPixelFormatInfo(previewFormat, info);
+      bitsPerPixel = info.bitsPerPixel;
+    } catch (IllegalArgumentException iae) {
+      // Not a format Android describes, such as yuv422i-yuyv; two bytes per pixel is enough for
+      // all the YUV formats we handle.
+      bitsPerPixel = 16;
+    }
+    return width * height * bitsPerPixel / 8;
+  }
+
+  private void addCallbackBuffer(byte[] buffer) {
+    if (camera != null && framesHandler != null) {
+      invokeCameraMethod(ADD_CALLBACK_BUFFER, buffer);
+    }
+  }
+
+  private void invokeCameraMethod(Method method, Object argument) {
+    try {
+      method.invoke(camera, new Object[] {argument});
+    } catch (IllegalAccessException iae) {
+      Log.w(TAG, iae);
+    } catch (InvocationTargetException ite) {
+      Log.w(TAG, ite.getCause());
+    }
+  }
+
+  private static Method getCameraMethod(String name, Class<?> parameterType) {
+    try {
+      return Camera.class.getMethod(name, parameterType);
+    } catch (NoSuchMethodException nsme) {
+      return null;
+    }
+  }
+
   /**
    * Asks the camera hardware to perform an autofocus.
    *
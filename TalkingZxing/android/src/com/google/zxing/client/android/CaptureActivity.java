@@ -732,6 +732,10 @@ private String getOnlineBarcodeInfo(Result rawResult)
     viewfinderView.drawViewfinder();
   }
 
+  void drawFrameStats(String stats) {
+    viewfinderView.drawFrameStats(stats);
+  }
+
   /**
    * When the beep has finished playing, rewind to queue up another one.
    */
@@ -71,14 +71,13 @@ public final class CaptureActivityHandler extends Handler {
         break;
       case R.id.decode_succeeded:
         state = State.SUCCESS;
+        CameraManager.get().stopPreviewFrames();
         Bundle bundle = message.getData();
         Bitmap barcode = bundle == null ? null : (Bitmap) bundle.getParcelable(DecodeThread.BARCODE_BITMAP);
         activity.handleDecode((Result) message.obj, barcode);
         break;
-      case R.id.decode_failed:
-        // We're decoding as fast as possible, so when one decode fails, start another.
-        state = State.PREVIEW;
-        CameraManager.get().requestPreviewFrame(decodeThread.getHandler(), R.id.decode);
+      case R.id.frame_stats:
+        activity.drawFrameStats((String) message.obj);
         break;
       case R.id.return_scan_result:
         activity.setResult(Activity.RESULT_OK, (Intent) message.obj);
@@ -103,13 +102,13 @@ public final class CaptureActivityHandler extends Handler {
 
     // Be absolutely sure we don't send any queued up messages
     removeMessages(R.id.decode_succeeded);
-    removeMessages(R.id.decode_failed);
+    removeMessages(R.id.frame_stats);
   }
 
   private void restartPreviewAndDecode() {
     if (state == State.SUCCESS) {
       state = State.PREVIEW;
-      CameraManager.get().requestPreviewFrame(decodeThread.getHandler(), R.id.decode);
+      CameraManager.get().requestPreviewFrames(decodeThread.getHandler(), R.id.decode);
       CameraManager.get().requestAutoFocus(this, R.id.auto_focus);
       activity.drawViewfinder();
     }
@@ -17,15 +17,19 @@
 package com.google.zxing.client.android;
 
 import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.MultiFormatReader;
-import com.google.zxing.ReaderException;
+import com.google.zxing.RegionTracker;
 import com.google.zxing.Result;
+import com.google.zxing.ResultHolder;
 import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.IntegralImageBinarizer;
 
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Debug;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
@@ -43,18 +47,43 @@ import java.util.Vector;
 final class DecodeThread extends Thread {
   public static final String BARCODE_BITMAP = "barcode_bitmap";
   private static final String TAG = "DecodeThread";
+  // How often the debug overlay's frame statistics are updated, in milliseconds
+  private static final long STATS_INTERVAL = 1000L;
 
   private Handler handler;
   private final CaptureActivity activity;
   private final MultiFormatReader multiFormatReader;
+  private final RegionTracker regionTracker;
+  private final ResultHolder resultHolder = new ResultHolder();
+  private final boolean useAdaptiveBinarizer;
+  private final boolean showFrameStats;
+  // Whether the per-frame statistics are logged, which costs some garbage on every frame
+  private final boolean logVerbose;
+  private Binarizer binarizer;
+
+  // Frame statistics for the debug overlay, since statsStart
+  private long statsStart;
+  private int statsFramesOffered;
+  private int statsFramesDropped;
+  private int statsGcCount;
+  private int framesDecoded;
+  private long totalDecodeTime;
+  private long totalLatency;
 
   DecodeThread(CaptureActivity activity, String mode) {
     this.activity = activity;
     multiFormatReader = new MultiFormatReader();
+    // While the phone is held over a barcode, decode around where it was last seen before trying
+    // the whole frame.
+    regionTracker = new RegionTracker(multiFormatReader);
 
     // The prefs can't change while the thread is running, so pick them up once here.
+    SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(activity);
+    useAdaptiveBinarizer = prefs.getBoolean(PreferencesActivity.KEY_ADAPTIVE_BINARIZER, false);
+    showFrameStats = prefs.getBoolean(PreferencesActivity.KEY_FRAME_STATS, false);
+    // Enabled with "adb shell setprop log.tag.DecodeThread VERBOSE" before scanning.
+    logVerbose = Log.isLoggable(TAG, Log.VERBOSE);
     if (mode == null || mode.length() == 0) {
-      SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(activity);
       boolean decode1D = prefs.getBoolean(PreferencesActivity.KEY_DECODE_1D, true);
       boolean decodeQR = prefs.getBoolean(PreferencesActivity.KEY_DECODE_QR, true);
       if (decode1D && decodeQR) {
@@ -75,6 +104,13 @@ final class DecodeThread extends Thread {
         setDecodeAllMode();
       }
     }
+
+    // On multi-core devices, run the 1D and 2D readers side by side so a frame without a barcode
+    // costs about as much as the slowest reader rather than all of them.
+    int processors = Runtime.getRuntime().availableProcessors();
+    if (processors > 1) {
+      multiFormatReader.setDecodeThreads(processors);
+    }
   }
 
   Handler getHandler() {
@@ -89,14 +125,22 @@ final class DecodeThread extends Thread {
       public void handleMessage(Message message) {
         switch (message.what) {
           case R.id.decode:
-            decode((byte[]) message.obj, message.arg1, message.arg2);
+            decodeNextFrame();
             break;
           case R.id.quit:
+            multiFormatReader.setDecodeThreads(1);
+            if (showFrameStats) {
+              Debug.stopAllocCounting();
+            }
             Looper.myLooper().quit();
             break;
         }
       }
     };
+    if (showFrameStats) {
+      // The GC count is only kept while allocations are being counted
+      Debug.startAllocCounting();
+    }
     Looper.loop();
   }
 
@@ -108,7 +152,7 @@ final class DecodeThread extends Thread {
     vector.addElement(BarcodeFormat.EAN_13);
     vector.addElement(BarcodeFormat.EAN_8);
     hints.put(DecodeHintType.POSSIBLE_FORMATS, vector);
-    multiFormatReader.setHints(hints);
+    regionTracker.setHints(hints);
   }
 
   /**
@@ -125,7 +169,7 @@ final class DecodeThread extends Thread {
     vector.addElement(BarcodeFormat.CODE_128);
     vector.addElement(BarcodeFormat.ITF);
     hints.put(DecodeHintType.POSSIBLE_FORMATS, vector);
-    multiFormatReader.setHints(hints);
+    regionTracker.setHints(hints);
   }
 
   private void setDecodeQRMode() {
@@ -133,7 +177,7 @@ final class DecodeThread extends Thread {
     Vector<BarcodeFormat> vector = new Vector<BarcodeFormat>(1);
     vector.addElement(BarcodeFormat.QR_CODE);
     hints.put(DecodeHintType.POSSIBLE_FORMATS, vector);
-    multiFormatReader.setHints(hints);
+    regionTracker.setHints(hints);
   }
 
   /**
@@ -152,41 +196,112 @@ final class DecodeThread extends Thread {
     vector.addElement(BarcodeFormat.ITF);
     vector.addElement(BarcodeFormat.QR_CODE);
     hints.put(DecodeHintType.POSSIBLE_FORMATS, vector);
-    multiFormatReader.setHints(hints);
+    regionTracker.setHints(hints);
+  }
+
+  /**
+   * Decodes the newest frame from the camera, if there is one. If another frame arrived in the
+   * meantime, queues a message to decode that one next, so that quit messages still get through
+   * while the camera keeps us busy.
+   */
+  private void decodeNextFrame() {
+    FrameRing ring = CameraManager.get().getFrameRing();
+    FrameRing.Frame frame = ring.take();
+    if (frame == null) {
+      return;
+    }
+    boolean success = decode(frame, ring);
+    if (ring.release(frame) && !success) {
+      handler.sendEmptyMessage(R.id.decode);
+    }
+    if (showFrameStats) {
+      updateFrameStats(ring);
+    }
   }
 
   /**
    * Decode the data within the viewfinder rectangle, and time how long it took. For efficiency,
-   * reuse the same reader objects from one decode to the next.
+   * reuse the same reader objects, and the frame's LuminanceSource, from one decode to the next.
    *
-   * @param data   The YUV preview frame.
-   * @param width  The width of the preview frame.
-   * @param height The height of the preview frame.
+   * @param frame The YUV preview frame.
+   * @param ring  The ring the frame came from, which stops taking frames once one decodes.
+   * @return true if a barcode was found.
    */
-  private void decode(byte[] data, int width, int height) {
+  private boolean decode(FrameRing.Frame frame, FrameRing ring) {
     long start = System.currentTimeMillis();
-    boolean success;
-    Result rawResult = null;
-    BaseLuminanceSource source = CameraManager.get().buildLuminanceSource(data, width, height);
-    BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(source));
-    try {
-      rawResult = multiFormatReader.decodeWithState(bitmap);
-      success = true;
-    } catch (ReaderException e) {
-      success = false;
+    BaseLuminanceSource source = frame.source;
+    // Derive each frame's Binarizer from the last one, so that it can reuse its buffers.
+    if (binarizer == null) {
+      binarizer = useAdaptiveBinarizer ? (Binarizer) new IntegralImageBinarizer(source) :
+          new GlobalHistogramBinarizer(source);
     }
+    BinaryBitmap bitmap = new BinaryBitmap(frame.nextBinarizer(binarizer));
+    // Most frames contain no barcode, so use the entry point which doesn't throw in that case.
+    boolean success = regionTracker.tryDecode(bitmap, resultHolder);
+    Result rawResult = resultHolder.getResult();
+    resultHolder.clear();
     long end = System.currentTimeMillis();
+    framesDecoded++;
+    totalDecodeTime += end - start;
+    totalLatency += end - frame.getTimestamp();
 
+    if (logVerbose) {
+      Log.v(TAG, "Binarization cache: " + bitmap.getCacheHits() + " hits, " +
+          bitmap.getCacheMisses() + " misses");
+      Log.v(TAG, "Region tracking: " + regionTracker.getRegionHits() + " of " +
+          regionTracker.getRegionAttempts() + " regions hit, " +
+          regionTracker.getFullFrameAttempts() + " full frames");
+    }
     if (success) {
+      // Don't decode any more frames until the capture activity asks for them again.
+      ring.stop();
       Log.v(TAG, "Found barcode (" + (end - start) + " ms):\n" + rawResult.toString());
       Message message = Message.obtain(activity.getHandler(), R.id.decode_succeeded, rawResult);
       Bundle bundle = new Bundle();
       bundle.putParcelable(BARCODE_BITMAP, source.renderCroppedGreyscaleBitmap());
       message.setData(bundle);
       message.sendToTarget();
-    } else {
-      Message message = Message.obtain(activity.getHandler(), R.id.decode_failed);
-      message.sendToTarget();
     }
+    // A frame without a barcode isn't reported: the activity stays in PREVIEW while frames
+    // stream in, so telling it would only wake the UI thread for nothing.
+    return success;
+  }
+
+  /**
+   * Once a second, sends the capture activity a summary of how fast frames are arriving and
+   * being decoded, for the debug overlay.
+   */
+  private void updateFrameStats(FrameRing ring) {
+    long now = System.currentTimeMillis();
+    if (statsStart == 0L) {
+      statsStart = now;
+      statsFramesOffered = ring.getFramesOffered();
+      statsFramesDropped = ring.getFramesDropped();
+      statsGcCount = Debug.getGlobalGcInvocationCount();
+      return;
+    }
+    long elapsed = now - statsStart;
+    if (elapsed < STATS_INTERVAL || framesDecoded == 0) {
+      return;
+    }
+    int framesOffered = ring.getFramesOffered();
+    int framesDropped = ring.getFramesDropped();
+    int gcCount = Debug.getGlobalGcInvocationCount();
+    String stats = activity.getString(R.string.msg_frame_stats,
+        framesDecoded * 1000L / elapsed,
+        (framesOffered - statsFramesOffered) * 1000L / elapsed,
+        framesDropped - statsFramesDropped,
+        totalDecodeTime / framesDecoded,
+        totalLatency / framesDecoded,
+        gcCount - statsGcCount);
+    Message.obtain(activity.getHandler(), R.id.frame_stats, stats).sendToTarget();
+
+    statsStart = now;
+    statsFramesOffered = framesOffered;
+    statsFramesDropped = framesDropped;
+    statsGcCount = gcCount;
+    framesDecoded = 0;
+    totalDecodeTime = 0L;
+    totalLatency = 0L;
   }
 }
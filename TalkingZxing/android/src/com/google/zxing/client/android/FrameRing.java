@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.android;
+
+import com.google.zxing.Binarizer;
+
+/**
+ * A fixed set of preview buffers shared by the camera and DecodeThread, so that continuous
+ * scanning doesn't allocate a new frame, LuminanceSource and Binarizer every time.
+ *
+ * Each buffer is idle, queued at the camera, pending once it holds the newest complete frame, or
+ * being decoded by DecodeThread. With three buffers the camera can capture frame N+1 while frame
+ * N is being decoded, and at most one frame ever waits: a newer frame replaces a pending one
+ * instead of queueing behind it, so the decoder always works on the most recent picture.
+ *
+ * The camera calls offer() and DecodeThread calls take() and release(), on different threads.
+ */
+final class FrameRing {
+
+  private static final int NUM_FRAMES = 3;
+
+  private static final int FREE = 0;
+  private static final int CAMERA = 1;
+  private static final int PENDING = 2;
+  private static final int DECODING = 3;
+
+  /**
+   * One preview buffer, with the LuminanceSource and Binarizer which read it. They stay attached
+   * to the buffer for as long as the preview size doesn't change.
+   */
+  static final class Frame {
+    final byte[] data;
+    final BaseLuminanceSource source;
+    private Binarizer binarizer;
+    private int state;
+    private long timestamp;
+
+    private Frame(byte[] data, BaseLuminanceSource source) {
+      this.data = data;
+      this.source = source;
+      state = FREE;
+    }
+
+    /**
+     * @return when the camera delivered this frame, in milliseconds
+     */
+    long getTimestamp() {
+      return timestamp;
+    }
+
+    /**
+     * Binarizers cache their result, so each frame needs a fresh one, but it is derived from the
+     * previous one for the same buffer so that scratch space such as the integral image is reused.
+     *
+     * @param prototype The Binarizer to start from if this buffer hasn't been decoded before.
+     * @return A Binarizer for the current contents of this buffer.
+     */
+    Binarizer nextBinarizer(Binarizer prototype) {
+      binarizer = binarizer == null ? prototype.createBinarizer(source) :
+          binarizer.createBinarizer(source);
+      return binarizer;
+    }
+  }
+
+  /**
+   * Hands free buffers back to the camera, on devices which let us supply them.
+   */
+  interface BufferRecycler {
+    void recycle(byte[] buffer);
+  }
+
+  private final Frame[] frames;
+  private final BufferRecycler recycler;
+  private boolean accepting;
+  private int framesOffered;
+  private int framesDropped;
+
+  /**
+   * @param frameSize The number of bytes in one preview frame.
+   * @param width The width of the preview frame.
+   * @param height The height of the preview frame.
+   * @param recycler Receives each buffer whenever it becomes free, or null if the camera allocates
+   *                 its own frames, in which case offer() copies them into the ring.
+   */
+  FrameRing(int frameSize, int width, int height, BufferRecycler recycler) {
+    this.recycler = recycler;
+    frames = new Frame[NUM_FRAMES];
+    CameraManager cameraManager = CameraManager.get();
+    for (int i = 0; i < NUM_FRAMES; i++) {
+      byte[] data = new byte[frameSize];
+      frames[i] = new Frame(data, cameraManager.buildLuminanceSource(data, width, height));
+    }
+  }
+
+  /**
+   * @return true if this ring holds frames of the given size.
+   */
+  boolean fits(int frameSize, int width, int height) {
+    BaseLuminanceSource source = frames[0].source;
+    return frames[0].data.length == frameSize && source.getDataWidth() == width &&
+        source.getDataHeight() == height;
+  }
+
+  /**
+   * Starts accepting frames, and gives every free buffer to the camera.
+   */
+  synchronized void start() {
+    accepting = true;
+    for (Frame frame : frames) {
+      if (frame.state == PENDING) {
+        frame.state = FREE;
+      }
+      if (frame.state == FREE) {
+        giveToCamera(frame);
+      }
+    }
+  }
+
+  /**
+   * Stops accepting frames, for example once a barcode has been found. Any pending frame is
+   * discarded, and the camera is assumed to have dropped the buffers it was holding, as it does
+   * when its preview callback is removed.
+   */
+  synchronized void stop() {
+    accepting = false;
+    for (Frame frame : frames) {
+      if (frame.state == PENDING || frame.state == CAMERA) {
+        frame.state = FREE;
+      }
+    }
+  }
+
+  /**
+   * Called by the camera with each new preview frame.
+   *
+   * @param data The frame, which is one of our buffers if we supplied them to the camera.
+   * @return true if DecodeThread was idle and needs to be told about the frame, false if it was
+   *         busy (it will pick up the frame when it finishes) or the frame was not accepted.
+   */
+  synchronized boolean offer(byte[] data) {
+    Frame frame = null;
+    if (recycler != null) {
+      for (Frame candidate : frames) {
+        if (candidate.data == data) {
+          frame = candidate;
+          break;
+        }
+      }
+      if (frame == null) {
+        // Left over from before the preview size changed
+        return false;
+      }
+    }
+    if (!accepting || (frame != null && frame.state != CAMERA)) {
+      if (frame != null && frame.state == CAMERA) {
+        frame.state = FREE;
+      }
+      return false;
+    }
+    framesOffered++;
+
+    boolean decoding = false;
+    Frame stale = null;
+    for (Frame candidate : frames) {
+      if (candidate.state == DECODING) {
+        decoding = true;
+      } else if (candidate.state == PENDING) {
+        stale = candidate;
+      }
+    }
+    if (stale != null) {
+      // Only the newest frame is worth decoding
+      stale.state = FREE;
+      framesDropped++;
+    }
+
+    if (frame == null) {
+      // The camera allocated this frame itself, so copy it into a free buffer
+      for (Frame candidate : frames) {
+        if (candidate.state == FREE) {
+          frame = candidate;
+          break;
+        }
+      }
+      System.arraycopy(data, 0, frame.data, 0, Math.min(data.length, frame.data.length));
+    }
+    frame.state = PENDING;
+    frame.timestamp = System.currentTimeMillis();
+
+    if (stale != null) {
+      giveToCamera(stale);
+    }
+    // If a frame was already pending, DecodeThread has already been told
+    return !decoding && stale == null;
+  }
+
+  /**
+   * @return The newest frame, now owned by the caller until release(), or null if there is none.
+   */
+  synchronized Frame take() {
+    for (Frame frame : frames) {
+      if (frame.state == PENDING) {
+        frame.state = DECODING;
+        return frame;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gives a decoded frame's buffer back to the camera.
+   *
+   * @param frame A frame returned by take().
+   * @return true if another frame is already waiting. The camera didn't wake DecodeThread for it,
+   *         since it was busy, so the caller has to.
+   */
+  synchronized boolean release(Frame frame) {
+    frame.state = FREE;
+    if (accepting) {
+      giveToCamera(frame);
+    }
+    for (Frame candidate : frames) {
+      if (candidate.state == PENDING) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void giveToCamera(Frame frame) {
+    if (recycler != null) {
+      frame.state = CAMERA;
+      recycler.recycle(frame.data);
+    }
+  }
+
+  synchronized int getFramesOffered() {
+    return framesOffered;
+  }
+
+  synchronized int getFramesDropped() {
+    return framesDropped;
+  }
+
+}
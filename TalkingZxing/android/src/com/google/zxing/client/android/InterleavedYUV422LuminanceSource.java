@@ -36,6 +36,9 @@ public final class InterleavedYUV422LuminanceSource extends BaseLuminanceSource
   private final int dataHeight;
   private final int left;
   private final int top;
+  // Reused by getMatrix(), since capture keeps one source per preview buffer. Callers only read
+  // the result until they ask for the next frame.
+  private byte[] matrix;
 
   public InterleavedYUV422LuminanceSource(byte[] yuvData, int dataWidth, int dataHeight,
       int left, int top, int width, int height) {
@@ -74,7 +77,9 @@ public final class InterleavedYUV422LuminanceSource extends BaseLuminanceSource
     int width = getWidth();
     int height = getHeight();
     int area = width * height;
-    byte[] matrix = new byte[area];
+    if (matrix == null || matrix.length < area) {
+      matrix = new byte[area];
+    }
     int inputOffset = top * dataWidth * 2 + (left * 2);
     byte[] yuv = yuvData;
 
@@ -95,8 +100,8 @@ public final class InterleavedYUV422LuminanceSource extends BaseLuminanceSource
 
   @Override
   public LuminanceSource crop(int left, int top, int width, int height) {
-    return new InterleavedYUV422LuminanceSource(yuvData, dataWidth, dataHeight, left, top,
-        width, height);
+    return new InterleavedYUV422LuminanceSource(yuvData, dataWidth, dataHeight, this.left + left,
+        this.top + top, width, height);
   }
 
   @Override
@@ -36,6 +36,9 @@ public final class PlanarYUVLuminanceSource extends BaseLuminanceSource {
   private final int dataHeight;
   private final int left;
   private final int top;
+  // Reused by getMatrix(), since capture keeps one source per preview buffer. Callers only read
+  // the result until they ask for the next frame.
+  private byte[] matrix;
 
   public PlanarYUVLuminanceSource(byte[] yuvData, int dataWidth, int dataHeight, int left, int top,
       int width, int height) {
@@ -78,7 +81,9 @@ public final class PlanarYUVLuminanceSource extends BaseLuminanceSource {
     }
 
     int area = width * height;
-    byte[] matrix = new byte[area];
+    if (matrix == null || matrix.length < area) {
+      matrix = new byte[area];
+    }
     int inputOffset = top * dataWidth + left;
 
     // If the width matches the full width of the underlying data, perform a single copy.
@@ -104,7 +109,8 @@ public final class PlanarYUVLuminanceSource extends BaseLuminanceSource {
 
   @Override
   public LuminanceSource crop(int left, int top, int width, int height) {
-    return new PlanarYUVLuminanceSource(yuvData, dataWidth, dataHeight, left, top, width, height);
+    return new PlanarYUVLuminanceSource(yuvData, dataWidth, dataHeight, this.left + left,
+        this.top + top, width, height);
   }
 
   @Override
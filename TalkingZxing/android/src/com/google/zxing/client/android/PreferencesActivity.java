@@ -33,6 +33,8 @@ public final class PreferencesActivity extends PreferenceActivity
 
   static final String KEY_DECODE_1D = "preferences_decode_1D";
   static final String KEY_DECODE_QR = "preferences_decode_QR";
+  static final String KEY_ADAPTIVE_BINARIZER = "preferences_adaptive_binarizer";
+  static final String KEY_FRAME_STATS = "preferences_frame_stats";
   public static final String KEY_CUSTOM_PRODUCT_SEARCH = "preferences_custom_product_search";
 
   static final String KEY_PLAY_BEEP = "preferences_play_beep";
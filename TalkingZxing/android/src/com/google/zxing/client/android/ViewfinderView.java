@@ -20,6 +20,7 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.util.AttributeSet;
@@ -27,13 +28,15 @@ import android.view.View;
 
 /**
  * This view is overlaid on top of the camera preview. It adds the viewfinder rectangle and partial
- * transparency outside it, as well as the laser scanner animation and result points.
+ * transparency outside it, as well as the laser scanner animation and result points. When enabled
+ * in the preferences, frame statistics from DecodeThread are drawn in the top left corner.
  *
  * @author dswitkin@google.com (Daniel Switkin)
  */
 public final class ViewfinderView extends View {
   private static final int[] SCANNER_ALPHA = {0, 64, 128, 192, 255, 192, 128, 64};
   private static final long ANIMATION_DELAY = 100L;
+  private static final float STATS_TEXT_SIZE = 14.0f;
 
   private final Paint paint;
   private final Rect box;
@@ -43,6 +46,7 @@ public final class ViewfinderView extends View {
   private final int frameColor;
   private final int laserColor;
   private int scannerAlpha;
+  private String[] frameStats;
 
   // This constructor is used when the class is built from an XML resource.
   public ViewfinderView(Context context, AttributeSet attrs) {
@@ -104,6 +108,16 @@ public final class ViewfinderView extends View {
       // Request another update at the animation interval, but only repaint the laser line,
       // not the entire viewfinder mask.
       postInvalidateDelayed(ANIMATION_DELAY, box.left, box.top, box.right, box.bottom);
+
+      if (frameStats != null) {
+        paint.setColor(Color.WHITE);
+        paint.setTextSize(STATS_TEXT_SIZE);
+        float y = frame.top + STATS_TEXT_SIZE + 4.0f;
+        for (String line : frameStats) {
+          canvas.drawText(line, frame.left + 4.0f, y, paint);
+          y += STATS_TEXT_SIZE + 2.0f;
+        }
+      }
     }
   }
 
@@ -112,6 +126,16 @@ public final class ViewfinderView extends View {
     invalidate();
   }
 
+  /**
+   * Shows frame statistics over the viewfinder, until the next call.
+   *
+   * @param stats One or more lines of text, separated by newlines.
+   */
+  public void drawFrameStats(String stats) {
+    frameStats = stats.split("\n");
+    invalidate();
+  }
+
   /**
    * Draw a bitmap with the result points highlighted instead of the live scanning display.
    *
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.benchmark;
+
+import com.google.zxing.LuminanceSource;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Loads one of the black box test directories and converts every image in it to luminance data,
+ * using the same weights as the J2SE client. Benchmarks then step through the frames round robin,
+ * so a single measured operation always means "one frame".
+ */
+final class BenchmarkImages {
+
+  private static final FilenameFilter IMAGE_NAME_FILTER = new FilenameFilter() {
+    public boolean accept(File dir, String name) {
+      String lowerCase = name.toLowerCase();
+      return lowerCase.endsWith(".jpg") || lowerCase.endsWith(".jpeg") ||
+             lowerCase.endsWith(".gif") || lowerCase.endsWith(".png");
+    }
+  };
+
+  private final byte[][] frames;
+  private final int[] widths;
+  private final int[] heights;
+  private int next;
+
+  private BenchmarkImages(byte[][] frames, int[] widths, int[] heights) {
+    this.frames = frames;
+    this.widths = widths;
+    this.heights = heights;
+    next = 0;
+  }
+
+  /**
+   * @param corpus A directory under test/data/blackbox, for example "qrcode-1".
+   * @return The frames of that directory, sorted by file name so runs are repeatable.
+   */
+  static BenchmarkImages load(String corpus) throws IOException {
+    File base = new File("test/data/blackbox/" + corpus);
+    if (!base.exists()) {
+      // try starting with 'core' since the benchmark may be run from the project root
+      base = new File("core/test/data/blackbox/" + corpus);
+    }
+    File[] files = base.listFiles(IMAGE_NAME_FILTER);
+    if (files == null || files.length == 0) {
+      throw new IOException("No images found in " + base.getAbsolutePath() +
+          "; please run from the 'core' directory");
+    }
+    Arrays.sort(files);
+
+    List<byte[]> frames = new ArrayList<byte[]>(files.length);
+    int[] widths = new int[files.length];
+    int[] heights = new int[files.length];
+    for (int i = 0; i < files.length; i++) {
+      BufferedImage image = ImageIO.read(files[i]);
+      widths[i] = image.getWidth();
+      heights[i] = image.getHeight();
+      frames.add(toLuminance(image));
+    }
+    return new BenchmarkImages(frames.toArray(new byte[frames.size()][]), widths, heights);
+  }
+
+  int size() {
+    return frames.length;
+  }
+
+  /**
+   * @return A fresh LuminanceSource for the next frame in the corpus, wrapping around at the end.
+   */
+  LuminanceSource nextSource() {
+    int index = next;
+    next = index + 1 == frames.length ? 0 : index + 1;
+    return new BenchmarkLuminanceSource(frames[index], widths[index], heights[index]);
+  }
+
+  private static byte[] toLuminance(BufferedImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] rgbRow = new int[width];
+    byte[] luminances = new byte[width * height];
+    for (int y = 0; y < height; y++) {
+      image.getRGB(0, y, width, 1, rgbRow, 0, width);
+      int offset = y * width;
+      for (int x = 0; x < width; x++) {
+        int pixel = rgbRow[x];
+        // .299R + 0.587G + 0.114B (YUV/YIQ for PAL and NTSC), with 10 bits of fixed point
+        luminances[offset + x] = (byte) ((306 * ((pixel >> 16) & 0xFF) +
+            601 * ((pixel >> 8) & 0xFF) + 117 * (pixel & 0xFF)) >> 10);
+      }
+    }
+    return luminances;
+  }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.benchmark;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * A LuminanceSource over a greyscale frame which was converted from an image once, up front. This
+ * keeps image decoding and color conversion out of the measured code, so the benchmarks only see
+ * the work a camera client would do with a preview frame.
+ */
+final class BenchmarkLuminanceSource extends LuminanceSource {
+
+  private final byte[] luminances;
+  private final int dataWidth;
+  private final int left;
+  private final int top;
+
+  BenchmarkLuminanceSource(byte[] luminances, int width, int height) {
+    this(luminances, width, 0, 0, width, height);
+  }
+
+  private BenchmarkLuminanceSource(byte[] luminances, int dataWidth, int left, int top, int width,
+      int height) {
+    super(width, height);
+    this.luminances = luminances;
+    this.dataWidth = dataWidth;
+    this.left = left;
+    this.top = top;
+  }
+
+  public byte[] getRow(int y, byte[] row) {
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    System.arraycopy(luminances, (y + top) * dataWidth + left, row, 0, width);
+    return row;
+  }
+
+  // Always returns a copy, like the camera sources do for cropped frames. LocalBlockBinarizer
+  // sharpens the matrix in place, so handing out the shared array would corrupt later iterations.
+  public byte[] getMatrix() {
+    int width = getWidth();
+    int height = getHeight();
+    byte[] matrix = new byte[width * height];
+    for (int y = 0; y < height; y++) {
+      System.arraycopy(luminances, (y + top) * dataWidth + left, matrix, y * width, width);
+    }
+    return matrix;
+  }
+
+  public boolean isCropSupported() {
+    return true;
+  }
+
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return new BenchmarkLuminanceSource(luminances, dataWidth, this.left + left, this.top + top,
+        width, height);
+  }
+
+}
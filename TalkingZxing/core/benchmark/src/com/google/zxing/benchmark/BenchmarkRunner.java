@@ -0,0 +1,53 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the "benchmark" Ant target. Runs every benchmark in this package, or only those
+ * matching the regular expression given as the first argument, with the GC profiler attached.
+ * The profiler's gc.alloc.rate.norm column is the number of bytes allocated per operation, which
+ * for the decoding benchmarks means per frame. Throughput and the sample time percentiles
+ * (p0.50, p0.90, p0.99 ...) come from the modes declared on each benchmark class.
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName();
+    ChainedOptionsBuilder options = new OptionsBuilder()
+        .include(include)
+        .addProfiler(GCProfiler.class)
+        .forks(1)
+        .warmupIterations(3)
+        .measurementIterations(5);
+    if (args.length > 1) {
+      // Machine readable results, e.g. for comparing two builds with a JMH visualizer.
+      options.resultFormat(ResultFormatType.JSON).result(args[1]);
+    }
+    new Runner(options.build()).run();
+  }
+
+}
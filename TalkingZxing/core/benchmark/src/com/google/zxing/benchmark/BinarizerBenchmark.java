@@ -0,0 +1,97 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.benchmark;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.IntegralImageBinarizer;
+import com.google.zxing.common.LocalBlockBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of turning one frame of luminance data into 1 bit data, for each of the
+ * Binarizer implementations. A new Binarizer is created for each frame, as BinaryBitmap does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BinarizerBenchmark {
+
+  @Param({"GlobalHistogram", "LocalBlock", "IntegralImage"})
+  public String binarizer;
+
+  @Param({"qrcode-2", "ean13-1"})
+  public String corpus;
+
+  private BenchmarkImages images;
+  private Binarizer prototype;
+  private BitArray row;
+
+  @Setup
+  public void setUp() throws IOException {
+    images = BenchmarkImages.load(corpus);
+    LuminanceSource first = images.nextSource();
+    if ("GlobalHistogram".equals(binarizer)) {
+      prototype = new GlobalHistogramBinarizer(first);
+    } else if ("LocalBlock".equals(binarizer)) {
+      prototype = new LocalBlockBinarizer(first);
+    } else if ("IntegralImage".equals(binarizer)) {
+      prototype = new IntegralImageBinarizer(first);
+    } else {
+      throw new IllegalArgumentException("Unknown binarizer: " + binarizer);
+    }
+  }
+
+  @Benchmark
+  public BitMatrix blackMatrix() {
+    try {
+      return prototype.createBinarizer(images.nextSource()).getBlackMatrix();
+    } catch (ReaderException re) {
+      // Too little contrast to pick a black point; this is a valid (and cheap) outcome.
+      return null;
+    }
+  }
+
+  // The 1D Readers fetch a handful of rows rather than the whole matrix, so measure the middle
+  // row on its own too.
+  @Benchmark
+  public BitArray blackRow() {
+    LuminanceSource source = images.nextSource();
+    try {
+      row = prototype.createBinarizer(source).getBlackRow(source.getHeight() >> 1, row);
+      return row;
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.benchmark;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures MultiFormatReader the way a continuous scan client drives it: the hints are set once,
+ * then every frame gets a new BinaryBitmap and goes through decodeWithState(). Frames which do not
+ * decode still count, since "no barcode here" is the common case on a phone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MultiFormatReaderBenchmark {
+
+  @Param({"qrcode-1", "qrcode-2", "ean13-1", "upca-1", "code128-1", "falsepositives"})
+  public String corpus;
+
+  private BenchmarkImages images;
+  private MultiFormatReader reader;
+
+  @Setup
+  public void setUp() throws IOException {
+    images = BenchmarkImages.load(corpus);
+    reader = new MultiFormatReader();
+    reader.setHints(null);
+  }
+
+  @Benchmark
+  public Result decode() {
+    BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(images.nextSource()));
+    try {
+      return reader.decodeWithState(bitmap);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+}
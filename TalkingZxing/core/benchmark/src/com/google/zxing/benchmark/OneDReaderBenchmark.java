@@ -0,0 +1,99 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.benchmark;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.oned.Code128Reader;
+import com.google.zxing.oned.Code39Reader;
+import com.google.zxing.oned.EAN13Reader;
+import com.google.zxing.oned.EAN8Reader;
+import com.google.zxing.oned.ITFReader;
+import com.google.zxing.oned.UPCAReader;
+import com.google.zxing.oned.UPCEReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each 1D Reader on its own, over the black box images for its format. This isolates
+ * the row scanning and pattern matching from the format dispatch in MultiFormatOneDReader.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OneDReaderBenchmark {
+
+  @Param({"EAN_13", "EAN_8", "UPC_A", "UPC_E", "CODE_39", "CODE_128", "ITF"})
+  public String format;
+
+  private BenchmarkImages images;
+  private Reader reader;
+
+  @Setup
+  public void setUp() throws IOException {
+    String corpus;
+    if ("EAN_13".equals(format)) {
+      reader = new EAN13Reader();
+      corpus = "ean13-1";
+    } else if ("EAN_8".equals(format)) {
+      reader = new EAN8Reader();
+      corpus = "ean8-1";
+    } else if ("UPC_A".equals(format)) {
+      reader = new UPCAReader();
+      corpus = "upca-1";
+    } else if ("UPC_E".equals(format)) {
+      reader = new UPCEReader();
+      corpus = "upce-1";
+    } else if ("CODE_39".equals(format)) {
+      reader = new Code39Reader();
+      corpus = "code39-1";
+    } else if ("CODE_128".equals(format)) {
+      reader = new Code128Reader();
+      corpus = "code128-1";
+    } else if ("ITF".equals(format)) {
+      reader = new ITFReader();
+      corpus = "itf-1";
+    } else {
+      throw new IllegalArgumentException("Unknown format: " + format);
+    }
+    images = BenchmarkImages.load(corpus);
+  }
+
+  @Benchmark
+  public Result decode() {
+    BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(images.nextSource()));
+    try {
+      return reader.decode(bitmap);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+}
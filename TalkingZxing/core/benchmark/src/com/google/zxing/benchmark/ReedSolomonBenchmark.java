@@ -0,0 +1,206 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.benchmark;
+
+import com.google.zxing.common.reedsolomon.GF256;
+import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
+import com.google.zxing.common.reedsolomon.ReedSolomonEncoder;
+import com.google.zxing.common.reedsolomon.ReedSolomonException;
+import com.google.zxing.common.reedsolomon.TableReedSolomonDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ReedSolomonDecoder against TableReedSolomonDecoder on single blocks. The QR Code blocks are the smallest and largest
+ * shapes the QR decoder sees (version 1-M and version 40-L), filled with random data and then
+ * corrupted with either no errors or as many errors as the block can correct. The encoder only
+ * supports the QR Code field, so Data Matrix uses the example block from the unit tests.
+ * decodeQRCodeSymbol corrects a whole version 40-L symbol's worth of blocks (19 + 6 blocks of
+ * 118 + 30 and 119 + 30) in one decodeBlocks() call, against the same blocks one at a time through
+ * ReedSolomonDecoder as the QR decoder used to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReedSolomonBenchmark {
+
+  private static final int NUM_BLOCKS = 64;
+
+  private static final int[] DM_CODE_TEST_WITH_EC = { 142, 164, 186, 114, 25, 5, 88, 102 };
+  private static final int DM_CODE_ECC_BYTES = 5;
+
+  // Data codewords + error correction codewords
+  @Param({"16+10", "118+30"})
+  public String shape;
+
+  @Param({"none", "max"})
+  public String errors;
+
+  private final ReedSolomonDecoder qrDecoder = new ReedSolomonDecoder(GF256.QR_CODE_FIELD);
+  private final ReedSolomonDecoder dmDecoder = new ReedSolomonDecoder(GF256.DATA_MATRIX_FIELD);
+  private final TableReedSolomonDecoder qrTableDecoder =
+      new TableReedSolomonDecoder(GF256.QR_CODE_FIELD);
+  private final TableReedSolomonDecoder dmTableDecoder =
+      new TableReedSolomonDecoder(GF256.DATA_MATRIX_FIELD);
+
+  private int ecBytes;
+  private int[][] qrBlocks;
+  private int[][] dmBlocks;
+  private int[] qrReceived;
+  private int[] dmReceived;
+  private byte[] qrReceivedBytes;
+  private byte[] dmReceivedBytes;
+  private int[][] symbolBlocks;
+  private byte[][] symbolReceived;
+  private int[] symbolECBytes;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    int plus = shape.indexOf('+');
+    int dataBytes = Integer.parseInt(shape.substring(0, plus));
+    ecBytes = Integer.parseInt(shape.substring(plus + 1));
+    boolean corrupt = "max".equals(errors);
+
+    Random random = new Random(0xDEADBEEFL);
+    ReedSolomonEncoder encoder = new ReedSolomonEncoder(GF256.QR_CODE_FIELD);
+    qrBlocks = new int[NUM_BLOCKS][];
+    dmBlocks = new int[NUM_BLOCKS][];
+    for (int i = 0; i < NUM_BLOCKS; i++) {
+      int[] block = new int[dataBytes + ecBytes];
+      for (int j = 0; j < dataBytes; j++) {
+        block[j] = random.nextInt(256);
+      }
+      encoder.encode(block, ecBytes);
+      int[] dmBlock = new int[DM_CODE_TEST_WITH_EC.length];
+      System.arraycopy(DM_CODE_TEST_WITH_EC, 0, dmBlock, 0, dmBlock.length);
+      if (corrupt) {
+        corrupt(block, ecBytes / 2, random);
+        corrupt(dmBlock, DM_CODE_ECC_BYTES / 2, random);
+      }
+      qrBlocks[i] = block;
+      dmBlocks[i] = dmBlock;
+    }
+    qrReceived = new int[dataBytes + ecBytes];
+    dmReceived = new int[DM_CODE_TEST_WITH_EC.length];
+    qrReceivedBytes = new byte[dataBytes + ecBytes];
+    dmReceivedBytes = new byte[DM_CODE_TEST_WITH_EC.length];
+
+    // Version 40-L
+    symbolBlocks = new int[25][];
+    symbolReceived = new byte[25][];
+    symbolECBytes = new int[25];
+    for (int i = 0; i < symbolBlocks.length; i++) {
+      int[] block = new int[(i < 19 ? 118 : 119) + 30];
+      for (int j = 0; j < block.length - 30; j++) {
+        block[j] = random.nextInt(256);
+      }
+      encoder.encode(block, 30);
+      if (corrupt) {
+        corrupt(block, 15, random);
+      }
+      symbolBlocks[i] = block;
+      symbolReceived[i] = new byte[block.length];
+      symbolECBytes[i] = 30;
+    }
+    next = 0;
+  }
+
+  @Benchmark
+  public int[] decodeQRCode() throws ReedSolomonException {
+    System.arraycopy(qrBlocks[next], 0, qrReceived, 0, qrReceived.length);
+    next = (next + 1) % NUM_BLOCKS;
+    qrDecoder.decode(qrReceived, ecBytes);
+    return qrReceived;
+  }
+
+  @Benchmark
+  public int[] decodeDataMatrix() throws ReedSolomonException {
+    System.arraycopy(dmBlocks[next], 0, dmReceived, 0, dmReceived.length);
+    next = (next + 1) % NUM_BLOCKS;
+    dmDecoder.decode(dmReceived, DM_CODE_ECC_BYTES);
+    return dmReceived;
+  }
+
+  @Benchmark
+  public byte[] decodeQRCodeTable() throws ReedSolomonException {
+    toBytes(qrBlocks[next], qrReceivedBytes);
+    next = (next + 1) % NUM_BLOCKS;
+    qrTableDecoder.decode(qrReceivedBytes, ecBytes);
+    return qrReceivedBytes;
+  }
+
+  @Benchmark
+  public byte[] decodeDataMatrixTable() throws ReedSolomonException {
+    toBytes(dmBlocks[next], dmReceivedBytes);
+    next = (next + 1) % NUM_BLOCKS;
+    dmTableDecoder.decode(dmReceivedBytes, DM_CODE_ECC_BYTES);
+    return dmReceivedBytes;
+  }
+
+  @Benchmark
+  public byte[][] decodeQRCodeSymbol() throws ReedSolomonException {
+    for (int i = 0; i < symbolBlocks.length; i++) {
+      int[] block = symbolBlocks[i];
+      int[] received = new int[block.length];
+      System.arraycopy(block, 0, received, 0, block.length);
+      qrDecoder.decode(received, symbolECBytes[i]);
+      toBytes(received, symbolReceived[i]);
+    }
+    return symbolReceived;
+  }
+
+  @Benchmark
+  public byte[][] decodeQRCodeSymbolTable() throws ReedSolomonException {
+    for (int i = 0; i < symbolBlocks.length; i++) {
+      toBytes(symbolBlocks[i], symbolReceived[i]);
+    }
+    qrTableDecoder.decodeBlocks(symbolReceived, symbolECBytes);
+    return symbolReceived;
+  }
+
+  private static void toBytes(int[] codewords, byte[] bytes) {
+    for (int i = 0; i < codewords.length; i++) {
+      bytes[i] = (byte) codewords[i];
+    }
+  }
+
+  // Same approach as AbstractReedSolomonTestCase: overwrite distinct positions with new values.
+  private static void corrupt(int[] received, int howMany, Random random) {
+    boolean[] corrupted = new boolean[received.length];
+    for (int j = 0; j < howMany; j++) {
+      int location = random.nextInt(received.length);
+      if (corrupted[location]) {
+        j--;
+      } else {
+        corrupted[location] = true;
+        received[location] = (received[location] + 1 + random.nextInt(255)) & 0xFF;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.cli;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.imageio.ImageIO;
+
+/**
+ * <p>Decodes every image in one or more directory trees with MultiFormatReader, without a device,
+ * so that decoding throughput on a corpus of captured frames can be regression tested on a build
+ * server. The images are decoded in parallel on a fork/join pool.</p>
+ *
+ * <p>Each image produces one JSON object on its own line of standard output, in the order the
+ * images finish. If an image has a text file of the same name next to it, as in the black box
+ * test directories, the decoded text is compared with it. An image that cannot be read, or that
+ * makes a decoder throw, gets an "error" line and the run carries on. A summary with the number
+ * of images per second, the success rate for each format and the number of errors goes to
+ * standard error at the end.</p>
+ *
+ * <p>Usage: <code>BatchDecoder [--try_harder] [--threads=N] [--output=file] directory...</code></p>
+ */
+public final class BatchDecoder {
+
+  private static final FilenameFilter IMAGE_NAME_FILTER = new FilenameFilter() {
+    public boolean accept(File dir, String name) {
+      String lowerCase = name.toLowerCase();
+      return lowerCase.endsWith(".jpg") || lowerCase.endsWith(".jpeg") ||
+             lowerCase.endsWith(".gif") || lowerCase.endsWith(".png");
+    }
+  };
+
+  // Fork until there are no more than this many images left in a task.
+  private static final int IMAGES_PER_TASK = 4;
+
+  private static final String NOT_FOUND = "none";
+  // Counted like a format, for the images that produced an "error" line.
+  private static final String ERROR = "error";
+
+  private final Hashtable<DecodeHintType, Object> hints;
+  private final PrintWriter output;
+  // Per format, NOT_FOUND or ERROR: {decoded, checked against an expected text, correct}. Guarded by
+  // itself.
+  private final Map<String, int[]> counts = new TreeMap<String, int[]>();
+
+  private BatchDecoder(Hashtable<DecodeHintType, Object> hints, PrintWriter output) {
+    this.hints = hints;
+    this.output = output;
+  }
+
+  public static void main(String[] args) throws IOException {
+    boolean tryHarder = false;
+    int threads = Runtime.getRuntime().availableProcessors();
+    String outputFile = null;
+    List<File> directories = new ArrayList<File>();
+    for (String arg : args) {
+      if ("--try_harder".equals(arg)) {
+        tryHarder = true;
+      } else if (arg.startsWith("--threads=")) {
+        threads = Integer.parseInt(arg.substring("--threads=".length()));
+      } else if (arg.startsWith("--output=")) {
+        outputFile = arg.substring("--output=".length());
+      } else if (arg.startsWith("--")) {
+        printUsage();
+        return;
+      } else {
+        directories.add(new File(arg));
+      }
+    }
+    if (directories.isEmpty() || threads < 1) {
+      printUsage();
+      return;
+    }
+
+    List<File> images = new ArrayList<File>();
+    for (File directory : directories) {
+      if (!directory.isDirectory()) {
+        System.err.println("Not a directory: " + directory);
+        System.exit(1);
+      }
+      findImages(directory, images);
+    }
+
+    Hashtable<DecodeHintType, Object> hints = new Hashtable<DecodeHintType, Object>();
+    if (tryHarder) {
+      hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+    }
+    PrintWriter output = new PrintWriter(new OutputStreamWriter(outputFile == null ?
+        System.out : new FileOutputStream(outputFile), Charset.forName("UTF-8")));
+    BatchDecoder decoder = new BatchDecoder(hints, output);
+
+    long start = System.nanoTime();
+    new ForkJoinPool(threads).invoke(decoder.new DecodeTask(images, 0, images.size()));
+    long elapsed = System.nanoTime() - start;
+    output.flush();
+    if (outputFile != null) {
+      output.close();
+    }
+    decoder.printSummary(images.size(), elapsed, threads);
+  }
+
+  private static void printUsage() {
+    System.err.println("Usage: BatchDecoder [--try_harder] [--threads=N] [--output=file] " +
+        "directory...");
+    System.err.println("  Decodes every image under the directories and prints one JSON line each");
+  }
+
+  private static void findImages(File directory, List<File> images) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    // Sorted, so that runs over the same corpus split the work the same way
+    Arrays.sort(files);
+    for (File file : files) {
+      if (file.isDirectory()) {
+        findImages(file, images);
+      } else if (IMAGE_NAME_FILTER.accept(directory, file.getName())) {
+        images.add(file);
+      }
+    }
+  }
+
+  /**
+   * Decodes a range of the images, splitting it in half until it is small enough.
+   */
+  private final class DecodeTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<File> images;
+    private final int start;
+    private final int end;
+
+    DecodeTask(List<File> images, int start, int end) {
+      this.images = images;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start > IMAGES_PER_TASK) {
+        int middle = (start + end) >>> 1;
+        invokeAll(new DecodeTask(images, start, middle), new DecodeTask(images, middle, end));
+        return;
+      }
+      // MultiFormatReader is not thread safe, but a task only runs on one thread at a time.
+      MultiFormatReader reader = new MultiFormatReader();
+      reader.setHints(hints);
+      for (int i = start; i < end; i++) {
+        decode(reader, images.get(i));
+      }
+    }
+  }
+
+  private void decode(MultiFormatReader reader, File file) {
+    String expectedText;
+    BufferedImage image;
+    try {
+      expectedText = readExpectedText(file);
+      image = ImageIO.read(file);
+    } catch (IOException ioe) {
+      printError(file, ioe.toString());
+      return;
+    } catch (RuntimeException re) {
+      // ImageIO throws these on some malformed files
+      printError(file, re.toString());
+      return;
+    }
+    if (image == null) {
+      printError(file, "unreadable image");
+      return;
+    }
+
+    long start = System.nanoTime();
+    Result result;
+    try {
+      LuminanceSource source = new BufferedImageLuminanceSource(image);
+      result = reader.decodeWithState(new BinaryBitmap(new GlobalHistogramBinarizer(source)));
+    } catch (ReaderException re) {
+      result = null;
+    } catch (RuntimeException re) {
+      // A decoder bug on an odd image shouldn't stop the rest of the corpus
+      printError(file, re.toString());
+      return;
+    }
+    long micros = (System.nanoTime() - start) / 1000L;
+
+    String format = result == null ? NOT_FOUND : result.getBarcodeFormat().toString();
+    Boolean correct = expectedText == null || result == null ? null :
+        Boolean.valueOf(expectedText.equals(result.getText()));
+    count(format, expectedText != null, correct != null && correct.booleanValue());
+
+    StringBuilder line = new StringBuilder(256);
+    line.append("{\"file\":").append(quote(file.getPath()));
+    line.append(",\"micros\":").append(micros);
+    if (result == null) {
+      line.append(",\"format\":null");
+    } else {
+      line.append(",\"format\":").append(quote(format));
+      line.append(",\"text\":").append(quote(result.getText()));
+      line.append(",\"points\":[");
+      ResultPoint[] points = result.getResultPoints();
+      for (int i = 0; points != null && i < points.length; i++) {
+        if (i > 0) {
+          line.append(',');
+        }
+        line.append('[').append(points[i].getX()).append(',').append(points[i].getY()).append(']');
+      }
+      line.append(']');
+    }
+    if (expectedText != null) {
+      line.append(",\"correct\":").append(correct != null && correct.booleanValue());
+    }
+    line.append('}');
+    printLine(line.toString());
+  }
+
+  private void printError(File file, String message) {
+    count(ERROR, false, false);
+    printLine("{\"file\":" + quote(file.getPath()) + ",\"error\":" + quote(message) + '}');
+  }
+
+  private void printLine(String line) {
+    synchronized (output) {
+      output.println(line);
+    }
+  }
+
+  private void count(String format, boolean checked, boolean correct) {
+    synchronized (counts) {
+      int[] formatCounts = counts.get(format);
+      if (formatCounts == null) {
+        formatCounts = new int[3];
+        counts.put(format, formatCounts);
+      }
+      formatCounts[0]++;
+      if (checked) {
+        formatCounts[1]++;
+        if (correct) {
+          formatCounts[2]++;
+        }
+      }
+    }
+  }
+
+  private void printSummary(int numImages, long elapsedNanos, int threads) {
+    double seconds = elapsedNanos / 1.0e9;
+    System.err.println(numImages + " images in " + String.format("%.2f", seconds) + " s on " +
+        threads + (threads == 1 ? " thread: " : " threads: ") + String.format("%.1f", numImages / seconds) + " images/sec");
+    int found = 0;
+    int errors = 0;
+    int checked = 0;
+    int correct = 0;
+    synchronized (counts) {
+      for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+        int[] formatCounts = entry.getValue();
+        checked += formatCounts[1];
+        if (NOT_FOUND.equals(entry.getKey())) {
+          System.err.println("  not found: " + formatCounts[0]);
+          continue;
+        }
+        if (ERROR.equals(entry.getKey())) {
+          errors = formatCounts[0];
+          continue;
+        }
+        found += formatCounts[0];
+        correct += formatCounts[2];
+        System.err.println("  " + entry.getKey() + ": " + formatCounts[0] + " decoded" +
+            (formatCounts[1] == 0 ? "" : ", " + formatCounts[2] + '/' + formatCounts[1] +
+                " correct (" + percent(formatCounts[2], formatCounts[1]) + ')'));
+      }
+    }
+    System.err.println("  total: " + found + '/' + numImages + " decoded (" +
+        percent(found, numImages) + ')' +
+        (checked == 0 ? "" : ", " + correct + '/' + checked + " correct (" +
+            percent(correct, checked) + ')') +
+        (errors == 0 ? "" : ", " + errors + (errors == 1 ? " error" : " errors")));
+  }
+
+  private static String percent(int count, int total) {
+    return total == 0 ? "-" : String.format("%.1f%%", 100.0 * count / total);
+  }
+
+  /**
+   * @return The contents of the text file next to the image, or null if there is none.
+   */
+  private static String readExpectedText(File imageFile) throws IOException {
+    String name = imageFile.getName();
+    File expectedTextFile =
+        new File(imageFile.getParentFile(), name.substring(0, name.lastIndexOf('.')) + ".txt");
+    if (!expectedTextFile.isFile()) {
+      return null;
+    }
+    StringBuilder result = new StringBuilder((int) expectedTextFile.length());
+    InputStreamReader reader =
+        new InputStreamReader(new FileInputStream(expectedTextFile), Charset.forName("UTF8"));
+    try {
+      char[] buffer = new char[256];
+      int charsRead;
+      while ((charsRead = reader.read(buffer)) > 0) {
+        result.append(buffer, 0, charsRead);
+      }
+    } finally {
+      reader.close();
+    }
+    return result.toString();
+  }
+
+  private static String quote(String value) {
+    StringBuilder quoted = new StringBuilder(value.length() + 2);
+    quoted.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          quoted.append("\\\"");
+          break;
+        case '\\':
+          quoted.append("\\\\");
+          break;
+        case '\n':
+          quoted.append("\\n");
+          break;
+        case '\r':
+          quoted.append("\\r");
+          break;
+        case '\t':
+          quoted.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            quoted.append(String.format("\\u%04x", (int) c));
+          } else {
+            quoted.append(c);
+          }
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+}
@@ -57,6 +57,23 @@ public abstract class Binarizer {
    */
   public abstract BitArray getBlackRow(int y, BitArray row) throws ReaderException;
 
+  /**
+   * Like getBlackRow(), but returns null rather than throwing when the row can't be binarized,
+   * for example because it has too little contrast. Implementations which can fail should
+   * override this so that the 1D Readers can skip such rows without an exception.
+   *
+   * @param y The row to fetch, 0 <= y < bitmap height.
+   * @param row An optional preallocated array, as in getBlackRow().
+   * @return The array of bits for this row (true means black), or null.
+   */
+  public BitArray tryGetBlackRow(int y, BitArray row) {
+    try {
+      return getBlackRow(y, row);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
   /**
    * Converts a 2D array of luminance data to 1 bit data. As above, assume this method is expensive
    * and do not call it repeatedly. This method is intended for decoding 2D barcodes and may or
@@ -23,12 +23,26 @@ import com.google.zxing.common.BitMatrix;
  * This class is the core bitmap class used by ZXing to represent 1 bit data. Reader objects
  * accept a BinaryBitmap and attempt to decode it.
  *
+ * The conversion methods are synchronized because Binarizer implementations keep scratch state,
+ * and MultiFormatReader may run several Readers on one BinaryBitmap in parallel.
+ *
+ * Every Reader which is handed the same BinaryBitmap shares its 1 bit data: each row and the
+ * matrix are converted at most once, the first time any Reader asks for them, and then cached
+ * until the BinaryBitmap is discarded at the end of the frame. getCacheHits() and
+ * getCacheMisses() report how well this is working.
+ *
  * @author dswitkin@google.com (Daniel Switkin)
  */
 public final class BinaryBitmap {
 
+  // Stands in for cached rows which the Binarizer could not convert.
+  private static final BitArray NO_ROW = new BitArray(1);
+
   private final Binarizer binarizer;
   private BitMatrix matrix;
+  private BitArray[] rows;
+  private int cacheHits;
+  private int cacheMisses;
 
   public BinaryBitmap(Binarizer binarizer) {
     if (binarizer == null) {
@@ -62,8 +76,35 @@ public final class BinaryBitmap {
    *            If used, the Binarizer will call BitArray.clear(). Always use the returned object.
    * @return The array of bits for this row (true means black).
    */
-  public BitArray getBlackRow(int y, BitArray row) throws ReaderException {
-    return binarizer.getBlackRow(y, row);
+  public synchronized BitArray getBlackRow(int y, BitArray row) throws ReaderException {
+    row = tryGetBlackRow(y, row);
+    if (row == null) {
+      throw ReaderException.getInstance();
+    }
+    return row;
+  }
+
+  /**
+   * Like getBlackRow(), but returns null instead of throwing if the row can't be binarized.
+   *
+   * @param y The row to fetch, 0 <= y < bitmap height.
+   * @param row An optional preallocated array, as in getBlackRow().
+   * @return The array of bits for this row (true means black), or null.
+   */
+  public synchronized BitArray tryGetBlackRow(int y, BitArray row) {
+    if (rows == null) {
+      rows = new BitArray[getHeight()];
+    }
+    BitArray cached = rows[y];
+    if (cached != null) {
+      cacheHits++;
+      // Callers are free to modify the row they get back, e.g. reverse it, so hand out a copy.
+      return cached == NO_ROW ? null : copyRow(cached, row);
+    }
+    cacheMisses++;
+    row = binarizer.tryGetBlackRow(y, row);
+    rows[y] = row == null ? NO_ROW : copyRow(row, null);
+    return row;
   }
 
   /**
@@ -74,18 +115,48 @@ public final class BinaryBitmap {
    *
    * @return The 2D array of bits for the image (true means black).
    */
-  public BitMatrix getBlackMatrix() throws ReaderException {
+  public synchronized BitMatrix getBlackMatrix() throws ReaderException {
     // The matrix is created on demand the first time it is requested, then cached. There are two
     // reasons for this:
     // 1. This work will never be done if the caller only installs 1D Reader objects, or if a
     //    1D Reader finds a barcode before the 2D Readers run.
     // 2. This work will only be done once even if the caller installs multiple 2D Readers.
     if (matrix == null) {
+      cacheMisses++;
       matrix = binarizer.getBlackMatrix();
+    } else {
+      cacheHits++;
     }
     return matrix;
   }
 
+  /**
+   * @return The number of row and matrix requests which were answered from the cache.
+   */
+  public synchronized int getCacheHits() {
+    return cacheHits;
+  }
+
+  /**
+   * @return The number of row and matrix requests which had to be passed on to the Binarizer.
+   */
+  public synchronized int getCacheMisses() {
+    return cacheMisses;
+  }
+
+  // Copies the bits of source into destination, allocating a new BitArray if destination is null
+  // or too small, like Binarizer.getBlackRow() does.
+  private static BitArray copyRow(BitArray source, BitArray destination) {
+    int size = source.getSize();
+    if (destination == null || destination.getSize() < size) {
+      destination = new BitArray(size);
+    } else {
+      destination.clear();
+    }
+    System.arraycopy(source.bits, 0, destination.bits, 0, source.bits.length);
+    return destination;
+  }
+
   /**
    * @return Whether this bitmap can be cropped.
    */
@@ -57,6 +57,12 @@ public final class DecodeHintType {
    */
   public static final DecodeHintType ALLOWED_LENGTHS = new DecodeHintType();
 
+  /**
+   * The caller needs to be notified via callback when a possible {@link ResultPoint}
+   * is found, such as a QR Code finder pattern. Maps to a {@link ResultPointCallback}.
+   */
+  public static final DecodeHintType NEED_RESULT_POINT_CALLBACK = new DecodeHintType();
+
   private DecodeHintType() {
   }
 
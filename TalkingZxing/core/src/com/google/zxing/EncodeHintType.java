@@ -33,6 +33,12 @@ public final class EncodeHintType {
    */
   public static final EncodeHintType CHARACTER_SET = new EncodeHintType();
 
+  /**
+   * Specifies how many threads the QR Code encoder may use to try out its mask patterns, for large
+   * codes on multi-core devices (type Integer). The default is to use only the calling thread.
+   */
+  public static final EncodeHintType MASK_EVALUATION_THREADS = new EncodeHintType();
+
   private EncodeHintType() {
   }
 
@@ -32,10 +32,12 @@ import java.util.Vector;
  * @author Sean Owen
  * @author dswitkin@google.com (Daniel Switkin)
  */
-public final class MultiFormatReader implements Reader {
+public final class MultiFormatReader implements NonThrowingReader {
 
   private Hashtable hints;
   private Vector readers;
+  private ReaderWorkerPool workerPool;
+  private final ResultHolder readerResult = new ResultHolder();
 
   /**
    * This version of decode honors the intent of Reader.decode(BinaryBitmap) in that it
@@ -48,7 +50,7 @@ public final class MultiFormatReader implements Reader {
    */
   public Result decode(BinaryBitmap image) throws ReaderException {
     setHints(null);
-    return decodeInternal(image);
+    return checkResult(decodeInternal(image));
   }
 
   /**
@@ -61,7 +63,24 @@ public final class MultiFormatReader implements Reader {
    */
   public Result decode(BinaryBitmap image, Hashtable hints) throws ReaderException {
     setHints(hints);
-    return decodeInternal(image);
+    return checkResult(decodeInternal(image));
+  }
+
+  /**
+   * Decode an image using the hints provided, like decode(BinaryBitmap, Hashtable), but report
+   * that no barcode was found by returning false instead of throwing. Does not honor existing
+   * state.
+   *
+   * @param image The pixel data to decode
+   * @param hints The hints to use, clearing the previous state.
+   * @param holder Receives the contents of the image, or null if nothing was found
+   * @return Whether a barcode was found
+   */
+  public boolean tryDecode(BinaryBitmap image, Hashtable hints, ResultHolder holder) {
+    setHints(hints);
+    Result result = decodeInternal(image);
+    holder.setResult(result);
+    return result != null;
   }
 
   /**
@@ -77,7 +96,26 @@ public final class MultiFormatReader implements Reader {
     if (readers == null) {
       setHints(null);
     }
-    return decodeInternal(image);
+    return checkResult(decodeInternal(image));
+  }
+
+  /**
+   * Decode an image using the state set up by calling setHints() previously, without throwing an
+   * exception when no barcode is found. Since that is the outcome for nearly every frame, this is
+   * the fastest way for continuous scan clients to call the library.
+   *
+   * @param image The pixel data to decode
+   * @param holder Receives the contents of the image, or null if nothing was found
+   * @return Whether a barcode was found
+   */
+  public boolean tryDecodeWithState(BinaryBitmap image, ResultHolder holder) {
+    // Make sure to set up the default state so we don't crash
+    if (readers == null) {
+      setHints(null);
+    }
+    Result result = decodeInternal(image);
+    holder.setResult(result);
+    return result != null;
   }
 
   /**
@@ -138,18 +176,84 @@ public final class MultiFormatReader implements Reader {
     }
   }
 
-  private Result decodeInternal(BinaryBitmap image) throws ReaderException {
+  /**
+   * Optionally runs the installed readers in parallel on a pool of worker threads. The first
+   * reader to find a barcode wins and the others are cancelled, so the worst case cost of a frame
+   * with no barcode drops to roughly that of the slowest single reader on a multi-core device.
+   * Note that with several formats in one image, the result is whichever was found first rather
+   * than the highest priority one.
+   *
+   * @param numThreads The number of worker threads to use. 1 or less turns parallel decoding off
+   *                   and lets any existing worker threads exit.
+   */
+  public void setDecodeThreads(int numThreads) {
+    if (workerPool != null) {
+      if (workerPool.getNumThreads() == numThreads) {
+        return;
+      }
+      workerPool.stop();
+      workerPool = null;
+    }
+    if (numThreads > 1) {
+      workerPool = new ReaderWorkerPool(numThreads);
+    }
+  }
+
+  /**
+   * @return The first Result found by one of the installed readers, or null if none found one
+   */
+  private Result decodeInternal(BinaryBitmap image) {
     int size = readers.size();
-    for (int i = 0; i < size; i++) {
-      Reader reader = (Reader) readers.elementAt(i);
+    if (workerPool != null && size > 1) {
+      Reader[] readerArray = new Reader[size];
+      readers.copyInto(readerArray);
       try {
-        return reader.decode(image, hints);
+        Result result = workerPool.decode(image, hints, readerArray);
+        moveToFront(workerPool.getSuccessfulReader());
+        return result;
       } catch (ReaderException re) {
-        // continue
+        return null;
       }
     }
 
-    throw ReaderException.getInstance();
+    for (int i = 0; i < size; i++) {
+      Reader reader = (Reader) readers.elementAt(i);
+      Result result = null;
+      if (reader instanceof NonThrowingReader) {
+        if (((NonThrowingReader) reader).tryDecode(image, hints, readerResult)) {
+          result = readerResult.getResult();
+        }
+        readerResult.clear();
+      } else {
+        try {
+          result = reader.decode(image, hints);
+        } catch (ReaderException re) {
+          // continue
+        }
+      }
+      if (result != null) {
+        moveToFront(reader);
+        return result;
+      }
+    }
+
+    return null;
+  }
+
+  private static Result checkResult(Result result) throws ReaderException {
+    if (result == null) {
+      throw ReaderException.getInstance();
+    }
+    return result;
+  }
+
+  // The same kind of barcode tends to be in view for many frames in a row, so the reader which
+  // found the last one is tried first next time. setHints() restores the default order.
+  private void moveToFront(Reader reader) {
+    if (reader != null && readers.indexOf(reader) > 0) {
+      readers.removeElement(reader);
+      readers.insertElementAt(reader, 0);
+    }
   }
 
 }
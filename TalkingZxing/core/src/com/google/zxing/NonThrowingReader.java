@@ -0,0 +1,43 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import java.util.Hashtable;
+
+/**
+ * Readers which implement this interface can report that no barcode was found through a return
+ * value rather than a {@link ReaderException}. Not finding a barcode is the normal outcome for
+ * almost every camera frame, so continuous scan clients should prefer this entry point. The
+ * throwing {@link Reader} methods remain, and are thin wrappers around this one.
+ *
+ * @see ReaderException
+ */
+public interface NonThrowingReader extends Reader {
+
+  /**
+   * Locates and decodes a barcode in some format within an image, without throwing when there is
+   * none.
+   *
+   * @param image image of barcode to decode
+   * @param hints passed as a {@link java.util.Hashtable} from {@link DecodeHintType}
+   * to arbitrary data, as in {@link Reader#decode(BinaryBitmap, Hashtable)}
+   * @param holder receives the Result on success, and is cleared otherwise
+   * @return true if a barcode was found and decoded
+   */
+  boolean tryDecode(BinaryBitmap image, Hashtable hints, ResultHolder holder);
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import java.util.Hashtable;
+
+/**
+ * A fixed set of worker threads which run several Readers on the same BinaryBitmap at once, on
+ * behalf of MultiFormatReader. The first Reader to find a barcode wins; the Readers which have not
+ * started yet are skipped, and those still running are interrupted. Readers which check for
+ * interruption (the 1D readers do, between rows) stop early, and the others run to completion
+ * with their result ignored.
+ *
+ * Reader objects are not thread safe, so a new round never starts until every Reader from the
+ * previous round has returned. In a continuous scan client those stragglers overlap with the
+ * camera delivering the next frame.
+ *
+ * This is written against the J2ME-compatible subset of the JDK, so it uses plain threads and
+ * monitors rather than java.util.concurrent.
+ */
+final class ReaderWorkerPool {
+
+  private final Worker[] workers;
+
+  // The current round. All of these are guarded by the pool's monitor.
+  private BinaryBitmap image;
+  private Hashtable hints;
+  private Reader[] readers;
+  private int nextReader;
+  private int remaining;
+  private int running;
+  private Result result;
+  private Reader successfulReader;
+  private RuntimeException failure;
+  private boolean stopped;
+
+  ReaderWorkerPool(int numThreads) {
+    if (numThreads < 1) {
+      throw new IllegalArgumentException("Need at least one thread");
+    }
+    readers = new Reader[0];
+    workers = new Worker[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      workers[i] = new Worker();
+      workers[i].start();
+    }
+  }
+
+  int getNumThreads() {
+    return workers.length;
+  }
+
+  /**
+   * Runs the given Readers on the image, handing them to the workers in order, and returns the
+   * first Result any of them produces.
+   *
+   * @param image The pixel data to decode, shared by all Readers.
+   * @param hints The hints to pass to each Reader.
+   * @param readers The Readers to try, highest priority first.
+   * @return The contents of the image
+   * @throws ReaderException if no Reader found a barcode, or the calling thread was interrupted
+   */
+  synchronized Result decode(BinaryBitmap image, Hashtable hints, Reader[] readers)
+      throws ReaderException {
+    if (stopped) {
+      throw new IllegalStateException("Pool has been stopped");
+    }
+    try {
+      while (running > 0) {
+        wait();
+      }
+    } catch (InterruptedException ie) {
+      throw ReaderException.getInstance();
+    }
+
+    this.image = image;
+    this.hints = hints;
+    this.readers = readers;
+    nextReader = 0;
+    remaining = readers.length;
+    result = null;
+    successfulReader = null;
+    failure = null;
+    notifyAll();
+
+    try {
+      while (result == null && remaining > 0) {
+        wait();
+      }
+    } catch (InterruptedException ie) {
+      // Treat it like a failed decode, after cancelling below.
+    }
+
+    Result found = result;
+    cancel();
+    if (found == null && failure != null) {
+      // Rethrow bugs in a Reader on the calling thread, as a sequential decode would.
+      throw failure;
+    }
+    if (found == null) {
+      throw ReaderException.getInstance();
+    }
+    return found;
+  }
+
+  /**
+   * @return The Reader which produced the last Result returned by decode(), or null if the last
+   *         round found nothing.
+   */
+  synchronized Reader getSuccessfulReader() {
+    return successfulReader;
+  }
+
+  /**
+   * Lets the worker threads exit once they finish their current Reader. The pool can't be used
+   * after this.
+   */
+  synchronized void stop() {
+    stopped = true;
+    cancel();
+    notifyAll();
+  }
+
+  // Must hold the monitor.
+  private void cancel() {
+    nextReader = readers.length;
+    image = null;
+    hints = null;
+    for (int i = 0; i < workers.length; i++) {
+      if (workers[i].busy) {
+        workers[i].interrupt();
+      }
+    }
+  }
+
+  private final class Worker extends Thread {
+
+    // Guarded by the pool's monitor.
+    private boolean busy;
+    private final ResultHolder holder = new ResultHolder();
+
+    Worker() {
+      super("ReaderWorker");
+      setDaemon(true);
+    }
+
+    public void run() {
+      ReaderWorkerPool pool = ReaderWorkerPool.this;
+      while (true) {
+        Reader reader;
+        BinaryBitmap image;
+        Hashtable hints;
+        synchronized (pool) {
+          while (!stopped && nextReader >= readers.length) {
+            try {
+              pool.wait();
+            } catch (InterruptedException ie) {
+              // Only busy workers are interrupted, so this is stale; keep waiting.
+            }
+          }
+          if (stopped) {
+            return;
+          }
+          reader = readers[nextReader];
+          nextReader++;
+          image = pool.image;
+          hints = pool.hints;
+          running++;
+          busy = true;
+        }
+
+        Result found = null;
+        try {
+          if (reader instanceof NonThrowingReader) {
+            if (((NonThrowingReader) reader).tryDecode(image, hints, holder)) {
+              found = holder.getResult();
+            }
+            holder.clear();
+          } else {
+            found = reader.decode(image, hints);
+          }
+        } catch (ReaderException re) {
+          // continue
+        } catch (RuntimeException e) {
+          synchronized (pool) {
+            if (pool.image == image) {
+              failure = e;
+            }
+          }
+        } finally {
+          synchronized (pool) {
+            busy = false;
+            // Clear any cancellation aimed at the Reader we just finished, so it can't leak into
+            // the next one. This is safe because cancel() only interrupts busy workers.
+            Thread.interrupted();
+            running--;
+            remaining--;
+            if (found != null && result == null && pool.image == image) {
+              result = found;
+              successfulReader = reader;
+            }
+            pool.notifyAll();
+          }
+        }
+      }
+    }
+  }
+
+}
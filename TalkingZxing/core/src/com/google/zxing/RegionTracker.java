@@ -0,0 +1,278 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * Decodes a stream of frames from a camera which is pointed at the same barcode for a while, by
+ * remembering where the barcode was last seen. Each frame is first decoded in a region around the
+ * ResultPoints of the last successful decode, or around the finder patterns of the last partial
+ * decode, and only decoded in full if that region turns up nothing. Cropping skips binarizing and
+ * searching most of the frame, which is where most of the time goes.
+ *
+ * Only QR Code currently reports the points of a partial decode, through
+ * {@link DecodeHintType#NEED_RESULT_POINT_CALLBACK}. 1D barcodes are tracked once they decode.
+ *
+ * The image must support cropping for tracking to have any effect; otherwise every frame is
+ * decoded in full.
+ */
+public final class RegionTracker implements ResultPointCallback {
+
+  // The region extends this many percent of the barcode's larger side beyond it on every side,
+  // to allow for the camera moving between frames.
+  private static final int MARGIN_PERCENT = 50;
+  // A QR Code needs three finder patterns, so fewer points are not worth tracking.
+  private static final int MIN_PARTIAL_POINTS = 3;
+  // Regions this close to the whole frame are not worth cropping to.
+  private static final int MAX_AREA_PERCENT = 80;
+
+  private final MultiFormatReader reader;
+  private final Vector partialPoints;
+
+  private boolean hasRegion;
+  private int regionLeft;
+  private int regionTop;
+  private int regionRight;
+  private int regionBottom;
+  // Where the image being decoded sits in the full frame, for translating callback points.
+  private int offsetLeft;
+  private int offsetTop;
+
+  private int regionAttempts;
+  private int regionHits;
+  private int fullFrameAttempts;
+  private int fullFrameHits;
+
+  /**
+   * @param reader The reader to decode with. Its hints must be set through
+   *               {@link #setHints(Hashtable)} so that partial decodes are reported here.
+   */
+  public RegionTracker(MultiFormatReader reader) {
+    this.reader = reader;
+    partialPoints = new Vector();
+  }
+
+  /**
+   * Sets up the reader with the given hints, plus a callback for the ResultPoints of partial
+   * decodes. Forgets the current region, since the new hints may find a different barcode.
+   *
+   * @param hints The hints to decode with, which are copied rather than modified.
+   */
+  public void setHints(Hashtable hints) {
+    Hashtable trackingHints = new Hashtable();
+    if (hints != null) {
+      Enumeration keys = hints.keys();
+      while (keys.hasMoreElements()) {
+        Object key = keys.nextElement();
+        trackingHints.put(key, hints.get(key));
+      }
+    }
+    trackingHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, this);
+    reader.setHints(trackingHints);
+    hasRegion = false;
+  }
+
+  /**
+   * Decodes the next frame, trying the region where a barcode was last seen first.
+   *
+   * @param image The next frame.
+   * @param holder Receives the contents of the frame, with ResultPoints in the coordinates of the
+   *               full frame, or null if nothing was found.
+   * @return Whether a barcode was found.
+   */
+  public boolean tryDecode(BinaryBitmap image, ResultHolder holder) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (hasRegion && image.isCropSupported() && regionRight <= width && regionBottom <= height) {
+      int left = regionLeft;
+      int top = regionTop;
+      regionAttempts++;
+      BinaryBitmap cropped = image.crop(left, top, regionRight - left, regionBottom - top);
+      if (decode(cropped, left, top, holder)) {
+        regionHits++;
+        Result result = holder.getResult();
+        Result translated = translate(result, left, top);
+        holder.setResult(translated);
+        updateRegion(translated.getResultPoints(), width, height);
+        return true;
+      }
+      // The barcode has moved away or the camera has moved on, so look everywhere again.
+      hasRegion = false;
+    }
+
+    fullFrameAttempts++;
+    if (decode(image, 0, 0, holder)) {
+      fullFrameHits++;
+      updateRegion(holder.getResult().getResultPoints(), width, height);
+      return true;
+    }
+    // Nothing decoded, but a QR Code may have been located well enough to look there next time.
+    synchronized (partialPoints) {
+      if (partialPoints.size() >= MIN_PARTIAL_POINTS) {
+        ResultPoint[] points = new ResultPoint[partialPoints.size()];
+        partialPoints.copyInto(points);
+        updateRegion(points, width, height);
+      }
+    }
+    return false;
+  }
+
+  private boolean decode(BinaryBitmap image, int left, int top, ResultHolder holder) {
+    synchronized (partialPoints) {
+      partialPoints.removeAllElements();
+      offsetLeft = left;
+      offsetTop = top;
+    }
+    return reader.tryDecodeWithState(image, holder);
+  }
+
+  /**
+   * Collects the points found during a decode. The readers may call this from several threads
+   * at once when decoding in parallel.
+   */
+  public void foundPossibleResultPoint(ResultPoint point) {
+    synchronized (partialPoints) {
+      partialPoints.addElement(new ResultPoint(point.getX() + offsetLeft,
+          point.getY() + offsetTop));
+    }
+  }
+
+  /**
+   * Forgets the region where a barcode was last seen, for example when the camera restarts.
+   */
+  public void reset() {
+    hasRegion = false;
+  }
+
+  /**
+   * Clears the statistics.
+   */
+  public void resetCounts() {
+    regionAttempts = 0;
+    regionHits = 0;
+    fullFrameAttempts = 0;
+    fullFrameHits = 0;
+  }
+
+  /**
+   * @return The number of frames which were first decoded in a region.
+   */
+  public int getRegionAttempts() {
+    return regionAttempts;
+  }
+
+  /**
+   * @return The number of frames which decoded in their region, skipping the full frame.
+   */
+  public int getRegionHits() {
+    return regionHits;
+  }
+
+  /**
+   * @return The number of frames which were decoded in full.
+   */
+  public int getFullFrameAttempts() {
+    return fullFrameAttempts;
+  }
+
+  /**
+   * @return The number of frames which decoded in full.
+   */
+  public int getFullFrameHits() {
+    return fullFrameHits;
+  }
+
+  private void updateRegion(ResultPoint[] points, int width, int height) {
+    if (points == null || points.length == 0) {
+      hasRegion = false;
+      return;
+    }
+    float minX = Float.MAX_VALUE;
+    float minY = Float.MAX_VALUE;
+    float maxX = -Float.MAX_VALUE;
+    float maxY = -Float.MAX_VALUE;
+    for (int i = 0; i < points.length; i++) {
+      ResultPoint point = points[i];
+      if (point == null) {
+        continue;
+      }
+      float x = point.getX();
+      float y = point.getY();
+      if (x < minX) {
+        minX = x;
+      }
+      if (x > maxX) {
+        maxX = x;
+      }
+      if (y < minY) {
+        minY = y;
+      }
+      if (y > maxY) {
+        maxY = y;
+      }
+    }
+    if (minX > maxX) {
+      hasRegion = false;
+      return;
+    }
+    // A 1D barcode's points are all on one row, so the margin is based on the larger side.
+    int margin = (int) (Math.max(maxX - minX, maxY - minY) * MARGIN_PERCENT / 100.0f) + 1;
+    int left = Math.max(0, (int) minX - margin);
+    int top = Math.max(0, (int) minY - margin);
+    int right = Math.min(width, (int) maxX + margin + 1);
+    int bottom = Math.min(height, (int) maxY + margin + 1);
+    int area = (right - left) * (bottom - top);
+    if (right <= left || bottom <= top || area * 100 > width * height * MAX_AREA_PERCENT) {
+      hasRegion = false;
+      return;
+    }
+    regionLeft = left;
+    regionTop = top;
+    regionRight = right;
+    regionBottom = bottom;
+    hasRegion = true;
+  }
+
+  private static Result translate(Result result, int left, int top) {
+    ResultPoint[] points = result.getResultPoints();
+    if (points == null || (left == 0 && top == 0)) {
+      return result;
+    }
+    ResultPoint[] translatedPoints = new ResultPoint[points.length];
+    for (int i = 0; i < points.length; i++) {
+      ResultPoint point = points[i];
+      if (point != null) {
+        translatedPoints[i] = new ResultPoint(point.getX() + left, point.getY() + top);
+      }
+    }
+    Result translated = new Result(result.getText(), result.getRawBytes(), translatedPoints,
+        result.getBarcodeFormat());
+    Hashtable metadata = result.getResultMetadata();
+    if (metadata != null) {
+      Enumeration keys = metadata.keys();
+      while (keys.hasMoreElements()) {
+        ResultMetadataType key = (ResultMetadataType) keys.nextElement();
+        translated.putMetadata(key, metadata.get(key));
+      }
+    }
+    return translated;
+  }
+
+}
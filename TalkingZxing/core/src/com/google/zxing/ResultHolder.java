@@ -0,0 +1,43 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * A reusable slot for a {@link Result}, owned by the caller of
+ * {@link NonThrowingReader#tryDecode(BinaryBitmap, java.util.Hashtable, ResultHolder)}. A
+ * continuous scan client can keep one of these for its whole lifetime.
+ */
+public final class ResultHolder {
+
+  private Result result;
+
+  /**
+   * @return The Result from the last successful decode, or null if the last decode found nothing.
+   */
+  public Result getResult() {
+    return result;
+  }
+
+  public void setResult(Result result) {
+    this.result = result;
+  }
+
+  public void clear() {
+    result = null;
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.result;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Hashtable;
+
+/**
+ * A small least-recently-used cache of the ParsedResults for the last few distinct barcodes. A
+ * scanner which is held over one barcode decodes it many times a second, and parsing is a pure
+ * function of the text and format, so there is no need to parse it again each time.
+ *
+ * ParsedResults are immutable, so the cached instances are handed out as they are.
+ */
+final class ParsedResultCache {
+
+  private final int capacity;
+  private final Hashtable entries;
+  // Most recently used first, in a circular doubly linked list around this sentinel.
+  private final Entry head;
+
+  ParsedResultCache(int capacity) {
+    this.capacity = capacity;
+    entries = new Hashtable(capacity * 2);
+    head = new Entry(null, null, null);
+    head.previous = head;
+    head.next = head;
+  }
+
+  /**
+   * @return The cached result for this text and format, or null if there is none.
+   */
+  synchronized ParsedResult get(String text, BarcodeFormat format) {
+    Entry entry = (Entry) entries.get(text);
+    // The same text can be an ISBN as an EAN-13 but plain text as a QR Code
+    if (entry == null || entry.format != format) {
+      return null;
+    }
+    unlink(entry);
+    linkFirst(entry);
+    return entry.result;
+  }
+
+  synchronized void put(String text, BarcodeFormat format, ParsedResult result) {
+    Entry entry = (Entry) entries.get(text);
+    if (entry != null) {
+      unlink(entry);
+    } else if (entries.size() >= capacity) {
+      Entry eldest = head.previous;
+      unlink(eldest);
+      entries.remove(eldest.text);
+    }
+    entry = new Entry(text, format, result);
+    entries.put(text, entry);
+    linkFirst(entry);
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    head.previous = head;
+    head.next = head;
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  private void linkFirst(Entry entry) {
+    entry.previous = head;
+    entry.next = head.next;
+    head.next.previous = entry;
+    head.next = entry;
+  }
+
+  private static void unlink(Entry entry) {
+    entry.previous.next = entry.next;
+    entry.next.previous = entry.previous;
+  }
+
+  private static final class Entry {
+    final String text;
+    final BarcodeFormat format;
+    final ParsedResult result;
+    Entry previous;
+    Entry next;
+
+    Entry(String text, BarcodeFormat format, ParsedResult result) {
+      this.text = text;
+      this.format = format;
+      this.result = result;
+    }
+  }
+
+}
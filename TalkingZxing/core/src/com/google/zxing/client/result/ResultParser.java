@@ -16,6 +16,7 @@
 
 package com.google.zxing.client.result;
 
+import com.google.zxing.BarcodeFormat;
 import com.google.zxing.Result;
 
 import java.util.Hashtable;
@@ -34,44 +35,138 @@ import java.util.Vector;
  */
 public abstract class ResultParser {
 
+  // The parsers, in the order they are tried. Order is important here.
+  private static final int BOOKMARK_DOCOMO = 0;
+  private static final int ADDRESS_BOOK_DOCOMO = 1;
+  private static final int EMAIL_DOCOMO = 2;
+  private static final int ADDRESS_BOOK_AU = 3;
+  private static final int VCARD = 4;
+  private static final int BIZCARD = 5;
+  private static final int VEVENT = 6;
+  private static final int EMAIL_ADDRESS = 7;
+  private static final int TEL = 8;
+  private static final int SMS_MMS = 9;
+  private static final int GEO = 10;
+  private static final int URLTO = 11;
+  private static final int URI = 12;
+  private static final int ISBN = 13;
+  private static final int PRODUCT = 14;
+  private static final int NUM_PARSERS = 15;
+
+  // These parsers look for their markers anywhere in the text, or accept free-form text, so they
+  // have to be tried whatever the text starts with.
+  private static final int ANY_PREFIX = (1 << ADDRESS_BOOK_AU) | (1 << VEVENT) |
+      (1 << EMAIL_ADDRESS) | (1 << URI) | (1 << ISBN) | (1 << PRODUCT);
+  private static final int PRODUCT_ONLY = (1 << ISBN) | (1 << PRODUCT);
+
+  // For each ASCII character, a bit set of the parsers which only accept text starting with a
+  // prefix that begins with that character.
+  private static final int[] PARSERS_BY_FIRST_CHAR = new int[128];
+  static {
+    addPrefix("MEBKM:", BOOKMARK_DOCOMO);
+    addPrefix("MECARD:", ADDRESS_BOOK_DOCOMO);
+    addPrefix("MATMSG:", EMAIL_DOCOMO);
+    addPrefix("BEGIN:VCARD", VCARD);
+    addPrefix("BIZCARD:", BIZCARD);
+    addPrefix("tel:", TEL);
+    addPrefix("TEL:", TEL);
+    addPrefix("sms", SMS_MMS);
+    addPrefix("SMS", SMS_MMS);
+    addPrefix("mms", SMS_MMS);
+    addPrefix("MMS", SMS_MMS);
+    addPrefix("geo:", GEO);
+    addPrefix("GEO:", GEO);
+    addPrefix("urlto:", URLTO);
+    addPrefix("URLTO:", URLTO);
+  }
+
+  private static final int CACHE_SIZE = 8;
+  private static final ParsedResultCache cache = new ParsedResultCache(CACHE_SIZE);
+
+  private static void addPrefix(String prefix, int parser) {
+    PARSERS_BY_FIRST_CHAR[prefix.charAt(0)] |= 1 << parser;
+  }
+
   public static ParsedResult parseResult(Result theResult) {
-    // This is a bit messy, but given limited options in MIDP / CLDC, this may well be the simplest
-    // way to go about this. For example, we have no reflection available, really.
-    // Order is important here.
-    ParsedResult result;
-    if ((result = BookmarkDoCoMoResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = AddressBookDoCoMoResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = EmailDoCoMoResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = AddressBookAUResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = VCardResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = BizcardResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = VEventResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = EmailAddressResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = TelResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = SMSMMSResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = GeoResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = URLTOResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = URIResultParser.parse(theResult)) != null) {
-      return result;
-    } else if ((result = ISBNResultParser.parse(theResult)) != null) {
-      // We depend on ISBN parsing coming before UPC, as it is a subset.
-      return result;
-    } else if ((result = ProductResultParser.parse(theResult)) != null) {
-      return result;
+    String text = theResult.getText();
+    BarcodeFormat format = theResult.getBarcodeFormat();
+    if (text == null) {
+      return parseResult(theResult, null);
+    }
+    ParsedResult result = cache.get(text, format);
+    if (result == null) {
+      result = parseResult(theResult, text);
+      cache.put(text, format, result);
+    }
+    return result;
+  }
+
+  // Instead of running every parser in turn, each of which checks the text for its own prefix,
+  // look at the first character once and only run the parsers which could possibly match, in
+  // the same order as before.
+  private static ParsedResult parseResult(Result theResult, String text) {
+    int candidates = ANY_PREFIX;
+    if (text != null && text.length() > 0) {
+      char first = text.charAt(0);
+      if (first < PARSERS_BY_FIRST_CHAR.length) {
+        candidates |= PARSERS_BY_FIRST_CHAR[first];
+      }
+    }
+    if (!isProductFormat(theResult.getBarcodeFormat())) {
+      candidates &= ~PRODUCT_ONLY;
+    }
+    for (int parser = 0; parser < NUM_PARSERS; parser++) {
+      if ((candidates & (1 << parser)) != 0) {
+        ParsedResult result = parse(parser, theResult);
+        if (result != null) {
+          return result;
+        }
+      }
     }
-    return new TextParsedResult(theResult.getText(), null);
+    return new TextParsedResult(text, null);
+  }
+
+  private static ParsedResult parse(int parser, Result theResult) {
+    switch (parser) {
+      case BOOKMARK_DOCOMO:
+        return BookmarkDoCoMoResultParser.parse(theResult);
+      case ADDRESS_BOOK_DOCOMO:
+        return AddressBookDoCoMoResultParser.parse(theResult);
+      case EMAIL_DOCOMO:
+        return EmailDoCoMoResultParser.parse(theResult);
+      case ADDRESS_BOOK_AU:
+        return AddressBookAUResultParser.parse(theResult);
+      case VCARD:
+        return VCardResultParser.parse(theResult);
+      case BIZCARD:
+        return BizcardResultParser.parse(theResult);
+      case VEVENT:
+        return VEventResultParser.parse(theResult);
+      case EMAIL_ADDRESS:
+        return EmailAddressResultParser.parse(theResult);
+      case TEL:
+        return TelResultParser.parse(theResult);
+      case SMS_MMS:
+        return SMSMMSResultParser.parse(theResult);
+      case GEO:
+        return GeoResultParser.parse(theResult);
+      case URLTO:
+        return URLTOResultParser.parse(theResult);
+      case URI:
+        return URIResultParser.parse(theResult);
+      case ISBN:
+        // We depend on ISBN parsing coming before UPC, as it is a subset.
+        return ISBNResultParser.parse(theResult);
+      case PRODUCT:
+        return ProductResultParser.parse(theResult);
+      default:
+        return null;
+    }
+  }
+
+  private static boolean isProductFormat(BarcodeFormat format) {
+    return BarcodeFormat.UPC_A.equals(format) || BarcodeFormat.UPC_E.equals(format) ||
+        BarcodeFormat.EAN_8.equals(format) || BarcodeFormat.EAN_13.equals(format);
   }
 
   protected static void maybeAppend(String value, StringBuffer result) {
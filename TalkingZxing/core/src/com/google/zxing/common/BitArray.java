@@ -50,6 +50,70 @@ public final class BitArray {
     return (bits[i >> 5] & (1 << (i & 0x1F))) != 0;
   }
 
+  /**
+   * @param from first bit to check
+   * @return index of the first set bit at or after from, or size if there is none
+   */
+  public int getNextSet(int from) {
+    if (from >= size) {
+      return size;
+    }
+    int bitsOffset = from >> 5;
+    // Ignore the bits before from in the first word
+    int currentBits = bits[bitsOffset] & (-1 << (from & 0x1F));
+    while (currentBits == 0) {
+      if (++bitsOffset == bits.length) {
+        return size;
+      }
+      currentBits = bits[bitsOffset];
+    }
+    int result = (bitsOffset << 5) + numberOfTrailingZeros(currentBits);
+    return result > size ? size : result;
+  }
+
+  /**
+   * @param from first bit to check
+   * @return index of the first unset bit at or after from, or size if there is none
+   */
+  public int getNextUnset(int from) {
+    if (from >= size) {
+      return size;
+    }
+    int bitsOffset = from >> 5;
+    int currentBits = ~bits[bitsOffset] & (-1 << (from & 0x1F));
+    while (currentBits == 0) {
+      if (++bitsOffset == bits.length) {
+        return size;
+      }
+      currentBits = ~bits[bitsOffset];
+    }
+    int result = (bitsOffset << 5) + numberOfTrailingZeros(currentBits);
+    return result > size ? size : result;
+  }
+
+  /**
+   * <p>Records the lengths of successive runs of unset and set bits, from bit start to the end of
+   * the array, a word at a time. The first run is always of unset bits, and is empty if bit start
+   * is set; after that runs alternate, so even indices hold runs of unset (white) bits and odd
+   * indices runs of set (black) bits.</p>
+   *
+   * @param start first bit to record
+   * @param runs array to record run lengths in. Recording stops when it is full, so an array of
+   *  size - start + 1 entries always holds the whole row.
+   * @return number of runs recorded
+   */
+  public int getRunLengths(int start, int[] runs) {
+    int numRuns = 0;
+    int maxRuns = runs.length;
+    int i = start;
+    while (i < size && numRuns < maxRuns) {
+      int end = (numRuns & 0x01) == 0 ? getNextSet(i) : getNextUnset(i);
+      runs[numRuns++] = end - i;
+      i = end;
+    }
+    return numRuns;
+  }
+
   /**
    * Sets bit i.
    *
@@ -111,15 +175,8 @@ public final class BitArray {
     for (int i = firstInt; i <= lastInt; i++) {
       int firstBit = i > firstInt ? 0 : start & 0x1F;
       int lastBit = i < lastInt ? 31 : end & 0x1F;
-      int mask;
-      if (firstBit == 0 && lastBit == 31) {
-        mask = -1;
-      } else {
-        mask = 0;
-        for (int j = firstBit; j <= lastBit; j++) {
-          mask |= 1 << j;
-        }
-      }
+      // Bits firstBit through lastBit, inclusive. 2 << 31 is 0, so this is -1 for the whole word.
+      int mask = ((2 << lastBit) - 1) & (-1 << firstBit);
 
       // Return false if we're looking for 1s and the masked bits[i] isn't all 1s (that is,
       // equals the mask, or we're looking for 0s and the masked portion is not all 0s
@@ -152,6 +209,36 @@ public final class BitArray {
     bits = newBits;
   }
 
+  /**
+   * Like Integer.numberOfTrailingZeros() in Java 5, which we can't use yet.
+   *
+   * @param i value to examine; must not be 0
+   * @return index of the lowest set bit in i
+   */
+  static int numberOfTrailingZeros(int i) {
+    int n = 0;
+    if ((i & 0xFFFF) == 0) {
+      n += 16;
+      i >>>= 16;
+    }
+    if ((i & 0xFF) == 0) {
+      n += 8;
+      i >>>= 8;
+    }
+    if ((i & 0x0F) == 0) {
+      n += 4;
+      i >>>= 4;
+    }
+    if ((i & 0x03) == 0) {
+      n += 2;
+      i >>>= 2;
+    }
+    if ((i & 0x01) == 0) {
+      n++;
+    }
+    return n;
+  }
+
   private static int[] makeArray(int size) {
     int arraySize = size >> 5;
     if ((size & 0x1F) != 0) {
@@ -171,4 +258,4 @@ public final class BitArray {
     return result.toString();
   }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -142,13 +142,59 @@ public final class BitMatrix {
     if (row == null || row.getSize() < width) {
       row = new BitArray(width);
     }
-    int offset = y * rowSize;
-    for (int x = 0; x < rowSize; x++) {
-      row.setBulk(x << 5, bits[offset + x]);
-    }
+    System.arraycopy(bits, y * rowSize, row.bits, 0, rowSize);
     return row;
   }
 
+  /**
+   * Copies a whole row of bits into the matrix at once.
+   *
+   * @param y The row to set
+   * @param row The bits to copy, which must hold at least width bits
+   */
+  public void setRow(int y, BitArray row) {
+    System.arraycopy(row.bits, 0, bits, y * rowSize, rowSize);
+  }
+
+  /**
+   * <p>Rotates the matrix 180 degrees in place, by reversing each row and swapping it with its
+   * mirror image row.</p>
+   */
+  public void rotate180() {
+    BitArray topRow = new BitArray(width);
+    BitArray bottomRow = new BitArray(width);
+    for (int i = 0; i < (height + 1) / 2; i++) {
+      topRow = getRow(i, topRow);
+      bottomRow = getRow(height - 1 - i, bottomRow);
+      topRow.reverse();
+      bottomRow.reverse();
+      setRow(i, bottomRow);
+      setRow(height - 1 - i, topRow);
+    }
+  }
+
+  /**
+   * <p>Swaps rows and columns: bit (x, y) of the result is bit (y, x) of this matrix. Only the
+   * set bits are visited, skipping over whole words of white at once.</p>
+   *
+   * @return a new height x width matrix
+   */
+  public BitMatrix transpose() {
+    BitMatrix result = new BitMatrix(height, width);
+    for (int y = 0; y < height; y++) {
+      int offset = y * rowSize;
+      for (int x32 = 0; x32 < rowSize; x32++) {
+        int word = bits[offset + x32];
+        while (word != 0) {
+          int x = (x32 << 5) + BitArray.numberOfTrailingZeros(word);
+          result.set(y, x);
+          word &= word - 1; // clears the lowest set bit
+        }
+      }
+    }
+    return result;
+  }
+
   /**
    * @return The width of the matrix
    */
@@ -42,8 +42,16 @@ public final class GlobalHistogramBinarizer extends Binarizer {
     super(source);
   }
 
-  // Applies simple sharpening to the row data to improve performance of the 1D Readers.
   public BitArray getBlackRow(int y, BitArray row) throws ReaderException {
+    row = tryGetBlackRow(y, row);
+    if (row == null) {
+      throw ReaderException.getInstance();
+    }
+    return row;
+  }
+
+  // Applies simple sharpening to the row data to improve performance of the 1D Readers.
+  public BitArray tryGetBlackRow(int y, BitArray row) {
     LuminanceSource source = getLuminanceSource();
     int width = source.getWidth();
     if (row == null || row.getSize() < width) {
@@ -60,6 +68,9 @@ public final class GlobalHistogramBinarizer extends Binarizer {
       localBuckets[pixel >> LUMINANCE_SHIFT]++;
     }
     int blackPoint = estimateBlackPoint(localBuckets);
+    if (blackPoint < 0) {
+      return null;
+    }
 
     int left = localLuminances[0] & 0xff;
     int center = localLuminances[1] & 0xff;
@@ -97,6 +108,9 @@ public final class GlobalHistogramBinarizer extends Binarizer {
       }
     }
     int blackPoint = estimateBlackPoint(localBuckets);
+    if (blackPoint < 0) {
+      throw ReaderException.getInstance();
+    }
 
     // We delay reading the entire image luminance until the black point estimation succeeds.
     // Although we end up reading four rows twice, it is consistent with our motto of
@@ -132,7 +146,8 @@ public final class GlobalHistogramBinarizer extends Binarizer {
     }
   }
 
-  private static int estimateBlackPoint(int[] buckets) throws ReaderException {
+  // Returns -1 rather than throwing, since this fails for most rows of a frame without a barcode.
+  private static int estimateBlackPoint(int[] buckets) {
     // Find the tallest peak in the histogram.
     int numBuckets = buckets.length;
     int maxBucketCount = 0;
@@ -168,12 +183,12 @@ public final class GlobalHistogramBinarizer extends Binarizer {
       secondPeak = temp;
     }
 
-    // If there is too little contrast in the image to pick a meaningful black point, throw rather
+    // If there is too little contrast in the image to pick a meaningful black point, give up rather
     // than waste time trying to decode the image, and risk false positives.
     // TODO: It might be worth comparing the brightest and darkest pixels seen, rather than the
     // two peaks, to determine the contrast.
     if (secondPeak - firstPeak <= numBuckets >> 4) {
-      throw ReaderException.getInstance();
+      return -1;
     }
 
     // Find a valley between them that is low and closer to the white peak.
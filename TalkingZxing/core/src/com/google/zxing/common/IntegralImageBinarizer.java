@@ -0,0 +1,171 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+
+/**
+ * This class implements an adaptive thresholding algorithm which compares every pixel against the
+ * mean luminance of the square window around it. The means come from a summed-area table (integral
+ * image) which is built in one pass, so each pixel costs the same no matter how large the window
+ * is. Like LocalBlockBinarizer it copes with shadows and uneven lighting far better than
+ * GlobalHistogramBinarizer, but it does not produce blocking artifacts and only walks the
+ * luminance data twice.
+ *
+ * The summed-area table is the only large buffer involved. Binarizers made by createBinarizer()
+ * share it with the one they were made from, so a client which keeps one prototype and calls
+ * createBinarizer() for each camera frame only allocates it again when the frame size changes.
+ */
+public final class IntegralImageBinarizer extends Binarizer {
+
+  // The window is about 1/4 of the larger image dimension across, but never smaller than five of
+  // LocalBlockBinarizer's 8x8 blocks, so that it is always much wider than a barcode module.
+  private static final int WINDOW_SHIFT = 3;
+  private static final int MIN_RADIUS = 20;
+
+  // A pixel is black if it is this many percent darker than its window mean...
+  private static final int THRESHOLD_PERCENT = 15;
+  // ...and also at least this much darker in absolute terms, so that sensor noise in dark, flat
+  // areas doesn't turn into speckles.
+  private static final int MIN_DIFFERENCE = 8;
+
+  private final IntegralImage integralImage;
+  private BitMatrix matrix = null;
+
+  public IntegralImageBinarizer(LuminanceSource source) {
+    this(source, new IntegralImage());
+  }
+
+  private IntegralImageBinarizer(LuminanceSource source, IntegralImage integralImage) {
+    super(source);
+    this.integralImage = integralImage;
+  }
+
+  public BitArray getBlackRow(int y, BitArray row) {
+    binarizeEntireImage();
+    return matrix.getRow(y, row);
+  }
+
+  public BitMatrix getBlackMatrix() {
+    binarizeEntireImage();
+    return matrix;
+  }
+
+  public Binarizer createBinarizer(LuminanceSource source) {
+    return new IntegralImageBinarizer(source, integralImage);
+  }
+
+  // Calculates the final BitMatrix once for all requests, like LocalBlockBinarizer.
+  private void binarizeEntireImage() {
+    if (matrix == null) {
+      LuminanceSource source = getLuminanceSource();
+      byte[] luminances = source.getMatrix();
+      int width = source.getWidth();
+      int height = source.getHeight();
+      BitMatrix newMatrix = new BitMatrix(width, height);
+      // Binarizers created from the same prototype may run on different threads, for example when
+      // MultiFormatReader decodes in parallel and a 1D reader rotates the image.
+      synchronized (integralImage) {
+        int[] sums = integralImage.build(luminances, width, height);
+        threshold(luminances, sums, width, height, newMatrix);
+      }
+      matrix = newMatrix;
+    }
+  }
+
+  private static void threshold(byte[] luminances, int[] sums, int width, int height,
+      BitMatrix matrix) {
+    int radius = Math.max(width, height) >> WINDOW_SHIFT;
+    if (radius < MIN_RADIUS) {
+      radius = MIN_RADIUS;
+    }
+    int stride = width + 1;
+    int[] bits = matrix.bits;
+    int rowSize = matrix.rowSize;
+    for (int y = 0; y < height; y++) {
+      int top = Math.max(0, y - radius);
+      int bottom = Math.min(height, y + radius + 1);
+      int topOffset = top * stride;
+      int bottomOffset = bottom * stride;
+      int windowHeight = bottom - top;
+      int offset = y * width;
+      int bitsOffset = y * rowSize;
+      int word = 0;
+      for (int x = 0; x < width; x++) {
+        int left = Math.max(0, x - radius);
+        int right = Math.min(width, x + radius + 1);
+        int count = (right - left) * windowHeight;
+        int sum = sums[bottomOffset + right] - sums[bottomOffset + left] -
+            sums[topOffset + right] + sums[topOffset + left];
+        int pixel = luminances[offset + x] & 0xff;
+        // Compare pixel against the window mean without dividing: both sides are scaled by count.
+        // Use longs since sum * 100 overflows an int for the larger windows.
+        long difference = (long) sum - (long) pixel * count;
+        if (difference * 100 > (long) sum * THRESHOLD_PERCENT &&
+            difference > (long) MIN_DIFFERENCE * count) {
+          word |= 1 << (x & 0x1f);
+        }
+        if ((x & 0x1f) == 0x1f) {
+          bits[bitsOffset + (x >> 5)] = word;
+          word = 0;
+        }
+      }
+      if ((width & 0x1f) != 0) {
+        bits[bitsOffset + (width >> 5)] = word;
+      }
+    }
+  }
+
+  /**
+   * The summed-area table for one frame: entry (x, y) of the (width + 1) x (height + 1) table
+   * holds the sum of all luminances above and to the left of pixel (x, y). Reused as long as the
+   * frame width and height stay the same.
+   */
+  private static final class IntegralImage {
+
+    private int[] sums = null;
+    private int width;
+    private int height;
+
+    int[] build(byte[] luminances, int width, int height) {
+      int stride = width + 1;
+      // A rotated or cropped frame can have the same area but a different width, which moves the
+      // first column, so both dimensions have to match for the zero border to still be in place.
+      if (sums == null || this.width != width || this.height != height) {
+        // The first row and column are always zero, and are never written below.
+        sums = new int[stride * (height + 1)];
+        this.width = width;
+        this.height = height;
+      }
+      int[] localSums = sums;
+      for (int y = 0; y < height; y++) {
+        int offset = y * width;
+        int above = y * stride;
+        int current = above + stride;
+        int rowSum = 0;
+        for (int x = 0; x < width; x++) {
+          rowSum += luminances[offset + x] & 0xff;
+          localSums[current + x + 1] = localSums[above + x + 1] + rowSum;
+        }
+      }
+      return localSums;
+    }
+
+  }
+
+}
@@ -27,7 +27,8 @@ import com.google.zxing.LuminanceSource;
  * However it tends to produce artifacts on lower frequency images and is therefore not
  * a good general purpose binarizer for uses outside ZXing.
  *
- * NOTE: This class is still experimental and may not be ready for prime time yet.
+ * NOTE: This class is still experimental and may not be ready for prime time yet. See
+ * IntegralImageBinarizer, which handles the same lighting conditions without blocking artifacts.
  *
  * @author dswitkin@google.com (Daniel Switkin)
  */
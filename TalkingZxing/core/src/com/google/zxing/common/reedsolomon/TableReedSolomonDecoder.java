@@ -0,0 +1,376 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common.reedsolomon;
+
+/**
+ * <p>Implements the same Reed-Solomon decoding as {@link ReedSolomonDecoder}, with the same
+ * results, but works on primitive arrays instead of {@link GF256Poly} objects and does not
+ * allocate anything once constructed. Products are read from a precomputed 256 x 256
+ * multiplication table, the error locator's roots are found with an incremental Chien search,
+ * and codewords can be corrected directly in the byte arrays the decoders read from a symbol.</p>
+ *
+ * <p>Instances keep scratch state, so each thread needs its own, like the other decoder
+ * classes.</p>
+ */
+public final class TableReedSolomonDecoder {
+
+  // No Reed-Solomon block over GF(256) can be longer than 255 codewords.
+  private static final int MAX_CODEWORDS = 255;
+
+  private static byte[] qrCodeMultiplyTable;
+  private static byte[] dataMatrixMultiplyTable;
+
+  private final byte[] multiplyTable;
+  private final int[] expTable;
+  private final int[] logTable;
+  private final boolean dataMatrix;
+
+  // Scratch space, reused for every block
+  private final int[] codewords = new int[MAX_CODEWORDS];
+  private final int[] syndromes = new int[MAX_CODEWORDS];
+  private int[] r = new int[MAX_CODEWORDS + 1];
+  private int[] rLast = new int[MAX_CODEWORDS + 1];
+  private int[] rLastLast = new int[MAX_CODEWORDS + 1];
+  private int[] t = new int[MAX_CODEWORDS + 1];
+  private int[] tLast = new int[MAX_CODEWORDS + 1];
+  private int[] tLastLast = new int[MAX_CODEWORDS + 1];
+  private final int[] q = new int[MAX_CODEWORDS + 1];
+  private final int[] terms = new int[MAX_CODEWORDS + 1];
+  private final int[] errorLocations = new int[MAX_CODEWORDS];
+  private final int[] errorLogs = new int[MAX_CODEWORDS];
+  private final int[] errorMagnitudes = new int[MAX_CODEWORDS];
+  private int degreeR;
+  private int degreeRLast;
+  private int degreeT;
+  private int degreeTLast;
+
+  /**
+   * @param field {@link GF256#QR_CODE_FIELD} or {@link GF256#DATA_MATRIX_FIELD}
+   */
+  public TableReedSolomonDecoder(GF256 field) {
+    multiplyTable = getMultiplyTable(field);
+    dataMatrix = field.equals(GF256.DATA_MATRIX_FIELD);
+    // Doubled, so that exp(log(a) + log(b)) never needs reducing mod 255
+    expTable = new int[512];
+    logTable = new int[256];
+    for (int i = 0; i < 512; i++) {
+      expTable[i] = field.exp(i % 255);
+    }
+    for (int i = 1; i < 256; i++) {
+      logTable[i] = field.log(i);
+    }
+  }
+
+  private static synchronized byte[] getMultiplyTable(GF256 field) {
+    if (field.equals(GF256.QR_CODE_FIELD)) {
+      if (qrCodeMultiplyTable == null) {
+        qrCodeMultiplyTable = buildMultiplyTable(field);
+      }
+      return qrCodeMultiplyTable;
+    }
+    if (field.equals(GF256.DATA_MATRIX_FIELD)) {
+      if (dataMatrixMultiplyTable == null) {
+        dataMatrixMultiplyTable = buildMultiplyTable(field);
+      }
+      return dataMatrixMultiplyTable;
+    }
+    throw new IllegalArgumentException("Unsupported field");
+  }
+
+  // The product of a and b is at index (a << 8) | b.
+  private static byte[] buildMultiplyTable(GF256 field) {
+    byte[] table = new byte[256 * 256];
+    for (int a = 1; a < 256; a++) {
+      for (int b = 1; b < 256; b++) {
+        table[(a << 8) | b] = (byte) field.multiply(a, b);
+      }
+    }
+    return table;
+  }
+
+  /**
+   * <p>Decodes given set of received codewords, which include both data and error-correction
+   * codewords, exactly like {@link ReedSolomonDecoder#decode(int[], int)}.</p>
+   *
+   * @param received data and error-correction codewords
+   * @param twoS number of error-correction codewords available
+   * @throws ReedSolomonException if decoding fails for any reason
+   */
+  public void decode(int[] received, int twoS) throws ReedSolomonException {
+    int length = received.length;
+    checkLength(length);
+    System.arraycopy(received, 0, codewords, 0, length);
+    int numErrors = correct(length, twoS);
+    for (int i = 0; i < numErrors; i++) {
+      int position = length - 1 - errorLogs[i];
+      received[position] ^= errorMagnitudes[i];
+    }
+  }
+
+  /**
+   * <p>Like {@link #decode(int[], int)}, but corrects codewords held as bytes in place, as the
+   * QR Code and Data Matrix decoders store them.</p>
+   *
+   * @param received data and error-correction codewords
+   * @param twoS number of error-correction codewords available
+   * @throws ReedSolomonException if decoding fails for any reason
+   */
+  public void decode(byte[] received, int twoS) throws ReedSolomonException {
+    int length = received.length;
+    checkLength(length);
+    for (int i = 0; i < length; i++) {
+      codewords[i] = received[i] & 0xFF;
+    }
+    int numErrors = correct(length, twoS);
+    for (int i = 0; i < numErrors; i++) {
+      int position = length - 1 - errorLogs[i];
+      received[position] = (byte) (received[position] ^ errorMagnitudes[i]);
+    }
+  }
+
+  /**
+   * <p>Corrects all the blocks of one symbol in one call. Each block is corrected in place, and
+   * decoding stops at the first block which can't be corrected, since the symbol as a whole
+   * can't be decoded then.</p>
+   *
+   * @param blocks the data and error-correction codewords of each block
+   * @param twoS the number of error-correction codewords in each block
+   * @throws ReedSolomonException if any block can't be corrected
+   */
+  public void decodeBlocks(byte[][] blocks, int[] twoS) throws ReedSolomonException {
+    for (int i = 0; i < blocks.length; i++) {
+      decode(blocks[i], twoS[i]);
+    }
+  }
+
+  private static void checkLength(int length) {
+    if (length > MAX_CODEWORDS) {
+      throw new IllegalArgumentException("Too many codewords: " + length);
+    }
+  }
+
+  /**
+   * Finds the errors in the first length entries of codewords.
+   *
+   * @return the number of errors, whose positions (as logs) and magnitudes are left in
+   *  errorLogs and errorMagnitudes
+   */
+  private int correct(int length, int twoS) throws ReedSolomonException {
+    if (!computeSyndromes(length, twoS)) {
+      return 0;
+    }
+    runEuclideanAlgorithm(twoS);
+
+    int sigmaTildeAtZero = t[0];
+    if (sigmaTildeAtZero == 0) {
+      throw new ReedSolomonException("sigmaTilde(0) was zero");
+    }
+    // sigma = t / sigmaTilde(0), omega = r / sigmaTilde(0)
+    int inverse = inverse(sigmaTildeAtZero);
+    int[] sigma = t;
+    int[] omega = r;
+    for (int i = 0; i <= degreeT; i++) {
+      sigma[i] = multiply(sigma[i], inverse);
+    }
+    for (int i = 0; i <= degreeR; i++) {
+      omega[i] = multiply(omega[i], inverse);
+    }
+
+    int numErrors = findErrorLocations(sigma, degreeT);
+    findErrorMagnitudes(omega, degreeR, numErrors);
+    for (int i = 0; i < numErrors; i++) {
+      errorLogs[i] = logTable[errorLocations[i]];
+      if (length - 1 - errorLogs[i] < 0) {
+        throw new ReedSolomonException("Bad error location");
+      }
+    }
+    return numErrors;
+  }
+
+  // Evaluates the received polynomial at each power of the generator by Horner's rule. The
+  // syndrome polynomial has the value at the i-th power as its x^i coefficient. Returns false if
+  // they are all zero, i.e. there are no errors.
+  private boolean computeSyndromes(int length, int twoS) {
+    boolean anyError = false;
+    for (int i = 0; i < twoS; i++) {
+      int row = expTable[dataMatrix ? i + 1 : i] << 8;
+      int eval = 0;
+      for (int j = 0; j < length; j++) {
+        eval = (multiplyTable[row | eval] & 0xFF) ^ codewords[j];
+      }
+      syndromes[i] = eval;
+      if (eval != 0) {
+        anyError = true;
+      }
+    }
+    return anyError;
+  }
+
+  // Polynomials are held lowest degree first, with their degree alongside. The zero polynomial
+  // has degree 0, as in GF256Poly. Only the t's of the extended algorithm are tracked, since the
+  // s's are never used.
+  private void runEuclideanAlgorithm(int twoS) throws ReedSolomonException {
+    // rLast = x^twoS, r = syndrome; the syndrome's degree is always lower
+    for (int i = 0; i < twoS; i++) {
+      rLast[i] = 0;
+      r[i] = syndromes[i];
+    }
+    rLast[twoS] = 1;
+    degreeRLast = twoS;
+    degreeR = normalizedDegree(r, twoS - 1);
+    tLast[0] = 0;
+    degreeTLast = 0;
+    t[0] = 1;
+    degreeT = 0;
+
+    // Run Euclidean algorithm until r's degree is less than twoS/2
+    while (degreeR >= twoS / 2) {
+      // Rotate the buffers: rLastLast = rLast, rLast = r, and r reuses the oldest one
+      int[] temp = rLastLast;
+      rLastLast = rLast;
+      rLast = r;
+      r = temp;
+      int degreeRLastLast = degreeRLast;
+      degreeRLast = degreeR;
+      temp = tLastLast;
+      tLastLast = tLast;
+      tLast = t;
+      t = temp;
+      int degreeTLastLast = degreeTLast;
+      degreeTLast = degreeT;
+
+      // Divide rLastLast by rLast, with quotient in q and remainder in r
+      if (degreeRLast == 0 && rLast[0] == 0) {
+        // Oops, Euclidean algorithm already terminated?
+        throw new ReedSolomonException("r_{i-1} was zero");
+      }
+      System.arraycopy(rLastLast, 0, r, 0, degreeRLastLast + 1);
+      degreeR = degreeRLastLast;
+      int degreeQ = 0;
+      q[0] = 0;
+      int dltInverse = inverse(rLast[degreeRLast]);
+      while (degreeR >= degreeRLast && !(degreeR == 0 && r[0] == 0)) {
+        int degreeDiff = degreeR - degreeRLast;
+        int scale = multiply(r[degreeR], dltInverse);
+        while (degreeQ < degreeDiff) {
+          q[++degreeQ] = 0;
+        }
+        q[degreeDiff] ^= scale;
+        int row = scale << 8;
+        for (int i = 0; i <= degreeRLast; i++) {
+          r[i + degreeDiff] ^= multiplyTable[row | rLast[i]] & 0xFF;
+        }
+        degreeR = normalizedDegree(r, degreeR);
+      }
+
+      // t = q * tLast + tLastLast
+      int degreeProduct = degreeQ + degreeTLast;
+      if (degreeProduct > MAX_CODEWORDS) {
+        throw new ReedSolomonException("Error locator degree out of range");
+      }
+      int maxDegree = Math.max(degreeProduct, degreeTLastLast);
+      for (int i = 0; i <= maxDegree; i++) {
+        t[i] = i <= degreeTLastLast ? tLastLast[i] : 0;
+      }
+      for (int i = 0; i <= degreeQ; i++) {
+        int coefficient = q[i];
+        if (coefficient != 0) {
+          int row = coefficient << 8;
+          for (int j = 0; j <= degreeTLast; j++) {
+            t[i + j] ^= multiplyTable[row | tLast[j]] & 0xFF;
+          }
+        }
+      }
+      degreeT = normalizedDegree(t, maxDegree);
+    }
+  }
+
+  private int findErrorLocations(int[] errorLocator, int numErrors) throws ReedSolomonException {
+    if (numErrors == 1) { // shortcut
+      errorLocations[0] = errorLocator[1];
+      return 1;
+    }
+    // This is Chien's search, done incrementally: the j-th term of errorLocator evaluated at
+    // 2^k is its coefficient times 2^(jk), so each step just multiplies the terms by 2^j.
+    for (int j = 0; j <= numErrors; j++) {
+      terms[j] = errorLocator[j];
+    }
+    int e = 0;
+    for (int k = 0; k < 255 && e < numErrors; k++) {
+      int sum = 0;
+      for (int j = 0; j <= numErrors; j++) {
+        sum ^= terms[j];
+      }
+      if (sum == 0) {
+        // The root is 2^k, and the error location is its inverse
+        errorLocations[e] = expTable[255 - k];
+        e++;
+      }
+      for (int j = 1; j <= numErrors; j++) {
+        terms[j] = multiplyTable[(terms[j] << 8) | expTable[j]] & 0xFF;
+      }
+    }
+    if (e != numErrors) {
+      throw new ReedSolomonException("Error locator degree does not match number of roots");
+    }
+    return numErrors;
+  }
+
+  private void findErrorMagnitudes(int[] errorEvaluator, int degree, int numErrors)
+      throws ReedSolomonException {
+    // This is directly applying Forney's Formula
+    for (int i = 0; i < numErrors; i++) {
+      int xiInverse = inverse(errorLocations[i]);
+      int denominator = 1;
+      for (int j = 0; j < numErrors; j++) {
+        if (i != j) {
+          denominator = multiply(denominator, 1 ^ multiply(errorLocations[j], xiInverse));
+        }
+      }
+      if (denominator == 0) {
+        throw new ReedSolomonException("Repeated error location");
+      }
+      int eval = 0;
+      int row = xiInverse << 8;
+      for (int j = degree; j >= 0; j--) {
+        eval = (multiplyTable[row | eval] & 0xFF) ^ errorEvaluator[j];
+      }
+      int magnitude = multiply(eval, inverse(denominator));
+      // Thanks to sanfordsquires for this fix:
+      if (dataMatrix) {
+        magnitude = multiply(magnitude, xiInverse);
+      }
+      errorMagnitudes[i] = magnitude;
+    }
+  }
+
+  private static int normalizedDegree(int[] coefficients, int degree) {
+    while (degree > 0 && coefficients[degree] == 0) {
+      degree--;
+    }
+    return degree;
+  }
+
+  private int multiply(int a, int b) {
+    return multiplyTable[(a << 8) | b] & 0xFF;
+  }
+
+  private int inverse(int a) {
+    return expTable[255 - logTable[a]];
+  }
+
+}
@@ -19,9 +19,10 @@ package com.google.zxing.datamatrix;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.BinaryBitmap;
-import com.google.zxing.Reader;
+import com.google.zxing.NonThrowingReader;
 import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
+import com.google.zxing.ResultHolder;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.ResultMetadataType;
 import com.google.zxing.common.BitMatrix;
@@ -37,7 +38,7 @@ import java.util.Hashtable;
  *
  * @author bbrown@google.com (Brian Brown)
  */
-public final class DataMatrixReader implements Reader {
+public final class DataMatrixReader implements NonThrowingReader {
 
   private static final ResultPoint[] NO_POINTS = new ResultPoint[0];
   
@@ -76,6 +77,19 @@ public final class DataMatrixReader implements Reader {
     return result;
   }
 
+  public boolean tryDecode(BinaryBitmap image, Hashtable hints, ResultHolder holder) {
+    // The Data Matrix detector still reports failure by throwing; this only spares callers
+    // from having to catch it.
+    Result result;
+    try {
+      result = decode(image, hints);
+    } catch (ReaderException re) {
+      result = null;
+    }
+    holder.setResult(result);
+    return result != null;
+  }
+
   /**
    * This method detects a Data Matrix code in a "pure" image -- that is, pure monochrome image
    * which contains only an unrotated, unskewed, image of a Data Matrix code, with some white border
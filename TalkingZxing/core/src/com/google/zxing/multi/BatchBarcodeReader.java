@@ -0,0 +1,573 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultMetadataType;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DecoderResult;
+import com.google.zxing.common.DetectorResult;
+import com.google.zxing.multi.qrcode.detector.MultiDetector;
+import com.google.zxing.oned.MultiFormatOneDReader;
+import com.google.zxing.qrcode.decoder.Decoder;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * <p>Reads every barcode in an image with many of them, such as a shelf of products or a pile of
+ * mail, in three stages:</p>
+ *
+ * <ol>
+ * <li>The image is binarized once, into one {@link BitMatrix} which all the later stages share.
+ * {@link GenericMultipleBarcodeReader} instead decodes crop after crop, and every crop is
+ * binarized again from scratch.</li>
+ * <li>One sweep over the matrix finds all the candidates: QR Codes through their finder patterns,
+ * and 1D barcodes as stretches of closely spaced bars on sampled rows, grouped with the stretches
+ * above and below them.</li>
+ * <li>The candidates are decoded on a set of worker threads, each with its own decoders. The
+ * threads are started with the first image and kept for the next ones, until {@link #stop()}.</li>
+ * </ol>
+ *
+ * <p>The only 2D barcodes it looks for are QR Codes. Data Matrix and PDF417 codes are not found,
+ * even if POSSIBLE_FORMATS asks for them; use {@link GenericMultipleBarcodeReader} for those.</p>
+ *
+ * <p>Results with the same text and format are only reported once, and all ResultPoints are in
+ * the coordinates of the whole image. The time spent in each stage of the last batch is available
+ * from {@link #getBinarizeTime()}, {@link #getDetectTime()} and {@link #getDecodeTime()}.</p>
+ *
+ * <p>This is written against the J2ME-compatible subset of the JDK, so it uses plain threads and
+ * monitors rather than java.util.concurrent. An instance decodes one image at a time.</p>
+ */
+public final class BatchBarcodeReader implements MultipleBarcodeReader {
+
+  // A stretch of a row needs this many bars and spaces to be worth decoding as a 1D barcode. The
+  // shortest we read, a Code 128 with one character, has 25.
+  private static final int MIN_RUNS = 25;
+  // A space this many times wider than the average bar or space so far ends the stretch.
+  private static final int QUIET_ZONE_FACTOR = 4;
+  // Rows in a 1D candidate which are tried before giving up on it.
+  private static final int MAX_ROWS_PER_CANDIDATE = 5;
+
+  private final int numThreads;
+  // The threads besides the caller's, started with the first batch and kept for the next ones.
+  private Worker[] workers;
+  private final Decoders callerDecoders = new Decoders();
+
+  // The current batch. All of these are guarded by this reader's monitor.
+  private Object[] currentCandidates = new Object[0];
+  private Result[] currentResults;
+  private BinaryBitmap currentImage;
+  private BitMatrix currentMatrix;
+  private Hashtable currentHints;
+  private int nextCandidate;
+  private int running;
+  private RuntimeException failure;
+  private boolean stopped;
+
+  private long binarizeTime;
+  private long detectTime;
+  private long decodeTime;
+  private int numCandidates;
+
+  /**
+   * @param numThreads How many threads to decode candidates on, including the calling thread.
+   *        The worker threads are daemons, so a reader which is never stopped doesn't keep the VM
+   *        alive.
+   */
+  public BatchBarcodeReader(int numThreads) {
+    this.numThreads = numThreads < 1 ? 1 : numThreads;
+  }
+
+  public Result[] decodeMultiple(BinaryBitmap image) throws ReaderException {
+    return decodeMultiple(image, null);
+  }
+
+  public Result[] decodeMultiple(BinaryBitmap image, Hashtable hints) throws ReaderException {
+    long start = System.currentTimeMillis();
+    BitMatrix matrix = image.getBlackMatrix();
+    long binarized = System.currentTimeMillis();
+    binarizeTime = binarized - start;
+
+    Vector candidates = new Vector();
+    Vector possibleFormats = hints == null ? null :
+        (Vector) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+    if (possibleFormats == null || possibleFormats.contains(BarcodeFormat.QR_CODE)) {
+      findQRCodes(matrix, hints, candidates);
+    }
+    if (possibleFormats == null || hasOneDFormat(possibleFormats)) {
+      boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
+      findOneDBarcodes(matrix, tryHarder, candidates);
+    }
+    long detected = System.currentTimeMillis();
+    detectTime = detected - binarized;
+    numCandidates = candidates.size();
+
+    Result[] decoded = decodeCandidates(candidates, image, matrix, hints);
+    decodeTime = System.currentTimeMillis() - detected;
+
+    Vector results = new Vector();
+    for (int i = 0; i < decoded.length; i++) {
+      if (decoded[i] != null && !contains(results, decoded[i])) {
+        results.addElement(decoded[i]);
+      }
+    }
+    if (results.isEmpty()) {
+      throw ReaderException.getInstance();
+    }
+    Result[] resultArray = new Result[results.size()];
+    results.copyInto(resultArray);
+    return resultArray;
+  }
+
+  /**
+   * @return Milliseconds spent binarizing the last image.
+   */
+  public long getBinarizeTime() {
+    return binarizeTime;
+  }
+
+  /**
+   * @return Milliseconds spent finding candidates in the last image.
+   */
+  public long getDetectTime() {
+    return detectTime;
+  }
+
+  /**
+   * @return Milliseconds spent decoding the candidates in the last image, on all threads.
+   */
+  public long getDecodeTime() {
+    return decodeTime;
+  }
+
+  /**
+   * @return The number of candidates found in the last image, including those which didn't decode.
+   */
+  public int getNumCandidates() {
+    return numCandidates;
+  }
+
+  private static boolean hasOneDFormat(Vector possibleFormats) {
+    return possibleFormats.contains(BarcodeFormat.UPC_A) ||
+        possibleFormats.contains(BarcodeFormat.UPC_E) ||
+        possibleFormats.contains(BarcodeFormat.EAN_13) ||
+        possibleFormats.contains(BarcodeFormat.EAN_8) ||
+        possibleFormats.contains(BarcodeFormat.CODE_39) ||
+        possibleFormats.contains(BarcodeFormat.CODE_128) ||
+        possibleFormats.contains(BarcodeFormat.ITF);
+  }
+
+  private static boolean contains(Vector results, Result result) {
+    for (int i = 0; i < results.size(); i++) {
+      Result existingResult = (Result) results.elementAt(i);
+      if (existingResult.getBarcodeFormat() == result.getBarcodeFormat() &&
+          existingResult.getText().equals(result.getText())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void findQRCodes(BitMatrix matrix, Hashtable hints, Vector candidates) {
+    DetectorResult[] detectorResults;
+    try {
+      detectorResults = new MultiDetector(matrix).detectMulti(hints);
+    } catch (ReaderException re) {
+      // No finder patterns at all
+      return;
+    }
+    for (int i = 0; i < detectorResults.length; i++) {
+      candidates.addElement(detectorResults[i]);
+    }
+  }
+
+  /**
+   * Looks for stretches of bars on every few rows, and groups the stretches on neighbouring rows
+   * which overlap by at least half into one candidate. Bars continue from one sampled row to the
+   * next, whereas a row through text or a 2D barcode rarely lines up with the ones around it.
+   */
+  private static void findOneDBarcodes(BitMatrix matrix, boolean tryHarder, Vector candidates) {
+    int width = matrix.getWidth();
+    int height = matrix.getHeight();
+    int rowStep = Math.max(1, height >> (tryHarder ? 7 : 5));
+    BitArray row = new BitArray(width);
+    // The candidates which had a stretch on the last sampled row, and may continue onto this one.
+    Vector open = new Vector();
+    for (int y = rowStep >> 1; y < height; y += rowStep) {
+      row = matrix.getRow(y, row);
+      Vector stillOpen = new Vector();
+      // The end of the last bar before the current stretch.
+      int previousEnd = 0;
+      int x = row.getNextSet(0);
+      while (x < width) {
+        int start = x;
+        int runs = 0;
+        int end = x;
+        while (true) {
+          int barEnd = row.getNextUnset(end);
+          runs++;
+          end = barEnd;
+          if (barEnd >= width) {
+            break;
+          }
+          int spaceEnd = row.getNextSet(barEnd);
+          int averageRun = Math.max(1, (barEnd - start) / runs);
+          if (spaceEnd >= width || spaceEnd - barEnd > QUIET_ZONE_FACTOR * averageRun) {
+            break;
+          }
+          runs++;
+          end = spaceEnd;
+        }
+        x = row.getNextSet(end);
+        if (runs >= MIN_RUNS) {
+          // Keep the spaces on either side, which the readers check for a quiet zone.
+          addStretch(new Stretch(y, previousEnd, x), open, stillOpen, candidates);
+        }
+        previousEnd = end;
+      }
+      open = stillOpen;
+    }
+  }
+
+  private static void addStretch(Stretch stretch, Vector open, Vector stillOpen,
+      Vector candidates) {
+    OneDCandidate candidate = null;
+    for (int i = 0; i < open.size(); i++) {
+      OneDCandidate previous = (OneDCandidate) open.elementAt(i);
+      if (previous.overlaps(stretch)) {
+        candidate = previous;
+        open.removeElementAt(i);
+        break;
+      }
+    }
+    if (candidate == null) {
+      candidate = new OneDCandidate();
+      candidates.addElement(candidate);
+    }
+    candidate.add(stretch);
+    stillOpen.addElement(candidate);
+  }
+
+  private Result[] decodeCandidates(Vector candidateVector, BinaryBitmap image,
+      BitMatrix matrix, Hashtable hints) {
+    Object[] batch = new Object[candidateVector.size()];
+    candidateVector.copyInto(batch);
+    Result[] batchResults = new Result[batch.length];
+    synchronized (this) {
+      if (stopped) {
+        throw new IllegalStateException("Reader has been stopped");
+      }
+      startWorkers();
+      // Workers still finishing a batch the caller gave up on may not start on this one yet.
+      try {
+        while (running > 0) {
+          wait();
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        return batchResults;
+      }
+      currentCandidates = batch;
+      currentResults = batchResults;
+      currentImage = image;
+      currentMatrix = matrix;
+      currentHints = hints;
+      nextCandidate = 0;
+      failure = null;
+      notifyAll();
+    }
+
+    // The calling thread decodes too, so that one thread needs no workers at all.
+    callerDecoders.decodeAll();
+
+    synchronized (this) {
+      try {
+        while (running > 0) {
+          wait();
+        }
+      } catch (InterruptedException ie) {
+        // Give up on the rest; whatever has been decoded so far is still good.
+        Thread.currentThread().interrupt();
+      }
+      RuntimeException batchFailure = failure;
+      nextCandidate = currentCandidates.length;
+      currentResults = null;
+      currentImage = null;
+      currentMatrix = null;
+      currentHints = null;
+      if (batchFailure != null) {
+        throw batchFailure;
+      }
+      Result[] finished = new Result[batchResults.length];
+      System.arraycopy(batchResults, 0, finished, 0, batchResults.length);
+      return finished;
+    }
+  }
+
+  /**
+   * Lets the worker threads exit once they finish their current candidate. The reader can't be
+   * used after this.
+   */
+  public synchronized void stop() {
+    stopped = true;
+    nextCandidate = currentCandidates.length;
+    notifyAll();
+  }
+
+  // Must hold the monitor.
+  private void startWorkers() {
+    if (workers == null) {
+      workers = new Worker[numThreads - 1];
+      for (int i = 0; i < workers.length; i++) {
+        workers[i] = new Worker();
+        workers[i].start();
+      }
+    }
+  }
+
+  /**
+   * The decoders of one thread, which takes candidates from the current batch until there are
+   * none left. Decoders are not thread safe, so each thread has its own.
+   */
+  private final class Decoders {
+
+    private final Decoder qrDecoder = new Decoder();
+    private MultiFormatOneDReader oneDReader;
+    private Hashtable oneDHints;
+
+    void decodeAll() {
+      BatchBarcodeReader batchReader = BatchBarcodeReader.this;
+      while (true) {
+        int index;
+        Object candidate;
+        Result[] batchResults;
+        BinaryBitmap batchImage;
+        BitMatrix batchMatrix;
+        Hashtable batchHints;
+        synchronized (batchReader) {
+          if (nextCandidate >= currentCandidates.length) {
+            return;
+          }
+          index = nextCandidate++;
+          candidate = currentCandidates[index];
+          batchResults = currentResults;
+          batchImage = currentImage;
+          batchMatrix = currentMatrix;
+          batchHints = currentHints;
+          running++;
+        }
+        try {
+          if (candidate instanceof DetectorResult) {
+            batchResults[index] = decodeQRCode((DetectorResult) candidate, qrDecoder);
+          } else {
+            if (oneDReader == null || oneDHints != batchHints) {
+              oneDReader = new MultiFormatOneDReader(batchHints);
+              oneDHints = batchHints;
+            }
+            batchResults[index] = ((OneDCandidate) candidate).decode(batchImage, batchMatrix,
+                oneDReader, batchHints);
+          }
+        } catch (RuntimeException e) {
+          synchronized (batchReader) {
+            if (failure == null) {
+              failure = e;
+            }
+            // Rethrown by the caller, so there is no point decoding the rest.
+            nextCandidate = currentCandidates.length;
+          }
+        } finally {
+          synchronized (batchReader) {
+            running--;
+            batchReader.notifyAll();
+          }
+        }
+      }
+    }
+  }
+
+  private final class Worker extends Thread {
+
+    private final Decoders decoders = new Decoders();
+
+    Worker() {
+      super("BatchBarcodeWorker");
+      setDaemon(true);
+    }
+
+    public void run() {
+      BatchBarcodeReader batchReader = BatchBarcodeReader.this;
+      while (true) {
+        synchronized (batchReader) {
+          while (!stopped && nextCandidate >= currentCandidates.length) {
+            try {
+              batchReader.wait();
+            } catch (InterruptedException ie) {
+              // Nothing interrupts the workers; keep waiting.
+            }
+          }
+          if (stopped) {
+            return;
+          }
+        }
+        decoders.decodeAll();
+      }
+    }
+  }
+
+  private static Result decodeQRCode(DetectorResult detectorResult, Decoder decoder) {
+    DecoderResult decoderResult;
+    try {
+      decoderResult = decoder.decode(detectorResult.getBits());
+    } catch (ReaderException re) {
+      return null;
+    }
+    Result result = new Result(decoderResult.getText(), decoderResult.getRawBytes(),
+        detectorResult.getPoints(), BarcodeFormat.QR_CODE);
+    if (decoderResult.getByteSegments() != null) {
+      result.putMetadata(ResultMetadataType.BYTE_SEGMENTS, decoderResult.getByteSegments());
+    }
+    if (decoderResult.getECLevel() != null) {
+      result.putMetadata(ResultMetadataType.ERROR_CORRECTION_LEVEL,
+          decoderResult.getECLevel().toString());
+    }
+    return result;
+  }
+
+  /**
+   * A stretch of bars on one row, from left to right exclusive, including the spaces around it.
+   */
+  private static final class Stretch {
+    final int y;
+    final int left;
+    final int right;
+
+    Stretch(int y, int left, int right) {
+      this.y = y;
+      this.left = left;
+      this.right = right;
+    }
+  }
+
+  /**
+   * The stretches of bars on neighbouring rows which look like the same 1D barcode.
+   */
+  private static final class OneDCandidate {
+    private final Vector stretches = new Vector();
+    private Stretch last;
+
+    void add(Stretch stretch) {
+      stretches.addElement(stretch);
+      last = stretch;
+    }
+
+    boolean overlaps(Stretch stretch) {
+      int overlap = Math.min(last.right, stretch.right) - Math.max(last.left, stretch.left);
+      return 2 * overlap >= Math.min(last.right - last.left, stretch.right - stretch.left);
+    }
+
+    /**
+     * Tries a few of the rows, from the middle of the candidate outwards, each both ways round.
+     * Each row is tried as it is in the shared matrix, and then as the Binarizer converts it on
+     * its own, which is what MultiFormatReader decodes and is sharper on blurry photos.
+     */
+    Result decode(BinaryBitmap image, BitMatrix matrix, MultiFormatOneDReader reader, Hashtable hints) {
+      int count = stretches.size();
+      int middle = count >> 1;
+      int step = Math.max(1, count / MAX_ROWS_PER_CANDIDATE);
+      BitArray fullRow = null;
+      for (int attempt = 0; attempt < MAX_ROWS_PER_CANDIDATE; attempt++) {
+        int offset = step * ((attempt + 1) >> 1);
+        int index = (attempt & 0x01) == 0 ? middle + offset : middle - offset;
+        if (index < 0 || index >= count) {
+          continue;
+        }
+        Stretch stretch = (Stretch) stretches.elementAt(index);
+        for (int source = 0; source < 2; source++) {
+          if (source == 0) {
+            fullRow = matrix.getRow(stretch.y, fullRow);
+          } else {
+            fullRow = image.tryGetBlackRow(stretch.y, fullRow);
+            if (fullRow == null) {
+              break;
+            }
+          }
+          Result result = decodeStretch(fullRow, stretch, reader, hints);
+          if (result != null) {
+            return result;
+          }
+        }
+        if (count == 1) {
+          break;
+        }
+      }
+      return null;
+    }
+
+    private static Result decodeStretch(BitArray fullRow, Stretch stretch,
+        MultiFormatOneDReader reader, Hashtable hints) {
+      int width = stretch.right - stretch.left;
+      BitArray row = new BitArray(width);
+      for (int x = 0; x < width; x++) {
+        if (fullRow.get(stretch.left + x)) {
+          row.set(x);
+        }
+      }
+      for (int reversed = 0; reversed < 2; reversed++) {
+        if (reversed == 1) {
+          row.reverse();
+        }
+        Result result = reader.tryDecodeRow(stretch.y, row, hints);
+        if (result != null) {
+          return translate(result, stretch.left, width, reversed == 1);
+        }
+      }
+      return null;
+    }
+
+    private static Result translate(Result result, int left, int width, boolean reversed) {
+      ResultPoint[] points = result.getResultPoints();
+      ResultPoint[] translated = new ResultPoint[points.length];
+      for (int i = 0; i < points.length; i++) {
+        float x = reversed ? width - points[i].getX() - 1 : points[i].getX();
+        translated[i] = new ResultPoint(x + left, points[i].getY());
+      }
+      Result translatedResult = new Result(result.getText(), result.getRawBytes(), translated,
+          result.getBarcodeFormat());
+      Hashtable metadata = result.getResultMetadata();
+      if (metadata != null) {
+        Enumeration keys = metadata.keys();
+        while (keys.hasMoreElements()) {
+          ResultMetadataType key = (ResultMetadataType) keys.nextElement();
+          translatedResult.putMetadata(key, metadata.get(key));
+        }
+      }
+      if (reversed) {
+        translatedResult.putMetadata(ResultMetadataType.ORIENTATION, new Integer(180));
+      }
+      return translatedResult;
+    }
+  }
+
+}
@@ -18,8 +18,10 @@ package com.google.zxing.oned;
 
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.DecodeHintType;
+import com.google.zxing.NonThrowingReader;
 import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
+import com.google.zxing.ResultHolder;
 import com.google.zxing.ResultMetadataType;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.common.BitArray;
@@ -33,7 +35,7 @@ import java.util.Hashtable;
  * @author dswitkin@google.com (Daniel Switkin)
  * @author Sean Owen
  */
-public abstract class AbstractOneDReader implements OneDReader {
+public abstract class AbstractOneDReader implements OneDReader, NonThrowingReader {
 
   private static final int INTEGER_MATH_SHIFT = 8;
   static final int PATTERN_MATCH_RESULT_SCALE_FACTOR = 1 << INTEGER_MATH_SHIFT;
@@ -43,27 +45,35 @@ public abstract class AbstractOneDReader implements OneDReader {
   }
 
   public final Result decode(BinaryBitmap image, Hashtable hints) throws ReaderException {
-    try {
-      return doDecode(image, hints);
-    } catch (ReaderException re) {
+    ResultHolder holder = new ResultHolder();
+    if (!tryDecode(image, hints, holder)) {
+      throw ReaderException.getInstance();
+    }
+    return holder.getResult();
+  }
+
+  public final boolean tryDecode(BinaryBitmap image, Hashtable hints, ResultHolder holder) {
+    Result result = doDecode(image, hints);
+    if (result == null) {
       boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
       if (tryHarder && image.isRotateSupported()) {
         BinaryBitmap rotatedImage = image.rotateCounterClockwise();
-        Result result = doDecode(rotatedImage, hints);
-        // Record that we found it rotated 90 degrees CCW / 270 degrees CW
-        Hashtable metadata = result.getResultMetadata();
-        int orientation = 270;
-        if (metadata != null && metadata.containsKey(ResultMetadataType.ORIENTATION)) {
-          // But if we found it reversed in doDecode(), add in that result here:
-          orientation = (orientation +
-              ((Integer) metadata.get(ResultMetadataType.ORIENTATION)).intValue()) % 360;
+        result = doDecode(rotatedImage, hints);
+        if (result != null) {
+          // Record that we found it rotated 90 degrees CCW / 270 degrees CW
+          Hashtable metadata = result.getResultMetadata();
+          int orientation = 270;
+          if (metadata != null && metadata.containsKey(ResultMetadataType.ORIENTATION)) {
+            // But if we found it reversed in doDecode(), add in that result here:
+            orientation = (orientation +
+                ((Integer) metadata.get(ResultMetadataType.ORIENTATION)).intValue()) % 360;
+          }
+          result.putMetadata(ResultMetadataType.ORIENTATION, new Integer(orientation));
         }
-        result.putMetadata(ResultMetadataType.ORIENTATION, new Integer(orientation));
-        return result;
-      } else {
-        throw re;
       }
     }
+    holder.setResult(result);
+    return result != null;
   }
 
   /**
@@ -77,10 +87,9 @@ public abstract class AbstractOneDReader implements OneDReader {
    *
    * @param image The image to decode
    * @param hints Any hints that were requested
-   * @return The contents of the decoded barcode
-   * @throws ReaderException Any spontaneous errors which occur
+   * @return The contents of the decoded barcode, or null if none was found
    */
-  private Result doDecode(BinaryBitmap image, Hashtable hints) throws ReaderException {
+  private Result doDecode(BinaryBitmap image, Hashtable hints) {
     int width = image.getWidth();
     int height = image.getHeight();
     BitArray row = new BitArray(width);
@@ -97,6 +106,11 @@ public abstract class AbstractOneDReader implements OneDReader {
 
     for (int x = 0; x < maxLines; x++) {
 
+      // Give up if another Reader already found the barcode; see MultiFormatReader.setDecodeThreads
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
+
       // Scanning from the middle out. Determine which row we're looking at next:
       int rowStepsAboveOrBelow = (x + 1) >> 1;
       boolean isAbove = (x & 0x01) == 0; // i.e. is x even?
@@ -107,11 +121,11 @@ public abstract class AbstractOneDReader implements OneDReader {
       }
 
       // Estimate black point for this row and load it:
-      try {
-        row = image.getBlackRow(rowNumber, row);
-      } catch (ReaderException re) {
+      BitArray blackRow = image.tryGetBlackRow(rowNumber, row);
+      if (blackRow == null) {
         continue;
-      }      
+      }
+      row = blackRow;
 
       // While we have the image data in a BitArray, it's fairly cheap to reverse it in place to
       // handle decoding upside down barcodes.
@@ -119,26 +133,40 @@ public abstract class AbstractOneDReader implements OneDReader {
         if (attempt == 1) { // trying again?
           row.reverse(); // reverse the row and continue
         }
-        try {
-          // Look for a barcode
-          Result result = decodeRow(rowNumber, row, hints);
-          // We found our barcode
-          if (attempt == 1) {
-            // But it was upside down, so note that
-            result.putMetadata(ResultMetadataType.ORIENTATION, new Integer(180));
-            // And remember to flip the result points horizontally.
-            ResultPoint[] points = result.getResultPoints();
-            points[0] = new ResultPoint(width - points[0].getX() - 1, points[0].getY());
-            points[1] = new ResultPoint(width - points[1].getX() - 1, points[1].getY());
-          }
-          return result;
-        } catch (ReaderException re) {
+        // Look for a barcode
+        Result result = tryDecodeRow(rowNumber, row, hints);
+        if (result == null) {
           // continue -- just couldn't decode this row
+          continue;
         }
+        // We found our barcode
+        if (attempt == 1) {
+          // But it was upside down, so note that
+          result.putMetadata(ResultMetadataType.ORIENTATION, new Integer(180));
+          // And remember to flip the result points horizontally.
+          ResultPoint[] points = result.getResultPoints();
+          points[0] = new ResultPoint(width - points[0].getX() - 1, points[0].getY());
+          points[1] = new ResultPoint(width - points[1].getX() - 1, points[1].getY());
+        }
+        return result;
       }
     }
 
-    throw ReaderException.getInstance();
+    return null;
+  }
+
+  /**
+   * Bridges the null-returning decoding methods back to the throwing Reader API.
+   *
+   * @param result a Result, or null if nothing was found
+   * @return result, if not null
+   * @throws ReaderException if result is null
+   */
+  static Result checkResult(Result result) throws ReaderException {
+    if (result == null) {
+      throw ReaderException.getInstance();
+    }
+    return result;
   }
 
   /**
@@ -155,37 +183,42 @@ public abstract class AbstractOneDReader implements OneDReader {
    *  of pixels
    */
   static void recordPattern(BitArray row, int start, int[] counters) throws ReaderException {
+    if (!tryRecordPattern(row, start, counters)) {
+      throw ReaderException.getInstance();
+    }
+  }
+
+  /**
+   * As {@link #recordPattern(BitArray, int, int[])}, but returns false instead of throwing.
+   */
+  static boolean tryRecordPattern(BitArray row, int start, int[] counters) {
     int numCounters = counters.length;
     for (int i = 0; i < numCounters; i++) {
       counters[i] = 0;
     }
     int end = row.getSize();
     if (start >= end) {
-      throw ReaderException.getInstance();
+      return false;
     }
+    // Measure whole runs at a time rather than visiting each pixel
     boolean isWhite = !row.get(start);
     int counterPosition = 0;
     int i = start;
     while (i < end) {
-      boolean pixel = row.get(i);
-      if (pixel ^ isWhite) { // that is, exactly one is true
-        counters[counterPosition]++;
-      } else {
+      int runEnd = isWhite ? row.getNextSet(i) : row.getNextUnset(i);
+      counters[counterPosition] = runEnd - i;
+      i = runEnd;
+      if (i < end) {
         counterPosition++;
         if (counterPosition == numCounters) {
           break;
-        } else {
-          counters[counterPosition] = 1;
-          isWhite ^= true; // isWhite = !isWhite;  Is this too clever? shorter byte code, no conditional
         }
+        isWhite ^= true; // isWhite = !isWhite;  Is this too clever? shorter byte code, no conditional
       }
-      i++;
     }
     // If we read fully the last section of pixels and filled up our counters -- or filled
     // the last counter but ran off the side of the image, OK. Otherwise, a problem.
-    if (!(counterPosition == numCounters || (counterPosition == numCounters - 1 && i == end))) {
-      throw ReaderException.getInstance();
-    }
+    return counterPosition == numCounters || (counterPosition == numCounters - 1 && i == end);
   }
 
   /**
@@ -241,4 +274,16 @@ public abstract class AbstractOneDReader implements OneDReader {
   public abstract Result decodeRow(int rowNumber, BitArray row, Hashtable hints)
       throws ReaderException;
 
+  /**
+   * This default implementation just catches the exception from decodeRow(). Subclasses override
+   * it so that the common case, a row with no start pattern, is reported without one.
+   */
+  public Result tryDecodeRow(int rowNumber, BitArray row, Hashtable hints) {
+    try {
+      return decodeRow(rowNumber, row, hints);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
 }
@@ -84,17 +84,28 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
   }
 
   private final StringBuffer decodeRowStringBuffer;
+  private final int[] startGuardCounters;
 
   protected AbstractUPCEANReader() {
     decodeRowStringBuffer = new StringBuffer(20);
+    startGuardCounters = new int[START_END_PATTERN.length];
   }
 
-  static int[] findStartGuardPattern(BitArray row) throws ReaderException {
+  /**
+   * @param row row of black/white values to search
+   * @param counters scratch space, START_END_PATTERN.length long, so that each row doesn't need
+   * its own allocation
+   * @return start/end horizontal offset of the start guard pattern, or null if there is none
+   */
+  static int[] findStartGuardPattern(BitArray row, int[] counters) {
     boolean foundStart = false;
     int[] startRange = null;
     int nextStart = 0;
     while (!foundStart) {
-      startRange = findGuardPattern(row, nextStart, false, START_END_PATTERN);
+      startRange = findGuardPattern(row, nextStart, false, START_END_PATTERN, counters);
+      if (startRange == null) {
+        return null;
+      }
       int start = startRange[0];
       nextStart = startRange[1];
       // Make sure there is a quiet zone at least as big as the start pattern before the barcode.
@@ -110,27 +121,45 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
 
   public final Result decodeRow(int rowNumber, BitArray row, Hashtable hints)
       throws ReaderException {
-    return decodeRow(rowNumber, row, findStartGuardPattern(row));
+    return checkResult(tryDecodeRow(rowNumber, row, hints));
+  }
+
+  public final Result tryDecodeRow(int rowNumber, BitArray row, Hashtable hints) {
+    int[] startGuardRange = findStartGuardPattern(row, startGuardCounters);
+    if (startGuardRange == null) {
+      return null;
+    }
+    return tryDecodeRow(rowNumber, row, startGuardRange);
   }
 
   public final Result decodeRow(int rowNumber, BitArray row, int[] startGuardRange)
       throws ReaderException {
+    return checkResult(tryDecodeRow(rowNumber, row, startGuardRange));
+  }
+
+  public final Result tryDecodeRow(int rowNumber, BitArray row, int[] startGuardRange) {
     StringBuffer result = decodeRowStringBuffer;
     result.setLength(0);
     int endStart = decodeMiddle(row, startGuardRange, result);
+    if (endStart < 0) {
+      return null;
+    }
     int[] endRange = decodeEnd(row, endStart);
+    if (endRange == null) {
+      return null;
+    }
 
     // Make sure there is a quiet zone at least as big as the end pattern after the barcode. The
     // spec might want more whitespace, but in practice this is the maximum we can count on.
     int end = endRange[1];
     int quietEnd = end + (end - endRange[0]);
     if (quietEnd >= row.getSize() || !row.isRange(end, quietEnd, false)) {
-      throw ReaderException.getInstance();
+      return null;
     }
 
     String resultString = result.toString();
     if (!checkChecksum(resultString)) {
-      throw ReaderException.getInstance();
+      return null;
     }
 
     float left = (float) (startGuardRange[1] + startGuardRange[0]) / 2.0f;
@@ -148,7 +177,7 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
   /**
    * @return {@link #checkStandardUPCEANChecksum(String)} 
    */
-  boolean checkChecksum(String s) throws ReaderException {
+  boolean checkChecksum(String s) {
     return checkStandardUPCEANChecksum(s);
   }
 
@@ -157,10 +186,10 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
    * whether the checksum is correct or not.
    *
    * @param s string of digits to check
-   * @return true iff string of digits passes the UPC/EAN checksum algorithm
-   * @throws ReaderException if the string does not contain only digits
+   * @return true iff string of digits passes the UPC/EAN checksum algorithm, which also means
+   *  it contains only digits
    */
-  private static boolean checkStandardUPCEANChecksum(String s) throws ReaderException {
+  private static boolean checkStandardUPCEANChecksum(String s) {
     int length = s.length();
     if (length == 0) {
       return false;
@@ -170,7 +199,7 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
     for (int i = length - 2; i >= 0; i -= 2) {
       int digit = (int) s.charAt(i) - (int) '0';
       if (digit < 0 || digit > 9) {
-        throw ReaderException.getInstance();
+        return false;
       }
       sum += digit;
     }
@@ -178,7 +207,7 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
     for (int i = length - 1; i >= 0; i -= 2) {
       int digit = (int) s.charAt(i) - (int) '0';
       if (digit < 0 || digit > 9) {
-        throw ReaderException.getInstance();
+        return false;
       }
       sum += digit;
     }
@@ -192,13 +221,15 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
    * @param row row of black/white values to search
    * @param startRange start/end offset of start guard pattern
    * @param resultString {@link StringBuffer} to append decoded chars to
-   * @return horizontal offset of first pixel after the "middle" that was decoded
-   * @throws ReaderException if decoding could not complete successfully
+   * @return horizontal offset of first pixel after the "middle" that was decoded, or -1 if
+   *  decoding could not complete successfully
    */
-  protected abstract int decodeMiddle(BitArray row, int[] startRange, StringBuffer resultString)
-      throws ReaderException;
+  protected abstract int decodeMiddle(BitArray row, int[] startRange, StringBuffer resultString);
 
-  int[] decodeEnd(BitArray row, int endStart) throws ReaderException {
+  /**
+   * @return start/end horizontal offset of the end guard pattern, or null if there is none
+   */
+  int[] decodeEnd(BitArray row, int endStart) {
     return findGuardPattern(row, endStart, false, START_END_PATTERN);
   }
 
@@ -209,29 +240,39 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
    * pixel counts, otherwise, it is interpreted as black/white/black/...
    * @param pattern pattern of counts of number of black and white pixels that are being
    * searched for as a pattern
-   * @return start/end horizontal offset of guard pattern, as an array of two ints
-   * @throws ReaderException if pattern is not found
+   * @return start/end horizontal offset of guard pattern, as an array of two ints, or null if
+   *  pattern is not found
    */
-  static int[] findGuardPattern(BitArray row, int rowOffset, boolean whiteFirst, int[] pattern)
-      throws ReaderException {
+  static int[] findGuardPattern(BitArray row, int rowOffset, boolean whiteFirst, int[] pattern) {
+    return findGuardPattern(row, rowOffset, whiteFirst, pattern, new int[pattern.length]);
+  }
+
+  /**
+   * As above, but uses the caller's counters, which must be pattern.length long.
+   */
+  static int[] findGuardPattern(BitArray row, int rowOffset, boolean whiteFirst, int[] pattern,
+      int[] counters) {
     int patternLength = pattern.length;
-    int[] counters = new int[patternLength];
+    for (int i = 0; i < patternLength; i++) {
+      counters[i] = 0;
+    }
     int width = row.getSize();
     boolean isWhite = false;
-    while (rowOffset < width) {
-      isWhite = !row.get(rowOffset);
-      if (whiteFirst == isWhite) {
-        break;
-      }
-      rowOffset++;
+    if (rowOffset < width) {
+      rowOffset = whiteFirst ? row.getNextUnset(rowOffset) : row.getNextSet(rowOffset);
+      isWhite = whiteFirst;
     }
 
     int counterPosition = 0;
     int patternStart = rowOffset;
-    for (int x = rowOffset; x < width; x++) {
+    int x = rowOffset;
+    while (x < width) {
       boolean pixel = row.get(x);
       if (pixel ^ isWhite) {
-        counters[counterPosition]++;
+        // Count the rest of this run at once
+        int runEnd = isWhite ? row.getNextSet(x) : row.getNextUnset(x);
+        counters[counterPosition] += runEnd - x;
+        x = runEnd;
       } else {
         if (counterPosition == patternLength - 1) {
           if (patternMatchVariance(counters, pattern, MAX_INDIVIDUAL_VARIANCE) < MAX_AVG_VARIANCE) {
@@ -247,11 +288,12 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
         } else {
           counterPosition++;
         }
-        counters[counterPosition] = 1;
+        // The new run, including this pixel, is counted on the next pass
+        counters[counterPosition] = 0;
         isWhite ^= true; // isWhite = !isWhite;
       }
     }
-    throw ReaderException.getInstance();
+    return null;
   }
 
   /**
@@ -263,12 +305,12 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
    * @param patterns the set of patterns to use to decode -- sometimes different encodings
    * for the digits 0-9 are used, and this indicates the encodings for 0 to 9 that should
    * be used
-   * @return horizontal offset of first pixel beyond the decoded digit
-   * @throws ReaderException if digit cannot be decoded
+   * @return the index of the best matching pattern, or -1 if digit cannot be decoded
    */
-  static int decodeDigit(BitArray row, int[] counters, int rowOffset, int[][] patterns)
-      throws ReaderException {
-    recordPattern(row, rowOffset, counters);
+  static int decodeDigit(BitArray row, int[] counters, int rowOffset, int[][] patterns) {
+    if (!tryRecordPattern(row, rowOffset, counters)) {
+      return -1;
+    }
     int bestVariance = MAX_AVG_VARIANCE; // worst variance we'll accept
     int bestMatch = -1;
     int max = patterns.length;
@@ -280,11 +322,7 @@ public abstract class AbstractUPCEANReader extends AbstractOneDReader implements
         bestMatch = i;
       }
     }
-    if (bestMatch >= 0) {
-      return bestMatch;
-    } else {
-      throw ReaderException.getInstance();
-    }
+    return bestMatch;
   }
 
 }
\ No newline at end of file
@@ -161,26 +161,32 @@ public final class Code128Reader extends AbstractOneDReader {
   private static final int CODE_START_C = 105;
   private static final int CODE_STOP = 106;
 
-  private static int[] findStartPattern(BitArray row) throws ReaderException {
+  private final int[] startPatternCounters = new int[6];
+
+  /**
+   * @return start and end of the start pattern plus its start code, or null if none was found
+   */
+  private int[] findStartPattern(BitArray row) {
     int width = row.getSize();
-    int rowOffset = 0;
-    while (rowOffset < width) {
-      if (row.get(rowOffset)) {
-        break;
-      }
-      rowOffset++;
-    }
+    int rowOffset = row.getNextSet(0);
 
     int counterPosition = 0;
-    int[] counters = new int[6];
+    int[] counters = startPatternCounters;
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = 0;
+    }
     int patternStart = rowOffset;
     boolean isWhite = false;
     int patternLength = counters.length;
 
-    for (int i = rowOffset; i < width; i++) {
+    int i = rowOffset;
+    while (i < width) {
       boolean pixel = row.get(i);
       if (pixel ^ isWhite) {
-        counters[counterPosition]++;
+        // Count the rest of this run at once
+        int runEnd = isWhite ? row.getNextSet(i) : row.getNextUnset(i);
+        counters[counterPosition] += runEnd - i;
+        i = runEnd;
       } else {
         if (counterPosition == patternLength - 1) {
           int bestVariance = MAX_AVG_VARIANCE;
@@ -210,11 +216,12 @@ public final class Code128Reader extends AbstractOneDReader {
         } else {
           counterPosition++;
         }
-        counters[counterPosition] = 1;
+        // The new run, including this pixel, is counted on the next pass
+        counters[counterPosition] = 0;
         isWhite ^= true; // isWhite = !isWhite;
       }
     }
-    throw ReaderException.getInstance();
+    return null;
   }
 
   private static int decodeCode(BitArray row, int[] counters, int rowOffset) throws ReaderException {
@@ -238,8 +245,28 @@ public final class Code128Reader extends AbstractOneDReader {
   }
 
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws ReaderException {
+    int[] startPatternInfo = findStartPattern(row);
+    if (startPatternInfo == null) {
+      throw ReaderException.getInstance();
+    }
+    return decodeRowFrom(rowNumber, row, startPatternInfo);
+  }
 
+  public Result tryDecodeRow(int rowNumber, BitArray row, Hashtable hints) {
+    // Most rows don't contain a start pattern at all, so that case is settled without an exception
     int[] startPatternInfo = findStartPattern(row);
+    if (startPatternInfo == null) {
+      return null;
+    }
+    try {
+      return decodeRowFrom(rowNumber, row, startPatternInfo);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  private Result decodeRowFrom(int rowNumber, BitArray row, int[] startPatternInfo)
+      throws ReaderException {
     int startCode = startPatternInfo[2];
     int codeSet;
     switch (startCode) {
@@ -420,9 +447,7 @@ public final class Code128Reader extends AbstractOneDReader {
     // Check for ample whitespace following pattern, but, to do this we first need to remember that
     // we fudged decoding CODE_STOP since it actually has 7 bars, not 6. There is a black bar left
     // to read off. Would be slightly better to properly read. Here we just skip it:
-    while (row.get(nextStart)) {
-      nextStart++;
-    }
+    nextStart = row.getNextUnset(nextStart);
     if (!row.isRange(nextStart, Math.min(row.getSize(), nextStart + (nextStart - lastStart) / 2),
         false)) {
       throw ReaderException.getInstance();
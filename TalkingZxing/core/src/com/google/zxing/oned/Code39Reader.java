@@ -51,6 +51,7 @@ public final class Code39Reader extends AbstractOneDReader {
 
   private final boolean usingCheckDigit;
   private final boolean extendedMode;
+  private final int[] asteriskCounters = new int[9];
 
   /**
    * Creates a reader that assumes all encoded data is data, and does not treat the final
@@ -89,15 +90,32 @@ public final class Code39Reader extends AbstractOneDReader {
   }
 
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws ReaderException {
+    int[] start = findAsteriskPattern(row);
+    if (start == null) {
+      throw ReaderException.getInstance();
+    }
+    return decodeRowFrom(rowNumber, row, start);
+  }
 
+  public Result tryDecodeRow(int rowNumber, BitArray row, Hashtable hints) {
+    // Most rows don't contain a start pattern at all, so that case is settled without an exception
     int[] start = findAsteriskPattern(row);
+    if (start == null) {
+      return null;
+    }
+    try {
+      return decodeRowFrom(rowNumber, row, start);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  private Result decodeRowFrom(int rowNumber, BitArray row, int[] start) throws ReaderException {
     int nextStart = start[1];
     int end = row.getSize();
 
     // Read off white space
-    while (nextStart < end && !row.get(nextStart)) {
-      nextStart++;
-    }
+    nextStart = row.getNextSet(nextStart);
 
     StringBuffer result = new StringBuffer();
     int[] counters = new int[9];
@@ -106,6 +124,9 @@ public final class Code39Reader extends AbstractOneDReader {
     do {
       recordPattern(row, nextStart, counters);
       int pattern = toNarrowWidePattern(counters);
+      if (pattern < 0) {
+        throw ReaderException.getInstance();
+      }
       decodedChar = patternToChar(pattern);
       result.append(decodedChar);
       lastStart = nextStart;
@@ -113,9 +134,7 @@ public final class Code39Reader extends AbstractOneDReader {
         nextStart += counters[i];
       }
       // Read off white space
-      while (nextStart < end && !row.get(nextStart)) {
-        nextStart++;
-      }
+      nextStart = row.getNextSet(nextStart);
     } while (decodedChar != '*');
     result.deleteCharAt(result.length() - 1); // remove asterisk
 
@@ -165,37 +184,37 @@ public final class Code39Reader extends AbstractOneDReader {
 
   }
 
-  private static int[] findAsteriskPattern(BitArray row) throws ReaderException {
+  /**
+   * @return start and end of the start pattern, or null if none was found
+   */
+  private int[] findAsteriskPattern(BitArray row) {
     int width = row.getSize();
-    int rowOffset = 0;
-    while (rowOffset < width) {
-      if (row.get(rowOffset)) {
-        break;
-      }
-      rowOffset++;
-    }
+    int rowOffset = row.getNextSet(0);
 
     int counterPosition = 0;
-    int[] counters = new int[9];
+    int[] counters = asteriskCounters;
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = 0;
+    }
     int patternStart = rowOffset;
     boolean isWhite = false;
     int patternLength = counters.length;
 
-    for (int i = rowOffset; i < width; i++) {
+    int i = rowOffset;
+    while (i < width) {
       boolean pixel = row.get(i);
       if (pixel ^ isWhite) {
-        counters[counterPosition]++;
+        // Count the rest of this run at once
+        int runEnd = isWhite ? row.getNextSet(i) : row.getNextUnset(i);
+        counters[counterPosition] += runEnd - i;
+        i = runEnd;
       } else {
         if (counterPosition == patternLength - 1) {
-          try {
-            if (toNarrowWidePattern(counters) == ASTERISK_ENCODING) {
-              // Look for whitespace before start pattern, >= 50% of width of start pattern
-              if (row.isRange(Math.max(0, patternStart - (i - patternStart) / 2), patternStart, false)) {
-                return new int[]{patternStart, i};
-              }
+          if (toNarrowWidePattern(counters) == ASTERISK_ENCODING) {
+            // Look for whitespace before start pattern, >= 50% of width of start pattern
+            if (row.isRange(Math.max(0, patternStart - (i - patternStart) / 2), patternStart, false)) {
+              return new int[]{patternStart, i};
             }
-          } catch (ReaderException re) {
-            // no match, continue
           }
           patternStart += counters[0] + counters[1];
           for (int y = 2; y < patternLength; y++) {
@@ -207,14 +226,18 @@ public final class Code39Reader extends AbstractOneDReader {
         } else {
           counterPosition++;
         }
-        counters[counterPosition] = 1;
+        // The new run, including this pixel, is counted on the next pass
+        counters[counterPosition] = 0;
         isWhite ^= true; // isWhite = !isWhite;
       }
     }
-    throw ReaderException.getInstance();
+    return null;
   }
 
-  private static int toNarrowWidePattern(int[] counters) throws ReaderException {
+  /**
+   * @return the narrow/wide pattern encoded by counters, or -1 if counters don't describe one
+   */
+  private static int toNarrowWidePattern(int[] counters) {
     int numCounters = counters.length;
     int maxNarrowCounter = 0;
     int wideCounters;
@@ -248,14 +271,14 @@ public final class Code39Reader extends AbstractOneDReader {
             wideCounters--;
             // totalWideCountersWidth = 3 * average, so this checks if counter >= 3/2 * average
             if ((counter << 1) >= totalWideCountersWidth) {
-              throw ReaderException.getInstance();
+              return -1;
             }
           }
         }
         return pattern;
       }
     } while (wideCounters > 3);
-    throw ReaderException.getInstance();
+    return -1;
   }
 
   private static char patternToChar(int pattern) throws ReaderException {
@@ -16,7 +16,6 @@
 
 package com.google.zxing.oned;
 
-import com.google.zxing.ReaderException;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.common.BitArray;
 
@@ -68,7 +67,7 @@ public final class EAN13Reader extends AbstractUPCEANReader {
     decodeMiddleCounters = new int[4];
   }
 
-  protected int decodeMiddle(BitArray row, int[] startRange, StringBuffer resultString) throws ReaderException {
+  protected int decodeMiddle(BitArray row, int[] startRange, StringBuffer resultString) {
     int[] counters = decodeMiddleCounters;
     counters[0] = 0;
     counters[1] = 0;
@@ -81,6 +80,9 @@ public final class EAN13Reader extends AbstractUPCEANReader {
 
     for (int x = 0; x < 6 && rowOffset < end; x++) {
       int bestMatch = decodeDigit(row, counters, rowOffset, L_AND_G_PATTERNS);
+      if (bestMatch < 0) {
+        return -1;
+      }
       resultString.append((char) ('0' + bestMatch % 10));
       for (int i = 0; i < counters.length; i++) {
         rowOffset += counters[i];
@@ -90,13 +92,21 @@ public final class EAN13Reader extends AbstractUPCEANReader {
       }
     }
 
-    determineFirstDigit(resultString, lgPatternFound);
+    if (!determineFirstDigit(resultString, lgPatternFound)) {
+      return -1;
+    }
 
     int[] middleRange = findGuardPattern(row, rowOffset, true, MIDDLE_PATTERN);
+    if (middleRange == null) {
+      return -1;
+    }
     rowOffset = middleRange[1];
 
     for (int x = 0; x < 6 && rowOffset < end; x++) {
       int bestMatch = decodeDigit(row, counters, rowOffset, L_PATTERNS);
+      if (bestMatch < 0) {
+        return -1;
+      }
       resultString.append((char) ('0' + bestMatch));
       for (int i = 0; i < counters.length; i++) {
         rowOffset += counters[i];
@@ -117,16 +127,16 @@ public final class EAN13Reader extends AbstractUPCEANReader {
    * @param resultString string to insert decoded first digit into
    * @param lgPatternFound int whose bits indicates the pattern of odd/even L/G patterns used to
    * encode digits
-   * @throws ReaderException if first digit cannot be determined
+   * @return false if first digit cannot be determined
    */
-  private static void determineFirstDigit(StringBuffer resultString, int lgPatternFound) throws ReaderException {
+  private static boolean determineFirstDigit(StringBuffer resultString, int lgPatternFound) {
     for (int d = 0; d < 10; d++) {
       if (lgPatternFound == FIRST_DIGIT_ENCODINGS[d]) {
         resultString.insert(0, (char) ('0' + d));
-        return;
+        return true;
       }
     }
-    throw ReaderException.getInstance();
+    return false;
   }
 
 }
\ No newline at end of file
@@ -16,7 +16,6 @@
 
 package com.google.zxing.oned;
 
-import com.google.zxing.ReaderException;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.common.BitArray;
 
@@ -33,8 +32,7 @@ public final class EAN8Reader extends AbstractUPCEANReader {
     decodeMiddleCounters = new int[4];
   }
 
-  protected int decodeMiddle(BitArray row, int[] startRange, StringBuffer result)
-      throws ReaderException {
+  protected int decodeMiddle(BitArray row, int[] startRange, StringBuffer result) {
     int[] counters = decodeMiddleCounters;
     counters[0] = 0;
     counters[1] = 0;
@@ -45,6 +43,9 @@ public final class EAN8Reader extends AbstractUPCEANReader {
 
     for (int x = 0; x < 4 && rowOffset < end; x++) {
       int bestMatch = decodeDigit(row, counters, rowOffset, L_PATTERNS);
+      if (bestMatch < 0) {
+        return -1;
+      }
       result.append((char) ('0' + bestMatch));
       for (int i = 0; i < counters.length; i++) {
         rowOffset += counters[i];
@@ -52,10 +53,16 @@ public final class EAN8Reader extends AbstractUPCEANReader {
     }
 
     int[] middleRange = findGuardPattern(row, rowOffset, true, MIDDLE_PATTERN);
+    if (middleRange == null) {
+      return -1;
+    }
     rowOffset = middleRange[1];
 
     for (int x = 0; x < 4 && rowOffset < end; x++) {
       int bestMatch = decodeDigit(row, counters, rowOffset, L_PATTERNS);
+      if (bestMatch < 0) {
+        return -1;
+      }
       result.append((char) ('0' + bestMatch));
       for (int i = 0; i < counters.length; i++) {
         rowOffset += counters[i];
@@ -76,11 +76,32 @@ public final class ITFReader extends AbstractOneDReader {
   };
 
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws ReaderException {
-
     // Find out where the Middle section (payload) starts & ends
     int[] startRange = decodeStart(row);
-    int[] endRange = decodeEnd(row);
+    int[] endRange = startRange == null ? null : decodeEnd(row);
+    if (endRange == null) {
+      throw ReaderException.getInstance();
+    }
+    return decodeRowBetween(rowNumber, row, hints, startRange, endRange);
+  }
 
+  public Result tryDecodeRow(int rowNumber, BitArray row, Hashtable hints) {
+    // Most rows don't contain start and end patterns at all, so that case is settled without
+    // an exception
+    int[] startRange = decodeStart(row);
+    int[] endRange = startRange == null ? null : decodeEnd(row);
+    if (endRange == null) {
+      return null;
+    }
+    try {
+      return decodeRowBetween(rowNumber, row, hints, startRange, endRange);
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  private static Result decodeRowBetween(int rowNumber, BitArray row, Hashtable hints,
+      int[] startRange, int[] endRange) throws ReaderException {
     StringBuffer result = new StringBuffer(20);
     decodeMiddle(row, startRange[1], endRange[0], result);
     String resultString = result.toString();
@@ -162,19 +183,26 @@ public final class ITFReader extends AbstractOneDReader {
    *
    * @param row row of black/white values to search
    * @return Array, containing index of start of 'start block' and end of
-   *         'start block'
-   * @throws ReaderException
+   *         'start block', or null if no start block was found
    */
-  int[] decodeStart(BitArray row) throws ReaderException {
+  int[] decodeStart(BitArray row) {
     int endStart = skipWhiteSpace(row);
+    if (endStart < 0) {
+      return null;
+    }
     int[] startPattern = findGuardPattern(row, endStart, START_PATTERN);
+    if (startPattern == null) {
+      return null;
+    }
 
     // Determine the width of a narrow line in pixels. We can do this by
     // getting the width of the start pattern and dividing by 4 because its
     // made up of 4 narrow lines.
     this.narrowLineWidth = (startPattern[1] - startPattern[0]) >> 2;
 
-    validateQuietZone(row, startPattern[0]);
+    if (!validateQuietZone(row, startPattern[0])) {
+      return null;
+    }
 
     return startPattern;
   }
@@ -192,9 +220,9 @@ public final class ITFReader extends AbstractOneDReader {
    *
    * @param row bit array representing the scanned barcode.
    * @param startPattern index into row of the start or end pattern.
-   * @throws ReaderException if the quiet zone cannot be found, a ReaderException is thrown.
+   * @return false if the quiet zone cannot be found
    */
-  private void validateQuietZone(BitArray row, int startPattern) throws ReaderException {
+  private boolean validateQuietZone(BitArray row, int startPattern) {
 
     int quietCount = this.narrowLineWidth * 10;  // expect to find this many pixels of quiet zone
 
@@ -204,30 +232,21 @@ public final class ITFReader extends AbstractOneDReader {
       }
       quietCount--;
     }
-    if (quietCount != 0) {
-      // Unable to find the necessary number of quiet zone pixels.
-      throw ReaderException.getInstance();
-    }
+    // Unless quietCount is 0 we were unable to find the necessary number of quiet zone pixels.
+    return quietCount == 0;
   }
 
   /**
    * Skip all whitespace until we get to the first black line.
    *
    * @param row row of black/white values to search
-   * @return index of the first black line.
-   * @throws ReaderException Throws exception if no black lines are found in the row
+   * @return index of the first black line, or -1 if no black lines are found in the row
    */
-  private static int skipWhiteSpace(BitArray row) throws ReaderException {
+  private static int skipWhiteSpace(BitArray row) {
     int width = row.getSize();
-    int endStart = 0;
-    while (endStart < width) {
-      if (row.get(endStart)) {
-        break;
-      }
-      endStart++;
-    }
+    int endStart = row.getNextSet(0);
     if (endStart == width) {
-      throw ReaderException.getInstance();
+      return -1;
     }
 
     return endStart;
@@ -238,23 +257,30 @@ public final class ITFReader extends AbstractOneDReader {
    *
    * @param row row of black/white values to search
    * @return Array, containing index of start of 'end block' and end of 'end
-   *         block'
-   * @throws ReaderException
+   *         block', or null if no end block was found
    */
 
-  int[] decodeEnd(BitArray row) throws ReaderException {
+  int[] decodeEnd(BitArray row) {
 
     // For convenience, reverse the row and then
     // search from 'the start' for the end block
     row.reverse();
     try {
       int endStart = skipWhiteSpace(row);
+      if (endStart < 0) {
+        return null;
+      }
       int[] endPattern = findGuardPattern(row, endStart, END_PATTERN_REVERSED);
+      if (endPattern == null) {
+        return null;
+      }
 
       // The start & end patterns must be pre/post fixed by a quiet zone. This
       // zone must be at least 10 times the width of a narrow line.
       // ref: http://www.barcode-1.net/i25code.html
-      validateQuietZone(row, endPattern[0]);
+      if (!validateQuietZone(row, endPattern[0])) {
+        return null;
+      }
 
       // Now recalculate the indices of where the 'endblock' starts & stops to
       // accommodate
@@ -276,10 +302,9 @@ public final class ITFReader extends AbstractOneDReader {
    * @param pattern   pattern of counts of number of black and white pixels that are
    *                  being searched for as a pattern
    * @return start/end horizontal offset of guard pattern, as an array of two
-   *         ints
-   * @throws ReaderException if pattern is not found
+   *         ints, or null if pattern is not found
    */
-  private static int[] findGuardPattern(BitArray row, int rowOffset, int[] pattern) throws ReaderException {
+  private static int[] findGuardPattern(BitArray row, int rowOffset, int[] pattern) {
 
     // TODO: This is very similar to implementation in AbstractUPCEANReader. Consider if they can be
     // merged to a single method.
@@ -290,10 +315,14 @@ public final class ITFReader extends AbstractOneDReader {
 
     int counterPosition = 0;
     int patternStart = rowOffset;
-    for (int x = rowOffset; x < width; x++) {
+    int x = rowOffset;
+    while (x < width) {
       boolean pixel = row.get(x);
       if (pixel ^ isWhite) {
-        counters[counterPosition]++;
+        // Count the rest of this run at once
+        int runEnd = isWhite ? row.getNextSet(x) : row.getNextUnset(x);
+        counters[counterPosition] += runEnd - x;
+        x = runEnd;
       } else {
         if (counterPosition == patternLength - 1) {
           if (patternMatchVariance(counters, pattern, MAX_INDIVIDUAL_VARIANCE) < MAX_AVG_VARIANCE) {
@@ -309,11 +338,12 @@ public final class ITFReader extends AbstractOneDReader {
         } else {
           counterPosition++;
         }
-        counters[counterPosition] = 1;
+        // The new run, including this pixel, is counted on the next pass
+        counters[counterPosition] = 0;
         isWhite ^= true; // isWhite = !isWhite;
       }
     }
-    throw ReaderException.getInstance();
+    return null;
   }
 
   /**
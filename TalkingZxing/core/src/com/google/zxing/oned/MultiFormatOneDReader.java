@@ -63,17 +63,20 @@ public final class MultiFormatOneDReader extends AbstractOneDReader {
   }
 
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws ReaderException {
+    return checkResult(tryDecodeRow(rowNumber, row, hints));
+  }
+
+  public Result tryDecodeRow(int rowNumber, BitArray row, Hashtable hints) {
     int size = readers.size();
     for (int i = 0; i < size; i++) {
       OneDReader reader = (OneDReader) readers.elementAt(i);
-      try {
-        return reader.decodeRow(rowNumber, row, hints);
-      } catch (ReaderException re) {
-        // continue
+      Result result = reader.tryDecodeRow(rowNumber, row, hints);
+      if (result != null) {
+        return result;
       }
     }
 
-    throw ReaderException.getInstance();
+    return null;
   }
 
 }
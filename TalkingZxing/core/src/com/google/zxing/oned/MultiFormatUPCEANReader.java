@@ -35,6 +35,7 @@ import java.util.Vector;
 public final class MultiFormatUPCEANReader extends AbstractOneDReader {
 
   private final Vector readers;
+  private final int[] startGuardCounters;
 
   public MultiFormatUPCEANReader(Hashtable hints) {
     Vector possibleFormats = hints == null ? null : (Vector) hints.get(DecodeHintType.POSSIBLE_FORMATS);
@@ -58,18 +59,24 @@ public final class MultiFormatUPCEANReader extends AbstractOneDReader {
       readers.addElement(new EAN8Reader());
       readers.addElement(new UPCEReader());
     }
+    startGuardCounters = new int[AbstractUPCEANReader.START_END_PATTERN.length];
   }
 
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws ReaderException {
+    return checkResult(tryDecodeRow(rowNumber, row, hints));
+  }
+
+  public Result tryDecodeRow(int rowNumber, BitArray row, Hashtable hints) {
     // Compute this location once and reuse it on multiple implementations
-    int[] startGuardPattern = AbstractUPCEANReader.findStartGuardPattern(row);
+    int[] startGuardPattern = AbstractUPCEANReader.findStartGuardPattern(row, startGuardCounters);
+    if (startGuardPattern == null) {
+      return null;
+    }
     int size = readers.size();
     for (int i = 0; i < size; i++) {
       UPCEANReader reader = (UPCEANReader) readers.elementAt(i);
-      Result result;
-      try {
-        result = reader.decodeRow(rowNumber, row, startGuardPattern);
-      } catch (ReaderException re) {
+      Result result = reader.tryDecodeRow(rowNumber, row, startGuardPattern);
+      if (result == null) {
         continue;
       }
       // Special case: a 12-digit code encoded in UPC-A is identical to a "0"
@@ -88,7 +95,7 @@ public final class MultiFormatUPCEANReader extends AbstractOneDReader {
       return result;
     }
 
-    throw ReaderException.getInstance();
+    return null;
   }
 
 }
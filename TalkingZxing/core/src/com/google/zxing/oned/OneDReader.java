@@ -43,4 +43,15 @@ public interface OneDReader extends Reader {
    */
   Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws ReaderException;
 
+  /**
+   * <p>Like {@link #decodeRow(int, BitArray, Hashtable)}, but returns null rather than throwing
+   * when the row does not contain a barcode.</p>
+   *
+   * @param rowNumber row number from top of the row
+   * @param row the black/white pixel data of the row
+   * @param hints decode hints
+   * @return {@link Result} containing encoded string and start/end of barcode, or null
+   */
+  Result tryDecodeRow(int rowNumber, BitArray row, Hashtable hints);
+
 }
\ No newline at end of file
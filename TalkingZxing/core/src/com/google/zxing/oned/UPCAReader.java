@@ -38,10 +38,18 @@ public final class UPCAReader implements UPCEANReader {
     return maybeReturnResult(ean13Reader.decodeRow(rowNumber, row, startGuardRange));
   }
 
+  public Result tryDecodeRow(int rowNumber, BitArray row, int[] startGuardRange) {
+    return toUPCA(ean13Reader.tryDecodeRow(rowNumber, row, startGuardRange));
+  }
+
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws ReaderException {
     return maybeReturnResult(ean13Reader.decodeRow(rowNumber, row, hints));
   }
 
+  public Result tryDecodeRow(int rowNumber, BitArray row, Hashtable hints) {
+    return toUPCA(ean13Reader.tryDecodeRow(rowNumber, row, hints));
+  }
+
   public Result decode(BinaryBitmap image) throws ReaderException {
     return maybeReturnResult(ean13Reader.decode(image));
   }
@@ -51,11 +59,19 @@ public final class UPCAReader implements UPCEANReader {
   }
 
   private static Result maybeReturnResult(Result result) throws ReaderException {
+    return AbstractOneDReader.checkResult(toUPCA(result));
+  }
+
+  // Returns null if result is null or is an EAN-13 code which isn't also a UPC-A code.
+  private static Result toUPCA(Result result) {
+    if (result == null) {
+      return null;
+    }
     String text = result.getText();
     if (text.charAt(0) == '0') {
       return new Result(text.substring(1), null, result.getResultPoints(), BarcodeFormat.UPC_A);
     } else {
-      throw ReaderException.getInstance();
+      return null;
     }
   }
 
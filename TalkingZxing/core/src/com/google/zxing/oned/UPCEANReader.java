@@ -35,4 +35,10 @@ public interface UPCEANReader extends OneDReader {
    */
   Result decodeRow(int rowNumber, BitArray row, int[] startGuardRange) throws ReaderException;
 
+  /**
+   * <p>Like {@link #decodeRow(int, BitArray, int[])}, but returns null rather than throwing
+   * when the row can't be decoded.</p>
+   */
+  Result tryDecodeRow(int rowNumber, BitArray row, int[] startGuardRange);
+
 }
\ No newline at end of file
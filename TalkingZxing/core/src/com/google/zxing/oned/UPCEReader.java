@@ -16,7 +16,6 @@
 
 package com.google.zxing.oned;
 
-import com.google.zxing.ReaderException;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.common.BitArray;
 
@@ -52,7 +51,7 @@ public final class UPCEReader extends AbstractUPCEANReader {
     decodeMiddleCounters = new int[4];
   }
 
-  protected int decodeMiddle(BitArray row, int[] startRange, StringBuffer result) throws ReaderException {
+  protected int decodeMiddle(BitArray row, int[] startRange, StringBuffer result) {
     int[] counters = decodeMiddleCounters;
     counters[0] = 0;
     counters[1] = 0;
@@ -65,6 +64,9 @@ public final class UPCEReader extends AbstractUPCEANReader {
 
     for (int x = 0; x < 6 && rowOffset < end; x++) {
       int bestMatch = decodeDigit(row, counters, rowOffset, L_AND_G_PATTERNS);
+      if (bestMatch < 0) {
+        return -1;
+      }
       result.append((char) ('0' + bestMatch % 10));
       for (int i = 0; i < counters.length; i++) {
         rowOffset += counters[i];
@@ -74,32 +76,34 @@ public final class UPCEReader extends AbstractUPCEANReader {
       }
     }
 
-    determineNumSysAndCheckDigit(result, lgPatternFound);
+    if (!determineNumSysAndCheckDigit(result, lgPatternFound)) {
+      return -1;
+    }
 
     return rowOffset;
   }
 
-  protected int[] decodeEnd(BitArray row, int endStart) throws ReaderException {
+  protected int[] decodeEnd(BitArray row, int endStart) {
     return findGuardPattern(row, endStart, true, MIDDLE_END_PATTERN);
   }
 
-  protected boolean checkChecksum(String s) throws ReaderException {
+  protected boolean checkChecksum(String s) {
     return super.checkChecksum(convertUPCEtoUPCA(s));
   }
 
-  private static void determineNumSysAndCheckDigit(StringBuffer resultString, int lgPatternFound)
-      throws ReaderException {
+  private static boolean determineNumSysAndCheckDigit(StringBuffer resultString,
+      int lgPatternFound) {
 
     for (int numSys = 0; numSys <= 1; numSys++) {
       for (int d = 0; d < 10; d++) {
         if (lgPatternFound == NUMSYS_AND_CHECK_DIGIT_PATTERNS[numSys][d]) {
           resultString.insert(0, (char) ('0' + numSys));
           resultString.append((char) ('0' + d));
-          return;
+          return true;
         }
       }
     }
-    throw ReaderException.getInstance();
+    return false;
   }
 
   BarcodeFormat getBarcodeFormat() {
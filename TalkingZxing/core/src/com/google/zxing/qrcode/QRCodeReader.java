@@ -18,9 +18,10 @@ package com.google.zxing.qrcode;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.DecodeHintType;
-import com.google.zxing.Reader;
+import com.google.zxing.NonThrowingReader;
 import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
+import com.google.zxing.ResultHolder;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.ResultMetadataType;
 import com.google.zxing.BinaryBitmap;
@@ -37,7 +38,7 @@ import java.util.Hashtable;
  *
  * @author Sean Owen
  */
-public class QRCodeReader implements Reader {
+public class QRCodeReader implements NonThrowingReader {
 
   private static final ResultPoint[] NO_POINTS = new ResultPoint[0];
 
@@ -59,6 +60,30 @@ public class QRCodeReader implements Reader {
 
   public Result decode(BinaryBitmap image, Hashtable hints)
       throws ReaderException {
+    ResultHolder holder = new ResultHolder();
+    if (!tryDecode(image, hints, holder)) {
+      throw ReaderException.getInstance();
+    }
+    return holder.getResult();
+  }
+
+  public boolean tryDecode(BinaryBitmap image, Hashtable hints, ResultHolder holder) {
+    Result result;
+    try {
+      result = doDecode(image, hints);
+    } catch (ReaderException re) {
+      // Finder patterns were found, but no QR Code could be decoded from them
+      result = null;
+    }
+    holder.setResult(result);
+    return result != null;
+  }
+
+  /**
+   * @return the decoded QR Code, or null if no finder patterns were found
+   * @throws ReaderException if a QR Code was located but could not be decoded
+   */
+  private Result doDecode(BinaryBitmap image, Hashtable hints) throws ReaderException {
     DecoderResult decoderResult;
     ResultPoint[] points;
     if (hints != null && hints.containsKey(DecodeHintType.PURE_BARCODE)) {
@@ -66,7 +91,10 @@ public class QRCodeReader implements Reader {
       decoderResult = decoder.decode(bits);
       points = NO_POINTS;
     } else {
-      DetectorResult detectorResult = new Detector(image.getBlackMatrix()).detect(hints);
+      DetectorResult detectorResult = new Detector(image.getBlackMatrix()).tryDetect(hints);
+      if (detectorResult == null) {
+        return null;
+      }
       decoderResult = decoder.decode(detectorResult.getBits());
       points = detectorResult.getPoints();
     }
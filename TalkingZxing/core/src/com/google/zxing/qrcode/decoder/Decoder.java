@@ -20,8 +20,8 @@ import com.google.zxing.ReaderException;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.DecoderResult;
 import com.google.zxing.common.reedsolomon.GF256;
-import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
 import com.google.zxing.common.reedsolomon.ReedSolomonException;
+import com.google.zxing.common.reedsolomon.TableReedSolomonDecoder;
 
 /**
  * <p>The main class which implements QR Code decoding -- as opposed to locating and extracting
@@ -31,10 +31,10 @@ import com.google.zxing.common.reedsolomon.ReedSolomonException;
  */
 public final class Decoder {
 
-  private final ReedSolomonDecoder rsDecoder;
+  private final TableReedSolomonDecoder rsDecoder;
 
   public Decoder() {
-    rsDecoder = new ReedSolomonDecoder(GF256.QR_CODE_FIELD);
+    rsDecoder = new TableReedSolomonDecoder(GF256.QR_CODE_FIELD);
   }
 
   /**
@@ -85,15 +85,13 @@ public final class Decoder {
     byte[] resultBytes = new byte[totalBytes];
     int resultOffset = 0;
 
-    // Error-correct and copy data blocks together into a stream of bytes
+    // Error-correct all the blocks, then copy data blocks together into a stream of bytes
+    correctErrors(dataBlocks);
     for (int j = 0; j < dataBlocks.length; j++) {
       DataBlock dataBlock = dataBlocks[j];
-      byte[] codewordBytes = dataBlock.getCodewords();
-      int numDataCodewords = dataBlock.getNumDataCodewords();
-      correctErrors(codewordBytes, numDataCodewords);
-      for (int i = 0; i < numDataCodewords; i++) {
-        resultBytes[resultOffset++] = codewordBytes[i];
-      }
+      System.arraycopy(dataBlock.getCodewords(), 0, resultBytes, resultOffset,
+          dataBlock.getNumDataCodewords());
+      resultOffset += dataBlock.getNumDataCodewords();
     }
 
     // Decode the contents of that stream of bytes
@@ -102,30 +100,24 @@ public final class Decoder {
 
   /**
    * <p>Given data and error-correction codewords received, possibly corrupted by errors, attempts to
-   * correct the errors in-place using Reed-Solomon error correction.</p>
+   * correct the errors in-place using Reed-Solomon error correction. All the blocks are handed to
+   * the decoder at once, and it corrects them directly in their byte arrays.</p>
    *
-   * @param codewordBytes data and error correction codewords
-   * @param numDataCodewords number of codewords that are data bytes
-   * @throws ReaderException if error correction fails
+   * @param dataBlocks data and error correction codewords of each block
+   * @throws ReaderException if error correction fails for any block
    */
-  private void correctErrors(byte[] codewordBytes, int numDataCodewords) throws ReaderException {
-    int numCodewords = codewordBytes.length;
-    // First read into an array of ints
-    int[] codewordsInts = new int[numCodewords];
-    for (int i = 0; i < numCodewords; i++) {
-      codewordsInts[i] = codewordBytes[i] & 0xFF;
+  private void correctErrors(DataBlock[] dataBlocks) throws ReaderException {
+    byte[][] blocks = new byte[dataBlocks.length][];
+    int[] numECCodewords = new int[dataBlocks.length];
+    for (int i = 0; i < dataBlocks.length; i++) {
+      blocks[i] = dataBlocks[i].getCodewords();
+      numECCodewords[i] = blocks[i].length - dataBlocks[i].getNumDataCodewords();
     }
-    int numECCodewords = codewordBytes.length - numDataCodewords;
     try {
-      rsDecoder.decode(codewordsInts, numECCodewords);
+      rsDecoder.decodeBlocks(blocks, numECCodewords);
     } catch (ReedSolomonException rse) {
       throw ReaderException.getInstance();
     }
-    // Copy back into array of bytes -- only need to worry about the bytes that were data
-    // We don't care about errors in the error-correction codewords
-    for (int i = 0; i < numDataCodewords; i++) {
-      codewordBytes[i] = (byte) codewordsInts[i];
-    }
   }
 
 }
@@ -68,6 +68,26 @@ public class Detector {
     return processFinderPatternInfo(info);
   }
 
+  /**
+   * <p>Like {@link #detect(Hashtable)}, but returns null rather than throwing when the image
+   * does not contain three finder patterns, which is by far the most common way to fail.</p>
+   *
+   * @param hints optional hints to detector
+   * @return {@link DetectorResult} encapsulating results of detecting a QR Code, or null if
+   *         no finder patterns were found
+   * @throws ReaderException if finder patterns were found but no QR Code could be located
+   */
+  public DetectorResult tryDetect(Hashtable hints) throws ReaderException {
+
+    FinderPatternFinder finder = new FinderPatternFinder(image);
+    FinderPatternInfo info = finder.tryFind(hints);
+    if (info == null) {
+      return null;
+    }
+
+    return processFinderPatternInfo(info);
+  }
+
   protected DetectorResult processFinderPatternInfo(FinderPatternInfo info) throws ReaderException {
 
     FinderPattern topLeft = info.getTopLeft();
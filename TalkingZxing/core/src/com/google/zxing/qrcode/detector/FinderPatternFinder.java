@@ -19,8 +19,10 @@ package com.google.zxing.qrcode.detector;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.ReaderException;
 import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
 import com.google.zxing.common.Collections;
 import com.google.zxing.common.Comparator;
+import com.google.zxing.common.BitArray;
 import com.google.zxing.common.BitMatrix;
 
 import java.util.Hashtable;
@@ -45,6 +47,7 @@ public class FinderPatternFinder {
   private final Vector possibleCenters;
   private boolean hasSkipped;
   private final int[] crossCheckStateCount;
+  private ResultPointCallback resultPointCallback;
 
   /**
    * <p>Creates a finder that will search the image for three finder patterns.</p>
@@ -66,7 +69,23 @@ public class FinderPatternFinder {
   }
 
   FinderPatternInfo find(Hashtable hints) throws ReaderException {
+    FinderPatternInfo info = tryFind(hints);
+    if (info == null) {
+      throw ReaderException.getInstance();
+    }
+    return info;
+  }
+
+  /**
+   * Like {@link #find(Hashtable)}, but reports the common case of an image without three finder
+   * patterns by returning null rather than throwing.
+   *
+   * @return the three finder patterns, or null if they could not all be found
+   */
+  FinderPatternInfo tryFind(Hashtable hints) {
     boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
+    resultPointCallback = hints == null ? null :
+        (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
     int maxI = image.getHeight();
     int maxJ = image.getWidth();
     // We are looking for black/white/black/white/black modules in
@@ -83,6 +102,10 @@ public class FinderPatternFinder {
 
     boolean done = false;
     int[] stateCount = new int[5];
+    // Each row is read as alternating runs of white and black pixels, so the loop below only does
+    // work where the color changes, instead of at every pixel
+    BitArray row = new BitArray(maxJ);
+    int[] runs = new int[maxJ + 1];
     for (int i = iSkip - 1; i < maxI && !done; i += iSkip) {
       // Get a row of black/white values
       stateCount[0] = 0;
@@ -91,68 +114,74 @@ public class FinderPatternFinder {
       stateCount[3] = 0;
       stateCount[4] = 0;
       int currentState = 0;
-      for (int j = 0; j < maxJ; j++) {
-        if (image.get(j, i)) {
-          // Black pixel
+      row = image.getRow(i, row);
+      int numRuns = row.getRunLengths(0, runs);
+      int j = 0; // start of the current run
+      for (int run = 0; run < numRuns; run++) {
+        int runLength = runs[run];
+        if ((run & 1) == 1) {
+          // Black pixels
           if ((currentState & 1) == 1) { // Counting white pixels
             currentState++;
           }
-          stateCount[currentState]++;
-        } else { // White pixel
-          if ((currentState & 1) == 0) { // Counting black pixels
-            if (currentState == 4) { // A winner?
-              if (foundPatternCross(stateCount)) { // Yes
-                boolean confirmed = handlePossibleCenter(stateCount, i, j);
-                if (confirmed) {
-                  // Start examining every other line. Checking each line turned out to be too
-                  // expensive and didn't improve performance.
-                  iSkip = 2;
-                  if (hasSkipped) {
-                    done = haveMultiplyConfirmedCenters();
-                  } else {
-                    int rowSkip = findRowSkip();
-                    if (rowSkip > stateCount[2]) {
-                      // Skip rows between row of lower confirmed center
-                      // and top of presumed third confirmed center
-                      // but back up a bit to get a full chance of detecting
-                      // it, entire width of center of finder pattern
-
-                      // Skip by rowSkip, but back off by stateCount[2] (size of last center
-                      // of pattern we saw) to be conservative, and also back off by iSkip which
-                      // is about to be re-added
-                      i += rowSkip - stateCount[2] - iSkip;
-                      j = maxJ - 1;
-                    }
-                  }
-                } else {
-                  // Advance to next black pixel
-                  do {
-                    j++;
-                  } while (j < maxJ && !image.get(j, i));
-                  j--; // back up to that last white pixel
-                }
-                // Clear state to start looking again
-                currentState = 0;
-                stateCount[0] = 0;
-                stateCount[1] = 0;
-                stateCount[2] = 0;
-                stateCount[3] = 0;
-                stateCount[4] = 0;
-              } else { // No, shift counts back by two
-                stateCount[0] = stateCount[2];
-                stateCount[1] = stateCount[3];
-                stateCount[2] = stateCount[4];
-                stateCount[3] = 1;
-                stateCount[4] = 0;
-                currentState = 3;
-              }
+          stateCount[currentState] += runLength;
+        } else if (runLength == 0) {
+          // The row starts with a black pixel
+        } else if ((currentState & 1) == 1) { // Counting white pixels
+          stateCount[currentState] += runLength;
+        } else if (currentState != 4) { // Counting black pixels
+          stateCount[++currentState] += runLength;
+        } else if (foundPatternCross(stateCount)) { // A winner?
+          // j is the first white pixel after the pattern
+          boolean confirmed = handlePossibleCenter(stateCount, i, j);
+          boolean skipRows = false;
+          if (confirmed) {
+            // Start examining every other line. Checking each line turned out to be too
+            // expensive and didn't improve performance.
+            iSkip = 2;
+            if (hasSkipped) {
+              done = haveMultiplyConfirmedCenters();
             } else {
-              stateCount[++currentState]++;
+              int rowSkip = findRowSkip();
+              if (rowSkip > stateCount[2]) {
+                // Skip rows between row of lower confirmed center
+                // and top of presumed third confirmed center
+                // but back up a bit to get a full chance of detecting
+                // it, entire width of center of finder pattern
+
+                // Skip by rowSkip, but back off by stateCount[2] (size of last center
+                // of pattern we saw) to be conservative, and also back off by iSkip which
+                // is about to be re-added
+                i += rowSkip - stateCount[2] - iSkip;
+                skipRows = true;
+              }
             }
-          } else { // Counting white pixels
-            stateCount[currentState]++;
           }
+          // Clear state to start looking again
+          currentState = 0;
+          stateCount[0] = 0;
+          stateCount[1] = 0;
+          stateCount[2] = 0;
+          stateCount[3] = 0;
+          stateCount[4] = 0;
+          if (skipRows) {
+            break;
+          }
+          if (confirmed && runLength > 1) {
+            // The rest of this white run can start the next pattern. If the center wasn't
+            // confirmed, it is skipped instead, to advance to the next black pixel.
+            currentState = 1;
+            stateCount[1] = runLength - 1;
+          }
+        } else { // No, shift counts back by two
+          stateCount[0] = stateCount[2];
+          stateCount[1] = stateCount[3];
+          stateCount[2] = stateCount[4];
+          stateCount[3] = runLength;
+          stateCount[4] = 0;
+          currentState = 3;
         }
+        j += runLength;
       }
       if (foundPatternCross(stateCount)) {
         boolean confirmed = handlePossibleCenter(stateCount, i, maxJ);
@@ -167,6 +196,9 @@ public class FinderPatternFinder {
     }
 
     FinderPattern[] patternInfo = selectBestPatterns();
+    if (patternInfo == null) {
+      return null;
+    }
     ResultPoint.orderBestPatterns(patternInfo);
 
     return new FinderPatternInfo(patternInfo);
@@ -379,7 +411,7 @@ public class FinderPatternFinder {
    * @param j end of possible finder pattern in row
    * @return true if a finder pattern candidate was found this time
    */
-  protected boolean handlePossibleCenter(int[] stateCount, int i, int j) throws ReaderException {
+  protected boolean handlePossibleCenter(int[] stateCount, int i, int j) {
     int stateCountTotal = stateCount[0] + stateCount[1] + stateCount[2] + stateCount[3] +
         stateCount[4];
     float centerJ = centerFromEnd(stateCount, j);
@@ -401,7 +433,11 @@ public class FinderPatternFinder {
           }
         }
         if (!found) {
-          possibleCenters.addElement(new FinderPattern(centerJ, centerI, estimatedModuleSize));
+          FinderPattern point = new FinderPattern(centerJ, centerI, estimatedModuleSize);
+          possibleCenters.addElement(point);
+          if (resultPointCallback != null) {
+            resultPointCallback.foundPossibleResultPoint(point);
+          }
         }
         return true;
       }
@@ -476,15 +512,15 @@ public class FinderPatternFinder {
   /**
    * @return the 3 best {@link FinderPattern}s from our list of candidates. The "best" are
    *         those that have been detected at least {@link #CENTER_QUORUM} times, and whose module
-   *         size differs from the average among those patterns the least
-   * @throws ReaderException if 3 such finder patterns do not exist
+   *         size differs from the average among those patterns the least, or null if 3 such
+   *         finder patterns do not exist
    */
-  private FinderPattern[] selectBestPatterns() throws ReaderException {
+  private FinderPattern[] selectBestPatterns() {
 
     int startSize = possibleCenters.size();
     if (startSize < 3) {
       // Couldn't find enough finder patterns
-      throw ReaderException.getInstance();
+      return null;
     }
 
     // Filter outlier possibilities whose module size is too different
@@ -52,17 +52,6 @@ public final class Encoder {
   private Encoder() {
   }
 
-  // The mask penalty calculation is complicated.  See Table 21 of JISX0510:2004 (p.45) for details.
-  // Basically it applies four rules and summate all penalties.
-  private static int calculateMaskPenalty(ByteMatrix matrix) {
-    int penalty = 0;
-    penalty += MaskUtil.applyMaskPenaltyRule1(matrix);
-    penalty += MaskUtil.applyMaskPenaltyRule2(matrix);
-    penalty += MaskUtil.applyMaskPenaltyRule3(matrix);
-    penalty += MaskUtil.applyMaskPenaltyRule4(matrix);
-    return penalty;
-  }
-
   private static final class BlockPair {
 
     private final ByteArray dataBytes;
@@ -144,8 +133,10 @@ public final class Encoder {
 
     // Step 7: Choose the mask pattern and set to "qrCode".
     ByteMatrix matrix = new ByteMatrix(qrCode.getMatrixWidth(), qrCode.getMatrixWidth());
+    Integer numThreads = hints == null ? null :
+        (Integer) hints.get(EncodeHintType.MASK_EVALUATION_THREADS);
     qrCode.setMaskPattern(chooseMaskPattern(finalBits, qrCode.getECLevel(), qrCode.getVersion(),
-        matrix));
+        matrix, numThreads == null ? 1 : numThreads.intValue()));
 
     // Step 8.  Build the matrix and set it to "qrCode".
     MatrixUtil.buildMatrix(finalBits, qrCode.getECLevel(), qrCode.getVersion(),
@@ -200,21 +191,12 @@ public final class Encoder {
     return Mode.BYTE;
   }
 
+  // The mask penalty calculation is complicated.  See Table 21 of JISX0510:2004 (p.45) for details.
+  // Basically it applies four rules and summate all penalties. MaskEvaluator does this for all
+  // the mask patterns from a single layout of the matrix.
   private static int chooseMaskPattern(BitVector bits, ErrorCorrectionLevel ecLevel, int version,
-      ByteMatrix matrix) throws WriterException {
-
-    int minPenalty = Integer.MAX_VALUE;  // Lower penalty is better.
-    int bestMaskPattern = -1;
-    // We try all mask patterns to choose the best one.
-    for (int maskPattern = 0; maskPattern < QRCode.NUM_MASK_PATTERNS; maskPattern++) {
-      MatrixUtil.buildMatrix(bits, ecLevel, version, maskPattern, matrix);
-      int penalty = calculateMaskPenalty(matrix);
-      if (penalty < minPenalty) {
-        minPenalty = penalty;
-        bestMaskPattern = maskPattern;
-      }
-    }
-    return bestMaskPattern;
+      ByteMatrix matrix, int numThreads) throws WriterException {
+    return new MaskEvaluator(bits, ecLevel, version, matrix).chooseMaskPattern(numThreads);
   }
 
   /**
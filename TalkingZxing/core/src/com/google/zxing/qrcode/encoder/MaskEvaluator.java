@@ -0,0 +1,317 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.qrcode.encoder;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.common.ByteMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+/**
+ * Scores all eight mask patterns for one QR Code without building the matrix eight times. The
+ * function patterns, version information and unmasked data bits are laid out once, and kept as
+ * bitsets of the rows and of the columns, along with bitsets of which cells hold data. Each mask
+ * is then applied by XORing its pattern into the data cells and writing its type information,
+ * and the four penalty rules of MaskUtil are computed 32 cells at a time with shifts and masks.
+ *
+ * The penalties are exactly those of MaskUtil, including its quirks, so the chosen mask pattern
+ * and therefore the encoded matrix are the same as before.
+ *
+ * Masks can be scored on several threads. This is written against the J2ME-compatible subset of
+ * the JDK, so it uses plain threads.
+ */
+final class MaskEvaluator {
+
+  // The longest pattern any rule looks at: 0000 1011101 0000 for rule 3.
+  private static final int MAX_PATTERN_LENGTH = 15;
+  // Every mask pattern repeats after this many cells, both across and down. See getDataMaskBit().
+  private static final int MASK_PERIOD = 12;
+  // Large enough for the widest matrix, version 40.
+  private static final int MAX_WORDS = (177 + 31) >> 5;
+
+  // PATTERN_ROWS[mask][y % 12] has bit x set where the mask flips the cell (x, y), and
+  // PATTERN_COLUMNS[mask][x % 12] has bit y set.
+  private static final int[][][] PATTERN_ROWS = new int[QRCode.NUM_MASK_PATTERNS][][];
+  private static final int[][][] PATTERN_COLUMNS = new int[QRCode.NUM_MASK_PATTERNS][][];
+
+  static {
+    for (int mask = 0; mask < QRCode.NUM_MASK_PATTERNS; mask++) {
+      PATTERN_ROWS[mask] = new int[MASK_PERIOD][MAX_WORDS];
+      PATTERN_COLUMNS[mask] = new int[MASK_PERIOD][MAX_WORDS];
+      for (int i = 0; i < MASK_PERIOD; i++) {
+        for (int j = 0; j < MAX_WORDS << 5; j++) {
+          if (MaskUtil.getDataMaskBit(mask, j, i)) {
+            PATTERN_ROWS[mask][i][j >> 5] |= 1 << (j & 31);
+          }
+          if (MaskUtil.getDataMaskBit(mask, i, j)) {
+            PATTERN_COLUMNS[mask][i][j >> 5] |= 1 << (j & 31);
+          }
+        }
+      }
+    }
+  }
+
+  private final int width;
+  private final int height;
+  private final int[][] baseRows;
+  private final int[][] dataRows;
+  private final int[][] baseColumns;
+  private final int[][] dataColumns;
+  // validRows[n] has bit x set if a pattern of n cells starting at x fits in a row.
+  private final int[][] validRows;
+  private final int[][] validColumns;
+  private final int[] typeInfo;
+  private final int[][] typeInfoCells;
+
+  /**
+   * Lays out the matrix, leaving "matrix" holding the unmasked data.
+   */
+  MaskEvaluator(BitVector dataBits, ErrorCorrectionLevel ecLevel, int version, ByteMatrix matrix)
+      throws WriterException {
+    width = matrix.getWidth();
+    height = matrix.getHeight();
+
+    MatrixUtil.clearMatrix(matrix);
+    MatrixUtil.embedBasicPatterns(version, matrix);
+    // Any mask will do for now; it only needs the type information cells to be taken.
+    MatrixUtil.embedTypeInfo(ecLevel, 0, matrix);
+    MatrixUtil.maybeEmbedVersionInfo(version, matrix);
+    byte[][] array = matrix.getArray();
+    dataRows = new int[height][(width + 31) >> 5];
+    dataColumns = new int[width][(height + 31) >> 5];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        if (array[y][x] == -1) {
+          dataRows[y][x >> 5] |= 1 << (x & 31);
+          dataColumns[x][y >> 5] |= 1 << (y & 31);
+        }
+      }
+    }
+    MatrixUtil.embedDataBits(dataBits, -1, matrix);
+    baseRows = new int[height][(width + 31) >> 5];
+    baseColumns = new int[width][(height + 31) >> 5];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        if (array[y][x] == 1) {
+          baseRows[y][x >> 5] |= 1 << (x & 31);
+          baseColumns[x][y >> 5] |= 1 << (y & 31);
+        }
+      }
+    }
+    validRows = makeValidMasks(width);
+    validColumns = makeValidMasks(height);
+
+    typeInfo = new int[QRCode.NUM_MASK_PATTERNS];
+    for (int mask = 0; mask < QRCode.NUM_MASK_PATTERNS; mask++) {
+      BitVector typeInfoBits = new BitVector();
+      MatrixUtil.makeTypeInfoBits(ecLevel, mask, typeInfoBits);
+      for (int i = 0; i < typeInfoBits.size(); i++) {
+        // LSB first, as MatrixUtil.embedTypeInfo() places them.
+        typeInfo[mask] |= typeInfoBits.at(typeInfoBits.size() - 1 - i) << i;
+      }
+    }
+    typeInfoCells = new int[15][];
+    for (int i = 0; i < 15; i++) {
+      typeInfoCells[i] = MatrixUtil.getTypeInfoCells(i, width, height);
+    }
+  }
+
+  private static int[][] makeValidMasks(int size) {
+    int[][] valid = new int[MAX_PATTERN_LENGTH + 1][(size + 31) >> 5];
+    for (int length = 1; length <= MAX_PATTERN_LENGTH; length++) {
+      for (int x = 0; x + length <= size; x++) {
+        valid[length][x >> 5] |= 1 << (x & 31);
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * Scores every mask pattern and returns the one with the lowest penalty, or the first of them
+   * on a tie, like the loop in Encoder always did.
+   *
+   * @param numThreads How many threads to score the masks on, including the calling thread.
+   */
+  int chooseMaskPattern(int numThreads) throws WriterException {
+    final int[] penalties = new int[QRCode.NUM_MASK_PATTERNS];
+    if (numThreads < 1) {
+      numThreads = 1;
+    } else if (numThreads > QRCode.NUM_MASK_PATTERNS) {
+      numThreads = QRCode.NUM_MASK_PATTERNS;
+    }
+    Thread[] threads = new Thread[numThreads - 1];
+    for (int i = 0; i < threads.length; i++) {
+      final int first = i + 1;
+      final int step = numThreads;
+      threads[i] = new Thread() {
+        public void run() {
+          calculatePenalties(first, step, penalties);
+        }
+      };
+      threads[i].start();
+    }
+    calculatePenalties(0, numThreads, penalties);
+    for (int i = 0; i < threads.length; i++) {
+      try {
+        threads[i].join();
+      } catch (InterruptedException ie) {
+        throw new WriterException("Interrupted while choosing the mask pattern");
+      }
+    }
+
+    int minPenalty = Integer.MAX_VALUE;  // Lower penalty is better.
+    int bestMaskPattern = -1;
+    for (int maskPattern = 0; maskPattern < QRCode.NUM_MASK_PATTERNS; maskPattern++) {
+      if (penalties[maskPattern] < minPenalty) {
+        minPenalty = penalties[maskPattern];
+        bestMaskPattern = maskPattern;
+      }
+    }
+    return bestMaskPattern;
+  }
+
+  private void calculatePenalties(int first, int step, int[] penalties) {
+    // Each thread masks into its own copy.
+    int[][] rows = new int[height][(width + 31) >> 5];
+    int[][] columns = new int[width][(height + 31) >> 5];
+    for (int maskPattern = first; maskPattern < QRCode.NUM_MASK_PATTERNS; maskPattern += step) {
+      penalties[maskPattern] = calculatePenalty(maskPattern, rows, columns);
+    }
+  }
+
+  /**
+   * @return The sum of the four MaskUtil penalties for the matrix with this mask applied.
+   */
+  int calculatePenalty(int maskPattern, int[][] rows, int[][] columns) {
+    applyMask(maskPattern, rows, columns);
+    int penalty = penaltyAlongLines(rows, validRows, width) +
+        penaltyAlongLines(columns, validColumns, height);
+
+    // Rule 2, 2x2 blocks, and rule 4, the number of dark cells, only need the rows.
+    int numDarkCells = 0;
+    int[] valid = validRows[2];
+    for (int y = 0; y < height; y++) {
+      int[] row = rows[y];
+      int[] nextRow = y + 1 < height ? rows[y + 1] : null;
+      for (int w = 0; w < row.length; w++) {
+        int a = row[w];
+        numDarkCells += bitCount(a);
+        if (nextRow != null) {
+          int b = nextRow[w];
+          int blocks = ~(a ^ shift(row, w, 1)) & ~(a ^ b) & ~(b ^ shift(nextRow, w, 1)) & valid[w];
+          penalty += 3 * bitCount(blocks);
+        }
+      }
+    }
+    int numTotalCells = height * width;
+    double darkRatio = (double) numDarkCells / numTotalCells;
+    return penalty + Math.abs((int) (darkRatio * 100 - 50)) / 5 * 10;
+  }
+
+  private void applyMask(int maskPattern, int[][] rows, int[][] columns) {
+    int[][] patternRows = PATTERN_ROWS[maskPattern];
+    for (int y = 0; y < height; y++) {
+      int[] pattern = patternRows[y % MASK_PERIOD];
+      for (int w = 0; w < rows[y].length; w++) {
+        rows[y][w] = baseRows[y][w] ^ (pattern[w] & dataRows[y][w]);
+      }
+    }
+    int[][] patternColumns = PATTERN_COLUMNS[maskPattern];
+    for (int x = 0; x < width; x++) {
+      int[] pattern = patternColumns[x % MASK_PERIOD];
+      for (int w = 0; w < columns[x].length; w++) {
+        columns[x][w] = baseColumns[x][w] ^ (pattern[w] & dataColumns[x][w]);
+      }
+    }
+    int bits = typeInfo[maskPattern];
+    for (int i = 0; i < typeInfoCells.length; i++) {
+      int bit = (bits >> i) & 1;
+      int[] cells = typeInfoCells[i];
+      setCell(rows, columns, cells[0], cells[1], bit);
+      setCell(rows, columns, cells[2], cells[3], bit);
+    }
+  }
+
+  private static void setCell(int[][] rows, int[][] columns, int x, int y, int bit) {
+    if (bit == 1) {
+      rows[y][x >> 5] |= 1 << (x & 31);
+      columns[x][y >> 5] |= 1 << (y & 31);
+    } else {
+      rows[y][x >> 5] &= ~(1 << (x & 31));
+      columns[x][y >> 5] &= ~(1 << (y & 31));
+    }
+  }
+
+  // Rules 1 and 3 along each line, where the lines are either all the rows or all the columns.
+  // Bit x of a[k] is cell x + k, so each rule is a handful of ANDs over 32 starting cells at once.
+  private static int penaltyAlongLines(int[][] lines, int[][] valid, int size) {
+    int runs = 0;
+    int finderPatterns = 0;
+    int[] a = new int[MAX_PATTERN_LENGTH];
+    // A run which reaches the end of the line ends there.
+    int lastRunWord = (size - 5) >> 5;
+    int lastRunBit = 1 << ((size - 5) & 31);
+    for (int i = 0; i < lines.length; i++) {
+      int[] line = lines[i];
+      for (int w = 0; w < line.length; w++) {
+        for (int k = 0; k < MAX_PATTERN_LENGTH; k++) {
+          a[k] = shift(line, w, k);
+        }
+
+        // Rule 1: a run of n >= 5 cells costs n - 2. It has n - 4 starting cells of five the same,
+        // and one of those is followed by a different cell (or the end), which adds the other 2.
+        int same1 = ~(a[0] ^ a[1]);
+        int same2 = ~(a[1] ^ a[2]);
+        int same3 = ~(a[2] ^ a[3]);
+        int same4 = ~(a[3] ^ a[4]);
+        int same5 = ~(a[4] ^ a[5]);
+        int fives = same1 & same2 & same3 & same4 & valid[5][w];
+        int ends = fives & (~same5 | (w == lastRunWord ? lastRunBit : 0));
+        runs += bitCount(fives) + 2 * bitCount(ends);
+
+        // Rule 3: 1011101 followed by 0000, or preceded by 0000, counted once even if both.
+        // The preceded case is counted from the first of the four light cells.
+        int pattern = a[0] & ~a[1] & a[2] & a[3] & a[4] & ~a[5] & a[6] & valid[7][w];
+        int lightAfter = ~(a[7] | a[8] | a[9] | a[10]) & valid[11][w];
+        int lightBefore = ~(a[0] | a[1] | a[2] | a[3]) & valid[4][w];
+        int patternAfterLight = a[4] & ~a[5] & a[6] & a[7] & a[8] & ~a[9] & a[10] & valid[11][w];
+        int lightAfterThat = ~(a[11] | a[12] | a[13] | a[14]) & valid[15][w];
+        int before = lightBefore & patternAfterLight;
+        finderPatterns += bitCount(pattern & lightAfter) + bitCount(before) -
+            bitCount(before & lightAfterThat);
+      }
+    }
+    return runs + 40 * finderPatterns;
+  }
+
+  // Word w of the line moved down by k < 32 cells, so that bit x is cell 32 * w + x + k.
+  private static int shift(int[] line, int w, int k) {
+    int word = line[w] >>> k;
+    if (k != 0 && w + 1 < line.length) {
+      word |= line[w + 1] << (32 - k);
+    }
+    return word;
+  }
+
+  // Like Integer.bitCount() in Java 5, which we can't use yet.
+  private static int bitCount(int i) {
+    i = i - ((i >>> 1) & 0x55555555);
+    i = (i & 0x33333333) + ((i >>> 2) & 0x33333333);
+    i = (i + (i >>> 4)) & 0x0f0f0f0f;
+    return (i * 0x01010101) >>> 24;
+  }
+
+}
@@ -177,23 +177,24 @@ public final class MatrixUtil {
       // "typeInfoBits".
       int bit = typeInfoBits.at(typeInfoBits.size() - 1 - i);
 
-      // Type info bits at the left top corner. See 8.9 of JISX0510:2004 (p.46).
-      int x1 = TYPE_INFO_COORDINATES[i][0];
-      int y1 = TYPE_INFO_COORDINATES[i][1];
-      matrix.set(x1, y1, bit);
-
-      if (i < 8) {
-        // Right top corner.
-        int x2 = matrix.getWidth() - i - 1;
-        int y2 = 8;
-        matrix.set(x2, y2, bit);
-      } else {
-        // Left bottom corner.
-        int x2 = 8;
-        int y2 = matrix.getHeight() - 7 + (i - 8);
-        matrix.set(x2, y2, bit);
-      }
+      int[] cells = getTypeInfoCells(i, matrix.getWidth(), matrix.getHeight());
+      matrix.set(cells[0], cells[1], bit);
+      matrix.set(cells[2], cells[3], bit);
+    }
+  }
+
+  // Return the two cells which hold bit "i" of the type information, counting from the LSB, as
+  // {x1, y1, x2, y2}.
+  static int[] getTypeInfoCells(int i, int width, int height) {
+    // Type info bits at the left top corner. See 8.9 of JISX0510:2004 (p.46).
+    int x1 = TYPE_INFO_COORDINATES[i][0];
+    int y1 = TYPE_INFO_COORDINATES[i][1];
+    if (i < 8) {
+      // Right top corner.
+      return new int[] {x1, y1, width - i - 1, 8};
     }
+    // Left bottom corner.
+    return new int[] {x1, y1, 8, height - 7 + (i - 8)};
   }
 
   // Embed version information if need be. On success, modify the matrix and return true.
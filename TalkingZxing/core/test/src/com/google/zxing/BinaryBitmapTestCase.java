@@ -0,0 +1,136 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+
+import junit.framework.TestCase;
+
+public final class BinaryBitmapTestCase extends TestCase {
+
+  private static final int WIDTH = 40;
+  private static final int HEIGHT = 4;
+
+  public void testRowsAreCached() throws ReaderException {
+    BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(new StripeSource()));
+    BitArray first = bitmap.getBlackRow(1, null);
+    assertEquals(0, bitmap.getCacheHits());
+    assertEquals(1, bitmap.getCacheMisses());
+
+    BitArray second = bitmap.getBlackRow(1, null);
+    assertEquals(1, bitmap.getCacheHits());
+    assertEquals(1, bitmap.getCacheMisses());
+    assertNotSame(first, second);
+    assertRowsEqual(first, second);
+
+    bitmap.getBlackRow(2, second);
+    assertEquals(1, bitmap.getCacheHits());
+    assertEquals(2, bitmap.getCacheMisses());
+  }
+
+  public void testCachedRowIsNotShared() throws ReaderException {
+    BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(new StripeSource()));
+    BitArray row = bitmap.getBlackRow(0, null);
+    BitArray expected = bitmap.getBlackRow(0, null);
+    // Readers reverse rows in place to look for upside down barcodes
+    row.reverse();
+    assertRowsEqual(expected, bitmap.getBlackRow(0, row));
+  }
+
+  public void testFailedRowsAreCached() {
+    BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(new LowContrastSource()));
+    assertNull(bitmap.tryGetBlackRow(0, null));
+    assertNull(bitmap.tryGetBlackRow(0, null));
+    assertEquals(1, bitmap.getCacheHits());
+    assertEquals(1, bitmap.getCacheMisses());
+    try {
+      bitmap.getBlackRow(0, null);
+      fail("Should have thrown");
+    } catch (ReaderException re) {
+      // good
+    }
+  }
+
+  public void testMatrixIsCached() throws ReaderException {
+    BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(new StripeSource()));
+    BitMatrix matrix = bitmap.getBlackMatrix();
+    assertSame(matrix, bitmap.getBlackMatrix());
+    assertEquals(1, bitmap.getCacheHits());
+    assertEquals(1, bitmap.getCacheMisses());
+  }
+
+  private static void assertRowsEqual(BitArray expected, BitArray actual) {
+    for (int x = 0; x < WIDTH; x++) {
+      assertEquals(expected.get(x), actual.get(x));
+    }
+  }
+
+  // Black and white vertical stripes, 4 pixels wide.
+  private static final class StripeSource extends LuminanceSource {
+
+    StripeSource() {
+      super(WIDTH, HEIGHT);
+    }
+
+    public byte[] getRow(int y, byte[] row) {
+      if (row == null || row.length < WIDTH) {
+        row = new byte[WIDTH];
+      }
+      for (int x = 0; x < WIDTH; x++) {
+        row[x] = (byte) (((x >> 2) & 0x01) == 0 ? 0 : 255);
+      }
+      return row;
+    }
+
+    public byte[] getMatrix() {
+      byte[] matrix = new byte[WIDTH * HEIGHT];
+      for (int y = 0; y < HEIGHT; y++) {
+        System.arraycopy(getRow(y, null), 0, matrix, y * WIDTH, WIDTH);
+      }
+      return matrix;
+    }
+  }
+
+  // Two nearly identical greys, which have too little contrast to binarize.
+  private static final class LowContrastSource extends LuminanceSource {
+
+    LowContrastSource() {
+      super(WIDTH, HEIGHT);
+    }
+
+    public byte[] getRow(int y, byte[] row) {
+      if (row == null || row.length < WIDTH) {
+        row = new byte[WIDTH];
+      }
+      for (int x = 0; x < WIDTH; x++) {
+        row[x] = (byte) ((x & 0x01) == 0 ? 120 : 128);
+      }
+      return row;
+    }
+
+    public byte[] getMatrix() {
+      byte[] matrix = new byte[WIDTH * HEIGHT];
+      for (int y = 0; y < HEIGHT; y++) {
+        System.arraycopy(getRow(y, null), 0, matrix, y * WIDTH, WIDTH);
+      }
+      return matrix;
+    }
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+
+import junit.framework.TestCase;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Replays each black box image as a short sequence of camera frames, as if the phone were held
+ * over the barcode and drifting slightly, and decodes the sequence both with
+ * {@link RegionTracker} and frame by frame over the whole image. Prints how often the tracked
+ * region was enough and how much time that saved, and checks that tracking never loses a barcode
+ * which the full frame decode finds.
+ */
+public final class RegionTrackerBlackBoxTestCase extends TestCase {
+
+  // Each frame shows this many percent of the image in each dimension...
+  private static final int FRAME_PERCENT = 90;
+  // ...from a window which moves around the image in this many steps.
+  private static final int FRAMES_PER_IMAGE = 8;
+
+  private static final FilenameFilter IMAGE_NAME_FILTER = new FilenameFilter() {
+    public boolean accept(File dir, String name) {
+      String lowerCase = name.toLowerCase();
+      return lowerCase.endsWith(".jpg") || lowerCase.endsWith(".jpeg") ||
+             lowerCase.endsWith(".gif") || lowerCase.endsWith(".png");
+    }
+  };
+
+  public void testQRCodeSequences() throws IOException {
+    doTestSequences("test/data/blackbox/qrcode-2", BarcodeFormat.QR_CODE);
+  }
+
+  public void testEAN13Sequences() throws IOException {
+    doTestSequences("test/data/blackbox/ean13-1", BarcodeFormat.EAN_13);
+  }
+
+  private static void doTestSequences(String path, BarcodeFormat format) throws IOException {
+    File testBase = new File(path);
+    if (!testBase.exists()) {
+      testBase = new File("core/" + path);
+    }
+    assertTrue("Please run from the 'core' directory", testBase.exists());
+    Hashtable<DecodeHintType, Object> hints = new Hashtable<DecodeHintType, Object>();
+    Vector<BarcodeFormat> formats = new Vector<BarcodeFormat>();
+    formats.addElement(format);
+    hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+
+    MultiFormatReader fullFrameReader = new MultiFormatReader();
+    fullFrameReader.setHints(hints);
+    RegionTracker tracker = new RegionTracker(new MultiFormatReader());
+    tracker.setHints(hints);
+    ResultHolder holder = new ResultHolder();
+
+    int totalFrames = 0;
+    int fullFrameFound = 0;
+    int trackedFound = 0;
+    long fullFrameTime = 0L;
+    long trackedTime = 0L;
+    File[] imageFiles = testBase.listFiles(IMAGE_NAME_FILTER);
+    for (int i = 0; i < imageFiles.length; i++) {
+      BufferedImage image = ImageIO.read(imageFiles[i]);
+      String expectedText = readExpectedText(imageFiles[i]);
+      LuminanceSource[] frames = buildFrames(image);
+      // Each image is a new sequence: the barcode is somewhere else entirely.
+      tracker.reset();
+      for (int j = 0; j < frames.length; j++) {
+        totalFrames++;
+        long start = System.currentTimeMillis();
+        boolean found = fullFrameReader.tryDecodeWithState(
+            new BinaryBitmap(new GlobalHistogramBinarizer(frames[j])), holder) &&
+            expectedText.equals(holder.getResult().getText());
+        fullFrameTime += System.currentTimeMillis() - start;
+        if (found) {
+          fullFrameFound++;
+        }
+
+        start = System.currentTimeMillis();
+        boolean trackedFoundFrame = tracker.tryDecode(
+            new BinaryBitmap(new GlobalHistogramBinarizer(frames[j])), holder);
+        trackedTime += System.currentTimeMillis() - start;
+        if (trackedFoundFrame) {
+          assertEquals(imageFiles[i].getName(), expectedText, holder.getResult().getText());
+          trackedFound++;
+        } else {
+          assertFalse(imageFiles[i].getName() + " was lost by tracking", found);
+        }
+      }
+    }
+
+    int regionAttempts = tracker.getRegionAttempts();
+    int regionHits = tracker.getRegionHits();
+    System.out.println("Region tracking on " + path + ", " + totalFrames + " frames:");
+    System.out.println("  Decoded " + trackedFound + " frames, " + fullFrameFound +
+        " without tracking");
+    System.out.println("  Region hit rate " + regionHits + '/' + regionAttempts +
+        (regionAttempts == 0 ? "" : " (" + (regionHits * 100 / regionAttempts) + "%)"));
+    System.out.println("  " + trackedTime + " ms with tracking, " + fullFrameTime +
+        " ms without (" + (fullFrameTime - trackedTime) + " ms saved)");
+    // Every frame is either found in its region or decoded in full
+    assertEquals(totalFrames, regionHits + tracker.getFullFrameAttempts());
+    assertTrue(trackedFound >= fullFrameFound);
+    assertTrue(regionHits > 0);
+  }
+
+  // The frames of one sequence. The window moves in a small loop around the image.
+  private static LuminanceSource[] buildFrames(BufferedImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int frameWidth = width * FRAME_PERCENT / 100;
+    int frameHeight = height * FRAME_PERCENT / 100;
+    LuminanceSource[] frames = new LuminanceSource[FRAMES_PER_IMAGE];
+    for (int i = 0; i < FRAMES_PER_IMAGE; i++) {
+      double angle = 2.0 * Math.PI * i / FRAMES_PER_IMAGE;
+      int left = (int) ((width - frameWidth) * (1.0 + Math.cos(angle)) / 2.0);
+      int top = (int) ((height - frameHeight) * (1.0 + Math.sin(angle)) / 2.0);
+      frames[i] = new BufferedImageLuminanceSource(image, left, top, frameWidth, frameHeight);
+    }
+    return frames;
+  }
+
+  private static String readExpectedText(File imageFile) throws IOException {
+    String name = imageFile.getName();
+    File expectedTextFile =
+        new File(imageFile.getParentFile(), name.substring(0, name.indexOf('.')) + ".txt");
+    StringBuilder result = new StringBuilder((int) expectedTextFile.length());
+    InputStreamReader reader =
+        new InputStreamReader(new FileInputStream(expectedTextFile), Charset.forName("UTF8"));
+    try {
+      char[] buffer = new char[256];
+      int charsRead;
+      while ((charsRead = reader.read(buffer)) > 0) {
+        result.append(buffer, 0, charsRead);
+      }
+    } finally {
+      reader.close();
+    }
+    return result.toString();
+  }
+
+}
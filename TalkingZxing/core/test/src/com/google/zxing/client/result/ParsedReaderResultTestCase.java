@@ -301,6 +301,9 @@ public final class ParsedReaderResultTestCase extends TestCase {
     String displayResult = result.getDisplayResult();
     assertTrue("Expected:\n" + goldenResult + "\nbut got:\n" + displayResult,
         goldenResult.equals(displayResult));
+
+    // Scanning the same barcode again gives the same answer, from the cache
+    assertSame(result, ResultParser.parseResult(new Result(contents, null, null, format)));
   }
 
   /*
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.result;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import junit.framework.TestCase;
+
+/**
+ * Tests {@link ParsedResultCache}.
+ */
+public final class ParsedResultCacheTestCase extends TestCase {
+
+  public void testLeastRecentlyUsedIsEvicted() {
+    ParsedResultCache cache = new ParsedResultCache(2);
+    ParsedResult foo = new TextParsedResult("foo", null);
+    ParsedResult bar = new TextParsedResult("bar", null);
+    ParsedResult baz = new TextParsedResult("baz", null);
+    cache.put("foo", null, foo);
+    cache.put("bar", null, bar);
+    // Using foo makes bar the eldest
+    assertSame(foo, cache.get("foo", null));
+    cache.put("baz", null, baz);
+    assertEquals(2, cache.size());
+    assertSame(foo, cache.get("foo", null));
+    assertNull(cache.get("bar", null));
+    assertSame(baz, cache.get("baz", null));
+  }
+
+  public void testFormatIsPartOfKey() {
+    ParsedResultCache cache = new ParsedResultCache(2);
+    ParsedResult text = new TextParsedResult("9780201310054", null);
+    cache.put("9780201310054", BarcodeFormat.QR_CODE, text);
+    assertSame(text, cache.get("9780201310054", BarcodeFormat.QR_CODE));
+    assertNull(cache.get("9780201310054", BarcodeFormat.EAN_13));
+  }
+
+  public void testSameTextDifferentFormat() {
+    // An ISBN as a book barcode, but just a number in a QR Code
+    ParsedResult isbn =
+        ResultParser.parseResult(new Result("9780201310054", null, null, BarcodeFormat.EAN_13));
+    ParsedResult text =
+        ResultParser.parseResult(new Result("9780201310054", null, null, BarcodeFormat.QR_CODE));
+    assertEquals(ParsedResultType.ISBN, isbn.getType());
+    assertEquals(ParsedResultType.TEXT, text.getType());
+    assertEquals(ParsedResultType.ISBN, ResultParser.parseResult(
+        new Result("9780201310054", null, null, BarcodeFormat.EAN_13)).getType());
+  }
+
+}
@@ -17,6 +17,7 @@
 package com.google.zxing.common;
 
 import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.DecodeHintType;
 import com.google.zxing.LuminanceSource;
@@ -157,6 +158,10 @@ public abstract class AbstractBlackBoxTestCase extends TestCase {
     return null;
   }
 
+  protected Binarizer createBinarizer(LuminanceSource source) {
+    return new GlobalHistogramBinarizer(source);
+  }
+
   // This workaround is used because AbstractNegativeBlackBoxTestCase overrides this method but does
   // not return SummaryResults.
   public void testBlackBox() throws IOException {
@@ -184,7 +189,7 @@ public abstract class AbstractBlackBoxTestCase extends TestCase {
         float rotation = testResults.get(x).getRotation();
         BufferedImage rotatedImage = rotateImage(image, rotation);
         LuminanceSource source = new BufferedImageLuminanceSource(rotatedImage);
-        BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(source));
+        BinaryBitmap bitmap = new BinaryBitmap(createBinarizer(source));
         if (decode(bitmap, rotation, expectedText, false)) {
           passedCounts[x]++;
         }
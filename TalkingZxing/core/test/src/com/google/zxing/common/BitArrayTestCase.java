@@ -84,4 +84,60 @@ public final class BitArrayTestCase extends TestCase {
     assertFalse(array.isRange(0, 64, false));
   }
 
+  public void testGetNextSet() {
+    BitArray array = new BitArray(100);
+    assertEquals(100, array.getNextSet(0));
+    array.set(3);
+    array.set(64);
+    array.set(99);
+    assertEquals(3, array.getNextSet(0));
+    assertEquals(3, array.getNextSet(3));
+    assertEquals(64, array.getNextSet(4));
+    assertEquals(99, array.getNextSet(65));
+    assertEquals(100, array.getNextSet(100));
+  }
+
+  public void testGetNextUnset() {
+    BitArray array = new BitArray(70);
+    for (int i = 0; i < 70; i++) {
+      array.set(i);
+    }
+    assertEquals(70, array.getNextUnset(0));
+    array.flip(31);
+    array.flip(32);
+    assertEquals(31, array.getNextUnset(0));
+    assertEquals(32, array.getNextUnset(32));
+    assertEquals(70, array.getNextUnset(33));
+  }
+
+  public void testGetRunLengths() {
+    BitArray array = new BitArray(80);
+    for (int i = 30; i < 70; i++) {
+      array.set(i);
+    }
+    array.flip(40);
+    int[] runs = new int[10];
+    assertEquals(5, array.getRunLengths(0, runs));
+    assertEquals(30, runs[0]);
+    assertEquals(10, runs[1]);
+    assertEquals(1, runs[2]);
+    assertEquals(29, runs[3]);
+    assertEquals(10, runs[4]);
+
+    // A row starting with black has an empty first white run
+    assertEquals(5, array.getRunLengths(35, runs));
+    assertEquals(0, runs[0]);
+    assertEquals(5, runs[1]);
+
+    // Stops when the array is full
+    assertEquals(2, array.getRunLengths(0, new int[2]));
+  }
+
+  public void testNumberOfTrailingZeros() {
+    for (int i = 0; i < 32; i++) {
+      assertEquals(i, BitArray.numberOfTrailingZeros(1 << i));
+      assertEquals(i, BitArray.numberOfTrailingZeros(-1 << i));
+    }
+  }
+
 }
\ No newline at end of file
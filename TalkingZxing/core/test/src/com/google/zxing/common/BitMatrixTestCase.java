@@ -121,4 +121,53 @@ public final class BitMatrixTestCase extends TestCase {
     }
   }
 
-}
+  public void testSetRow() {
+    BitMatrix matrix = new BitMatrix(102, 5);
+    BitArray row = new BitArray(102);
+    row.set(0);
+    row.set(50);
+    row.set(101);
+    matrix.setRow(3, row);
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 102; x++) {
+        assertEquals(y == 3 && (x == 0 || x == 50 || x == 101), matrix.get(x, y));
+      }
+    }
+  }
+
+  public void testRotate180() {
+    BitMatrix matrix = new BitMatrix(35, 5);
+    matrix.set(0, 0);
+    matrix.set(33, 1);
+    matrix.set(10, 2);
+    matrix.rotate180();
+    assertTrue(matrix.get(34, 4));
+    assertTrue(matrix.get(1, 3));
+    assertTrue(matrix.get(24, 2));
+    int count = 0;
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 35; x++) {
+        if (matrix.get(x, y)) {
+          count++;
+        }
+      }
+    }
+    assertEquals(3, count);
+  }
+
+  public void testTranspose() {
+    BitMatrix matrix = new BitMatrix(40, 3);
+    for (int x = 0; x < 40; x += 3) {
+      matrix.set(x, x % 3);
+    }
+    BitMatrix transposed = matrix.transpose();
+    assertEquals(3, transposed.getWidth());
+    assertEquals(40, transposed.getHeight());
+    for (int y = 0; y < 3; y++) {
+      for (int x = 0; x < 40; x++) {
+        assertEquals(matrix.get(x, y), transposed.get(y, x));
+      }
+    }
+  }
+
+}
\ No newline at end of file
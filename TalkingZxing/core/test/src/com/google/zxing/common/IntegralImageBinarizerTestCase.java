@@ -0,0 +1,97 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.ReaderException;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public final class IntegralImageBinarizerTestCase extends TestCase {
+
+  private static final int WIDTH = 300;
+  private static final int HEIGHT = 200;
+
+  public void testSharedTableAfterRotation() throws ReaderException {
+    // A landscape frame and then a portrait one of the same area, the way a 1D reader sees the
+    // image after rotateCounterClockwise(), through binarizers which share one summed-area table.
+    Binarizer prototype = new IntegralImageBinarizer(new NoiseSource(WIDTH, HEIGHT, 1));
+    prototype.getBlackMatrix();
+    LuminanceSource rotated = new NoiseSource(HEIGHT, WIDTH, 2);
+    BitMatrix shared = prototype.createBinarizer(rotated).getBlackMatrix();
+    BitMatrix fresh = new IntegralImageBinarizer(rotated).getBlackMatrix();
+    assertMatricesEqual(fresh, shared, HEIGHT, WIDTH);
+  }
+
+  public void testSharedTableAfterResize() throws ReaderException {
+    Binarizer prototype = new IntegralImageBinarizer(new NoiseSource(WIDTH, HEIGHT, 3));
+    prototype.getBlackMatrix();
+    // The 469 x 129 table of a 468 x 128 frame is as large as the 301 x 201 one of 300 x 200
+    LuminanceSource resized = new NoiseSource(468, 128, 4);
+    BitMatrix shared = prototype.createBinarizer(resized).getBlackMatrix();
+    BitMatrix fresh = new IntegralImageBinarizer(resized).getBlackMatrix();
+    assertMatricesEqual(fresh, shared, 468, 128);
+  }
+
+  private static void assertMatricesEqual(BitMatrix expected, BitMatrix actual, int width,
+      int height) {
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        assertEquals("(" + x + ',' + y + ')', expected.get(x, y), actual.get(x, y));
+      }
+    }
+  }
+
+  // Blocks of random greys, so that plenty of pixels land on either side of the threshold.
+  private static final class NoiseSource extends LuminanceSource {
+
+    private final byte[] luminances;
+
+    NoiseSource(int width, int height, long seed) {
+      super(width, height);
+      luminances = new byte[width * height];
+      Random random = new Random(seed);
+      for (int y = 0; y < height; y += 4) {
+        for (int x = 0; x < width; x += 4) {
+          byte grey = (byte) random.nextInt(256);
+          for (int dy = 0; dy < 4 && y + dy < height; dy++) {
+            for (int dx = 0; dx < 4 && x + dx < width; dx++) {
+              luminances[(y + dy) * width + x + dx] = grey;
+            }
+          }
+        }
+      }
+    }
+
+    public byte[] getRow(int y, byte[] row) {
+      int width = getWidth();
+      if (row == null || row.length < width) {
+        row = new byte[width];
+      }
+      System.arraycopy(luminances, y * width, row, 0, width);
+      return row;
+    }
+
+    public byte[] getMatrix() {
+      return luminances;
+    }
+  }
+
+}
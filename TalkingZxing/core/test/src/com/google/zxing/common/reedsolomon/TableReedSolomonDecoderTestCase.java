@@ -0,0 +1,121 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common.reedsolomon;
+
+import java.util.Random;
+
+/**
+ * Checks that {@link TableReedSolomonDecoder} agrees with {@link ReedSolomonDecoder} on both
+ * fields, whether or not the errors can be corrected.
+ */
+public final class TableReedSolomonDecoderTestCase extends AbstractReedSolomonTestCase {
+
+  private static final int[] DM_CODE_TEST_WITH_EC = { 142, 164, 186, 114, 25, 5, 88, 102 };
+
+  public void testQRCodeMatchesReedSolomonDecoder() {
+    Random random = getRandom();
+    for (int i = 0; i < 10; i++) {
+      doTestMatchesReedSolomonDecoder(GF256.QR_CODE_FIELD, encode(26, 10, random), 10, random);
+      doTestMatchesReedSolomonDecoder(GF256.QR_CODE_FIELD, encode(153, 30, random), 30, random);
+    }
+  }
+
+  public void testDataMatrixMatchesReedSolomonDecoder() {
+    Random random = getRandom();
+    doTestMatchesReedSolomonDecoder(GF256.DATA_MATRIX_FIELD, DM_CODE_TEST_WITH_EC, 5, random);
+  }
+
+  public void testGarbageMatchesReedSolomonDecoder() {
+    Random random = getRandom();
+    int[] garbage = new int[255];
+    for (int i = 0; i < garbage.length; i++) {
+      garbage[i] = random.nextInt(256);
+    }
+    doTestMatchesReedSolomonDecoder(GF256.QR_CODE_FIELD, garbage, 62, random);
+    doTestMatchesReedSolomonDecoder(GF256.DATA_MATRIX_FIELD, garbage, 62, random);
+  }
+
+  public void testDecodeBlocks() throws ReedSolomonException {
+    Random random = getRandom();
+    int[] twoS = {10, 10, 16};
+    int[][] expected = new int[twoS.length][];
+    byte[][] blocks = new byte[twoS.length][];
+    for (int i = 0; i < twoS.length; i++) {
+      expected[i] = encode(20 + i + twoS[i], twoS[i], random);
+      int[] received = new int[expected[i].length];
+      System.arraycopy(expected[i], 0, received, 0, received.length);
+      corrupt(received, twoS[i] / 2, random);
+      blocks[i] = new byte[received.length];
+      for (int j = 0; j < received.length; j++) {
+        blocks[i][j] = (byte) received[j];
+      }
+    }
+    new TableReedSolomonDecoder(GF256.QR_CODE_FIELD).decodeBlocks(blocks, twoS);
+    for (int i = 0; i < twoS.length; i++) {
+      for (int j = 0; j < expected[i].length; j++) {
+        assertEquals(expected[i][j], blocks[i][j] & 0xFF);
+      }
+    }
+  }
+
+  private static void doTestMatchesReedSolomonDecoder(GF256 field, int[] codewords, int twoS,
+                                                      Random random) {
+    ReedSolomonDecoder expectedDecoder = new ReedSolomonDecoder(field);
+    TableReedSolomonDecoder decoder = new TableReedSolomonDecoder(field);
+    int length = codewords.length;
+    // Up to and a little beyond the number of errors which can be corrected
+    for (int numErrors = 0; numErrors <= twoS / 2 + 3 && numErrors <= length; numErrors++) {
+      int[] expected = new int[length];
+      System.arraycopy(codewords, 0, expected, 0, length);
+      corrupt(expected, numErrors, random);
+      int[] actual = new int[length];
+      System.arraycopy(expected, 0, actual, 0, length);
+      boolean expectedOK = decodes(expectedDecoder, expected, twoS);
+      boolean actualOK;
+      try {
+        decoder.decode(actual, twoS);
+        actualOK = true;
+      } catch (ReedSolomonException rse) {
+        actualOK = false;
+      }
+      assertEquals(expectedOK, actualOK);
+      if (expectedOK) {
+        assertArraysEqual(expected, 0, actual, 0, length);
+      }
+    }
+  }
+
+  private static boolean decodes(ReedSolomonDecoder decoder, int[] received, int twoS) {
+    try {
+      decoder.decode(received, twoS);
+      return true;
+    } catch (ReedSolomonException rse) {
+      return false;
+    }
+  }
+
+  // Random data followed by its QR Code error-correction codewords.
+  private static int[] encode(int length, int twoS, Random random) {
+    int[] codewords = new int[length];
+    for (int i = 0; i < length - twoS; i++) {
+      codewords[i] = random.nextInt(256);
+    }
+    new ReedSolomonEncoder(GF256.QR_CODE_FIELD).encode(codewords, twoS);
+    return codewords;
+  }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+
+import junit.framework.TestCase;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Tests {@link BatchBarcodeReader} on a sheet made of several black box images, and compares it
+ * with decoding each black box image on its own.
+ */
+public final class BatchBarcodeReaderTestCase extends TestCase {
+
+  // Laid out on a sheet three images across. The last one is there twice.
+  private static final String[] SHEET_IMAGES = {
+      "qrcode-2/1.png", "qrcode-2/10.gif", "code39-1/1.gif",
+      "code128-1/2.gif", "ean8-1/1.gif", "ean8-1/1.gif"
+  };
+  private static final int SHEET_COLUMNS = 3;
+
+  private static final String[] BENCHMARK_DIRECTORIES = {
+      "qrcode-1", "qrcode-2", "ean8-1", "code39-1", "code128-1", "itf-1", "upca-2"
+  };
+
+  private static final FilenameFilter IMAGE_NAME_FILTER = new FilenameFilter() {
+    public boolean accept(File dir, String name) {
+      String lowerCase = name.toLowerCase();
+      return lowerCase.endsWith(".jpg") || lowerCase.endsWith(".jpeg") ||
+             lowerCase.endsWith(".gif") || lowerCase.endsWith(".png");
+    }
+  };
+
+  public void testSheet() throws IOException, ReaderException {
+    BufferedImage[] images = new BufferedImage[SHEET_IMAGES.length];
+    String[] expectedTexts = new String[SHEET_IMAGES.length];
+    int cellWidth = 0;
+    int cellHeight = 0;
+    for (int i = 0; i < images.length; i++) {
+      File file = new File(getBlackBoxDirectory(), SHEET_IMAGES[i]);
+      images[i] = ImageIO.read(file);
+      expectedTexts[i] = readExpectedText(file);
+      cellWidth = Math.max(cellWidth, images[i].getWidth());
+      cellHeight = Math.max(cellHeight, images[i].getHeight());
+    }
+    int rows = (images.length + SHEET_COLUMNS - 1) / SHEET_COLUMNS;
+    BufferedImage sheet = new BufferedImage(SHEET_COLUMNS * cellWidth, rows * cellHeight,
+        BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = sheet.createGraphics();
+    graphics.setColor(Color.WHITE);
+    graphics.fillRect(0, 0, sheet.getWidth(), sheet.getHeight());
+    for (int i = 0; i < images.length; i++) {
+      graphics.drawImage(images[i], (i % SHEET_COLUMNS) * cellWidth,
+          (i / SHEET_COLUMNS) * cellHeight, null);
+    }
+    graphics.dispose();
+
+    BatchBarcodeReader reader = new BatchBarcodeReader(4);
+    Result[] results;
+    try {
+      results = reader.decodeMultiple(
+          new BinaryBitmap(new GlobalHistogramBinarizer(new BufferedImageLuminanceSource(sheet))));
+    } finally {
+      reader.stop();
+    }
+    System.out.println("Sheet of " + images.length + " images: " + reader.getNumCandidates() +
+        " candidates, " + reader.getBinarizeTime() + " ms binarizing, " +
+        reader.getDetectTime() + " ms detecting, " + reader.getDecodeTime() + " ms decoding");
+
+    // The duplicate image is only reported once
+    assertEquals(images.length - 1, results.length);
+    for (int i = 0; i < images.length - 1; i++) {
+      Result found = null;
+      for (int j = 0; j < results.length; j++) {
+        if (expectedTexts[i].equals(results[j].getText())) {
+          assertNull(SHEET_IMAGES[i] + " found twice", found);
+          found = results[j];
+        }
+      }
+      assertNotNull(SHEET_IMAGES[i] + " not found", found);
+      // The points are on the sheet, in the image's cell, unless it is the duplicate
+      if (!SHEET_IMAGES[i].equals(SHEET_IMAGES[images.length - 1])) {
+        ResultPoint point = found.getResultPoints()[0];
+        assertEquals(SHEET_IMAGES[i], i % SHEET_COLUMNS, (int) point.getX() / cellWidth);
+        assertEquals(SHEET_IMAGES[i], i / SHEET_COLUMNS, (int) point.getY() / cellHeight);
+      }
+    }
+  }
+
+  /**
+   * Decodes each black box image with the batch reader and with MultiFormatReader, and prints the
+   * success rates and how the batch reader's time is spread over its stages. The batch reader has
+   * to find at least as many as MultiFormatReader in each directory. One reader does all the
+   * images, so its worker threads are reused from image to image.
+   */
+  public void testBenchmark() throws IOException {
+    BatchBarcodeReader batchReader = new BatchBarcodeReader(2);
+    MultiFormatReader reader = new MultiFormatReader();
+    try {
+      benchmark(batchReader, reader);
+    } finally {
+      batchReader.stop();
+    }
+  }
+
+  private static void benchmark(BatchBarcodeReader batchReader, MultiFormatReader reader)
+      throws IOException {
+    for (int i = 0; i < BENCHMARK_DIRECTORIES.length; i++) {
+      File directory = new File(getBlackBoxDirectory(), BENCHMARK_DIRECTORIES[i]);
+      File[] imageFiles = directory.listFiles(IMAGE_NAME_FILTER);
+      int batchFound = 0;
+      int found = 0;
+      int candidates = 0;
+      long binarizeTime = 0L;
+      long detectTime = 0L;
+      long decodeTime = 0L;
+      long time = 0L;
+      for (int j = 0; j < imageFiles.length; j++) {
+        BufferedImage image = ImageIO.read(imageFiles[j]);
+        String expectedText = readExpectedText(imageFiles[j]);
+        try {
+          Result[] results = batchReader.decodeMultiple(
+              new BinaryBitmap(new GlobalHistogramBinarizer(new BufferedImageLuminanceSource(image))));
+          for (int k = 0; k < results.length; k++) {
+            if (expectedText.equals(results[k].getText())) {
+              batchFound++;
+              break;
+            }
+          }
+        } catch (ReaderException re) {
+          // not found
+        }
+        candidates += batchReader.getNumCandidates();
+        binarizeTime += batchReader.getBinarizeTime();
+        detectTime += batchReader.getDetectTime();
+        decodeTime += batchReader.getDecodeTime();
+
+        long start = System.currentTimeMillis();
+        try {
+          Result result = reader.decode(
+              new BinaryBitmap(new GlobalHistogramBinarizer(new BufferedImageLuminanceSource(image))));
+          if (expectedText.equals(result.getText())) {
+            found++;
+          }
+        } catch (ReaderException re) {
+          // not found
+        }
+        time += System.currentTimeMillis() - start;
+      }
+      System.out.println(BENCHMARK_DIRECTORIES[i] + ": batch found " + batchFound + '/' +
+          imageFiles.length + " from " + candidates + " candidates in " + binarizeTime + " + " +
+          detectTime + " + " + decodeTime + " ms; MultiFormatReader found " + found + " in " +
+          time + " ms");
+      assertTrue(BENCHMARK_DIRECTORIES[i] + ": batch found " + batchFound +
+          " but MultiFormatReader found " + found, batchFound >= found);
+    }
+  }
+
+  private static File getBlackBoxDirectory() {
+    File testBase = new File("test/data/blackbox");
+    if (!testBase.exists()) {
+      testBase = new File("core/test/data/blackbox");
+    }
+    assertTrue("Please run from the 'core' directory", testBase.exists());
+    return testBase;
+  }
+
+  private static String readExpectedText(File imageFile) throws IOException {
+    String name = imageFile.getName();
+    File expectedTextFile =
+        new File(imageFile.getParentFile(), name.substring(0, name.indexOf('.')) + ".txt");
+    StringBuilder result = new StringBuilder((int) expectedTextFile.length());
+    InputStreamReader reader =
+        new InputStreamReader(new FileInputStream(expectedTextFile), Charset.forName("UTF8"));
+    try {
+      char[] buffer = new char[256];
+      int charsRead;
+      while ((charsRead = reader.read(buffer)) > 0) {
+        result.append(buffer, 0, charsRead);
+      }
+    } finally {
+      reader.close();
+    }
+    return result.toString();
+  }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.qrcode;
+
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.AbstractBlackBoxTestCase;
+
+/**
+ * Runs the QRCodeBlackBox1TestCase images through MultiFormatReader with the readers running in
+ * parallel, which must find exactly the same codes as the sequential version.
+ */
+public final class QRCodeParallelBlackBox1TestCase extends AbstractBlackBoxTestCase {
+
+  public QRCodeParallelBlackBox1TestCase() {
+    super("test/data/blackbox/qrcode-1", buildReader(), BarcodeFormat.QR_CODE);
+    addTest(19, 19, 0.0f);
+    addTest(15, 15, 90.0f);
+    addTest(17, 17, 180.0f);
+    addTest(14, 14, 270.0f);
+  }
+
+  private static MultiFormatReader buildReader() {
+    MultiFormatReader reader = new MultiFormatReader();
+    reader.setDecodeThreads(4);
+    return reader;
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.qrcode.encoder;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.common.ByteMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.decoder.Version;
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Checks MaskEvaluator's penalties against MaskUtil's rules on fully built matrices.
+ */
+public final class MaskEvaluatorTestCase extends TestCase {
+
+  private static final int[] VERSIONS = {1, 2, 6, 7, 10, 14, 27, 40};
+  private static final ErrorCorrectionLevel[] LEVELS = {
+      ErrorCorrectionLevel.L, ErrorCorrectionLevel.M, ErrorCorrectionLevel.Q, ErrorCorrectionLevel.H
+  };
+
+  public void testPenaltiesMatchMaskUtil() throws WriterException {
+    Random random = new Random(0xdeadbeefL);
+    for (int i = 0; i < VERSIONS.length; i++) {
+      for (int j = 0; j < LEVELS.length; j++) {
+        Version version = Version.getVersionForNumber(VERSIONS[i]);
+        BitVector bits = randomBits(version.getTotalCodewords() * 8, random);
+        int dimension = version.getDimensionForVersion();
+        ByteMatrix matrix = new ByteMatrix(dimension, dimension);
+        MaskEvaluator evaluator = new MaskEvaluator(bits, LEVELS[j], VERSIONS[i], matrix);
+        int[][] rows = new int[dimension][(dimension + 31) >> 5];
+        int[][] columns = new int[dimension][(dimension + 31) >> 5];
+        int bestMaskPattern = -1;
+        int minPenalty = Integer.MAX_VALUE;
+        for (int maskPattern = 0; maskPattern < QRCode.NUM_MASK_PATTERNS; maskPattern++) {
+          MatrixUtil.buildMatrix(bits, LEVELS[j], VERSIONS[i], maskPattern, matrix);
+          int expected = MaskUtil.applyMaskPenaltyRule1(matrix) +
+              MaskUtil.applyMaskPenaltyRule2(matrix) +
+              MaskUtil.applyMaskPenaltyRule3(matrix) +
+              MaskUtil.applyMaskPenaltyRule4(matrix);
+          assertEquals("version " + VERSIONS[i] + ' ' + LEVELS[j] + " mask " + maskPattern,
+              expected, evaluator.calculatePenalty(maskPattern, rows, columns));
+          if (expected < minPenalty) {
+            minPenalty = expected;
+            bestMaskPattern = maskPattern;
+          }
+        }
+        assertEquals(bestMaskPattern, evaluator.chooseMaskPattern(1));
+        assertEquals(bestMaskPattern, evaluator.chooseMaskPattern(3));
+      }
+    }
+  }
+
+  private static BitVector randomBits(int size, Random random) {
+    BitVector bits = new BitVector();
+    for (int i = 0; i < size; i++) {
+      bits.appendBit(random.nextInt(2));
+    }
+    return bits;
+  }
+
+}
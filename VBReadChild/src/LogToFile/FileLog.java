@@ -1,13 +1,16 @@
 package LogToFile;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.concurrent.locks.LockSupport;
 import java.util.zip.Deflater;
 
 import org.apache.http.HttpResponse;
@@ -23,8 +26,19 @@ import android.net.ConnectivityManager;
 import android.os.Environment;
 import android.telephony.TelephonyManager;
 import android.util.Log;
-import android.widget.Toast;
 
+/** Logs user activity to a file on the sd card and posts it to the
+ *  vbraille server.
+ *
+ *  addEntry() only puts the entry in a LogRing and returns, so touch
+ *  handling never waits on the disk or the network.  A writer thread
+ *  (LogWriter) formats the entries, appends them to the log file through
+ *  a buffer, and collects them into batches of up to
+ *  MAX_POSTS_BEFORE_SEND, which it deflates into chunks.  The HttpPost
+ *  thread (HttpPostManager) posts the chunks one at a time, backing off
+ *  while the network or the server is down.  At most MAX_PENDING_CHUNKS
+ *  chunks are kept waiting; past that the oldest is dropped.
+ */
 public class FileLog {
 	
 	private static final String URL = "http://vbraille.cs.washington.edu/logentry.php";
@@ -33,9 +47,15 @@ public class FileLog {
 	private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss:SSS";
 	private static final String TAG = "FileLog";
 	private static final int MAX_POSTS_BEFORE_SEND = 100;
+	// entries that can be waiting for the writer thread
+	private static final int RING_SIZE = 1024;
+	// deflated chunks that can be waiting to be posted
+	private static final int MAX_PENDING_CHUNKS = 20;
+	// a batch that isn't full is still sent once it's this old
+	private static final long BATCH_INTERVAL = 2000;
 
 	private boolean mLogToFileEnabled;  // set false if log file > 1MB or no writeable external storage is available
-	private RandomAccessFile mRAF;
+	private volatile OutputStream mOut;
 	private File mFile;
 	private String mFilename;
 	private boolean mExternalStorageAvailable = false;
@@ -43,28 +63,65 @@ public class FileLog {
 	private boolean mFileTooBig = false;
 	private Context mContext;
 	private ConnectivityManager mConnMgr;
-	private volatile ArrayList<String> mPostMsg;
 	private String mUser;
 	private TelephonyManager mTeleMgr;
 	private String mDeviceId = "unknown";	
+	private String mUrl;
+
+	// Entries from addEntry() waiting for the writer thread
+	private LogRing mRing;
+
+	// Only used by the writer thread
+	private SimpleDateFormat mDateFormat = new SimpleDateFormat(DATE_FORMAT);
+	private Date mDate = new Date();
+	private Deflater mDeflater = new Deflater(Deflater.BEST_COMPRESSION);
+	private StringBuilder mBatch = new StringBuilder();
+	private int mBatchCount = 0;
+	private long mBatchStarted = 0;
+
+	// Deflated chunks waiting to be posted, oldest first.  Also the lock
+	// the HttpPost thread waits on.
+	private LinkedList<byte[]> mChunks = new LinkedList<byte[]>();
+
+	// Only used by the HttpPost thread
+	private HttpClient mHttpClient;
+
+	// Thread for LogWriter
+	private Thread mWriter;
+	private volatile boolean mFlushRequested = false;
+	protected volatile boolean mClosing = false;
+	private volatile boolean mWriterDone = false;
 	
 	// Thread for HttpPostManager
 	private Thread mPoster;
-	protected boolean mSentInterrupt = false;
+	protected volatile boolean mSentInterrupt = false;
 	
 	public FileLog(Context context, String fn, String user)  
+	{
+		this(context, fn, user, URL);
+	}
+
+	/** @param url where to post the entries, for example a test server */
+	public FileLog(Context context, String fn, String user, String url)
 	{
 		mContext = context;
 		mConnMgr = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
 		mFilename = fn;
 		mLogToFileEnabled = true;
-		mPostMsg = new ArrayList<String>(MAX_POSTS_BEFORE_SEND + 1);
+		mRing = new LogRing(RING_SIZE);
 		mUser = user;
+		mUrl = url;
 		mTeleMgr = (TelephonyManager) mContext.getSystemService(Context.TELEPHONY_SERVICE);
 		mDeviceId = mTeleMgr.getDeviceId();
 		
+		// LogWriter thread
+		mWriter = new Thread(new LogWriter(this));
+		mWriter.setPriority(Thread.MIN_PRIORITY);
+		mWriter.start();
+
 		// HttpPost thread
 		mPoster = new Thread(new HttpPostManager(this));
+		mPoster.setPriority(Thread.MIN_PRIORITY);
 		mPoster.start();
 	}
 	
@@ -112,82 +169,59 @@ public class FileLog {
 		storageAvailable();
 		if (mExternalStorageAvailable && mExternalStorageWriteable) {
 			mFile = new File(Environment.getExternalStorageDirectory(), mFilename);
-			if (!mFile.exists()) {
-				try {
-					mFile.createNewFile();
-				} catch (IOException e) {
-					result = false;
-				}		
-			}
-			
-			if (result) {
-					try {
-						mRAF = new RandomAccessFile(mFile, "rwd");
-					} catch (FileNotFoundException e) {
-						result = false;
-					}
-			}
 
 			// If file size is greater than 1GB, disable logging
 			long max = 1024L * 1024L * 1024L;
-			long len = 0L;
-			try {
-				len = mRAF.length();
-			} catch (IOException e) {
-				result = false;
-				closeLogFile();
-			}
-			if (len > max) {
+			if (mFile.length() > max) {
 				mLogToFileEnabled = false;
-				closeLogFile();
 				mFileTooBig = true;
 				result = false;
 			}
+			
+			if (result) {
+				try {
+					// appends, creating the file if needed
+					mOut = new BufferedOutputStream(new FileOutputStream(mFile, true), 8192);
+				} catch (FileNotFoundException e) {
+					mLogToFileEnabled = false;
+					result = false;
+				}
+			}
 		}
 		else result = false;
 		return result;
 		
 	} // end openLogFile()
 
+	/** Queues an entry for the log file and the server.  Never blocks; if
+	 *  the writer thread has fallen RING_SIZE entries behind, the entry is
+	 *  dropped. */
 	public void addEntry(String app, String session, int round, String code, String text) 
 	{
-		Date now = new Date();
-		SimpleDateFormat sdf = new SimpleDateFormat(DATE_FORMAT);
-		String msg = session + " " + round + " " + sdf.format(now) + " " + code + " " + text + " ";
-		// move the actual posting action to a worker thread
-		//if (mPostMsg.size() >= MAX_POSTS_BEFORE_SEND) {  // automatically post entries if max is reached
-		//	postEntries();  // the method will clear the mPostMsg arraylist if post is successful
-		//}
-		
-		// synchronize access to the mPostMsg arraylist since the app might be adding at the same
-	    // time the worker thread is trying to clone/clear it (in postEntries()).
-		synchronized(this) {
-			mPostMsg.add(msg);
-		}
-		if (isEnabled()) {  // will be disabled if no writeable external storage or file > 1MB
-			msg = mDeviceId + " " + app + " " + msg + "\n";
-			try {
-				mRAF.seek(mFile.length());
-				// encode using single bytes and keep it short
-				mRAF.writeBytes(msg);
-			} catch (IOException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		}
-		Log.v(TAG, "addEntry");
+		Entry entry = new Entry();
+		entry.time = System.currentTimeMillis();
+		entry.app = app;
+		entry.session = session;
+		entry.round = round;
+		entry.code = code;
+		entry.text = text;
+		mRing.offer(entry);
+		// wake the writer early if the ring is filling up
+		if (mRing.size() >= RING_SIZE / 4)
+			LockSupport.unpark(mWriter);
 	} // end addEntry()
 	
+	/** Tells the writer thread to write out everything and close the file.
+	 *  Doesn't wait for it. */
 	public void closeLogFile() 
 	{
 		Log.v(TAG, "closeLogFile()");
-		if (isEnabled()) {
-			try {
-				mRAF.close();
-			} catch (IOException e) {}
-		}
+		mClosing = true;
+		LockSupport.unpark(mWriter);
 	} // end closeLogFile()
 	
+	/** Stops the HttpPost thread once everything logged before
+	 *  closeLogFile() has been posted, or has failed to post once. */
 	public void stopHttpPostThread() 
 	{
 		Log.v(TAG, "stopHttpPostThread()");
@@ -195,109 +229,211 @@ public class FileLog {
 		mPoster.interrupt();
 	} 
 	
-	// Called by the HttpPost thread and in the onPause() method of FileLog
+	/** Sends the entries logged so far without waiting for a full batch.
+	 *  The posting itself happens on the HttpPost thread.
+	 *  @return the number of chunks that were waiting to be posted */
 	public int postEntries() {
 		Log.v(TAG, "postEntries()");
-		int returnval = 0;
+		mFlushRequested = true;
+		LockSupport.unpark(mWriter);
+		synchronized (mChunks) {
+			return mChunks.size();
+		}
+	}
 		
-		if (mConnMgr.getActiveNetworkInfo() == null || !mConnMgr.getActiveNetworkInfo().isConnected()) {
-			// No active network -- to prevent huge posting if network connection is re-established, clear memory when number
-			// of current, unsent postings exceeds 100
-			if (mPostMsg.size() >= 100) synchronized(this) {
-		    	mPostMsg.clear();
-		    }
-			returnval = 1;
+	// -----Called by the LogWriter thread-----
+
+	/** Writes everything in the ring to the file and the current batch,
+	 *  and hands the batch to the HttpPost thread if it's full or old
+	 *  enough. */
+	void writeEntries()
+	{
+		boolean wrote = false;
+		Entry entry;
+		while ((entry = (Entry)mRing.poll()) != null) {
+			mDate.setTime(entry.time);
+			String msg = entry.session + " " + entry.round + " " + mDateFormat.format(mDate) + " " + entry.code + " " + entry.text + " ";
+			if (mBatchCount == 0)
+				mBatchStarted = System.currentTimeMillis();
+			mBatch.append(msg);
+			mBatchCount++;
+			if (mBatchCount >= MAX_POSTS_BEFORE_SEND)
+				sealBatch();
+
+			if (isEnabled() && mOut != null) {  // will be disabled if no writeable external storage or file > 1MB
+				try {
+					// encode using single bytes and keep it short
+					mOut.write((mDeviceId + " " + entry.app + " " + msg + "\n").getBytes("ISO-8859-1"));
+					wrote = true;
+				} catch (IOException e) {
+					Log.e(TAG, "Couldn't write to the log file: " + e);
+				}
+			}
 		}
 		
-		// if connection is available
-		else if (mPostMsg.size() > 0)
-		{
-		    // Create a new HttpClient and Post Header
-		    HttpClient httpclient = new DefaultHttpClient();
-		    HttpPost httppost = new HttpPost(URL);
-		    String text = "";
-		    ArrayList<String> postMessages;
-		    // synchronize access to the mPostMsg arraylist since the app might be adding at the same
-		    // time the worker thread is trying to clone/clear it.
-		    synchronized(this) {
-		    	postMessages = (ArrayList<String>) mPostMsg.clone();
-		    	mPostMsg.clear();
-		    }
-		    for (int i = 0; i < postMessages.size(); i++) {
-		    	text += postMessages.get(i);
-		    	Log.v(TAG, postMessages.get(i));
-		    }
-		    // check to make sure the text was built.  this check is needed in the situation
-		    // where the UI thread is in the onPause() method and calls LogFile's addEntry method
-		    // just before the worker thread gets the preceding synchronized code (that is, in the
-		    // case where the worker thread was just starting the postEntries() method when the UI 
-		    // thread called interrupt on it.) In this scenario, the worker thread will catch that 
-		    // final log entry and clear the arraylist before the UI thread gets to it. Without 
-		    // this check, the UI thread wouldn't have any messages to send and would just send an empty log.
-		    if (!text.equals("")) {
-			    text = mUser + " " + mDeviceId + " " + text;
-			    byte[] compressedText = compressString(text);
+		long dropped = mRing.takeDropped();
+		if (dropped > 0)
+			Log.w(TAG, "Dropped " + dropped + " entries, the writer fell behind");
 		
-			    try {
-			    	ByteArrayEntity entity = new ByteArrayEntity(compressedText);
-			    	httppost.setEntity(entity);
-			        Log.v(TAG, "httppost.setEntity");
+		if (wrote) {
+			try {
+				mOut.flush();
+			} catch (IOException e) {
+				Log.e(TAG, "Couldn't write to the log file: " + e);
+			}
+		}
 		
-			        // Execute HTTP Post Request
-			        HttpResponse response = httpclient.execute(httppost);
-			        String responseText = EntityUtils.toString(response.getEntity());	
-			        Log.v(TAG, "Response: " + responseText); 
+		if (mBatchCount > 0 && (mFlushRequested || mClosing ||
+				System.currentTimeMillis() - mBatchStarted >= BATCH_INTERVAL))
+			sealBatch();
+		mFlushRequested = false;
+	}
 			        
+	/** Closes the file once the last entries have been written. */
+	void finishWriting()
+	{
+		if (mOut != null) {
+			try {
+				mOut.close();
+			} catch (IOException e) {}
+		}
+		mDeflater.end();
+		synchronized (mChunks) {
+			mWriterDone = true;
+			mChunks.notifyAll();
+		}
+	}
 			        
+	private void sealBatch()
+	{
+		byte[] chunk = compressString(mUser + " " + mDeviceId + " " + mBatch);
+		mBatch.setLength(0);
+		mBatchCount = 0;
+		synchronized (mChunks) {
+			if (mChunks.size() >= MAX_PENDING_CHUNKS) {
+				// to prevent a huge post when the network comes back, drop the oldest
+				mChunks.removeFirst();
+				Log.w(TAG, "Too many unsent chunks, dropped the oldest");
+			}
+			mChunks.addLast(chunk);
+			mChunks.notifyAll();
+		}
+	}
 	
-			    } catch (ClientProtocolException e) {
-			        // TODO Auto-generated catch block
-			    	returnval = 2;
-			    } catch (IOException e) {
-			        // TODO Auto-generated catch block
-			    	returnval = 3;
-			    }
-		    }
+	// -----Called by the HttpPost thread-----
+
+	/** Waits delay milliseconds (at most BATCH_INTERVAL once stopping), then until there is a
+	 *  chunk to post.
+	 *  @return the oldest chunk, left in the queue until removeChunk(), or
+	 *  null once the thread is stopped and everything has been written */
+	byte[] waitForChunk(long delay)
+	{
+		long until = System.currentTimeMillis() + delay;
+		synchronized (mChunks) {
+			while (true) {
+				long now = System.currentTimeMillis();
+				// don't sit out a long backoff once we've been told to stop
+				if (mSentInterrupt && until - now > BATCH_INTERVAL)
+					until = now + BATCH_INTERVAL;
+				if (!mChunks.isEmpty() && now >= until)
+					return mChunks.getFirst();
+				if (mSentInterrupt && mWriterDone && mChunks.isEmpty())
+					return null;
+				try {
+					mChunks.wait(mChunks.isEmpty() ? BATCH_INTERVAL : Math.max(1, until - now));
+				} catch (InterruptedException e) {
+					// stopHttpPostThread() -- check again
+				}
+			}
+		}
+	}
+
+	void removeChunk(byte[] chunk)
+	{
+		synchronized (mChunks) {
+			// it may have been dropped already
+			if (!mChunks.isEmpty() && mChunks.getFirst() == chunk)
+				mChunks.removeFirst();
 		}
-		else returnval = 4;
-		return returnval;
+	}
+
+	boolean isWriterDone()
+	{
+		return mWriterDone;
+	}
+
+	/** Posts one deflated chunk.
+	 *  @return 0 if it was posted, 1 if there's no network, 2 or 3 if the
+	 *  post failed */
+	int postChunk(byte[] chunk)
+	{
+		if (mConnMgr.getActiveNetworkInfo() == null || !mConnMgr.getActiveNetworkInfo().isConnected())
+			return 1;
+
+		if (mHttpClient == null)
+			mHttpClient = new DefaultHttpClient();
+		HttpPost httppost = new HttpPost(mUrl);
+		try {
+	    	httppost.setEntity(new ByteArrayEntity(chunk));
+
+	        // Execute HTTP Post Request
+	        HttpResponse response = mHttpClient.execute(httppost);
+	        String responseText = EntityUtils.toString(response.getEntity());
+	        Log.v(TAG, "Response: " + responseText);
+	        int status = response.getStatusLine().getStatusCode();
+	        if (status < 200 || status >= 300)
+	        	return 2;
+	    } catch (ClientProtocolException e) {
+	    	return 2;
+	    } catch (IOException e) {
+	    	return 3;
+	    }
+	    return 0;
+	}
+
+	void closeHttpClient()
+	{
+		if (mHttpClient != null)
+			mHttpClient.getConnectionManager().shutdown();
 	} 
 		
 	private byte[] compressString(String stringToCompress) 
 	{ 
-		Log.i(TAG, "Compressing String " + stringToCompress);
 		byte[] input = stringToCompress.getBytes();
 		
-		// Create the compressor with highest level of compression 
-		Deflater compressor = new Deflater();
-		compressor.setLevel(Deflater.BEST_COMPRESSION);
+		// The writer thread keeps one compressor, with highest level of
+		// compression, instead of making a new one per chunk
+		mDeflater.reset();
 		
 		// Give the compressor the data to compress 
-		compressor.setInput(input); 
-		compressor.finish();
+		mDeflater.setInput(input);
+		mDeflater.finish();
 		
 		// Create an expandable byte array to hold the compressed data.
 		// You cannot use an array that's the same size as the orginal because 
 		// there is no guarantee that the compressed data will be smaller than 
 		// the uncompressed data.
-		ByteArrayOutputStream bos = new ByteArrayOutputStream(input.length);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(input.length / 4 + 64);
 		
 		// Compress the data 
 		byte[] buf = new byte[1024]; 
-		while (!compressor.finished()) { 
-			int count = compressor.deflate(buf);
+		while (!mDeflater.finished()) {
+			int count = mDeflater.deflate(buf);
 			bos.write(buf, 0, count); 
 		} 
 		
-		try { 
-			bos.close();
-		} catch (IOException e) { } 
-		
-		// Get the compressed data 
-		byte[] compressedData = bos.toByteArray(); 
+		// Get the compressed data
+		return bos.toByteArray();
+	}
 		
-		Log.i(TAG, "Finished to compress string " + stringToCompress);
-		return compressedData;
+	// One call to addEntry(), formatted later by the writer thread
+	private static class Entry {
+		long time;
+		String app;
+		String session;
+		int round;
+		String code;
+		String text;
 	}
 		
 }
@@ -3,7 +3,9 @@ package LogToFile;
 /** This runnable is used by FileLog to offload the
  *  posting of log entries via HTTP from the UI thread
  *  to a worker thread since the posting activity can
- *  block significantly.
+ *  block significantly.  It posts the deflated chunks
+ *  FileLog queues one at a time, and doubles the wait
+ *  between tries, up to maxSleepTime, while they fail.
  * 
  * @author hollijr
  */
@@ -11,6 +13,8 @@ public class HttpPostManager implements Runnable
 {
 	// Initialize sleep time in milliseconds
 	private static final int sleepTime = 2000;
+	// Longest wait between retries, in milliseconds
+	private static final int maxSleepTime = 64000;
 	
 	private FileLog mFileLog;
 		
@@ -20,19 +24,32 @@ public class HttpPostManager implements Runnable
 
 	@Override
 	public void run() {
-		// Sleep for established time interval
+		long delay = 0;
 		while (true) {
-			try {
-				Thread.sleep(sleepTime);
-			} catch (InterruptedException e) {
-				if (mFileLog.mSentInterrupt)
-					return;
-			}
+			// Wait out the backoff, then for a chunk to post
+			byte[] chunk = mFileLog.waitForChunk(delay);
+			if (chunk == null) break;
 			
-			// On waking, post any available entries
-			if (!mFileLog.mSentInterrupt) mFileLog.postEntries();	
-			else return;
+			if (mFileLog.postChunk(chunk) == 0) {
+				mFileLog.removeChunk(chunk);
+				delay = 0;
+			}
+			else if (mFileLog.mSentInterrupt) {
+				// Stopping: once the log is closed, each chunk left gets
+				// one try, and one that fails is dropped for the next
+				if (mFileLog.isWriterDone()) {
+					mFileLog.removeChunk(chunk);
+					delay = 0;
+					continue;
+				}
+				delay = sleepTime;
+			}
+			else {
+				// Back off while the network or the server is down
+				delay = (delay == 0) ? sleepTime : Math.min(delay * 2, maxSleepTime);
+			}
 		}		
+		mFileLog.closeHttpClient();
 	}
 
 
@@ -370,7 +370,7 @@ public class VBReader extends Activity
 			if (LOG_USER_ACTIVITY) {
 				mLogEnabled = false;
 				mLog.stopHttpPostThread();  // stop the worker thread
-				mLog.postEntries();  // post any remaining entries on the UI thread
+				mLog.postEntries();  // hand any remaining entries to the HttpPost thread
 				mLog.closeLogFile();
 				mLog = null;
 			}
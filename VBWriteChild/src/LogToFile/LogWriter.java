@@ -0,0 +1,34 @@
+package LogToFile;
+
+import java.util.concurrent.locks.LockSupport;
+
+/** This runnable is used by FileLog to move formatting
+ *  and writing log entries off the UI thread.  It drains
+ *  the FileLog's LogRing every WRITE_INTERVAL, or sooner
+ *  if woken, until the log is closed.
+ */
+public class LogWriter implements Runnable
+{
+	private static final long WRITE_INTERVAL = 500 * 1000L * 1000L;  // in nanoseconds
+
+	private FileLog mFileLog;
+
+	public LogWriter(FileLog filelog) {
+		mFileLog = filelog;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			// read this before draining, so entries added before the
+			// close are always written
+			boolean closing = mFileLog.mClosing;
+			mFileLog.writeEntries();
+			if (closing) {
+				mFileLog.finishWriting();
+				return;
+			}
+			LockSupport.parkNanos(WRITE_INTERVAL);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package LogToFile;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** A fixed size queue of log entries that the UI thread (or any other
+ *  thread) can add to without ever taking a lock or waiting, and that
+ *  one writer thread takes them out of.
+ *
+ *  Producers claim a slot by moving the tail forward with a
+ *  compare-and-set, then fill it in.  The writer only takes a slot once
+ *  it has been filled in, so it never sees a half added entry.  When the
+ *  queue is full the entry is dropped and counted instead of making the
+ *  caller wait for the disk.
+ */
+public class LogRing
+{
+	private final AtomicReferenceArray<Object> mSlots;
+	private final int mMask;
+	// next slot to fill; only producers move it
+	private final AtomicLong mTail = new AtomicLong();
+	// next slot to take; only the writer moves it
+	private volatile long mHead = 0;
+	private final AtomicLong mDropped = new AtomicLong();
+
+	/** @param capacity the most entries that can wait at once, rounded up
+	 *  to a power of two */
+	public LogRing(int capacity) {
+		int size = 1;
+		while (size < capacity) size <<= 1;
+		mSlots = new AtomicReferenceArray<Object>(size);
+		mMask = size - 1;
+	}
+
+	/** Adds an entry if there's room.
+	 *  @return false if the queue was full and the entry was dropped */
+	public boolean offer(Object entry) {
+		while (true) {
+			long tail = mTail.get();
+			if (tail - mHead >= mSlots.length()) {
+				mDropped.incrementAndGet();
+				return false;
+			}
+			if (mTail.compareAndSet(tail, tail + 1)) {
+				mSlots.set((int)tail & mMask, entry);
+				return true;
+			}
+		}
+	}
+
+	/** Takes the oldest entry.  Must only be called from the writer thread.
+	 *  @return the entry, or null if there's nothing (finished) to take */
+	public Object poll() {
+		long head = mHead;
+		int slot = (int)head & mMask;
+		Object entry = mSlots.get(slot);
+		if (entry == null)
+			return null;
+		mSlots.set(slot, null);
+		mHead = head + 1;
+		return entry;
+	}
+
+	/** @return roughly how many entries are waiting */
+	public int size() {
+		return (int)(mTail.get() - mHead);
+	}
+
+	public int capacity() {
+		return mSlots.length();
+	}
+
+	/** @return how many entries have been dropped since the last call */
+	public long takeDropped() {
+		return mDropped.getAndSet(0);
+	}
+}